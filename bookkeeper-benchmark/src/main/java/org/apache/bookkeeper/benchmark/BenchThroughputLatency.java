@@ -39,12 +39,14 @@ import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.meta.zk.ZKMetadataDriverBase;
+import org.apache.bookkeeper.util.LocalBookKeeper;
+import org.apache.bookkeeper.util.PortManager;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
-import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
@@ -237,8 +239,7 @@ public class BenchThroughputLatency implements AddCallback, Runnable {
     }
 
     @SuppressWarnings("deprecation")
-    public static void main(String[] args)
-            throws KeeperException, IOException, InterruptedException, ParseException, BKException {
+    public static void main(String[] args) throws Exception {
         Options options = new Options();
         options.addOption("time", true, "Running time (seconds), default 60");
         options.addOption("entrysize", true, "Entry size (bytes), default 1024");
@@ -255,6 +256,10 @@ public class BenchThroughputLatency implements AddCallback, Runnable {
         options.addOption("skipwarmup", false, "Skip warm up, default false");
         options.addOption("sendlimit", true, "Max number of entries to send. Default 20000000");
         options.addOption("latencyFile", true, "File to dump latencies. Default is latencyDump.dat");
+        options.addOption("localbookies", true,
+                "Run the given number of bookies and a zookeeper server in this JVM (optional)");
+        options.addOption("directtransport", false,
+                "Hand requests to in-JVM bookies without wire encoding, requires -localbookies");
         options.addOption("help", false, "This message");
 
         CommandLineParser parser = new PosixParser();
@@ -287,6 +292,20 @@ public class BenchThroughputLatency implements AddCallback, Runnable {
 
         String latencyFile = cmd.getOptionValue("latencyFile", "latencyDump.dat");
 
+        LocalBookKeeper localBookies = null;
+        if (cmd.hasOption("localbookies")) {
+            int numBookies = Integer.parseInt(cmd.getOptionValue("localbookies"));
+            int zkPort = PortManager.nextFreePort();
+            ServerConfiguration bookieConf = new ServerConfiguration();
+            bookieConf.setEnableLocalTransport(true);
+            bookieConf.setAllowLoopback(true);
+            localBookies = LocalBookKeeper.getLocalBookies("127.0.0.1", zkPort, numBookies, true, bookieConf);
+            localBookies.start();
+            servers = "127.0.0.1:" + zkPort;
+        }
+        boolean directTransport = localBookies != null && cmd.hasOption("directtransport");
+        String transport = localBookies == null ? "network" : (directTransport ? "local-direct" : "local-channel");
+
         Timer timeouter = new Timer();
         if (cmd.hasOption("timeout")) {
             final long timeout = Long.parseLong(cmd.getOptionValue("timeout", "360")) * 1000;
@@ -306,6 +325,7 @@ public class BenchThroughputLatency implements AddCallback, Runnable {
                 + ", throttle: " + throttle
                 + ", number of ledgers: " + ledgers
                 + ", zk servers: " + servers
+                + ", transport: " + transport
                 + ", latency file: " + latencyFile);
 
         long totalTime = runningTime * 1000;
@@ -318,6 +338,7 @@ public class BenchThroughputLatency implements AddCallback, Runnable {
 
         ClientConfiguration conf = new ClientConfiguration();
         conf.setThrottleValue(throttle).setReadTimeout(sockTimeout).setZkServers(servers);
+        conf.setLocalDirectTransportEnabled(directTransport);
 
         if (!cmd.hasOption("skipwarmup")) {
             long throughput;
@@ -391,7 +412,8 @@ public class BenchThroughputLatency implements AddCallback, Runnable {
 
         long tp = (long) ((double) (numcompletions * 1000.0) / (double) bench.getDuration());
 
-        LOG.info(numcompletions + " completions in " + bench.getDuration() + " milliseconds: " + tp + " ops/sec");
+        LOG.info(numcompletions + " completions in " + bench.getDuration() + " milliseconds: " + tp + " ops/sec"
+                + " (transport: " + transport + ")");
 
         if (zk != null) {
             zk.create(coordinationZnode + "/worker-",
@@ -412,8 +434,12 @@ public class BenchThroughputLatency implements AddCallback, Runnable {
         // now get the latencies
         LOG.info("99th percentile latency: {}", percentile(latency, 99));
         LOG.info("95th percentile latency: {}", percentile(latency, 95));
+        LOG.info("50th percentile latency: {}", percentile(latency, 50));
 
         bench.close();
+        if (localBookies != null) {
+            localBookies.close();
+        }
         timeouter.cancel();
     }
 
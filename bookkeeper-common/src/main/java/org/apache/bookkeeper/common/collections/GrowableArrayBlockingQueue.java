@@ -21,8 +21,11 @@
 package org.apache.bookkeeper.common.collections;
 
 import java.util.AbstractQueue;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -282,9 +285,33 @@ public class GrowableArrayBlockingQueue<T> extends AbstractQueue<T> implements B
         return SIZE_UPDATER.get(this);
     }
 
+    /**
+     * Returns an iterator over a snapshot of the items of the queue, taken under both locks.
+     *
+     * <p>The iterator does not see the items added or removed after it was created and does not
+     * support {@link Iterator#remove()}.
+     */
     @Override
     public Iterator<T> iterator() {
-        throw new UnsupportedOperationException();
+        List<T> items;
+
+        tailLock.lock();
+        headLock.lock();
+
+        try {
+            int headIndex = this.headIndex.value;
+            int size = SIZE_UPDATER.get(this);
+
+            items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(data[headIndex]);
+                headIndex = (headIndex + 1) & (data.length - 1);
+            }
+        } finally {
+            headLock.unlock();
+            tailLock.unlock();
+        }
+        return Collections.unmodifiableList(items).iterator();
     }
 
     @Override
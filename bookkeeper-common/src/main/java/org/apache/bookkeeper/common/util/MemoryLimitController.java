@@ -67,6 +67,13 @@ public class MemoryLimitController {
         }
     }
 
+    /**
+     * Account memory which is already in use, even if it exceeds the limit.
+     */
+    public void forceReserveMemory(long size) {
+        currentUsage.addAndGet(size);
+    }
+
     public void releaseMemory(long size) {
         long newUsage = currentUsage.addAndGet(-size);
         if (newUsage + size > memoryLimit && newUsage <= memoryLimit) {
@@ -83,4 +90,8 @@ public class MemoryLimitController {
     public long currentUsage() {
         return currentUsage.get();
     }
+
+    public boolean isMemoryLimitExceeded() {
+        return memoryLimit > 0 && currentUsage.get() > memoryLimit;
+    }
 }
\ No newline at end of file
@@ -68,6 +68,9 @@ public interface BookKeeperServerStats {
     String GET_BOOKIE_INFO = "GET_BOOKIE_INFO";
     String GET_LIST_OF_ENTRIES_OF_LEDGER = "GET_LIST_OF_ENTRIES_OF_LEDGER";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST = "GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST";
+    String WATCH_LAC_REQUEST = "WATCH_LAC_REQUEST";
+    String LAC_WATCH_NOTIFICATIONS = "LAC_WATCH_NOTIFICATIONS";
+    String LAC_WATCHES = "LAC_WATCHES";
 
     // Ensemble Stats
     String WATCHER_SCOPE = "bookie_watcher";
@@ -97,6 +100,19 @@ public interface BookKeeperServerStats {
     String READ_ENTRY_BLOCKED = "READ_ENTRY_BLOCKED";
     String READ_ENTRY_BLOCKED_WAIT = "READ_ENTRY_BLOCKED_WAIT";
 
+    // Per-client quota stats (scoped under SERVER_SCOPE, labeled by client)
+    String CLIENT_QUOTA_SCOPE = "client_quota";
+    String CLIENT_QUOTA_REQUESTS = "REQUESTS";
+    String CLIENT_QUOTA_ADD_BYTES = "ADD_BYTES";
+    String CLIENT_QUOTA_THROTTLED = "THROTTLED";
+    String CLIENT_QUOTA_THROTTLE_DELAY = "THROTTLE_DELAY";
+
+    // Wire compression stats (scoped under SERVER_SCOPE)
+    String WIRE_COMPRESSION_UNCOMPRESSED_BYTES = "WIRE_COMPRESSION_UNCOMPRESSED_BYTES";
+    String WIRE_COMPRESSION_COMPRESSED_BYTES = "WIRE_COMPRESSION_COMPRESSED_BYTES";
+    String WIRE_COMPRESSION_TIME = "WIRE_COMPRESSION_TIME";
+    String WIRE_DECOMPRESSION_TIME = "WIRE_DECOMPRESSION_TIME";
+
     //
     // Journal Stats (scoped under SERVER_SCOPE)
     //
@@ -54,6 +54,9 @@ public interface Bookie {
     long getTotalDiskSpace() throws IOException;
     long getTotalFreeSpace() throws IOException;
 
+    // number of entries waiting to be written to the journals
+    long getJournalQueueLength();
+
     // TODO: Shouldn't this be async?
     ByteBuf readEntry(long ledgerId, long entryId)
             throws IOException, NoLedgerException, BookieException;
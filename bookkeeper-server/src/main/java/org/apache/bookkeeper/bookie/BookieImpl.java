@@ -313,6 +313,15 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         return getLedgerDirsManager().getTotalFreeSpace(ledgerDirsManager.getAllLedgerDirs());
     }
 
+    @Override
+    public long getJournalQueueLength() {
+        long length = 0L;
+        for (Journal journal : journals) {
+            length += journal.getJournalQueueLength();
+        }
+        return length;
+    }
+
     public static File getCurrentDirectory(File dir) {
         return new File(dir, BookKeeperConstants.CURRENT_DIR);
     }
@@ -296,6 +296,21 @@ public interface LedgerStorage {
         return Collections.emptyList();
     }
 
+    /**
+     * Get the number of bytes held in the write cache, waiting to be flushed to the ledger storage.
+     * Storages without a write cache return 0.
+     */
+    default long getWriteCacheSize() {
+        return 0L;
+    }
+
+    /**
+     * Get the capacity of the write cache in bytes. Storages without a write cache return 0.
+     */
+    default long getWriteCacheMaxSize() {
+        return 0L;
+    }
+
     /**
      * Returns the primitive long iterator for entries of the ledger, stored in
      * this LedgerStorage. The returned iterator provide weakly consistent state
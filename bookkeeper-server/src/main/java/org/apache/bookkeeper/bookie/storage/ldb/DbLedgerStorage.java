@@ -419,6 +419,16 @@ public class DbLedgerStorage implements LedgerStorage {
             .map(single -> single.getGarbageCollectionStatus().get(0)).collect(Collectors.toList());
     }
 
+    @Override
+    public long getWriteCacheSize() {
+        return ledgerStorageList.stream().mapToLong(SingleDirectoryDbLedgerStorage::getWriteCacheSize).sum();
+    }
+
+    @Override
+    public long getWriteCacheMaxSize() {
+        return ledgerStorageList.stream().mapToLong(SingleDirectoryDbLedgerStorage::getWriteCacheMaxSize).sum();
+    }
+
     static long getLongVariableOrDefault(ServerConfiguration conf, String keyName, long defaultValue) {
         Object obj = conf.getProperty(keyName);
         if (obj instanceof Number) {
@@ -1016,6 +1016,16 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return Collections.singletonList(gcThread.getGarbageCollectionStatus());
     }
 
+    @Override
+    public long getWriteCacheSize() {
+        return writeCache.size() + writeCacheBeingFlushed.size();
+    }
+
+    @Override
+    public long getWriteCacheMaxSize() {
+        return writeCacheMaxSize;
+    }
+
     /**
      * Interface which process ledger logger.
      */
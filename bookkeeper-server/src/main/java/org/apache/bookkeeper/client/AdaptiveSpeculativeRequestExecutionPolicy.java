@@ -0,0 +1,263 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieLatencyListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SpeculativeRequestExecutionPolicy} that issues speculative requests based on the
+ * observed read latency of each bookie.
+ *
+ * <p>The policy keeps a decaying latency histogram per bookie, fed with the reads completed by
+ * the bookie client. A speculative request is issued once the outstanding request has taken
+ * longer than the configured percentile of the recent reads served by the bookie it was sent to,
+ * bounded by {@code maxSpeculativeRequestTimeout}. Until a bookie has enough samples the fixed
+ * {@code defaultSpeculativeRequestTimeout} is used.
+ *
+ * <p>Speculative requests are also limited by a global budget, which grows with each completed read
+ * by {@code budgetRatio} requests. Speculative requests that do not fit in the budget are deferred
+ * until the budget grows back or the request completes, so a slow period cannot double the load on
+ * the cluster.
+ */
+public class AdaptiveSpeculativeRequestExecutionPolicy
+        implements SpeculativeRequestExecutionPolicy, BookieLatencyListener {
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveSpeculativeRequestExecutionPolicy.class);
+
+    // samples lose half of their weight every half life
+    static final long HALF_LIFE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // weight of samples needed before the histogram of a bookie is trusted
+    static final double MIN_SAMPLES = 20.0;
+    // the budget is kept in thousandths of a request, and can accumulate up to this many requests
+    static final long BUDGET_SCALE = 1000L;
+    static final long MAX_BUDGET = 100L * BUDGET_SCALE;
+
+    final int defaultSpeculativeRequestTimeout;
+    final int maxSpeculativeRequestTimeout;
+    final double percentile;
+    final long budgetIncrement;
+
+    final ConcurrentHashMap<BookieId, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    final AtomicLong budget = new AtomicLong(MAX_BUDGET);
+
+    public AdaptiveSpeculativeRequestExecutionPolicy(int defaultSpeculativeRequestTimeout,
+                                                     int maxSpeculativeRequestTimeout,
+                                                     double percentile,
+                                                     double budgetRatio) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid value provided for percentile : " + percentile);
+        }
+        if (budgetRatio < 0) {
+            throw new IllegalArgumentException("Invalid value provided for budgetRatio : " + budgetRatio);
+        }
+        this.defaultSpeculativeRequestTimeout = defaultSpeculativeRequestTimeout;
+        this.maxSpeculativeRequestTimeout = Math.max(defaultSpeculativeRequestTimeout, maxSpeculativeRequestTimeout);
+        this.percentile = percentile;
+        this.budgetIncrement = Math.round(budgetRatio * BUDGET_SCALE);
+    }
+
+    @Override
+    public void onReadCompleted(BookieId bookieId, long latencyNanos) {
+        histograms.computeIfAbsent(bookieId, k -> new LatencyHistogram()).record(latencyNanos);
+        if (budgetIncrement > 0 && budget.get() < MAX_BUDGET) {
+            budget.getAndUpdate(value -> Math.min(MAX_BUDGET, value + budgetIncrement));
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> initiateSpeculativeRequest(final ScheduledExecutorService scheduler,
+                                                         final SpeculativeRequestExecutor requestExecutor) {
+        return scheduleSpeculativeRequest(scheduler, requestExecutor, getSpeculativeRequestTimeout(requestExecutor));
+    }
+
+    @VisibleForTesting
+    int getSpeculativeRequestTimeout(SpeculativeRequestExecutor requestExecutor) {
+        BookieId bookieId = requestExecutor.getLastRequestedBookie();
+        LatencyHistogram histogram = bookieId == null ? null : histograms.get(bookieId);
+        if (histogram == null) {
+            return defaultSpeculativeRequestTimeout;
+        }
+        long latencyNanos = histogram.getPercentileNanos(percentile, MIN_SAMPLES, MathUtils.nowInNano());
+        if (latencyNanos < 0) {
+            return defaultSpeculativeRequestTimeout;
+        }
+        long timeoutMs = TimeUnit.NANOSECONDS.toMillis(latencyNanos) + 1;
+        return (int) Math.min(maxSpeculativeRequestTimeout, timeoutMs);
+    }
+
+    private boolean tryAcquireBudget() {
+        while (true) {
+            long available = budget.get();
+            if (available < BUDGET_SCALE) {
+                return false;
+            }
+            if (budget.compareAndSet(available, available - BUDGET_SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseBudget() {
+        budget.getAndUpdate(value -> Math.min(MAX_BUDGET, value + BUDGET_SCALE));
+    }
+
+    private ScheduledFuture<?> scheduleSpeculativeRequest(final ScheduledExecutorService scheduler,
+                                                          final SpeculativeRequestExecutor requestExecutor,
+                                                          final int speculativeRequestTimeout) {
+        try {
+            return scheduler.schedule(() -> {
+                if (!tryAcquireBudget()) {
+                    // check again on the next tick, the budget grows back as reads complete
+                    if (requestExecutor.isRequestPending()) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Speculative request budget exhausted, deferring speculative request for {}",
+                                    requestExecutor);
+                        }
+                        scheduleSpeculativeRequest(scheduler, requestExecutor,
+                                getSpeculativeRequestTimeout(requestExecutor));
+                    }
+                    return;
+                }
+                ListenableFuture<Boolean> issueNextRequest = requestExecutor.issueSpeculativeRequest();
+                Futures.addCallback(issueNextRequest, new FutureCallback<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean issueNextRequest) {
+                        if (issueNextRequest) {
+                            scheduleSpeculativeRequest(scheduler, requestExecutor,
+                                    getSpeculativeRequestTimeout(requestExecutor));
+                        } else {
+                            // nothing was sent, give the budget back
+                            releaseBudget();
+                            if (LOG.isTraceEnabled()) {
+                                LOG.trace("Stopped issuing speculative requests for {}, "
+                                    + "speculativeReadTimeout = {}", requestExecutor, speculativeRequestTimeout);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable thrown) {
+                        releaseBudget();
+                        LOG.warn("Failed to issue speculative request for {}, speculativeReadTimeout = {} : ",
+                                requestExecutor, speculativeRequestTimeout, thrown);
+                    }
+                }, directExecutor());
+            }, speculativeRequestTimeout, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException re) {
+            if (!scheduler.isShutdown()) {
+                LOG.warn("Failed to schedule speculative request for {}, speculativeReadTimeout = {} : ",
+                        requestExecutor, speculativeRequestTimeout, re);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A log-linear latency histogram whose samples decay exponentially over time.
+     *
+     * <p>Latencies are bucketed in microseconds, with four buckets per power of two, which bounds
+     * the error of a percentile to about 20%.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int NUM_BUCKETS = 32 * SUB_BUCKETS;
+        // decay lazily, at most a few times per half life
+        private static final long DECAY_INTERVAL_NANOS = HALF_LIFE_NANOS / 8;
+
+        private final double[] counts = new double[NUM_BUCKETS];
+        private double total = 0;
+        private long lastDecayNanos = MathUtils.nowInNano();
+
+        synchronized void record(long latencyNanos) {
+            decay(MathUtils.nowInNano());
+            counts[bucket(TimeUnit.NANOSECONDS.toMicros(latencyNanos))] += 1;
+            total += 1;
+        }
+
+        /**
+         * Get the latency at the given percentile.
+         *
+         * @return the latency in nanoseconds, or -1 if there are not enough samples.
+         */
+        synchronized long getPercentileNanos(double percentile, double minSamples, long nowNanos) {
+            decay(nowNanos);
+            if (total < minSamples) {
+                return -1L;
+            }
+            double target = total * percentile / 100.0;
+            double cumulative = 0;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                cumulative += counts[i];
+                if (cumulative >= target) {
+                    return TimeUnit.MICROSECONDS.toNanos(upperBound(i));
+                }
+            }
+            return TimeUnit.MICROSECONDS.toNanos(upperBound(NUM_BUCKETS - 1));
+        }
+
+        private void decay(long nowNanos) {
+            long elapsed = nowNanos - lastDecayNanos;
+            if (elapsed < DECAY_INTERVAL_NANOS) {
+                return;
+            }
+            double factor = Math.pow(0.5, (double) elapsed / HALF_LIFE_NANOS);
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                counts[i] *= factor;
+            }
+            total *= factor;
+            lastDecayNanos = nowNanos;
+        }
+
+        static int bucket(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) Math.max(0, micros);
+            }
+            int exp = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exp - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return Math.min(NUM_BUCKETS - 1, ((exp - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub);
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket + 1;
+            }
+            int exp = (bucket >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+            int sub = bucket & (SUB_BUCKETS - 1);
+            return ((long) (SUB_BUCKETS + sub + 1)) << (exp - SUB_BUCKET_BITS);
+        }
+    }
+}
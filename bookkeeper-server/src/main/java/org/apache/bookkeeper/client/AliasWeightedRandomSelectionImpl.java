@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import com.google.common.math.Quantiles;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Weighted random selection using the alias method, which picks an element in constant time
+ * regardless of the number of elements.
+ *
+ * <p>The elements are picked with the same probabilities as {@link WeightedRandomSelectionImpl}:
+ * proportionally to their weight, elements without weight get the smallest weight and weights are
+ * capped to {@code maxProbabilityMultiplier} times the median weight.
+ *
+ * <p>The elements are split in buckets of {@link #BUCKET_SIZE} elements, each with its own alias
+ * table, and a bucket is picked first using an alias table over the total weight of the buckets.
+ * When the map is updated with the same elements, only the buckets whose weights changed are
+ * rebuilt. Updates publish a new immutable table, so picking an element does not take any lock.
+ */
+class AliasWeightedRandomSelectionImpl<T> implements WeightedRandomSelection<T> {
+    static final Logger LOG = LoggerFactory.getLogger(AliasWeightedRandomSelectionImpl.class);
+
+    static final int BUCKET_SIZE = 64;
+
+    /**
+     * Alias table over a range of weights.
+     */
+    private static final class AliasTable {
+        final double total;
+        final double[] prob;
+        final int[] alias;
+
+        // Vose's alias method
+        AliasTable(double[] weights, int from, int to) {
+            int n = to - from;
+            prob = new double[n];
+            alias = new int[n];
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += weights[i];
+            }
+            total = sum;
+
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int numSmall = 0, numLarge = 0;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[from + i] * n / sum;
+                if (scaled[i] < 1.0) {
+                    small[numSmall++] = i;
+                } else {
+                    large[numLarge++] = i;
+                }
+            }
+            while (numSmall > 0 && numLarge > 0) {
+                int s = small[--numSmall];
+                int l = large[--numLarge];
+                prob[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+                if (scaled[l] < 1.0) {
+                    small[numSmall++] = l;
+                } else {
+                    large[numLarge++] = l;
+                }
+            }
+            // whatever is left has a probability of one, up to rounding errors
+            while (numLarge > 0) {
+                prob[large[--numLarge]] = 1.0;
+            }
+            while (numSmall > 0) {
+                prob[small[--numSmall]] = 1.0;
+            }
+        }
+
+        int next(ThreadLocalRandom random) {
+            int i = random.nextInt(prob.length);
+            return random.nextDouble() < prob[i] ? i : alias[i];
+        }
+    }
+
+    /**
+     * Immutable state of the selection.
+     */
+    private static final class Table<T> {
+        final Map<T, Integer> indexes;
+        final Object[] elements;
+        // weights of the elements once the min weight and the cap are applied
+        final double[] weights;
+        final AliasTable[] buckets;
+        final AliasTable bucketTable;
+
+        Table(Map<T, Integer> indexes, Object[] elements, double[] weights, AliasTable[] buckets) {
+            this.indexes = indexes;
+            this.elements = elements;
+            this.weights = weights;
+            this.buckets = buckets;
+            double[] bucketWeights = new double[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                bucketWeights[i] = buckets[i].total;
+            }
+            this.bucketTable = new AliasTable(bucketWeights, 0, buckets.length);
+        }
+    }
+
+    int maxProbabilityMultiplier;
+    private volatile Table<T> table = null;
+
+    AliasWeightedRandomSelectionImpl() {
+        this(-1);
+    }
+
+    AliasWeightedRandomSelectionImpl(int maxMultiplier) {
+        this.maxProbabilityMultiplier = maxMultiplier;
+    }
+
+    @Override
+    public synchronized void updateMap(Map<T, WeightedObject> map) {
+        if (map.isEmpty()) {
+            table = null;
+            return;
+        }
+        Table<T> oldTable = table;
+        int n = map.size();
+        boolean sameElements = oldTable != null && oldTable.elements.length == n
+                && oldTable.indexes.keySet().equals(map.keySet());
+
+        Map<T, Integer> indexes;
+        Object[] elements;
+        long[] rawWeights = new long[n];
+        if (sameElements) {
+            indexes = oldTable.indexes;
+            elements = oldTable.elements;
+            for (Map.Entry<T, WeightedObject> e : map.entrySet()) {
+                rawWeights[indexes.get(e.getKey())] = e.getValue().getWeight();
+            }
+        } else {
+            indexes = new HashMap<T, Integer>(n * 4 / 3 + 1);
+            elements = new Object[n];
+            int i = 0;
+            for (Map.Entry<T, WeightedObject> e : map.entrySet()) {
+                indexes.put(e.getKey(), i);
+                elements[i] = e.getKey();
+                rawWeights[i] = e.getValue().getWeight();
+                i++;
+            }
+        }
+
+        double[] weights = computeWeights(rawWeights);
+        int numBuckets = (n + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        AliasTable[] buckets = new AliasTable[numBuckets];
+        int rebuilt = 0;
+        for (int b = 0; b < numBuckets; b++) {
+            int from = b * BUCKET_SIZE;
+            int to = Math.min(n, from + BUCKET_SIZE);
+            if (sameElements && sameWeights(oldTable.weights, weights, from, to)) {
+                buckets[b] = oldTable.buckets[b];
+            } else {
+                buckets[b] = new AliasTable(weights, from, to);
+                rebuilt++;
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Updated weights of {} elements, rebuilt {} of {} buckets", n, rebuilt, numBuckets);
+        }
+        table = new Table<T>(indexes, elements, weights, buckets);
+    }
+
+    private double[] computeWeights(long[] rawWeights) {
+        long totalWeight = 0L, min = Long.MAX_VALUE;
+        for (long weight : rawWeights) {
+            totalWeight += weight;
+            if (weight > 0 && min > weight) {
+                min = weight;
+            }
+        }
+        double[] weights = new double[rawWeights.length];
+        if (totalWeight <= 0) {
+            // all the values are zeros, pick them uniformly
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = 1.0;
+            }
+            return weights;
+        }
+        double maxWeight = maxProbabilityMultiplier * Quantiles.median().compute(rawWeights);
+        for (int i = 0; i < weights.length; i++) {
+            double weight = rawWeights[i] > 0 ? rawWeights[i] : min;
+            if (maxWeight > 0 && weight > maxWeight) {
+                weight = maxWeight;
+            }
+            weights[i] = weight;
+        }
+        return weights;
+    }
+
+    private static boolean sameWeights(double[] oldWeights, double[] newWeights, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (oldWeights[i] != newWeights[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getNextRandom() {
+        Table<T> t = table;
+        if (t == null) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int bucket = t.bucketTable.next(random);
+        return (T) t.elements[bucket * BUCKET_SIZE + t.buckets[bucket].next(random)];
+    }
+
+    @Override
+    public T getNextRandom(Collection<T> selectedNodes) {
+        throw new UnsupportedOperationException(
+                "getNextRandom is not implemented for AliasWeightedRandomSelectionImpl");
+    }
+
+    @Override
+    public void setMaxProbabilityMultiplier(int max) {
+        this.maxProbabilityMultiplier = max;
+    }
+}
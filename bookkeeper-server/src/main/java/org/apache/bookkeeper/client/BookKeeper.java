@@ -87,6 +87,7 @@ import org.apache.bookkeeper.net.DNSToSwitchMapping;
 import org.apache.bookkeeper.proto.BookieAddressResolver;
 import org.apache.bookkeeper.proto.BookieClient;
 import org.apache.bookkeeper.proto.BookieClientImpl;
+import org.apache.bookkeeper.proto.BookieLatencyListener;
 import org.apache.bookkeeper.proto.DataFormats;
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -122,6 +123,14 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
     private final StatsLogger statsLogger;
     private final BookKeeperClientStats clientStats;
     private final double bookieQuarantineRatio;
+    // shared entry cache of the ledger handles, null if disabled
+    private final ClientEntryCache entryCache;
+    // shared cache of the metadata of closed ledgers, null if disabled
+    private final LedgerMetadataCache metadataCache;
+    private final ClientMemoryLimiter memoryLimiter;
+    private final LedgerRecoveryLimiter recoveryLimiter;
+    // shared lac watches of the ledger handles, null if disabled
+    private final LacWatchManager lacWatchManager;
 
     // whether the event loop group is one we created, or is owned by whoever
     // instantiated us
@@ -511,8 +520,41 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                 this.statsLogger.scope(WATCHER_SCOPE));
 
         // initialize bookie client
-        this.bookieClient = new BookieClientImpl(conf, this.eventLoopGroup, this.allocator, this.mainWorkerPool,
-                scheduler, rootStatsLogger, this.bookieWatcher.getBookieAddressResolver());
+        BookieClientImpl bookieClientImpl = new BookieClientImpl(conf, this.eventLoopGroup, this.allocator,
+                this.mainWorkerPool, scheduler, rootStatsLogger, this.bookieWatcher.getBookieAddressResolver());
+        internalConf.readSpeculativeRequestPolicy
+                .filter(policy -> policy instanceof BookieLatencyListener)
+                .ifPresent(policy -> bookieClientImpl.setLatencyListener((BookieLatencyListener) policy));
+        if (conf.isLacWatchEnabled()) {
+            LOG.info("Lac watches enabled for tailing reads");
+            this.lacWatchManager = new LacWatchManager(bookieClientImpl, scheduler);
+            bookieClientImpl.setLacWatchListener(lacWatchManager);
+        } else {
+            this.lacWatchManager = null;
+        }
+        this.bookieClient = bookieClientImpl;
+
+        if (conf.getClientEntryCacheSizeBytes() > 0) {
+            LOG.info("Client entry cache enabled with {} bytes", conf.getClientEntryCacheSizeBytes());
+            this.entryCache = new ClientEntryCache(conf.getClientEntryCacheSizeBytes(), this.allocator, clientStats);
+        } else {
+            this.entryCache = null;
+        }
+
+        if (conf.getClientMemoryLimitBytes() > 0) {
+            LOG.info("Client memory limited to {} bytes", conf.getClientMemoryLimitBytes());
+            this.memoryLimiter = new ClientMemoryLimiter(conf.getClientMemoryLimitBytes(),
+                    conf.getClientMemoryLimitBlockAdds(), conf.getClientMemoryLimitBlockReads(), clientStats);
+        } else {
+            this.memoryLimiter = null;
+        }
+
+        if (conf.getMaxConcurrentLedgerRecoveries() > 0) {
+            LOG.info("Ledger recoveries limited to {} concurrent recoveries", conf.getMaxConcurrentLedgerRecoveries());
+            this.recoveryLimiter = new LedgerRecoveryLimiter(conf.getMaxConcurrentLedgerRecoveries(), clientStats);
+        } else {
+            this.recoveryLimiter = null;
+        }
 
         if (conf.getDiskWeightBasedPlacementEnabled()) {
             LOG.info("Weighted ledger placement enabled");
@@ -539,6 +581,14 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         this.ledgerManager = new CleanupLedgerManager(ledgerManagerFactory.newLedgerManager());
         this.ledgerIdGenerator = ledgerManagerFactory.newLedgerIdGenerator();
 
+        if (conf.getLedgerMetadataCacheSize() > 0) {
+            LOG.info("Ledger metadata cache enabled with {} ledgers", conf.getLedgerMetadataCacheSize());
+            this.metadataCache = new LedgerMetadataCache(conf.getLedgerMetadataCacheSize(), ledgerManager,
+                    clientStats);
+        } else {
+            this.metadataCache = null;
+        }
+
         this.bookieQuarantineRatio = conf.getBookieQuarantineRatio();
         scheduleBookieHealthCheckIfEnabled(conf);
     }
@@ -568,6 +618,11 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         bookieClient = null;
         allocator = UnpooledByteBufAllocator.DEFAULT;
         bookieQuarantineRatio = 1.0;
+        entryCache = null;
+        metadataCache = null;
+        lacWatchManager = null;
+        memoryLimiter = null;
+        recoveryLimiter = null;
     }
 
     private EnsemblePlacementPolicy initializeEnsemblePlacementPolicy(ClientConfiguration conf,
@@ -1372,6 +1427,25 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         SyncCallbackUtils.waitForResult(future);
     }
 
+    /**
+     * Read the metadata of a ledger, from the ledger metadata cache when it is enabled.
+     */
+    CompletableFuture<Versioned<LedgerMetadata>> readLedgerMetadata(long ledgerId) {
+        if (metadataCache != null) {
+            return metadataCache.read(ledgerId);
+        }
+        return ledgerManager.readLedgerMetadata(ledgerId);
+    }
+
+    /**
+     * Remove a ledger from the ledger metadata cache, when it is deleted.
+     */
+    void invalidateLedgerMetadata(long ledgerId) {
+        if (metadataCache != null) {
+            metadataCache.invalidate(ledgerId);
+        }
+    }
+
     /**
      * Check asynchronously whether the ledger with identifier <i>lId</i>
      * has been closed.
@@ -1380,7 +1454,7 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
      * @param cb    callback method
      */
     public void asyncIsClosed(long lId, final IsClosedCallback cb, final Object ctx){
-        ledgerManager.readLedgerMetadata(lId).whenComplete((metadata, exception) -> {
+        readLedgerMetadata(lId).whenComplete((metadata, exception) -> {
                 if (exception == null) {
                     cb.isClosedComplete(BKException.Code.OK, metadata.getValue().isClosed(), ctx);
                 } else {
@@ -1449,6 +1523,12 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
             closeLock.writeLock().unlock();
         }
 
+        if (lacWatchManager != null) {
+            lacWatchManager.close();
+        }
+        if (metadataCache != null) {
+            metadataCache.close();
+        }
         // Close bookie client so all pending bookie requests would be failed
         // which will reject any incoming bookie requests.
         bookieClient.close();
@@ -1470,6 +1550,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         if (!mainWorkerPool.awaitTermination(10, TimeUnit.SECONDS)) {
             LOG.warn("The mainWorkerPool did not shutdown cleanly");
         }
+        if (entryCache != null) {
+            entryCache.close();
+        }
         if (this.bookieInfoScheduler != null) {
             this.bookieInfoScheduler.shutdown();
             if (!bookieInfoScheduler.awaitTermination(10, TimeUnit.SECONDS)) {
@@ -1663,6 +1746,31 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
             public ByteBufAllocator getByteBufAllocator() {
                 return allocator;
             }
+
+            @Override
+            public ClientEntryCache getEntryCache() {
+                return entryCache;
+            }
+
+            @Override
+            public LedgerMetadataCache getLedgerMetadataCache() {
+                return metadataCache;
+            }
+
+            @Override
+            public LacWatchManager getLacWatchManager() {
+                return lacWatchManager;
+            }
+
+            @Override
+            public ClientMemoryLimiter getMemoryLimiter() {
+                return memoryLimiter;
+            }
+
+            @Override
+            public LedgerRecoveryLimiter getRecoveryLimiter() {
+                return recoveryLimiter;
+            }
         };
 
     public ClientContext getClientCtx() {
@@ -38,6 +38,7 @@ public interface BookKeeperClientStats {
     // Metadata Operations
 
     String CREATE_OP = "LEDGER_CREATE";
+    String GENERATE_LEDGER_ID_OP = "LEDGER_ID_GENERATE";
     String DELETE_OP = "LEDGER_DELETE";
     String OPEN_OP = "LEDGER_OPEN";
     String RECOVER_OP = "LEDGER_RECOVER";
@@ -65,6 +66,18 @@ public interface BookKeeperClientStats {
     String SPECULATIVE_READ_COUNT = "SPECULATIVE_READ_COUNT";
     String READ_REQUESTS_REORDERED = "READ_REQUESTS_REORDERED";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_OP = "GET_LIST_OF_ENTRIES_OF_LEDGER";
+    String ENTRY_CACHE_HITS = "ENTRY_CACHE_HITS";
+    String ENTRY_CACHE_MISSES = "ENTRY_CACHE_MISSES";
+    String ENTRY_CACHE_COALESCED_READS = "ENTRY_CACHE_COALESCED_READS";
+    String ENTRY_CACHE_EVICTIONS = "ENTRY_CACHE_EVICTIONS";
+    String ENTRY_CACHE_SIZE = "ENTRY_CACHE_SIZE";
+    String LEDGER_METADATA_CACHE_HITS = "LEDGER_METADATA_CACHE_HITS";
+    String LEDGER_METADATA_CACHE_MISSES = "LEDGER_METADATA_CACHE_MISSES";
+    String LEDGER_METADATA_CACHE_SIZE = "LEDGER_METADATA_CACHE_SIZE";
+    String CLIENT_MEMORY_USAGE = "CLIENT_MEMORY_USAGE";
+    String CLIENT_MEMORY_WAIT = "CLIENT_MEMORY_WAIT";
+    String CLIENT_MEMORY_REJECTED = "CLIENT_MEMORY_REJECTED";
+    String LEDGER_RECOVERIES_WAITING = "LEDGER_RECOVERIES_WAITING";
 
     // per channel stats
     String CHANNEL_SCOPE = "per_channel_bookie_client";
@@ -83,6 +96,8 @@ public interface BookKeeperClientStats {
     String CHANNEL_START_TLS_OP = "START_TLS";
     String CHANNEL_TIMEOUT_START_TLS_OP = "TIMEOUT_START_TLS";
     String TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER = "TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER";
+    String CHANNEL_WATCH_LAC_OP = "WATCH_LAC";
+    String CHANNEL_TIMEOUT_WATCH_LAC = "TIMEOUT_WATCH_LAC";
 
     String NETTY_EXCEPTION_CNT = "NETTY_EXCEPTION_CNT";
     String CLIENT_CHANNEL_WRITE_WAIT = "CLIENT_CHANNEL_WRITE_WAIT";
@@ -94,6 +109,11 @@ public interface BookKeeperClientStats {
     String ACTIVE_TLS_CHANNEL_COUNTER = "ACTIVE_TLS_CHANNEL_COUNTER";
     String FAILED_CONNECTION_COUNTER = "FAILED_CONNECTION_COUNTER";
     String FAILED_TLS_HANDSHAKE_COUNTER = "FAILED_TLS_HANDSHAKE_COUNTER";
+    String FLOW_CONTROL_QUEUED = "FLOW_CONTROL_QUEUED";
+    String WIRE_COMPRESSION_UNCOMPRESSED_BYTES = "WIRE_COMPRESSION_UNCOMPRESSED_BYTES";
+    String WIRE_COMPRESSION_COMPRESSED_BYTES = "WIRE_COMPRESSION_COMPRESSED_BYTES";
+    String WIRE_COMPRESSION_TIME = "WIRE_COMPRESSION_TIME";
+    String WIRE_DECOMPRESSION_TIME = "WIRE_DECOMPRESSION_TIME";
 
     // placementpolicy stats
     String NUM_WRITABLE_BOOKIES_IN_DEFAULT_RACK = "NUM_WRITABLE_BOOKIES_IN_DEFAULT_RACK";
@@ -106,6 +126,7 @@ public interface BookKeeperClientStats {
     String BOOKIE_LABEL = "bookie";
 
     OpStatsLogger getCreateOpLogger();
+    OpStatsLogger getGenerateLedgerIdOpLogger();
     OpStatsLogger getOpenOpLogger();
     OpStatsLogger getDeleteOpLogger();
     OpStatsLogger getRecoverOpLogger();
@@ -129,7 +150,19 @@ public interface BookKeeperClientStats {
     OpStatsLogger getWriteDelayedDueToNotEnoughFaultDomainsLatency();
     Counter getWriteDelayedDueToNotEnoughFaultDomains();
     Counter getWriteTimedOutDueToNotEnoughFaultDomains();
+    Counter getEntryCacheHitsCounter();
+    Counter getEntryCacheMissesCounter();
+    Counter getEntryCacheCoalescedReadsCounter();
+    Counter getEntryCacheEvictionsCounter();
+    Counter getLedgerMetadataCacheHitsCounter();
+    Counter getLedgerMetadataCacheMissesCounter();
+    OpStatsLogger getClientMemoryWaitLogger();
+    Counter getClientMemoryRejectedCounter();
     void registerPendingAddsGauge(Gauge<Integer> gauge);
+    void registerEntryCacheSizeGauge(Gauge<Long> gauge);
+    void registerLedgerMetadataCacheSizeGauge(Gauge<Integer> gauge);
+    void registerClientMemoryUsageGauge(Gauge<Long> gauge);
+    void registerWaitingLedgerRecoveriesGauge(Gauge<Integer> gauge);
 
     static BookKeeperClientStats newInstance(StatsLogger stats) {
         return new BookKeeperClientStatsImpl(stats);
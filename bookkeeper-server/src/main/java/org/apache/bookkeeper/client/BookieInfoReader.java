@@ -62,12 +62,18 @@ public class BookieInfoReader {
     public static class BookieInfo implements WeightedObject {
         private final long freeDiskSpace;
         private final long totalDiskSpace;
+        // load of the bookie, null if it was not requested or the bookie does not report it
+        private final BookkeeperProtocol.BookieLoad load;
         public BookieInfo() {
             this(0L, 0L);
         }
         public BookieInfo(long totalDiskSpace, long freeDiskSpace) {
+            this(totalDiskSpace, freeDiskSpace, null);
+        }
+        public BookieInfo(long totalDiskSpace, long freeDiskSpace, BookkeeperProtocol.BookieLoad load) {
             this.totalDiskSpace = totalDiskSpace;
             this.freeDiskSpace = freeDiskSpace;
+            this.load = load;
         }
         public long getFreeDiskSpace() {
             return freeDiskSpace;
@@ -75,13 +81,17 @@ public class BookieInfoReader {
         public long getTotalDiskSpace() {
             return totalDiskSpace;
         }
+        public BookkeeperProtocol.BookieLoad getLoad() {
+            return load;
+        }
         @Override
         public long getWeight() {
             return freeDiskSpace;
         }
         @Override
         public String toString() {
-            return "FreeDiskSpace: " + this.freeDiskSpace + " TotalDiskCapacity: " + this.totalDiskSpace;
+            return "FreeDiskSpace: " + this.freeDiskSpace + " TotalDiskCapacity: " + this.totalDiskSpace
+                    + (load == null ? "" : " Load: " + load.toString().replace('\n', ' '));
         }
     }
 
@@ -233,6 +243,13 @@ public class BookieInfoReader {
         this.scheduler = scheduler;
     }
 
+    private long getRequestFlags() {
+        if (conf.getLoadAwarePlacementEnabled()) {
+            return GET_BOOKIE_INFO_REQUEST_FLAGS | BookkeeperProtocol.GetBookieInfoRequest.Flags.LOAD_VALUE;
+        }
+        return GET_BOOKIE_INFO_REQUEST_FLAGS;
+    }
+
     public void start() {
         this.bk
             .getMetadataClientDriver()
@@ -326,8 +343,7 @@ public class BookieInfoReader {
         }
 
         BookieClient bkc = bk.getBookieClient();
-        final long requested = BookkeeperProtocol.GetBookieInfoRequest.Flags.TOTAL_DISK_CAPACITY_VALUE
-                               | BookkeeperProtocol.GetBookieInfoRequest.Flags.FREE_DISK_SPACE_VALUE;
+        final long requested = getRequestFlags();
         totalSent = 0;
         completedCnt = 0;
         errorCnt = 0;
@@ -403,8 +419,7 @@ public class BookieInfoReader {
         final ConcurrentMap<BookieId, BookieInfo> map =
             new ConcurrentHashMap<BookieId, BookieInfo>();
         final CountDownLatch latch = new CountDownLatch(1);
-        long requested = BookkeeperProtocol.GetBookieInfoRequest.Flags.TOTAL_DISK_CAPACITY_VALUE
-                         | BookkeeperProtocol.GetBookieInfoRequest.Flags.FREE_DISK_SPACE_VALUE;
+        long requested = getRequestFlags();
 
         Collection<BookieId> bookies;
         bookies = bk.bookieWatcher.getBookies();
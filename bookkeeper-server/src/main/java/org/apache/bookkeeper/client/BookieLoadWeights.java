@@ -0,0 +1,137 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.WeightedRandomSelection.WeightedObject;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BookieLoad;
+
+/**
+ * Combines the free disk space of the bookies with their load into placement weights.
+ *
+ * <p>The load of a bookie is the average of its journal queue length, read latency and request rate,
+ * each relative to the median of the bookies reporting their load, plus the usage of its write cache.
+ * The disk weight of a bookie is divided by one plus its load, so an idle bookie weighs about twice as
+ * much as an average one with an empty write cache, and a bookie three times busier than the others
+ * about half as much.
+ *
+ * <p>The load factor of a bookie is only updated when it changes by more than the hysteresis, so that
+ * the weights do not swing back and forth with every poll while ledgers move to the less loaded bookies.
+ *
+ * <p>Not thread safe, the placement policy calls it under its write lock.
+ */
+class BookieLoadWeights {
+
+    // a metric more than this many times the median does not make a bookie any busier
+    static final double MAX_RELATIVE_LOAD = 10.0;
+
+    /**
+     * The weight of a bookie adjusted by its load.
+     */
+    static final class LoadAdjustedWeight implements WeightedObject {
+        final BookieInfo info;
+        final double loadFactor;
+
+        LoadAdjustedWeight(BookieInfo info, double loadFactor) {
+            this.info = info;
+            this.loadFactor = loadFactor;
+        }
+
+        @Override
+        public long getWeight() {
+            return (long) (info.getWeight() * loadFactor);
+        }
+
+        @Override
+        public String toString() {
+            return info + " LoadFactor: " + loadFactor;
+        }
+    }
+
+    private final double hysteresis;
+    private final Map<BookieId, Double> loadFactors = new HashMap<>();
+
+    BookieLoadWeights(int hysteresisPercent) {
+        this.hysteresis = Math.max(0, hysteresisPercent) / 100.0;
+    }
+
+    /**
+     * Compute the weights of the bookies. Bookies which did not report their load keep their disk weight.
+     */
+    Map<BookieId, WeightedObject> apply(Map<BookieId, BookieInfo> bookieInfos) {
+        List<BookieLoad> loads = new ArrayList<>(bookieInfos.size());
+        for (BookieInfo info : bookieInfos.values()) {
+            if (info.getLoad() != null) {
+                loads.add(info.getLoad());
+            }
+        }
+        double medianQueue = median(loads, BookieLoad::getJournalQueueLength);
+        double medianLatency = median(loads, BookieLoad::getReadLatencyMicros);
+        double medianRate = median(loads, BookieLoad::getRequestsPerSecond);
+
+        Map<BookieId, WeightedObject> weights = new HashMap<>();
+        Map<BookieId, Double> previousFactors = new HashMap<>(loadFactors);
+        loadFactors.clear();
+        for (Map.Entry<BookieId, BookieInfo> e : bookieInfos.entrySet()) {
+            BookieLoad load = e.getValue().getLoad();
+            if (load == null) {
+                weights.put(e.getKey(), e.getValue());
+                continue;
+            }
+            double relativeLoad = (relative(load.getJournalQueueLength(), medianQueue)
+                    + relative(load.getReadLatencyMicros(), medianLatency)
+                    + relative(load.getRequestsPerSecond(), medianRate)) / 3
+                    + load.getWriteCacheUsagePercent() / 100.0;
+            double factor = 1.0 / (1.0 + relativeLoad);
+            Double previous = previousFactors.get(e.getKey());
+            if (previous != null && Math.abs(factor - previous) <= hysteresis * previous) {
+                factor = previous;
+            }
+            loadFactors.put(e.getKey(), factor);
+            weights.put(e.getKey(), new LoadAdjustedWeight(e.getValue(), factor));
+        }
+        return weights;
+    }
+
+    private static double relative(long value, double median) {
+        return Math.min(MAX_RELATIVE_LOAD, value / Math.max(1.0, median));
+    }
+
+    private static double median(List<BookieLoad> loads, ToLongFunction<BookieLoad> metric) {
+        if (loads.isEmpty()) {
+            return 0.0;
+        }
+        long[] values = new long[loads.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = metric.applyAsLong(loads.get(i));
+        }
+        Arrays.sort(values);
+        int mid = values.length / 2;
+        return values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2.0;
+    }
+}
@@ -27,6 +27,8 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -52,6 +54,8 @@ import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
 
 /**
  * This class is responsible for maintaining a consistent view of what bookies
@@ -106,6 +110,9 @@ class BookieWatcherImpl implements BookieWatcher {
 
     private volatile Set<BookieId> writableBookies = Collections.emptySet();
     private volatile Set<BookieId> readOnlyBookies = Collections.emptySet();
+    // versions of the bookie sets last applied, guarded by this
+    private Version writableBookiesVersion = Version.NEW;
+    private Version readOnlyBookiesVersion = Version.NEW;
 
     private CompletableFuture<?> initialWritableBookiesFuture = null;
     private CompletableFuture<?> initialReadonlyBookiesFuture = null;
@@ -190,11 +197,24 @@ class BookieWatcherImpl implements BookieWatcher {
     }
 
     // this callback is already not executed in zookeeper thread
-    private synchronized void processWritableBookiesChanged(Set<BookieId> newBookieAddrs) {
+    private synchronized void processWritableBookiesChanged(Versioned<Set<BookieId>> bookies) {
+        if (bookies.getVersion().compare(writableBookiesVersion) == Version.Occurred.BEFORE) {
+            // stale notification
+            return;
+        }
+        writableBookiesVersion = bookies.getVersion();
+        Set<BookieId> newBookieAddrs = bookies.getValue();
+        // only pass the bookies which joined or left to the placement policy, so that it does not
+        // diff the whole cluster again
+        Set<BookieId> joinedBookies = Sets.difference(newBookieAddrs, writableBookies).immutableCopy();
+        Set<BookieId> leftBookies = Sets.difference(writableBookies, newBookieAddrs).immutableCopy();
+        if (joinedBookies.isEmpty() && leftBookies.isEmpty()) {
+            return;
+        }
         // Update watcher outside ZK callback thread, to avoid deadlock in case some other
         // component is trying to do a blocking ZK operation
         this.writableBookies = newBookieAddrs;
-        placementPolicy.onClusterChanged(newBookieAddrs, readOnlyBookies);
+        placementPolicy.onClusterMembershipChanged(newBookieAddrs, readOnlyBookies, joinedBookies, leftBookies);
         // we don't need to close clients here, because:
         // a. the dead bookies will be removed from topology, which will not be used in new ensemble.
         // b. the read sequence will be reordered based on znode availability, so most of the reads
@@ -211,9 +231,19 @@ class BookieWatcherImpl implements BookieWatcher {
         // }
     }
 
-    private synchronized void processReadOnlyBookiesChanged(Set<BookieId> readOnlyBookies) {
-        this.readOnlyBookies = readOnlyBookies;
-        placementPolicy.onClusterChanged(writableBookies, readOnlyBookies);
+    private synchronized void processReadOnlyBookiesChanged(Versioned<Set<BookieId>> bookies) {
+        if (bookies.getVersion().compare(readOnlyBookiesVersion) == Version.Occurred.BEFORE) {
+            // stale notification
+            return;
+        }
+        readOnlyBookiesVersion = bookies.getVersion();
+        if (bookies.getValue().equals(readOnlyBookies)) {
+            return;
+        }
+        // immutable, so that the placement policy keeps it without copying it on every change
+        this.readOnlyBookies = ImmutableSet.copyOf(bookies.getValue());
+        placementPolicy.onClusterMembershipChanged(writableBookies, readOnlyBookies,
+                Collections.emptySet(), Collections.emptySet());
     }
 
     /**
@@ -230,10 +260,10 @@ class BookieWatcherImpl implements BookieWatcher {
                 assert initialWritableBookiesFuture == null;
 
                 writable = this.registrationClient.watchWritableBookies(
-                            bookies -> processWritableBookiesChanged(bookies.getValue()));
+                            this::processWritableBookiesChanged);
 
                 readonly = this.registrationClient.watchReadOnlyBookies(
-                            bookies -> processReadOnlyBookiesChanged(bookies.getValue()));
+                            this::processReadOnlyBookiesChanged);
                 initialWritableBookiesFuture = writable;
                 initialReadonlyBookiesFuture = readonly;
             } else {
@@ -44,4 +44,24 @@ public interface BookiesHealthInfo {
      */
     long getBookiePendingRequests(BookieId bookieSocketAddress);
 
+    /**
+     * Returns the moving average of the response latency of a bookie for reads.
+     *
+     * @param bookieSocketAddress
+     * @return latency in nanoseconds, -1 if unknown
+     */
+    default long getBookieReadLatencyEwmaNanos(BookieId bookieSocketAddress) {
+        return -1L;
+    }
+
+    /**
+     * Returns the payload bytes sent to a bookie whose requests are still outstanding.
+     *
+     * @param bookieSocketAddress
+     * @return number of outstanding bytes
+     */
+    default long getBookieOutstandingBytes(BookieId bookieSocketAddress) {
+        return 0L;
+    }
+
 }
@@ -44,4 +44,29 @@ public interface ClientContext {
     OrderedScheduler getScheduler();
     BookKeeperClientStats getClientStats();
     boolean isClientClosed();
+
+    /**
+     * Get the entry cache shared by the ledger handles, null if it is disabled.
+     */
+    ClientEntryCache getEntryCache();
+
+    /**
+     * Get the cache of the metadata of closed ledgers, null if it is disabled.
+     */
+    LedgerMetadataCache getLedgerMetadataCache();
+
+    /**
+     * Get the watches of the last add confirmed shared by the ledger handles, null if they are disabled.
+     */
+    LacWatchManager getLacWatchManager();
+
+    /**
+     * Get the memory limit of the adds and reads of the ledger handles, null if the memory is not limited.
+     */
+    ClientMemoryLimiter getMemoryLimiter();
+
+    /**
+     * Get the limit of the ledgers recovered concurrently, null if the recoveries are not limited.
+     */
+    LedgerRecoveryLimiter getRecoveryLimiter();
 }
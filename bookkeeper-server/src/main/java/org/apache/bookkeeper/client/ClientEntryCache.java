@@ -0,0 +1,328 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+
+/**
+ * An entry cache shared by all the ledger handles of a client.
+ *
+ * <p>Entries are copied into direct memory when a read from the bookies completes and are evicted
+ * in least recently used order once the cache exceeds its size. Only entries up to the last add
+ * confirmed go through the cache, as entries past it may still be truncated by a recovery.
+ *
+ * <p>Reads of entries which are not cached but are being read by another handle wait for that read
+ * to complete and are then served from the cache, instead of sending the same request to the bookies.
+ */
+class ClientEntryCache {
+
+    /**
+     * Reads a range of entries from the bookies.
+     */
+    interface EntryReader {
+        CompletableFuture<LedgerEntries> read(long firstEntry, long lastEntry);
+    }
+
+    private static final class EntryKey {
+        final long ledgerId;
+        final long entryId;
+
+        EntryKey(long ledgerId, long entryId) {
+            this.ledgerId = ledgerId;
+            this.entryId = entryId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey other = (EntryKey) o;
+            return ledgerId == other.ledgerId && entryId == other.entryId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ledgerId, entryId);
+        }
+    }
+
+    private static final class CachedEntry {
+        final long length;
+        final ByteBuf data;
+
+        CachedEntry(long length, ByteBuf data) {
+            this.length = length;
+            this.data = data;
+        }
+    }
+
+    private final long maxSizeBytes;
+    private final ByteBufAllocator allocator;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalescedReads;
+    private final Counter evictions;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<EntryKey, CachedEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes = 0;
+    private boolean closed = false;
+
+    // reads in progress, completed once the entry was added to the cache or the read failed
+    private final ConcurrentHashMap<EntryKey, CompletableFuture<Void>> pendingReads = new ConcurrentHashMap<>();
+
+    ClientEntryCache(long maxSizeBytes, ByteBufAllocator allocator, BookKeeperClientStats clientStats) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.allocator = allocator;
+        this.hits = clientStats.getEntryCacheHitsCounter();
+        this.misses = clientStats.getEntryCacheMissesCounter();
+        this.coalescedReads = clientStats.getEntryCacheCoalescedReadsCounter();
+        this.evictions = clientStats.getEntryCacheEvictionsCounter();
+        clientStats.registerEntryCacheSizeGauge(new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return getSizeBytes();
+            }
+        });
+    }
+
+    synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Read a range of entries, serving them from the cache or from reads already in progress when
+     * possible, and from the given reader otherwise.
+     */
+    CompletableFuture<LedgerEntries> read(long ledgerId, long firstEntry, long lastEntry, EntryReader reader) {
+        int numEntries = (int) (lastEntry - firstEntry + 1);
+        List<CompletableFuture<LedgerEntry>> parts = new ArrayList<>(numEntries);
+        long runStart = -1;
+        List<CompletableFuture<Void>> runPending = new ArrayList<>();
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            EntryKey key = new EntryKey(ledgerId, entryId);
+            LedgerEntry cached = get(key);
+            CompletableFuture<Void> myRead = null;
+            CompletableFuture<Void> otherRead = null;
+            if (cached == null) {
+                myRead = new CompletableFuture<>();
+                otherRead = pendingReads.putIfAbsent(key, myRead);
+                if (otherRead != null) {
+                    myRead = null;
+                }
+            }
+            if (myRead == null && runStart >= 0) {
+                readRun(ledgerId, runStart, entryId - 1, runPending, parts, reader);
+                runStart = -1;
+                runPending = new ArrayList<>();
+            }
+            if (cached != null) {
+                hits.inc();
+                parts.add(CompletableFuture.completedFuture(cached));
+            } else if (otherRead != null) {
+                coalescedReads.inc();
+                parts.add(waitForRead(key, otherRead, reader));
+            } else {
+                misses.inc();
+                if (runStart < 0) {
+                    runStart = entryId;
+                }
+                runPending.add(myRead);
+                // completed by readRun
+                parts.add(null);
+            }
+        }
+        if (runStart >= 0) {
+            readRun(ledgerId, runStart, lastEntry, runPending, parts, reader);
+        }
+
+        CompletableFuture<LedgerEntries> result = new CompletableFuture<>();
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).whenComplete((ignored, cause) -> {
+            List<LedgerEntry> read = new ArrayList<>(numEntries);
+            for (CompletableFuture<LedgerEntry> part : parts) {
+                if (!part.isCompletedExceptionally()) {
+                    read.add(part.join());
+                }
+            }
+            if (cause != null) {
+                read.forEach(LedgerEntry::close);
+                result.completeExceptionally(cause instanceof CompletionException ? cause.getCause() : cause);
+            } else {
+                result.complete(LedgerEntriesImpl.create(read));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Read a run of consecutive entries which are neither cached nor being read, filling the
+     * placeholders of the run in {@code parts} and completing the pending reads of the run.
+     */
+    private void readRun(long ledgerId, long firstEntry, long lastEntry, List<CompletableFuture<Void>> pending,
+                         List<CompletableFuture<LedgerEntry>> parts, EntryReader reader) {
+        List<CompletableFuture<LedgerEntry>> runParts = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            CompletableFuture<LedgerEntry> part = new CompletableFuture<>();
+            runParts.add(part);
+            parts.set(parts.size() - pending.size() + i, part);
+        }
+        reader.read(firstEntry, lastEntry).whenComplete((entries, cause) -> {
+            int numRead = 0;
+            Throwable failure = cause;
+            try {
+                if (failure == null) {
+                    try {
+                        Iterator<LedgerEntry> iter = entries.iterator();
+                        while (numRead < pending.size() && iter.hasNext()) {
+                            LedgerEntry entry = iter.next();
+                            EntryKey key = new EntryKey(ledgerId, firstEntry + numRead);
+                            put(key, entry);
+                            runParts.get(numRead).complete(LedgerEntryImpl.duplicate(entry));
+                            pendingReads.remove(key, pending.get(numRead));
+                            pending.get(numRead).complete(null);
+                            numRead++;
+                        }
+                    } finally {
+                        entries.close();
+                    }
+                    if (numRead < pending.size()) {
+                        failure = new BKException.BKUnexpectedConditionException();
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                if (failure != null) {
+                    failRun(ledgerId, firstEntry + numRead, pending.subList(numRead, pending.size()),
+                            runParts.subList(numRead, runParts.size()), failure);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fail the remaining entries of a run. The reads of other handles waiting for these entries are
+     * released without an error, they read the entries themselves as the entries are not cached.
+     */
+    private void failRun(long ledgerId, long firstEntry, List<CompletableFuture<Void>> pending,
+                         List<CompletableFuture<LedgerEntry>> runParts, Throwable cause) {
+        for (int i = 0; i < pending.size(); i++) {
+            pendingReads.remove(new EntryKey(ledgerId, firstEntry + i), pending.get(i));
+            pending.get(i).complete(null);
+            runParts.get(i).completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Wait for the read of an entry by another handle, then serve it from the cache. The entry is
+     * read again if it could not be cached, was already evicted, or the other read failed.
+     */
+    private CompletableFuture<LedgerEntry> waitForRead(EntryKey key, CompletableFuture<Void> otherRead,
+                                                       EntryReader reader) {
+        return otherRead.thenCompose(ignored -> {
+            LedgerEntry cached = get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            return reader.read(key.entryId, key.entryId).thenApply(entries -> {
+                try {
+                    Iterator<LedgerEntry> iter = entries.iterator();
+                    if (!iter.hasNext()) {
+                        throw new CompletionException(new BKException.BKUnexpectedConditionException());
+                    }
+                    return LedgerEntryImpl.duplicate(iter.next());
+                } finally {
+                    entries.close();
+                }
+            });
+        });
+    }
+
+    private synchronized LedgerEntry get(EntryKey key) {
+        CachedEntry cached = entries.get(key);
+        if (cached == null) {
+            return null;
+        }
+        return LedgerEntryImpl.create(key.ledgerId, key.entryId, cached.length, cached.data.retainedDuplicate());
+    }
+
+    private void put(EntryKey key, LedgerEntry entry) {
+        ByteBuf src = entry.getEntryBuffer();
+        int size = src.readableBytes();
+        if (size > maxSizeBytes) {
+            return;
+        }
+        ByteBuf copy = allocator.directBuffer(size, size);
+        copy.writeBytes(src, src.readerIndex(), size);
+        synchronized (this) {
+            if (closed) {
+                copy.release();
+                return;
+            }
+            CachedEntry previous = entries.put(key, new CachedEntry(entry.getLength(), copy));
+            sizeBytes += size;
+            if (previous != null) {
+                sizeBytes -= previous.data.readableBytes();
+                previous.data.release();
+            }
+            Iterator<Map.Entry<EntryKey, CachedEntry>> iter = entries.entrySet().iterator();
+            while (sizeBytes > maxSizeBytes && iter.hasNext()) {
+                CachedEntry evicted = iter.next().getValue();
+                iter.remove();
+                sizeBytes -= evicted.data.readableBytes();
+                evicted.data.release();
+                evictions.inc();
+            }
+        }
+    }
+
+    /**
+     * Release the entries of the cache. Reads issued afterwards are not cached.
+     */
+    synchronized void close() {
+        closed = true;
+        entries.values().forEach(cached -> cached.data.release());
+        entries.clear();
+        sizeBytes = 0;
+    }
+}
@@ -42,6 +42,7 @@ class ClientInternalConf {
     final boolean enableReorderReadSequence;
     final boolean enableStickyReads;
     final int recoveryReadBatchSize;
+    final int recoveryReadAheadBatches;
     final int throttleValue;
     final int bookieFailureHistoryExpirationMSec;
     final int maxAllowedEnsembleChanges;
@@ -69,6 +70,7 @@ class ClientInternalConf {
         this.enableReorderReadSequence = conf.isReorderReadSequenceEnabled();
         this.enableParallelRecoveryRead = conf.getEnableParallelRecoveryRead();
         this.recoveryReadBatchSize = conf.getRecoveryReadBatchSize();
+        this.recoveryReadAheadBatches = Math.max(1, conf.getRecoveryReadAheadBatches());
         this.waitForWriteSetMs = conf.getWaitTimeoutOnBackpressureMillis();
         this.addEntryQuorumTimeoutNanos = TimeUnit.SECONDS.toNanos(conf.getAddEntryQuorumTimeout());
         this.throttleValue = conf.getThrottleValue();
@@ -84,7 +86,14 @@ class ClientInternalConf {
         this.enableStickyReads = conf.isStickyReadsEnabled();
         this.enforceMinNumFaultDomainsForWrite = conf.getEnforceMinNumFaultDomainsForWrite();
 
-        if (conf.getFirstSpeculativeReadTimeout() > 0) {
+        if (conf.getFirstSpeculativeReadTimeout() > 0 && conf.isAdaptiveSpeculativeReadEnabled()) {
+            this.readSpeculativeRequestPolicy =
+                    Optional.of(new AdaptiveSpeculativeRequestExecutionPolicy(
+                                        conf.getFirstSpeculativeReadTimeout(),
+                                        conf.getMaxSpeculativeReadTimeout(),
+                                        conf.getSpeculativeReadLatencyPercentile(),
+                                        conf.getSpeculativeReadBudgetPercent() / 100.0));
+        } else if (conf.getFirstSpeculativeReadTimeout() > 0) {
             this.readSpeculativeRequestPolicy =
                     Optional.of(new DefaultSpeculativeRequestExecutionPolicy(
                                         conf.getFirstSpeculativeReadTimeout(),
@@ -0,0 +1,124 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.common.util.MemoryLimitController;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+
+/**
+ * Limits the memory of the add payloads and read responses held by all the ledger handles of a
+ * client.
+ *
+ * <p>Adds reserve the size of their payload before being sent, which is released once all the
+ * bookies responded. Reads only wait for the memory to be under the limit before being sent, as
+ * the size of the entries is not known in advance, and the entries are accounted when they are
+ * received until the read completes.
+ *
+ * <p>When the limit is exceeded, adds and reads either wait for memory to be released or fail
+ * with {@link BKException.Code#TooManyRequestsException}, depending on the configuration.
+ */
+class ClientMemoryLimiter {
+
+    private final MemoryLimitController controller;
+    private final boolean blockAdds;
+    private final boolean blockReads;
+    private final OpStatsLogger waitLogger;
+    private final Counter rejected;
+
+    ClientMemoryLimiter(long limitBytes, boolean blockAdds, boolean blockReads, BookKeeperClientStats clientStats) {
+        this.controller = new MemoryLimitController(limitBytes);
+        this.blockAdds = blockAdds;
+        this.blockReads = blockReads;
+        this.waitLogger = clientStats.getClientMemoryWaitLogger();
+        this.rejected = clientStats.getClientMemoryRejectedCounter();
+        clientStats.registerClientMemoryUsageGauge(new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return controller.currentUsage();
+            }
+        });
+    }
+
+    /**
+     * Reserve the memory of an add payload.
+     *
+     * @param mayWait false if the caller must not wait for memory, even when adds wait for it
+     * @return {@link BKException.Code#OK} if the memory was reserved, the error to fail the add with otherwise.
+     */
+    int reserveForAdd(long size, boolean mayWait) {
+        if (controller.tryReserveMemory(size)) {
+            return BKException.Code.OK;
+        }
+        return blockAdds && mayWait ? waitAndReserve(size) : reject();
+    }
+
+    /**
+     * Check that a read can be sent, the entries it receives are accounted with {@link #charge(long)}.
+     *
+     * @return {@link BKException.Code#OK} if the read can be sent, the error to fail the read with otherwise.
+     */
+    int admitRead() {
+        if (!controller.isMemoryLimitExceeded()) {
+            return BKException.Code.OK;
+        }
+        return blockReads ? waitAndReserve(0) : reject();
+    }
+
+    /**
+     * Account memory which was received, regardless of the limit.
+     */
+    void charge(long size) {
+        controller.forceReserveMemory(size);
+    }
+
+    void release(long size) {
+        if (size > 0) {
+            controller.releaseMemory(size);
+        }
+    }
+
+    private int waitAndReserve(long size) {
+        long startNanos = MathUtils.nowInNano();
+        try {
+            controller.reserveMemory(size);
+            waitLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+            return BKException.Code.OK;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            waitLogger.registerFailedEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+            return BKException.Code.InterruptedException;
+        }
+    }
+
+    private int reject() {
+        rejected.inc();
+        return BKException.Code.TooManyRequestsException;
+    }
+}
@@ -197,7 +197,7 @@ public class DefaultEnsemblePlacementPolicy implements EnsemblePlacementPolicy {
         this.isWeighted = conf.getDiskWeightBasedPlacementEnabled();
         if (this.isWeighted) {
             this.maxWeightMultiple = conf.getBookieMaxWeightMultipleForWeightBasedPlacement();
-            this.weightedSelection = new WeightedRandomSelectionImpl<BookieId>(this.maxWeightMultiple);
+            this.weightedSelection = new AliasWeightedRandomSelectionImpl<BookieId>(this.maxWeightMultiple);
         }
         return this;
     }
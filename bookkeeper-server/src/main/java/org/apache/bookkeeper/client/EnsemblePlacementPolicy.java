@@ -244,6 +244,32 @@ public interface EnsemblePlacementPolicy {
     Set<BookieId> onClusterChanged(Set<BookieId> writableBookies,
                                               Set<BookieId> readOnlyBookies);
 
+    /**
+     * Same as {@link #onClusterChanged(Set, Set)}, with the writable bookies which joined and left the cluster
+     * since the previous change, so that the implementation can update its view of the cluster incrementally
+     * instead of diffing the whole cluster again.
+     *
+     * <p>The default implementation ignores the changes and calls {@link #onClusterChanged(Set, Set)}. The rack
+     * and zone aware policies apply the changes directly, unless a subclass overrides
+     * {@link #onClusterChanged(Set, Set)}, in which case they keep calling it.
+     *
+     * @param writableBookies
+     *          All the bookies in the cluster available for write/read.
+     * @param readOnlyBookies
+     *          All the bookies in the cluster available for readonly.
+     * @param joinedBookies
+     *          The writable bookies which were not writable in the previous change.
+     * @param leftBookies
+     *          The bookies which were writable in the previous change and are not writable anymore.
+     * @return the dead bookies during this cluster change.
+     */
+    default Set<BookieId> onClusterMembershipChanged(Set<BookieId> writableBookies,
+                                                     Set<BookieId> readOnlyBookies,
+                                                     Set<BookieId> joinedBookies,
+                                                     Set<BookieId> leftBookies) {
+        return onClusterChanged(writableBookies, readOnlyBookies);
+    }
+
     /**
      * Choose <i>numBookies</i> bookies for ensemble. If the count is more than the number of available
      * nodes, {@link BKNotEnoughBookiesException} is thrown.
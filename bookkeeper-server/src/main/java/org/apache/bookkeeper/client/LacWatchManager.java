@@ -0,0 +1,381 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.LacWatchListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for the last add confirmed of tailed ledgers through watches registered on the bookies,
+ * shared by all the ledger handles of a client.
+ *
+ * <p>The first wait on a ledger watches it on the bookies of its current ensemble. The watches of
+ * all the ledgers waited on at about the same time are sent to a bookie in a single request, and
+ * the bookies push the updates of the watched ledgers in batches, so a client tailing many ledgers
+ * keeps one watch per ledger and bookie instead of one long poll per read. Ledgers stay watched
+ * until all the handles waiting on them are closed, so later waits do not send anything to the bookies.
+ *
+ * <p>A watch dropped by a bookie is registered again by the next wait, and the watches lost with a
+ * connection are registered again right away. Waits on a ledger which none of its bookies can
+ * watch fail, and the caller falls back to long poll reads.
+ */
+class LacWatchManager implements LacWatchListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LacWatchManager.class);
+
+    private static final class Waiter {
+        final LedgerHandle lh;
+        final long previousLac;
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        volatile ScheduledFuture<?> timeout = null;
+
+        Waiter(LedgerHandle lh, long previousLac) {
+            this.lh = lh;
+            this.previousLac = previousLac;
+        }
+    }
+
+    private static final class WatchedLedger {
+        final long ledgerId;
+        // guarded by this
+        long lac = LedgerHandle.INVALID_ENTRY_ID;
+        List<BookieId> ensemble = Collections.emptyList();
+        // bookies the ledger is watched on
+        final Set<BookieId> bookies = new HashSet<>();
+        final List<Waiter> waiters = new ArrayList<>();
+        // handles which waited on the ledger, it is unwatched once all of them are closed
+        final Set<LedgerHandle> handles = Collections.newSetFromMap(new IdentityHashMap<>());
+        // set once the ledger is unwatched, the next wait watches it again
+        boolean removed = false;
+
+        WatchedLedger(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+    }
+
+    private static final class PendingRequest {
+        final Map<Long, Long> watch = new HashMap<>();
+        final Set<Long> unwatch = new HashSet<>();
+    }
+
+    private final BookieClient bookieClient;
+    private final OrderedScheduler scheduler;
+
+    private final ConcurrentHashMap<Long, WatchedLedger> ledgers = new ConcurrentHashMap<>();
+    // bookies which do not know about watch requests
+    private final Set<BookieId> unsupportedBookies = ConcurrentHashMap.newKeySet();
+    // requests not sent yet, guarded by itself
+    private final Map<BookieId, PendingRequest> pendingRequests = new HashMap<>();
+
+    LacWatchManager(BookieClient bookieClient, OrderedScheduler scheduler) {
+        this.bookieClient = bookieClient;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Wait until the last add confirmed of the ledger is past {@code previousLac}.
+     *
+     * @return a future completed with the last add confirmed once it is past {@code previousLac}, or
+     *         with the last known one after the timeout. It fails if the ledger cannot be watched.
+     */
+    CompletableFuture<Long> waitForLacUpdate(LedgerHandle lh, long previousLac, long timeoutMs) {
+        WatchedLedger ledger = watchedLedger(lh);
+        Waiter waiter = new Waiter(lh, previousLac);
+        List<BookieId> toWatch = new ArrayList<>();
+        List<BookieId> toUnwatch = new ArrayList<>();
+        long lastSeenLac;
+        synchronized (ledger) {
+            ledger.lac = Math.max(ledger.lac, lh.getLastAddConfirmed());
+            if (ledger.removed) {
+                // the handle was closed meanwhile
+                return CompletableFuture.completedFuture(ledger.lac);
+            }
+            if (ledger.lac > previousLac) {
+                return CompletableFuture.completedFuture(ledger.lac);
+            }
+            List<BookieId> ensemble = lh.getCurrentEnsemble();
+            if (!ensemble.equals(ledger.ensemble)) {
+                // the bookies of the previous ensemble will not see the next entries
+                for (Iterator<BookieId> iter = ledger.bookies.iterator(); iter.hasNext();) {
+                    BookieId bookie = iter.next();
+                    if (!ensemble.contains(bookie)) {
+                        iter.remove();
+                        toUnwatch.add(bookie);
+                    }
+                }
+                ledger.ensemble = ensemble;
+            }
+            for (BookieId bookie : ensemble) {
+                if (!unsupportedBookies.contains(bookie) && ledger.bookies.add(bookie)) {
+                    toWatch.add(bookie);
+                }
+            }
+            if (ledger.bookies.isEmpty()) {
+                waiter.future.completeExceptionally(new BKException.BKIllegalOpException());
+            } else {
+                ledger.waiters.add(waiter);
+            }
+            lastSeenLac = ledger.lac;
+        }
+        for (BookieId bookie : toUnwatch) {
+            enqueue(bookie, ledger.ledgerId, false, lastSeenLac);
+        }
+        for (BookieId bookie : toWatch) {
+            enqueue(bookie, ledger.ledgerId, true, lastSeenLac);
+        }
+        if (!waiter.future.isDone()) {
+            scheduleTimeout(lh, ledger, waiter, timeoutMs);
+        }
+        return waiter.future;
+    }
+
+    private WatchedLedger watchedLedger(LedgerHandle lh) {
+        while (true) {
+            WatchedLedger ledger = ledgers.computeIfAbsent(lh.getId(), WatchedLedger::new);
+            synchronized (ledger) {
+                if (!ledger.removed) {
+                    ledger.handles.add(lh);
+                    return ledger;
+                }
+            }
+            // the last handle waiting on the ledger was just closed, watch the ledger again
+            ledgers.remove(lh.getId(), ledger);
+        }
+    }
+
+    private void scheduleTimeout(LedgerHandle lh, WatchedLedger ledger, Waiter waiter, long timeoutMs) {
+        try {
+            ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+                long lac;
+                synchronized (ledger) {
+                    if (!ledger.waiters.remove(waiter)) {
+                        return;
+                    }
+                    lac = Math.max(ledger.lac, lh.getLastAddConfirmed());
+                }
+                waiter.future.complete(lac);
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            waiter.timeout = timeout;
+        } catch (RejectedExecutionException e) {
+            completeExceptionally(ledger, waiter, new BKException.BKClientClosedException());
+        }
+    }
+
+    private void completeExceptionally(WatchedLedger ledger, Waiter waiter, Throwable cause) {
+        synchronized (ledger) {
+            ledger.waiters.remove(waiter);
+        }
+        waiter.future.completeExceptionally(cause);
+    }
+
+    /**
+     * Stop waiting on a ledger for a handle which is closed. Waits of the handle in progress complete
+     * with the last known last add confirmed. The ledger is unwatched on the bookies once no other
+     * handle waits on it.
+     */
+    void unwatch(LedgerHandle lh) {
+        WatchedLedger ledger = ledgers.get(lh.getId());
+        if (null == ledger) {
+            return;
+        }
+        List<Waiter> waiters = new ArrayList<>();
+        List<BookieId> bookies = Collections.emptyList();
+        long lac;
+        synchronized (ledger) {
+            if (!ledger.handles.remove(lh)) {
+                return;
+            }
+            for (Iterator<Waiter> iter = ledger.waiters.iterator(); iter.hasNext();) {
+                Waiter waiter = iter.next();
+                if (waiter.lh == lh) {
+                    iter.remove();
+                    waiters.add(waiter);
+                }
+            }
+            lac = ledger.lac;
+            if (ledger.handles.isEmpty()) {
+                ledger.removed = true;
+                ledgers.remove(ledger.ledgerId, ledger);
+                bookies = new ArrayList<>(ledger.bookies);
+                ledger.bookies.clear();
+            }
+        }
+        for (BookieId bookie : bookies) {
+            enqueue(bookie, ledger.ledgerId, false, lac);
+        }
+        for (Waiter waiter : waiters) {
+            cancelTimeout(waiter);
+            waiter.future.complete(lac);
+        }
+    }
+
+    /**
+     * Fail the waits in progress, the client is closing.
+     */
+    void close() {
+        for (WatchedLedger ledger : ledgers.values()) {
+            List<Waiter> waiters;
+            synchronized (ledger) {
+                waiters = new ArrayList<>(ledger.waiters);
+                ledger.waiters.clear();
+            }
+            for (Waiter waiter : waiters) {
+                cancelTimeout(waiter);
+                waiter.future.completeExceptionally(new BKException.BKClientClosedException());
+            }
+        }
+        ledgers.clear();
+    }
+
+    @Override
+    public void onLacUpdate(BookieId bookieId, long ledgerId, int rc, long lac) {
+        WatchedLedger ledger = ledgers.get(ledgerId);
+        if (null == ledger) {
+            return;
+        }
+        List<Waiter> completed = new ArrayList<>();
+        synchronized (ledger) {
+            if (BKException.Code.OK == rc) {
+                if (lac <= ledger.lac) {
+                    return;
+                }
+                ledger.lac = lac;
+                for (Iterator<Waiter> iter = ledger.waiters.iterator(); iter.hasNext();) {
+                    Waiter waiter = iter.next();
+                    if (lac > waiter.previousLac) {
+                        iter.remove();
+                        completed.add(waiter);
+                    }
+                }
+            } else {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Bookie {} dropped the lac watch of ledger {} : rc = {}", bookieId, ledgerId, rc);
+                }
+                // the next wait watches the ledger on the bookie again
+                if (!ledger.bookies.remove(bookieId) || !ledger.bookies.isEmpty()) {
+                    return;
+                }
+                completed.addAll(ledger.waiters);
+                ledger.waiters.clear();
+            }
+        }
+        for (Waiter waiter : completed) {
+            cancelTimeout(waiter);
+            if (BKException.Code.OK == rc) {
+                waiter.future.complete(lac);
+            } else {
+                waiter.future.completeExceptionally(BKException.create(rc));
+            }
+        }
+    }
+
+    @Override
+    public void onLacWatchesLost(BookieId bookieId) {
+        for (WatchedLedger ledger : ledgers.values()) {
+            long lac;
+            synchronized (ledger) {
+                if (!ledger.bookies.contains(bookieId)) {
+                    continue;
+                }
+                lac = ledger.lac;
+            }
+            enqueue(bookieId, ledger.ledgerId, true, lac);
+        }
+    }
+
+    private static void cancelTimeout(Waiter waiter) {
+        // a timeout scheduled after the wait completed finds nothing to do
+        ScheduledFuture<?> timeout = waiter.timeout;
+        if (null != timeout) {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Queue a watch or unwatch of a ledger on a bookie. Requests queued while the previous ones are
+     * waiting to be sent are merged into a single request.
+     */
+    private void enqueue(BookieId bookie, long ledgerId, boolean watch, long lastSeenLac) {
+        boolean schedule = false;
+        synchronized (pendingRequests) {
+            PendingRequest request = pendingRequests.get(bookie);
+            if (null == request) {
+                request = new PendingRequest();
+                pendingRequests.put(bookie, request);
+                schedule = true;
+            }
+            if (watch) {
+                request.unwatch.remove(ledgerId);
+                request.watch.put(ledgerId, lastSeenLac);
+            } else {
+                request.watch.remove(ledgerId);
+                request.unwatch.add(ledgerId);
+            }
+        }
+        if (schedule) {
+            try {
+                scheduler.execute(() -> send(bookie));
+            } catch (RejectedExecutionException e) {
+                // the client is closing
+            }
+        }
+    }
+
+    private void send(BookieId bookie) {
+        PendingRequest request;
+        synchronized (pendingRequests) {
+            request = pendingRequests.remove(bookie);
+        }
+        if (null == request) {
+            return;
+        }
+        bookieClient.watchLac(bookie, request.watch, request.unwatch, (rc, result) -> {
+            if (BKException.Code.OK == rc) {
+                return;
+            }
+            if (BKException.Code.ReadException == rc || BKException.Code.IllegalOpException == rc) {
+                LOG.warn("Bookie {} does not support lac watches, long polling it instead : rc = {}", bookie, rc);
+                unsupportedBookies.add(bookie);
+            }
+            for (long ledgerId : request.watch.keySet()) {
+                onLacUpdate(bookie, ledgerId, rc, LedgerHandle.INVALID_ENTRY_ID);
+            }
+        });
+    }
+}
@@ -194,13 +194,19 @@ class LedgerCreateOp {
     void generateLedgerIdAndCreateLedger(LedgerMetadataBuilder metadataBuilder) {
         // generate a ledgerId
         final LedgerIdGenerator ledgerIdGenerator = bk.getLedgerIdGenerator();
+        final OpStatsLogger generateLedgerIdOpLogger = clientStats.getGenerateLedgerIdOpLogger();
+        final long generateStartTime = MathUtils.nowInNano();
         ledgerIdGenerator.generateLedgerId(new GenericCallback<Long>() {
             @Override
             public void operationComplete(int rc, Long ledgerId) {
                 if (BKException.Code.OK != rc) {
+                    generateLedgerIdOpLogger.registerFailedEvent(MathUtils.elapsedNanos(generateStartTime),
+                            TimeUnit.NANOSECONDS);
                     createComplete(rc, null);
                     return;
                 }
+                generateLedgerIdOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(generateStartTime),
+                        TimeUnit.NANOSECONDS);
                 LedgerCreateOp.this.ledgerId = ledgerId;
                 LedgerCreateOp.this.metadata = metadataBuilder.withId(ledgerId).build();
                 // create a ledger with metadata
@@ -77,6 +77,7 @@ class LedgerDeleteOp {
     public void initiate() {
         // Asynchronously delete the ledger from meta manager
         // When this completes, it will invoke the callback method below.
+        bk.invalidateLedgerMetadata(ledgerId);
         bk.getLedgerManager().removeLedgerMetadata(ledgerId, Version.ANY)
             .whenCompleteAsync((ignore, exception) -> {
                     if (exception != null) {
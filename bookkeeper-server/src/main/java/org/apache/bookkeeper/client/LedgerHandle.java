@@ -37,16 +37,17 @@ import io.netty.buffer.Unpooled;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -60,6 +61,7 @@ import org.apache.bookkeeper.client.AsyncCallback.ReadLastConfirmedCallback;
 import org.apache.bookkeeper.client.BKException.BKIncorrectParameterException;
 import org.apache.bookkeeper.client.BKException.BKReadException;
 import org.apache.bookkeeper.client.DistributionSchedule.WriteSet;
+import org.apache.bookkeeper.client.SyncCallbackUtils.BatchAddCallback;
 import org.apache.bookkeeper.client.SyncCallbackUtils.FutureReadLastConfirmed;
 import org.apache.bookkeeper.client.SyncCallbackUtils.FutureReadLastConfirmedAndEntry;
 import org.apache.bookkeeper.client.SyncCallbackUtils.SyncAddCallback;
@@ -73,6 +75,7 @@ import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.client.api.WriteHandle;
 import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.common.collections.GrowableArrayBlockingQueue;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.MathUtils;
@@ -101,6 +104,8 @@ public class LedgerHandle implements WriteHandle {
 
     final byte[] ledgerKey;
     private Versioned<LedgerMetadata> versionedMetadata;
+    // last ensemble of versionedMetadata, looked up once per metadata update instead of once per add
+    private volatile List<BookieId> currentEnsemble;
     final long ledgerId;
     long lastAddPushed;
 
@@ -127,14 +132,16 @@ public class LedgerHandle implements WriteHandle {
     /**
      * If bookie sticky reads are enabled, this will contain the index of the bookie
      * selected as "sticky" for this ledger. The bookie is chosen at random when the
-     * LedgerHandle is created.
+     * LedgerHandle is created, or when sticky reads are enabled on the handle.
      *
      * <p>In case of failures, the bookie index will be updated (to the next bookie in
-     * the ensemble) to avoid continuing to attempt to read from a failed bookie.
+     * the ensemble) to avoid continuing to attempt to read from a failed bookie. When
+     * a read on the sticky bookie is slow, the bookie that served the speculative read
+     * becomes the sticky one.
      *
      * <p>If the index is -1, it means the sticky reads are disabled.
      */
-    private int stickyBookieIndex;
+    private volatile int stickyBookieIndex;
 
     long length;
     final DigestManager macManager;
@@ -181,7 +188,8 @@ public class LedgerHandle implements WriteHandle {
         this.clientCtx = clientCtx;
 
         this.versionedMetadata = versionedMetadata;
-        this.pendingAddOps = new ConcurrentLinkedQueue<PendingAddOp>();
+        this.currentEnsemble = LedgerMetadataUtils.getCurrentEnsemble(versionedMetadata.getValue());
+        this.pendingAddOps = new GrowableArrayBlockingQueue<PendingAddOp>();
         this.writeFlags = writeFlags;
 
         LedgerMetadata metadata = versionedMetadata.getValue();
@@ -197,12 +205,7 @@ public class LedgerHandle implements WriteHandle {
 
         this.ledgerId = ledgerId;
 
-        if (clientCtx.getConf().enableStickyReads
-                && getLedgerMetadata().getEnsembleSize() == getLedgerMetadata().getWriteQuorumSize()) {
-            stickyBookieIndex = clientCtx.getPlacementPolicy().getStickyReadBookieIndex(metadata, Optional.empty());
-        } else {
-            stickyBookieIndex = STICKY_READ_BOOKIE_INDEX_UNSET;
-        }
+        setStickyReadsEnabled(clientCtx.getConf().enableStickyReads);
 
         if (clientCtx.getConf().throttleValue > 0) {
             this.throttler = RateLimiter.create(clientCtx.getConf().throttleValue);
@@ -239,6 +242,16 @@ public class LedgerHandle implements WriteHandle {
             public long getBookiePendingRequests(BookieId bookieSocketAddress) {
                 return clientCtx.getBookieClient().getNumPendingRequests(bookieSocketAddress, ledgerId);
             }
+
+            @Override
+            public long getBookieReadLatencyEwmaNanos(BookieId bookieSocketAddress) {
+                return clientCtx.getBookieClient().getReadLatencyEwmaNanos(bookieSocketAddress);
+            }
+
+            @Override
+            public long getBookieOutstandingBytes(BookieId bookieSocketAddress) {
+                return clientCtx.getBookieClient().getOutstandingBytes(bookieSocketAddress);
+            }
         };
 
         ensembleChangeCounter = clientCtx.getClientStats().getEnsembleChangeCounter();
@@ -260,6 +273,32 @@ public class LedgerHandle implements WriteHandle {
         initializeWriteHandleState();
     }
 
+    /**
+     * Enable or disable sticky reads for this handle, overriding the client configuration.
+     * Sticky reads are only enabled if the write quorum is equal to the ensemble size.
+     */
+    void setStickyReadsEnabled(boolean enabled) {
+        LedgerMetadata metadata = getLedgerMetadata();
+        if (enabled && metadata.getEnsembleSize() == metadata.getWriteQuorumSize()) {
+            stickyBookieIndex = clientCtx.getPlacementPolicy().getStickyReadBookieIndex(metadata, Optional.empty());
+        } else {
+            stickyBookieIndex = STICKY_READ_BOOKIE_INDEX_UNSET;
+        }
+    }
+
+    /**
+     * Notify the LedgerHandle that a read on a particular bookie was slower than the speculative
+     * read timeout, and that another bookie served the entry instead.
+     */
+    void recordSlowReadOnBookie(int slowBookieIndex, int servingBookieIndex) {
+        // If the sticky bookie is slow, stick to the bookie which served the read instead.
+        // Every bookie stores all the entries when sticky reads are enabled.
+        int currentStickyBookieIndex = stickyBookieIndex;
+        if (currentStickyBookieIndex != STICKY_READ_BOOKIE_INDEX_UNSET && currentStickyBookieIndex == slowBookieIndex) {
+            stickyBookieIndex = servingBookieIndex;
+        }
+    }
+
     /**
      * Notify the LedgerHandle that a read operation was failed on a particular bookie.
      */
@@ -367,6 +406,7 @@ public class LedgerHandle implements WriteHandle {
             if (versionedMetadata == expected) {
                 versionedMetadata = newMetadata;
                 LedgerMetadata metadata = versionedMetadata.getValue();
+                currentEnsemble = LedgerMetadataUtils.getCurrentEnsemble(metadata);
                 if (metadata.isClosed()) {
                     lastAddConfirmed = lastAddPushed = metadata.getLastEntryId();
                     length = metadata.getLength();
@@ -539,6 +579,7 @@ public class LedgerHandle implements WriteHandle {
      * @param rc
      */
     void doAsyncCloseInternal(final CloseCallback cb, final Object ctx, final int rc) {
+        unwatchLastAddConfirmed();
         clientCtx.getMainWorkerPool().executeOrdered(ledgerId, new SafeRunnable() {
             @Override
             public void safeRun() {
@@ -863,9 +904,32 @@ public class LedgerHandle implements WriteHandle {
     CompletableFuture<LedgerEntries> readEntriesInternalAsync(long firstEntry,
                                                               long lastEntry,
                                                               boolean isRecoveryRead) {
+        ClientEntryCache entryCache = clientCtx.getEntryCache();
+        // recovery reads have to reach the bookies, and unconfirmed entries may still be truncated
+        if (entryCache != null && !isRecoveryRead && lastEntry <= getLastAddConfirmed()
+                && !clientCtx.isClientClosed()) {
+            return entryCache.read(ledgerId, firstEntry, lastEntry,
+                    (first, last) -> readEntriesFromBookiesAsync(first, last, false));
+        }
+        return readEntriesFromBookiesAsync(firstEntry, lastEntry, isRecoveryRead);
+    }
+
+    private CompletableFuture<LedgerEntries> readEntriesFromBookiesAsync(long firstEntry,
+                                                                         long lastEntry,
+                                                                         boolean isRecoveryRead) {
         PendingReadOp op = new PendingReadOp(this, clientCtx,
                                              firstEntry, lastEntry, isRecoveryRead);
         if (!clientCtx.isClientClosed()) {
+            ClientMemoryLimiter memoryLimiter = clientCtx.getMemoryLimiter();
+            // recovery reads are not limited, the recovery would otherwise fail under load
+            if (memoryLimiter != null && !isRecoveryRead) {
+                int rc = memoryLimiter.admitRead();
+                if (BKException.Code.OK != rc) {
+                    op.future().completeExceptionally(BKException.create(rc));
+                    return op.future();
+                }
+                op.limitMemory(memoryLimiter);
+            }
             // Waiting on the first one.
             // This is not very helpful if there are multiple ensembles or if bookie goes into unresponsive
             // state later after N requests sent.
@@ -923,6 +987,24 @@ public class LedgerHandle implements WriteHandle {
         return callback;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> appendBatchAsync(List<ByteBuf> data) {
+        if (data.isEmpty()) {
+            return FutureUtils.exception(new IllegalArgumentException("No entry to append"));
+        }
+        BatchAddCallback callback = new BatchAddCallback(data.size());
+        List<BookieId> ensemble = getCurrentEnsemble();
+        List<PendingAddOp> ops = new ArrayList<>(data.size());
+        for (ByteBuf entry : data) {
+            ops.add(PendingAddOp.create(this, clientCtx, ensemble, entry, writeFlags, callback, null));
+        }
+        doAsyncAddBatch(ops);
+        return callback;
+    }
+
     /**
      * Add entry synchronously to an open ledger. This can be used only with
      * {@link LedgerHandleAdv} returned through ledgers created with {@link
@@ -1300,6 +1382,9 @@ public class LedgerHandle implements WriteHandle {
         if (throttler != null) {
             throttler.acquire();
         }
+        if (!reserveAddMemory(op)) {
+            return;
+        }
 
         boolean wasClosed = false;
         synchronized (this) {
@@ -1361,6 +1446,168 @@ public class LedgerHandle implements WriteHandle {
         }
     }
 
+    /**
+     * Add a batch of entries with consecutive entry ids. The digests of the entries are computed
+     * together and each bookie receives the entries of the batch it stores in a single flush.
+     */
+    void doAsyncAddBatch(final List<PendingAddOp> ops) {
+        if (throttler != null) {
+            throttler.acquire(ops.size());
+        }
+        ClientMemoryLimiter memoryLimiter = clientCtx.getMemoryLimiter();
+        if (memoryLimiter != null) {
+            // the whole batch is admitted or rejected, so it is never partially written
+            long batchBytes = 0;
+            for (PendingAddOp op : ops) {
+                batchBytes += op.entryLength;
+            }
+            int rc = memoryLimiter.reserveForAdd(batchBytes, mayWaitForAddMemory());
+            if (BKException.Code.OK != rc) {
+                failAddBatch(ops, rc);
+                return;
+            }
+            for (PendingAddOp op : ops) {
+                op.reservedMemory = op.entryLength;
+            }
+        }
+
+        boolean wasClosed = false;
+        synchronized (this) {
+            // synchronized on this to ensure that
+            // the ledger isn't closed between checking and
+            // updating lastAddPushed
+            if (isHandleWritable()) {
+                for (PendingAddOp op : ops) {
+                    long entryId = ++lastAddPushed;
+                    long currentLedgerLength = addToLength(op.payload.readableBytes());
+                    op.setEntryId(entryId);
+                    op.setLedgerLength(currentLedgerLength);
+                    pendingAddOps.add(op);
+                }
+            } else {
+                wasClosed = true;
+            }
+        }
+
+        if (wasClosed) {
+            LOG.warn("Attempt to add a batch of {} entries to closed ledger: {}", ops.size(), ledgerId);
+            failAddBatch(ops, BKException.Code.LedgerClosedException);
+            return;
+        }
+
+        DistributionSchedule.WriteSet ws = distributionSchedule.getWriteSet(ops.get(0).getEntryId());
+        try {
+            if (!waitForWritable(ws, 0, clientCtx.getConf().waitForWriteSetMs)) {
+                for (PendingAddOp op : ops) {
+                    op.allowFailFastOnUnwritableChannel();
+                }
+            }
+        } finally {
+            ws.recycle();
+        }
+
+        try {
+            clientCtx.getMainWorkerPool().executeOrdered(ledgerId, new SafeRunnable() {
+                @Override
+                public void safeRun() {
+                    PendingAddOp.sendBatch(LedgerHandle.this, ops);
+                }
+
+                @Override
+                public String toString() {
+                    return String.format("AsyncAddBatch(lid=%d, firstEid=%d, numEntries=%d)",
+                            ledgerId, ops.get(0).getEntryId(), ops.size());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the ops will never be sent, so nothing else completes them or releases their memory
+            removePendingAdds(ops);
+            for (PendingAddOp op : ops) {
+                op.cb.addCompleteWithLatency(
+                        BookKeeper.getReturnRc(clientCtx.getBookieClient(), BKException.Code.InterruptedException),
+                        LedgerHandle.this, INVALID_ENTRY_ID, 0, op.ctx);
+                op.recyclePendAddOpObject();
+            }
+        }
+    }
+
+    /**
+     * Fail a batch of adds which were not submitted.
+     */
+    private void failAddBatch(final List<PendingAddOp> ops, final int rc) {
+        // make sure the callbacks are triggered in main worker pool
+        try {
+            clientCtx.getMainWorkerPool().executeOrdered(ledgerId, new SafeRunnable() {
+                @Override
+                public void safeRun() {
+                    for (PendingAddOp op : ops) {
+                        op.cb.addCompleteWithLatency(rc, LedgerHandle.this, INVALID_ENTRY_ID, 0, op.ctx);
+                        op.recyclePendAddOpObject();
+                    }
+                }
+
+                @Override
+                public String toString() {
+                    return String.format("AsyncAddBatchFailed(lid=%d, rc=%d)", ledgerId, rc);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            for (PendingAddOp op : ops) {
+                op.cb.addCompleteWithLatency(BookKeeper.getReturnRc(clientCtx.getBookieClient(),
+                                                                    BKException.Code.InterruptedException),
+                        LedgerHandle.this, INVALID_ENTRY_ID, 0, op.ctx);
+                op.recyclePendAddOpObject();
+            }
+        }
+    }
+
+    /**
+     * Reserve the memory of the payload of an add when the memory of the client is limited. Recovery
+     * adds are not limited, as they only rewrite entries which were already written.
+     *
+     * @return false if the add failed because its memory could not be reserved.
+     */
+    boolean reserveAddMemory(final PendingAddOp op) {
+        ClientMemoryLimiter memoryLimiter = clientCtx.getMemoryLimiter();
+        if (memoryLimiter == null || op.isRecoveryAdd) {
+            return true;
+        }
+        final int rc = memoryLimiter.reserveForAdd(op.entryLength, mayWaitForAddMemory());
+        if (BKException.Code.OK == rc) {
+            op.reservedMemory = op.entryLength;
+            return true;
+        }
+        // make sure the callback is triggered in main worker pool
+        try {
+            clientCtx.getMainWorkerPool().executeOrdered(ledgerId, new SafeRunnable() {
+                @Override
+                public void safeRun() {
+                    op.cb.addCompleteWithLatency(rc, LedgerHandle.this, op.getEntryId(), 0, op.ctx);
+                    op.recyclePendAddOpObject();
+                }
+
+                @Override
+                public String toString() {
+                    return String.format("AsyncAddEntryOverMemoryLimit(lid=%d)", ledgerId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            op.cb.addCompleteWithLatency(BookKeeper.getReturnRc(clientCtx.getBookieClient(),
+                                                                BKException.Code.InterruptedException),
+                    LedgerHandle.this, op.getEntryId(), 0, op.ctx);
+            op.recyclePendAddOpObject();
+        }
+        return false;
+    }
+
+    /**
+     * An add issued from a callback of the ledger would wait on the thread completing the adds which
+     * hold the memory, so it has to fail instead of waiting for memory.
+     */
+    private boolean mayWaitForAddMemory() {
+        return clientCtx.getMainWorkerPool().getThreadID(ledgerId) != Thread.currentThread().getId();
+    }
+
     synchronized void updateLastConfirmed(long lac, long len) {
         if (lac > lastAddConfirmed) {
             lastAddConfirmed = lac;
@@ -1513,7 +1760,8 @@ public class LedgerHandle implements WriteHandle {
      * Asynchronous read next entry and the latest last add confirmed.
      * If the next entryId is less than known last add confirmed, the call will read next entry directly.
      * If the next entryId is ahead of known last add confirmed, the call will issue a long poll read
-     * to wait for the next entry <i>entryId</i>.
+     * to wait for the next entry <i>entryId</i>, or wait for the bookies to notify the watched last
+     * add confirmed of the ledger if lac watches are enabled.
      *
      * <p>The callback will return the latest last add confirmed and next entry if it is available within timeout
      * period <i>timeOutInMillis</i>.
@@ -1550,23 +1798,63 @@ public class LedgerHandle implements WriteHandle {
             lac = getLastAddConfirmed();
         }
         if (entryId <= lac) {
-            asyncReadEntries(entryId, entryId, new ReadCallback() {
-                @Override
-                public void readComplete(int rc, LedgerHandle lh, Enumeration<LedgerEntry> seq, Object ctx) {
-                    if (BKException.Code.OK == rc) {
-                        if (seq.hasMoreElements()) {
-                            cb.readLastConfirmedAndEntryComplete(rc, getLastAddConfirmed(), seq.nextElement(), ctx);
-                        } else {
-                            cb.readLastConfirmedAndEntryComplete(rc, getLastAddConfirmed(), null, ctx);
-                        }
-                    } else {
-                        cb.readLastConfirmedAndEntryComplete(rc, INVALID_ENTRY_ID, null, ctx);
-                    }
-                }
-            }, ctx);
+            readEntryAndLastConfirmed(entryId, cb, ctx);
             return;
         }
         // wait for entry <i>entryId</i>
+        LacWatchManager lacWatchManager = clientCtx.getLacWatchManager();
+        if (null != lacWatchManager) {
+            lacWatchManager.waitForLacUpdate(this, entryId - 1, timeOutInMillis).whenComplete((newLac, cause) -> {
+                if (null != cause) {
+                    // the ledger cannot be watched on its bookies, long poll them instead
+                    readLastConfirmedAndEntryByLongPoll(entryId, timeOutInMillis, parallel, cb, ctx);
+                } else if (newLac >= entryId) {
+                    updateLastConfirmed(newLac, 0L);
+                    readEntryAndLastConfirmed(entryId, cb, ctx);
+                } else {
+                    // timed out
+                    cb.readLastConfirmedAndEntryComplete(BKException.Code.OK, newLac, null, ctx);
+                }
+            });
+            return;
+        }
+        readLastConfirmedAndEntryByLongPoll(entryId, timeOutInMillis, parallel, cb, ctx);
+    }
+
+    /**
+     * Stop watching the last add confirmed of the ledger, if tailing reads watched it.
+     */
+    void unwatchLastAddConfirmed() {
+        LacWatchManager lacWatchManager = clientCtx.getLacWatchManager();
+        if (null != lacWatchManager) {
+            lacWatchManager.unwatch(this);
+        }
+    }
+
+    private void readEntryAndLastConfirmed(final long entryId,
+                                           final AsyncCallback.ReadLastConfirmedAndEntryCallback cb,
+                                           final Object ctx) {
+        asyncReadEntries(entryId, entryId, new ReadCallback() {
+            @Override
+            public void readComplete(int rc, LedgerHandle lh, Enumeration<LedgerEntry> seq, Object ctx) {
+                if (BKException.Code.OK == rc) {
+                    if (seq.hasMoreElements()) {
+                        cb.readLastConfirmedAndEntryComplete(rc, getLastAddConfirmed(), seq.nextElement(), ctx);
+                    } else {
+                        cb.readLastConfirmedAndEntryComplete(rc, getLastAddConfirmed(), null, ctx);
+                    }
+                } else {
+                    cb.readLastConfirmedAndEntryComplete(rc, INVALID_ENTRY_ID, null, ctx);
+                }
+            }
+        }, ctx);
+    }
+
+    private void readLastConfirmedAndEntryByLongPoll(final long entryId,
+                                                     final long timeOutInMillis,
+                                                     final boolean parallel,
+                                                     final AsyncCallback.ReadLastConfirmedAndEntryCallback cb,
+                                                     final Object ctx) {
         ReadLastConfirmedAndEntryOp.LastConfirmedAndEntryCallback innercb =
             new ReadLastConfirmedAndEntryOp.LastConfirmedAndEntryCallback() {
             AtomicBoolean completed = new AtomicBoolean(false);
@@ -1799,6 +2087,25 @@ public class LedgerHandle implements WriteHandle {
         return opsDrained;
     }
 
+    /**
+     * Remove adds which were pushed but will never be sent from the pending adds.
+     */
+    private synchronized void removePendingAdds(List<PendingAddOp> ops) {
+        Set<PendingAddOp> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(ops);
+        // the queue cannot remove an op in the middle, put back the other ones in order
+        List<PendingAddOp> remaining = new ArrayList<>(pendingAddOps.size());
+        PendingAddOp pendingAddOp;
+        while ((pendingAddOp = pendingAddOps.poll()) != null) {
+            if (toRemove.contains(pendingAddOp)) {
+                addToLength(-pendingAddOp.entryLength);
+            } else {
+                remaining.add(pendingAddOp);
+            }
+        }
+        pendingAddOps.addAll(remaining);
+    }
+
     void errorOutPendingAdds(int rc, List<PendingAddOp> ops) {
         for (PendingAddOp op : ops) {
             op.submitCallback(rc);
@@ -2041,10 +2348,9 @@ public class LedgerHandle implements WriteHandle {
      * There are too many already.
      */
     List<BookieId> getCurrentEnsemble() {
-        // Getting current ensemble from the metadata is only a temporary
-        // thing until metadata is immutable. At that point, current ensemble
-        // becomes a property of the LedgerHandle itself.
-        return LedgerMetadataUtils.getCurrentEnsemble(versionedMetadata.getValue());
+        // Cached when the metadata is set, as looking up the last ensemble of the
+        // metadata allocates and this is called for every add.
+        return currentEnsemble;
     }
 
     /**
@@ -2052,7 +2358,9 @@ public class LedgerHandle implements WriteHandle {
      * This will include all bookies that are cotna
      */
     WriteSet getWriteSetForReadOperation(long entryId) {
-        if (stickyBookieIndex != STICKY_READ_BOOKIE_INDEX_UNSET) {
+        // read once, the sticky bookie may be switched by the callbacks of concurrent reads
+        int currentStickyBookieIndex = stickyBookieIndex;
+        if (currentStickyBookieIndex != STICKY_READ_BOOKIE_INDEX_UNSET) {
             // When sticky reads are enabled we want to make sure to take
             // advantage of read-ahead (or, anyway, from efficiencies in
             // reading sequential data from disk through the page cache).
@@ -2070,7 +2378,7 @@ public class LedgerHandle implements WriteHandle {
             // We can only enable sticky reads if the ensemble==writeQuorum
             // otherwise the same bookie will not have all the entries
             // stored
-            return distributionSchedule.getWriteSet(stickyBookieIndex);
+            return distributionSchedule.getWriteSet(currentStickyBookieIndex);
         } else {
             return distributionSchedule.getWriteSet(entryId);
         }
@@ -23,10 +23,12 @@ package org.apache.bookkeeper.client;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
 import java.io.Serializable;
 import java.security.GeneralSecurityException;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -37,6 +39,7 @@ import org.apache.bookkeeper.client.SyncCallbackUtils.SyncAddCallback;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.client.api.WriteAdvHandle;
 import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.util.SafeRunnable;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.slf4j.Logger;
@@ -225,6 +228,9 @@ public class LedgerHandleAdv extends LedgerHandle implements WriteAdvHandle {
         if (throttler != null) {
             throttler.acquire();
         }
+        if (!reserveAddMemory(op)) {
+            return;
+        }
 
         boolean wasClosed = false;
         synchronized (this) {
@@ -249,6 +255,8 @@ public class LedgerHandleAdv extends LedgerHandle implements WriteAdvHandle {
                         LOG.warn("Attempt to add to closed ledger: {}", ledgerId);
                         op.cb.addCompleteWithLatency(BKException.Code.LedgerClosedException,
                                 LedgerHandleAdv.this, op.getEntryId(), 0, op.ctx);
+                        // release the payload and the memory reserved for it
+                        op.recyclePendAddOpObject();
                     }
                     @Override
                     public String toString() {
@@ -259,6 +267,7 @@ public class LedgerHandleAdv extends LedgerHandle implements WriteAdvHandle {
                 op.cb.addCompleteWithLatency(BookKeeper.getReturnRc(clientCtx.getBookieClient(),
                                                                     BKException.Code.InterruptedException),
                         LedgerHandleAdv.this, op.getEntryId(), 0, op.ctx);
+                op.recyclePendAddOpObject();
             }
             return;
         }
@@ -284,6 +293,15 @@ public class LedgerHandleAdv extends LedgerHandle implements WriteAdvHandle {
         return callback;
     }
 
+    /**
+     * LedgerHandleAdv will not allow appending a batch of entries without providing their entryIds.
+     */
+    @Override
+    public CompletableFuture<Long> appendBatchAsync(List<ByteBuf> data) {
+        data.forEach(ReferenceCountUtil::release);
+        return FutureUtils.exception(new BKException.BKIllegalOpException());
+    }
+
     /**
      * LedgerHandleAdv will not allow addEntry without providing an entryId.
      */
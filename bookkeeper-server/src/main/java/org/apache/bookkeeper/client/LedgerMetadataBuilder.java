@@ -20,6 +20,7 @@ package org.apache.bookkeeper.client;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static org.apache.bookkeeper.meta.LedgerMetadataSerDe.CURRENT_METADATA_FORMAT_VERSION;
+import static org.apache.bookkeeper.meta.LedgerMetadataSerDe.MAXIMUM_METADATA_FORMAT_VERSION;
 import static org.apache.bookkeeper.meta.LedgerMetadataSerDe.METADATA_FORMAT_VERSION_1;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -31,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.function.Supplier;
 
 import org.apache.bookkeeper.client.api.DigestType;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
@@ -57,6 +59,8 @@ public class LedgerMetadataBuilder {
     private Optional<Long> length = Optional.empty();
 
     private TreeMap<Long, List<BookieId>> ensembles = new TreeMap<>();
+    // decodes the ensembles when they are first accessed, instead of the ensembles map
+    private Supplier<? extends Map<Long, ? extends List<BookieId>>> ensemblesDecoder = null;
 
     private Optional<DigestType> digestType = Optional.empty();
     private Optional<byte[]> password = Optional.empty();
@@ -109,7 +113,7 @@ public class LedgerMetadataBuilder {
     }
 
     public LedgerMetadataBuilder withMetadataFormatVersion(int version) {
-        if (version < METADATA_FORMAT_VERSION_1 || version > CURRENT_METADATA_FORMAT_VERSION) {
+        if (version < METADATA_FORMAT_VERSION_1 || version > MAXIMUM_METADATA_FORMAT_VERSION) {
             return this;
         }
         this.metadataFormatVersion = version;
@@ -127,7 +131,8 @@ public class LedgerMetadataBuilder {
     }
 
     public LedgerMetadataBuilder withEnsembleSize(int ensembleSize) {
-        checkState(ensembles.size() == 0, "Can only set ensemble size before adding ensembles to the builder");
+        checkState(ensembles.size() == 0 && ensemblesDecoder == null,
+                   "Can only set ensemble size before adding ensembles to the builder");
         this.ensembleSize = ensembleSize;
         return this;
     }
@@ -142,7 +147,25 @@ public class LedgerMetadataBuilder {
         return this;
     }
 
+    /**
+     * Set the ensembles of the ledger, decoded only when the ensembles of the built metadata are accessed.
+     * The decoder must return at least one ensemble.
+     */
+    public LedgerMetadataBuilder withLazyEnsembles(Supplier<? extends Map<Long, ? extends List<BookieId>>> decoder) {
+        checkState(ensembles.isEmpty(), "Can only set lazy ensembles before adding ensembles to the builder");
+        this.ensemblesDecoder = decoder;
+        return this;
+    }
+
+    private void decodeEnsembles() {
+        if (ensemblesDecoder != null) {
+            ensembles.putAll(ensemblesDecoder.get());
+            ensemblesDecoder = null;
+        }
+    }
+
     public LedgerMetadataBuilder newEnsembleEntry(long firstEntry, List<BookieId> ensemble) {
+        decodeEnsembles();
         checkArgument(ensemble.size() == ensembleSize,
                       "Size of passed in ensemble must match the ensembleSize of the builder");
         checkArgument(ensembles.isEmpty() || firstEntry > ensembles.lastKey(),
@@ -152,6 +175,7 @@ public class LedgerMetadataBuilder {
     }
 
     public LedgerMetadataBuilder replaceEnsembleEntry(long firstEntry, List<BookieId> ensemble) {
+        decodeEnsembles();
         checkArgument(ensemble.size() == ensembleSize,
                       "Size of passed in ensemble must match the ensembleSize of the builder");
         checkArgument(ensembles.containsKey(firstEntry),
@@ -205,6 +229,15 @@ public class LedgerMetadataBuilder {
         checkArgument(ensembleSize >= writeQuorumSize, "Write quorum must be less or equal to ensemble size");
         checkArgument(writeQuorumSize >= ackQuorumSize, "Write quorum must be greater or equal to ack quorum");
 
+        if (ensemblesDecoder != null) {
+            return new LedgerMetadataImpl(ledgerId, metadataFormatVersion,
+                                          ensembleSize, writeQuorumSize, ackQuorumSize,
+                                          state, lastEntryId, length,
+                                          LedgerMetadataImpl.lazyEnsembles(ensemblesDecoder),
+                                          digestType, password, ctime, storeCtime,
+                                          cToken,
+                                          customMetadata);
+        }
         return new LedgerMetadataImpl(ledgerId, metadataFormatVersion,
                                       ensembleSize, writeQuorumSize, ackQuorumSize,
                                       state, lastEntryId, length, ensembles,
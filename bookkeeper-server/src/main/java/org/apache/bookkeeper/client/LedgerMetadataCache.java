@@ -0,0 +1,144 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+
+/**
+ * A cache of the metadata of the closed ledgers opened by a client.
+ *
+ * <p>Only the metadata of closed ledgers is cached, as the metadata of open ledgers changes with every
+ * ensemble change and recovery. The metadata of a closed ledger still changes when its entries are
+ * re-replicated or when it is deleted. The cache does not watch the ledgers itself, which would cost a
+ * metadata read and a watch per cached ledger: the read only handles opened without recovery already
+ * watch the metadata of their ledger and pass the changes on to the cache. The metadata of a ledger no
+ * handle has open may be stale, it is refreshed the next time a handle opened over it sees the current
+ * version. The ledgers are evicted in least recently used order once the cache holds more than its max
+ * number of ledgers.
+ */
+class LedgerMetadataCache {
+
+    private final int maxLedgers;
+    private final LedgerManager ledgerManager;
+    private final Counter hits;
+    private final Counter misses;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<Long, Versioned<LedgerMetadata>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed = false;
+
+    LedgerMetadataCache(int maxLedgers, LedgerManager ledgerManager, BookKeeperClientStats clientStats) {
+        this.maxLedgers = maxLedgers;
+        this.ledgerManager = ledgerManager;
+        this.hits = clientStats.getLedgerMetadataCacheHitsCounter();
+        this.misses = clientStats.getLedgerMetadataCacheMissesCounter();
+        clientStats.registerLedgerMetadataCacheSizeGauge(new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return size();
+            }
+        });
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Read the metadata of a ledger from the cache, or from the ledger manager if it is not cached.
+     */
+    CompletableFuture<Versioned<LedgerMetadata>> read(long ledgerId) {
+        synchronized (this) {
+            Versioned<LedgerMetadata> cached = entries.get(ledgerId);
+            if (cached != null) {
+                hits.inc();
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        misses.inc();
+        return ledgerManager.readLedgerMetadata(ledgerId).thenApply(metadata -> {
+            if (metadata.getValue().isClosed()) {
+                put(ledgerId, metadata);
+            }
+            return metadata;
+        });
+    }
+
+    private synchronized void put(long ledgerId, Versioned<LedgerMetadata> metadata) {
+        if (closed) {
+            return;
+        }
+        Versioned<LedgerMetadata> cached = entries.get(ledgerId);
+        if (cached != null && metadata.getVersion().compare(cached.getVersion()) != Version.Occurred.AFTER) {
+            return;
+        }
+        entries.put(ledgerId, metadata);
+        Iterator<Versioned<LedgerMetadata>> iter = entries.values().iterator();
+        while (entries.size() > maxLedgers && iter.hasNext()) {
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    /**
+     * Apply a change of the metadata of a ledger seen by a handle watching it.
+     *
+     * @param ledgerId the ledger id
+     * @param metadata the new metadata, null if the ledger was deleted
+     */
+    synchronized void update(long ledgerId, Versioned<LedgerMetadata> metadata) {
+        Versioned<LedgerMetadata> cached = entries.get(ledgerId);
+        if (cached == null) {
+            return;
+        }
+        if (metadata == null) {
+            entries.remove(ledgerId);
+        } else if (metadata.getVersion().compare(cached.getVersion()) == Version.Occurred.AFTER) {
+            // the ledger is in use by the handle, which counts as an access
+            entries.put(ledgerId, metadata);
+        }
+    }
+
+    /**
+     * Remove a ledger from the cache, when it is deleted by the client.
+     */
+    synchronized void invalidate(long ledgerId) {
+        entries.remove(ledgerId);
+    }
+
+    synchronized void close() {
+        closed = true;
+        entries.clear();
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.bookkeeper.client;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.EqualsAndHashCode;
 import org.apache.bookkeeper.client.api.DigestType;
@@ -45,12 +47,11 @@ import org.slf4j.LoggerFactory;
  *
  * <p>It provides parsing and serialization methods of such metadata.
  */
-@EqualsAndHashCode(exclude =
-        "ledgerId" // ledgerId is not serialized inside ZK node data
-)
+@EqualsAndHashCode
 class LedgerMetadataImpl implements LedgerMetadata {
     static final Logger LOG = LoggerFactory.getLogger(LedgerMetadataImpl.class);
 
+    @EqualsAndHashCode.Exclude // ledgerId is not serialized inside ZK node data
     private final long ledgerId;
 
     private final int metadataFormatVersion;
@@ -64,8 +65,9 @@ class LedgerMetadataImpl implements LedgerMetadata {
     private final long ctime;
     final boolean storeCtime; // non-private so builder can access for copy
 
-    private final NavigableMap<Long, ImmutableList<BookieId>> ensembles;
-    private final ImmutableList<BookieId> currentEnsemble;
+    // compared through getAllEnsembles(), the ensembles may be decoded lazily
+    @EqualsAndHashCode.Exclude
+    private final Supplier<NavigableMap<Long, ImmutableList<BookieId>>> ensembles;
 
     private final boolean hasPassword;
     private final DigestType digestType;
@@ -90,7 +92,26 @@ class LedgerMetadataImpl implements LedgerMetadata {
                        boolean storeCtime,
                        long cToken,
                        Map<String, byte[]> customMetadata) {
-        checkArgument(ensembles.size() > 0, "There must be at least one ensemble in the ledger");
+        this(ledgerId, metadataFormatVersion, ensembleSize, writeQuorumSize, ackQuorumSize, state,
+             lastEntryId, length, Suppliers.ofInstance(toImmutableEnsembles(ensembles)),
+             digestType, password, ctime, storeCtime, cToken, customMetadata);
+    }
+
+    LedgerMetadataImpl(long ledgerId,
+                       int metadataFormatVersion,
+                       int ensembleSize,
+                       int writeQuorumSize,
+                       int ackQuorumSize,
+                       State state,
+                       Optional<Long> lastEntryId,
+                       Optional<Long> length,
+                       Supplier<NavigableMap<Long, ImmutableList<BookieId>>> ensembles,
+                       Optional<DigestType> digestType,
+                       Optional<byte[]> password,
+                       long ctime,
+                       boolean storeCtime,
+                       long cToken,
+                       Map<String, byte[]> customMetadata) {
         if (state == State.CLOSED) {
             checkArgument(length.isPresent(), "Closed ledger must have a length");
             checkArgument(lastEntryId.isPresent(), "Closed ledger must have a last entry");
@@ -112,17 +133,7 @@ class LedgerMetadataImpl implements LedgerMetadata {
         this.lastEntryId = lastEntryId.orElse(LedgerHandle.INVALID_ENTRY_ID);
         this.length = length.orElse(0L);
 
-        this.ensembles = Collections.unmodifiableNavigableMap(
-                ensembles.entrySet().stream().collect(TreeMap::new,
-                                                      (m, e) -> m.put(e.getKey(),
-                                                                      ImmutableList.copyOf(e.getValue())),
-                                                      TreeMap::putAll));
-
-        if (state != State.CLOSED) {
-            currentEnsemble = this.ensembles.lastEntry().getValue();
-        } else {
-            currentEnsemble = null;
-        }
+        this.ensembles = ensembles;
 
         if (password.isPresent()) {
             this.password = password.get();
@@ -141,14 +152,33 @@ class LedgerMetadataImpl implements LedgerMetadata {
         this.customMetadata = ImmutableMap.copyOf(customMetadata);
     }
 
+    private static NavigableMap<Long, ImmutableList<BookieId>> toImmutableEnsembles(
+            Map<Long, ? extends List<BookieId>> ensembles) {
+        checkArgument(ensembles.size() > 0, "There must be at least one ensemble in the ledger");
+        return Collections.unmodifiableNavigableMap(
+                ensembles.entrySet().stream().collect(TreeMap::new,
+                                                      (m, e) -> m.put(e.getKey(),
+                                                                      ImmutableList.copyOf(e.getValue())),
+                                                      TreeMap::putAll));
+    }
+
+    /**
+     * Ensembles decoded the first time they are accessed.
+     */
+    static Supplier<NavigableMap<Long, ImmutableList<BookieId>>> lazyEnsembles(
+            Supplier<? extends Map<Long, ? extends List<BookieId>>> decoder) {
+        return Suppliers.memoize(() -> toImmutableEnsembles(decoder.get()));
+    }
+
     @Override
     public long getLedgerId() {
         return ledgerId;
     }
 
     @Override
+    @EqualsAndHashCode.Include
     public NavigableMap<Long, ? extends List<BookieId>> getAllEnsembles() {
-        return ensembles;
+        return ensembles.get();
     }
 
     @Override
@@ -224,7 +254,8 @@ class LedgerMetadataImpl implements LedgerMetadata {
     public List<BookieId> getEnsembleAt(long entryId) {
         // the head map cannot be empty, since we insert an ensemble for
         // entry-id 0, right when we start
-        return ensembles.get(ensembles.headMap(entryId + 1).lastKey());
+        NavigableMap<Long, ImmutableList<BookieId>> allEnsembles = ensembles.get();
+        return allEnsembles.get(allEnsembles.headMap(entryId + 1).lastKey());
     }
 
     @Override
@@ -268,7 +299,7 @@ class LedgerMetadataImpl implements LedgerMetadata {
                 helper.add("password", "OMITTED");
             }
         }
-        helper.add("ensembles", ensembles.toString());
+        helper.add("ensembles", ensembles.get().toString());
         helper.add("customMetadata",
                    customMetadata.entrySet().stream().collect(
                            Collectors.toMap(e -> e.getKey(),
@@ -59,6 +59,7 @@ class LedgerOpenOp {
     final byte[] passwd;
     boolean doRecovery = true;
     boolean administrativeOpen = false;
+    boolean stickyReads;
     long startTime;
     final OpStatsLogger openOpLogger;
 
@@ -85,6 +86,7 @@ class LedgerOpenOp {
         this.ctx = ctx;
         this.enableDigestAutodetection = bk.getConf().getEnableDigestTypeAutodetection();
         this.suggestedDigestType = digestType;
+        this.stickyReads = bk.getConf().isStickyReadsEnabled();
         this.openOpLogger = clientStats.getOpenOpLogger();
     }
 
@@ -99,6 +101,7 @@ class LedgerOpenOp {
         this.administrativeOpen = true;
         this.enableDigestAutodetection = false;
         this.suggestedDigestType = bk.conf.getBookieRecoveryDigestType();
+        this.stickyReads = bk.getConf().isStickyReadsEnabled();
         this.openOpLogger = clientStats.getOpenOpLogger();
     }
 
@@ -111,7 +114,7 @@ class LedgerOpenOp {
         /**
          * Asynchronously read the ledger metadata node.
          */
-        bk.getLedgerManager().readLedgerMetadata(ledgerId)
+        bk.readLedgerMetadata(ledgerId)
             .whenComplete((metadata, exception) -> {
                     if (exception != null) {
                         openComplete(BKException.getExceptionCode(exception), null);
@@ -186,6 +189,9 @@ class LedgerOpenOp {
         try {
             lh = new ReadOnlyLedgerHandle(bk.getClientCtx(), ledgerId, versionedMetadata, digestType,
                                           passwd, !doRecovery);
+            if (stickyReads != bk.getConf().isStickyReadsEnabled()) {
+                lh.setStickyReadsEnabled(stickyReads);
+            }
         } catch (GeneralSecurityException e) {
             LOG.error("Security exception while opening ledger: " + ledgerId, e);
             openComplete(BKException.Code.DigestNotInitializedException, null);
@@ -254,6 +260,7 @@ class LedgerOpenOp {
 
         OpenBuilderImpl(BookKeeper bookkeeper) {
             this.bk = bookkeeper;
+            this.stickyReads = bookkeeper.getConf().isStickyReadsEnabled();
         }
 
         @Override
@@ -274,6 +281,7 @@ class LedgerOpenOp {
             LedgerOpenOp op = new LedgerOpenOp(bk, bk.getClientCtx().getClientStats(),
                                                ledgerId, fromApiDigestType(digestType),
                                                password, cb, null);
+            op.stickyReads = stickyReads;
             ReentrantReadWriteLock closeLock = bk.getCloseLock();
             closeLock.readLock().lock();
             try {
@@ -0,0 +1,91 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.apache.bookkeeper.stats.Gauge;
+
+/**
+ * Limits the number of ledgers recovered concurrently by a client.
+ *
+ * <p>Recoveries beyond the limit wait in arrival order, and the next one starts as soon as a
+ * running recovery completes, successfully or not.
+ */
+class LedgerRecoveryLimiter {
+
+    private final int maxRecoveries;
+
+    // guarded by this
+    private int running = 0;
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+    LedgerRecoveryLimiter(int maxRecoveries, BookKeeperClientStats clientStats) {
+        this.maxRecoveries = maxRecoveries;
+        clientStats.registerWaitingLedgerRecoveriesGauge(new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return getNumWaiting();
+            }
+        });
+    }
+
+    synchronized int getNumWaiting() {
+        return waiting.size();
+    }
+
+    /**
+     * Run a recovery once the number of running recoveries is under the limit.
+     */
+    <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> recovery) {
+        CompletableFuture<Void> permit;
+        synchronized (this) {
+            if (running < maxRecoveries) {
+                running++;
+                permit = CompletableFuture.completedFuture(null);
+            } else {
+                permit = new CompletableFuture<>();
+                waiting.add(permit);
+            }
+        }
+        return permit.thenCompose(ignored -> recovery.get())
+                .whenComplete((result, cause) -> release());
+    }
+
+    private void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (null == next) {
+                running--;
+                return;
+            }
+        }
+        // the permit is handed over to the next recovery
+        next.complete(null);
+    }
+}
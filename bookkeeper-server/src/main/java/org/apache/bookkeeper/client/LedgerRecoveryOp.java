@@ -19,6 +19,7 @@ package org.apache.bookkeeper.client;
 
 import com.google.common.annotations.VisibleForTesting;
 
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
@@ -33,6 +34,10 @@ import org.slf4j.LoggerFactory;
  * with entry-id of -1 (BookieProtocol.LAST_ADD_CONFIRMED) to all bookies. Then
  * starting from the last confirmed entry (from hints in the ledger entries),
  * it reads forward until it is not able to find a particular entry.
+ *
+ * <p>The entries are read in batches of {@code recoveryReadBatchSize} entries, with up to
+ * {@code recoveryReadAheadBatches} batches read concurrently. The entries read are added back
+ * in order as soon as the entries before them were, without waiting for the adds to complete.
  */
 class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
 
@@ -44,8 +49,15 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
 
     final AtomicLong readCount, writeCount;
     volatile boolean readDone;
-    volatile long startEntryToRead;
-    volatile long endEntryToRead;
+
+    // guarded by this
+    // first entry of the next batch to read
+    long nextEntryToRead;
+    // next entry to add back, the entries read past it wait in completedReads
+    long nextEntryToAdd;
+    final TreeMap<Long, CompletedRead> completedReads = new TreeMap<>();
+    // whether a thread is adding back the completed reads, only one does so they are added in order
+    boolean addingBack;
 
     // keep a copy of metadata for recovery.
     LedgerMetadata metadataForRecovery;
@@ -54,6 +66,31 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     @VisibleForTesting
     ReadEntryListener entryListener = null;
 
+    /**
+     * A batch of recovery reads. The entries of a batch are notified in order.
+     */
+    static class ReadBatch {
+        final long lastEntryId;
+        long nextEntryId;
+
+        ReadBatch(long firstEntryId, long lastEntryId) {
+            this.nextEntryId = firstEntryId;
+            this.lastEntryId = lastEntryId;
+        }
+    }
+
+    static class CompletedRead {
+        final int rc;
+        final LedgerEntry entry;
+        final boolean lastOfBatch;
+
+        CompletedRead(int rc, LedgerEntry entry, boolean lastOfBatch) {
+            this.rc = rc;
+            this.entry = entry;
+            this.lastOfBatch = lastOfBatch;
+        }
+    }
+
     class RecoveryReadOp extends ListenerBasedPendingReadOp {
 
         RecoveryReadOp(LedgerHandle lh,
@@ -103,6 +140,7 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
                     @Override
                     public void readLastConfirmedDataComplete(int rc, RecoveryData data) {
                         if (rc == BKException.Code.OK) {
+                            long firstEntryToRecover;
                             synchronized (lh) {
                                 /**
                                  The lowest an LAC can be for use in recovery is the first entry id
@@ -124,12 +162,19 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
 
                                 lh.length = data.getLength();
                                 lh.pendingAddsSequenceHead = lh.lastAddConfirmed;
-                                startEntryToRead = endEntryToRead = lh.lastAddConfirmed;
+                                firstEntryToRecover = lh.lastAddConfirmed + 1;
+                            }
+                            // never lock this op while holding the ledger handle, recovery reads lock them the
+                            // other way round
+                            synchronized (LedgerRecoveryOp.this) {
+                                nextEntryToRead = nextEntryToAdd = firstEntryToRecover;
                             }
                             // keep a copy of ledger metadata before proceeding
                             // ledger recovery
                             metadataForRecovery = lh.getLedgerMetadata();
-                            doRecoveryRead();
+                            for (int i = 0; i < clientCtx.getConf().recoveryReadAheadBatches; i++) {
+                                doRecoveryRead();
+                            }
                         } else if (rc == BKException.Code.UnauthorizedAccessException) {
                             submitCallback(rc);
                         } else {
@@ -161,15 +206,21 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     }
 
     /**
-     * Try to read past the last confirmed.
+     * Try to read the next batch of entries past the last confirmed.
      */
     private void doRecoveryRead() {
-        if (!promise.isDone()) {
-            startEntryToRead = endEntryToRead + 1;
-            endEntryToRead = endEntryToRead + clientCtx.getConf().recoveryReadBatchSize;
-            new RecoveryReadOp(lh, clientCtx, startEntryToRead, endEntryToRead, this, null)
-                .initiate();
+        long startEntry;
+        long endEntry;
+        synchronized (this) {
+            if (promise.isDone() || readDone) {
+                return;
+            }
+            startEntry = nextEntryToRead;
+            endEntry = startEntry + clientCtx.getConf().recoveryReadBatchSize - 1;
+            nextEntryToRead = endEntry + 1;
         }
+        new RecoveryReadOp(lh, clientCtx, startEntry, endEntry, this, new ReadBatch(startEntry, endEntry))
+            .initiate();
     }
 
     @Override
@@ -177,8 +228,40 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
         // notify entry listener on individual entries being read during ledger recovery.
         ReadEntryListener listener = entryListener;
         if (null != listener) {
-            listener.onEntryComplete(rc, lh, entry, ctx);
+            listener.onEntryComplete(rc, lh, entry, null);
+        }
+
+        // the entry is null when the read failed, its id is known from the batch it belongs to
+        ReadBatch batch = (ReadBatch) ctx;
+        synchronized (this) {
+            long entryId = batch.nextEntryId++;
+            completedReads.put(entryId, new CompletedRead(rc, entry, entryId == batch.lastEntryId));
+            if (addingBack) {
+                // the thread adding back the entries picks this one up once its turn comes
+                return;
+            }
+            addingBack = true;
+        }
+        // batches read ahead may complete before the previous ones, add the entries back in order. the
+        // recovery adds and the next reads are issued without holding this op's monitor.
+        while (true) {
+            long entryId;
+            CompletedRead read;
+            synchronized (this) {
+                read = completedReads.remove(nextEntryToAdd);
+                if (read == null) {
+                    addingBack = false;
+                    return;
+                }
+                entryId = nextEntryToAdd++;
+            }
+            onEntryRead(entryId, read);
         }
+    }
+
+    private void onEntryRead(long entryId, CompletedRead read) {
+        int rc = read.rc;
+        LedgerEntry entry = read.entry;
 
         // we only trigger recovery add an entry when readDone == false && callbackDone == false
         if (!promise.isDone() && !readDone && rc == BKException.Code.OK) {
@@ -201,7 +284,7 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
             }
             if (BKException.Code.OK == rc) {
                 lh.asyncRecoveryAddEntry(data, 0, data.length, this, null);
-                if (entry.getEntryId() == endEntryToRead) {
+                if (read.lastOfBatch) {
                     // trigger next batch read
                     doRecoveryRead();
                 }
@@ -211,25 +294,33 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
 
         // no entry found. stop recovery procedure but wait until recovery add finished.
         if (rc == BKException.Code.NoSuchEntryException || rc == BKException.Code.NoSuchLedgerExistsException) {
-            readDone = true;
-            if (readCount.get() == writeCount.get()) {
-                submitCallback(BKException.Code.OK);
+            if (!readDone) {
+                readDone = true;
+                if (readCount.get() == writeCount.get()) {
+                    submitCallback(BKException.Code.OK);
+                }
             }
             return;
         }
 
         // otherwise, some other error, we can't handle
         if (BKException.Code.OK != rc && !promise.isDone()) {
-            LOG.error("Failure {} while reading entries: ({} - {}), ledger: {} while recovering ledger",
-                      BKException.getMessage(rc), startEntryToRead, endEntryToRead, lh.getId());
+            LOG.error("Failure {} while reading entry: {}, ledger: {} while recovering ledger",
+                      BKException.getMessage(rc), entryId, lh.getId());
             submitCallback(rc);
         } else if (BKException.Code.OK == rc) {
             // we are here is because we successfully read an entry but readDone was already set to true.
             // this would happen on recovery a ledger than has gaps in the tail.
-            LOG.warn("Successfully read entry {} for ledger {}, but readDone is already {}",
-                    entry.getEntryId(), lh.getId(), readDone);
+            if (readDone) {
+                LOG.warn("Successfully read entry {} for ledger {}, but readDone is already {}",
+                        entry.getEntryId(), lh.getId(), readDone);
+            }
+            // the entry is not added back, release its content
+            if (null != entry.data) {
+                entry.data.release();
+                entry.data = null;
+            }
         }
-        return;
     }
 
     @Override
@@ -28,9 +28,11 @@ import io.netty.buffer.ByteBuf;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayList;
 import java.util.EnumSet;
-
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -83,6 +85,8 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
     EnumSet<WriteFlag> writeFlags;
     boolean allowFailFast = false;
     List<BookieId> ensemble;
+    // memory reserved with the client memory limiter for the payload
+    long reservedMemory;
 
     static PendingAddOp create(LedgerHandle lh, ClientContext clientCtx,
                                List<BookieId> ensemble,
@@ -98,6 +102,7 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
         op.currentLedgerLength = -1;
         op.payload = payload;
         op.entryLength = payload.readableBytes();
+        op.reservedMemory = 0;
 
         op.completed = false;
         op.ensemble = ensemble;
@@ -170,7 +175,8 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
                 public void safeRun() {
                     if (completed) {
                         return;
-                    } else if (addEntrySuccessBookies.size() >= lh.getLedgerMetadata().getAckQuorumSize()) {
+                    } else if (clientCtx.getConf().enforceMinNumFaultDomainsForWrite
+                            && addEntrySuccessBookies.size() >= lh.getLedgerMetadata().getAckQuorumSize()) {
                         // If ackQuorum number of bookies have acknowledged the write but still not complete, indicates
                         // failures due to not having been written to enough fault domains. Increment corresponding
                         // counter.
@@ -247,13 +253,39 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
      */
     @Override
     public void safeRun() {
+        if (!prepareToSend()) {
+            return;
+        }
+
+        // We are about to send. Check if we need to make an ensemble change
+        // because of delayed write errors
+        lh.maybeHandleDelayedWriteBookieFailure();
+
+        // Iterate over set and trigger the sendWriteRequests
+        DistributionSchedule.WriteSet writeSet = lh.distributionSchedule.getWriteSet(entryId);
+
+        try {
+            for (int i = 0; i < writeSet.size(); i++) {
+                sendWriteRequest(ensemble, writeSet.get(i));
+            }
+        } finally {
+            writeSet.recycle();
+        }
+    }
+
+    /**
+     * Compute the digest of the entry before its write requests are sent.
+     *
+     * @return false if the add already failed and must not be sent.
+     */
+    boolean prepareToSend() {
         hasRun = true;
         if (callbackTriggered) {
             // this should only be true if the request was failed due
             // to another request ahead in the pending queue,
             // so we can just ignore this request
             maybeRecycle();
-            return;
+            return false;
         }
 
         this.requestTimeNanos = MathUtils.nowInNano();
@@ -265,20 +297,63 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
                 payload);
         // ownership of RefCounted ByteBuf was passed to computeDigestAndPackageForSending
         payload = null;
+        return true;
+    }
+
+    /**
+     * Initiate a batch of add operations of the same ledger, with consecutive entry ids.
+     *
+     * <p>The digests of all the entries are computed first, then the write requests are grouped
+     * by bookie so that each bookie receives the entries of the batch it stores in a single flush.
+     */
+    static void sendBatch(LedgerHandle lh, List<PendingAddOp> ops) {
+        List<PendingAddOp> prepared = new ArrayList<>(ops.size());
+        for (PendingAddOp op : ops) {
+            if (op.prepareToSend()) {
+                prepared.add(op);
+            }
+        }
+        if (prepared.isEmpty()) {
+            return;
+        }
 
         // We are about to send. Check if we need to make an ensemble change
         // because of delayed write errors
         lh.maybeHandleDelayedWriteBookieFailure();
 
-        // Iterate over set and trigger the sendWriteRequests
-        DistributionSchedule.WriteSet writeSet = lh.distributionSchedule.getWriteSet(entryId);
+        Map<BookieId, List<PendingAddOp>> batches = new LinkedHashMap<>();
+        Map<BookieId, Integer> bookieIndexes = new HashMap<>();
+        for (PendingAddOp op : prepared) {
+            DistributionSchedule.WriteSet writeSet = lh.distributionSchedule.getWriteSet(op.entryId);
+            try {
+                for (int i = 0; i < writeSet.size(); i++) {
+                    int bookieIndex = writeSet.get(i);
+                    BookieId bookie = op.ensemble.get(bookieIndex);
+                    batches.computeIfAbsent(bookie, k -> new ArrayList<>()).add(op);
+                    bookieIndexes.put(bookie, bookieIndex);
+                }
+            } finally {
+                writeSet.recycle();
+            }
+        }
 
-        try {
-            for (int i = 0; i < writeSet.size(); i++) {
-                sendWriteRequest(ensemble, writeSet.get(i));
+        PendingAddOp first = prepared.get(0);
+        int flags = first.isRecoveryAdd ? FLAG_RECOVERY_ADD | FLAG_HIGH_PRIORITY : FLAG_NONE;
+        for (Map.Entry<BookieId, List<PendingAddOp>> batch : batches.entrySet()) {
+            List<PendingAddOp> bookieOps = batch.getValue();
+            long[] entryIds = new long[bookieOps.size()];
+            ByteBufList[] toSend = new ByteBufList[bookieOps.size()];
+            WriteCallback[] cbs = new WriteCallback[bookieOps.size()];
+            for (int i = 0; i < bookieOps.size(); i++) {
+                PendingAddOp op = bookieOps.get(i);
+                entryIds[i] = op.entryId;
+                toSend[i] = op.toSend;
+                cbs[i] = op;
+                ++op.pendingWriteRequests;
             }
-        } finally {
-            writeSet.recycle();
+            first.clientCtx.getBookieClient().addEntries(batch.getKey(), lh.ledgerId, lh.ledgerKey,
+                    entryIds, toSend, cbs, bookieIndexes.get(batch.getKey()),
+                    flags, first.allowFailFast, lh.writeFlags);
         }
     }
 
@@ -299,7 +374,10 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
         boolean ackQuorum = false;
         if (BKException.Code.OK == rc) {
             ackQuorum = ackSet.completeBookieAndCheck(bookieIndex);
-            addEntrySuccessBookies.add(ensemble.get(bookieIndex));
+            if (clientCtx.getConf().enforceMinNumFaultDomainsForWrite) {
+                // only needed to check the placement of the acked bookies, adding to the set allocates
+                addEntrySuccessBookies.add(ensemble.get(bookieIndex));
+            }
         }
 
         if (completed) {
@@ -500,6 +578,10 @@ class PendingAddOp extends SafeRunnable implements WriteCallback {
     }
 
     public void recyclePendAddOpObject() {
+        if (reservedMemory > 0) {
+            clientCtx.getMemoryLimiter().release(reservedMemory);
+            reservedMemory = 0;
+        }
         entryId = LedgerHandle.INVALID_ENTRY_ID;
         currentLedgerLength = -1;
         if (payload != null) {
@@ -79,6 +79,12 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
     final AtomicBoolean complete = new AtomicBoolean(false);
     boolean allowFailFast = false;
 
+    // the received entries are accounted with the memory limiter until the read completes
+    private ClientMemoryLimiter memoryLimiter = null;
+    // guarded by this
+    private long chargedMemory = 0;
+    private boolean memoryReleased = false;
+
     abstract class LedgerEntryRequest implements SpeculativeRequestExecutor, AutoCloseable {
 
         final AtomicBoolean complete = new AtomicBoolean(false);
@@ -241,6 +247,11 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
             return complete.get();
         }
 
+        @Override
+        public boolean isRequestPending() {
+            return !isComplete() && !PendingReadOp.this.complete.get();
+        }
+
         /**
          * Get result code of this entry.
          *
@@ -333,6 +344,7 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
 
         final BitSet sentReplicas;
         final BitSet erroredReplicas;
+        volatile BookieId lastSentTo = null;
 
         SequenceReadRequest(List<BookieId> ensemble, long lId, long eId) {
             super(ensemble, lId, eId);
@@ -390,6 +402,11 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
             sendNextRead();
         }
 
+        @Override
+        public BookieId getLastRequestedBookie() {
+            return lastSentTo;
+        }
+
         synchronized BookieId sendNextRead() {
             if (nextReplicaIndexToReadFrom >= getLedgerMetadata().getWriteQuorumSize()) {
                 // we are done, the read has failed from all replicas, just fail the
@@ -409,6 +426,7 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
                 sendReadTo(bookieIndex, to, this);
                 sentToHosts.add(to);
                 sentReplicas.set(replica);
+                lastSentTo = to;
                 return to;
             } catch (InterruptedException ie) {
                 LOG.error("Interrupted reading entry " + this, ie);
@@ -452,6 +470,7 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
                     int slowBookieIndex = writeSet.get(i);
                     BookieId slowBookieSocketAddress = ensemble.get(slowBookieIndex);
                     clientCtx.getPlacementPolicy().registerSlowBookie(slowBookieSocketAddress, eId);
+                    lh.recordSlowReadOnBookie(slowBookieIndex, bookieIndex);
                 }
             }
             return completed;
@@ -507,6 +526,29 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
         allowFailFast = true;
     }
 
+    PendingReadOp limitMemory(ClientMemoryLimiter memoryLimiter) {
+        this.memoryLimiter = memoryLimiter;
+        return this;
+    }
+
+    private synchronized void chargeMemory(long size) {
+        if (memoryLimiter == null || memoryReleased) {
+            return;
+        }
+        memoryLimiter.charge(size);
+        chargedMemory += size;
+    }
+
+    private synchronized void releaseMemory() {
+        if (memoryLimiter == null || memoryReleased) {
+            return;
+        }
+        // the entries now belong to the caller
+        memoryReleased = true;
+        memoryLimiter.release(chargedMemory);
+        chargedMemory = 0;
+    }
+
     public void submit() {
         clientCtx.getMainWorkerPool().executeOrdered(lh.ledgerId, this);
     }
@@ -600,8 +642,10 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
         heardFromHostsBitSet.set(rctx.bookieIndex, true);
 
         buffer.retain();
+        int size = buffer.readableBytes();
         // if entry has completed don't handle twice
         if (entry.complete(rctx.bookieIndex, rctx.to, buffer)) {
+            chargeMemory(size);
             if (!isRecoveryRead) {
                 // do not advance LastAddConfirmed for recovery reads
                 lh.updateLastConfirmed(rctx.getLastAddConfirmed(), 0L);
@@ -631,6 +675,7 @@ class PendingReadOp implements ReadEntryCallback, SafeRunnable {
         }
 
         cancelSpeculativeTask(true);
+        releaseMemory();
 
         long latencyNanos = MathUtils.elapsedNanos(requestTimeNanos);
         if (code != BKException.Code.OK) {
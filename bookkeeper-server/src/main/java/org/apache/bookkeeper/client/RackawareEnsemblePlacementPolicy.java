@@ -96,6 +96,23 @@ public class RackawareEnsemblePlacementPolicy extends RackawareEnsemblePlacement
         return deadBookies;
     }
 
+    @Override
+    public Set<BookieId> onClusterMembershipChanged(Set<BookieId> writableBookies,
+                                                    Set<BookieId> readOnlyBookies,
+                                                    Set<BookieId> joinedBookies,
+                                                    Set<BookieId> leftBookies) {
+        if (clusterChangedOverridden) {
+            return onClusterChanged(writableBookies, readOnlyBookies);
+        }
+        Set<BookieId> deadBookies = super.onClusterMembershipChanged(writableBookies, readOnlyBookies,
+                joinedBookies, leftBookies);
+        if (null != slave) {
+            deadBookies = slave.onClusterMembershipChanged(writableBookies, readOnlyBookies,
+                    joinedBookies, leftBookies);
+        }
+        return deadBookies;
+    }
+
     @Override
     public PlacementResult<List<BookieId>> newEnsemble(int ensembleSize, int writeQuorumSize,
             int ackQuorumSize, Map<String, byte[]> customMetadata, Set<BookieId> excludeBookies)
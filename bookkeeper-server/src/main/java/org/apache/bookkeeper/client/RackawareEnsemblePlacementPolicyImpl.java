@@ -25,6 +25,7 @@ import static org.apache.bookkeeper.client.BookKeeperClientStats.CLIENT_SCOPE;
 import static org.apache.bookkeeper.client.BookKeeperClientStats.NUM_WRITABLE_BOOKIES_IN_DEFAULT_RACK;
 import static org.apache.bookkeeper.client.BookKeeperClientStats.READ_REQUESTS_REORDERED;
 import static org.apache.bookkeeper.client.RegionAwareEnsemblePlacementPolicy.UNKNOWN_REGION;
+import static org.apache.bookkeeper.proto.BookieClient.PENDINGREQ_NOTWRITABLE_MASK;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -91,6 +92,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     protected boolean ignoreLocalNodeInPlacementPolicy;
 
     public static final String REPP_RANDOM_READ_REORDERING = "ensembleRandomReadReordering";
+    public static final String REPP_LATENCY_AWARE_READ_REORDERING = "ensembleLatencyAwareReadReordering";
 
     static final int RACKNAME_DISTANCE_FROM_LEAVES = 1;
 
@@ -104,11 +106,15 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     static final int UNAVAIL_MASK     = 0x40 << 24;
     static final int MASK_BITS        = 0xFFF << 20;
 
+    // outstanding bytes that count as one more queued request when estimating the latency of a bookie
+    static final long OUTSTANDING_BYTES_PER_QUEUED_REQUEST = 64 * 1024;
+
     protected HashedWheelTimer timer;
     // Use a loading cache so slow bookies are expired. Use entryId as values.
     protected Cache<BookieId, Long> slowBookies;
     protected BookieNode localNode;
     protected boolean reorderReadsRandom = false;
+    protected boolean reorderReadsByLatency = false;
     protected boolean enforceDurability = false;
     protected int stabilizePeriodSeconds = 0;
     protected int reorderThresholdPendingRequests = 0;
@@ -190,6 +196,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         this.reorderThresholdPendingRequests = reorderThresholdPendingRequests;
         this.dnsResolver = new DNSResolverDecorator(dnsResolver, () -> this.getDefaultRack(),
                 failedToResolveNetworkLocationCounter);
+        listenToNetworkLocationChanges(dnsResolver);
         this.timer = timer;
         this.minNumRacksPerWriteQuorum = minNumRacksPerWriteQuorum;
         this.enforceMinNumRacksPerWriteQuorum = enforceMinNumRacksPerWriteQuorum;
@@ -220,7 +227,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         this.isWeighted = isWeighted;
         if (this.isWeighted) {
             this.maxWeightMultiple = maxWeightMultiple;
-            this.weightedSelection = new WeightedRandomSelectionImpl<BookieNode>(this.maxWeightMultiple);
+            this.weightedSelection = new AliasWeightedRandomSelectionImpl<BookieNode>(this.maxWeightMultiple);
             LOG.info("Weight based placement with max multiple of " + this.maxWeightMultiple);
         } else {
             LOG.info("Not weighted");
@@ -291,6 +298,11 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                     return -1L;
                 }
             });
+        reorderReadsByLatency = conf.getBoolean(REPP_LATENCY_AWARE_READ_REORDERING, false);
+        if (conf.getDiskWeightBasedPlacementEnabled() && conf.getLoadAwarePlacementEnabled()) {
+            LOG.info("Load aware placement with hysteresis of {}%", conf.getLoadAwarePlacementHysteresisPercent());
+            loadWeights = new BookieLoadWeights(conf.getLoadAwarePlacementHysteresisPercent());
+        }
         return initialize(
                 dnsResolver,
                 timer,
@@ -308,7 +320,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
 
     @Override
     public void uninitalize() {
-        // do nothing
+        stopListeningToNetworkLocationChanges();
     }
 
     /*
@@ -319,7 +331,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         Set<BookieId> comprehensiveExclusionBookiesSet;
         if (enforceMinNumRacksPerWriteQuorum) {
             Set<BookieId> bookiesInDefaultRack = null;
-            Set<Node> defaultRackLeaves = topology.getLeaves(getDefaultRack());
+            List<Node> defaultRackLeaves = topology.getLeavesList(getDefaultRack());
             for (Node node : defaultRackLeaves) {
                 if (node instanceof BookieNode) {
                     if (bookiesInDefaultRack == null) {
@@ -607,7 +619,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
             return null;
         }
 
-        WeightedRandomSelection<BookieNode> wRSelection = new WeightedRandomSelectionImpl<BookieNode>(
+        WeightedRandomSelection<BookieNode> wRSelection = new AliasWeightedRandomSelectionImpl<BookieNode>(
                 maxWeightMultiple);
         wRSelection.updateMap(rackMap);
         return wRSelection;
@@ -629,7 +641,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     protected BookieNode selectRandomFromRack(String netPath, Set<Node> excludeBookies, Predicate<BookieNode> predicate,
             Ensemble<BookieNode> ensemble) throws BKNotEnoughBookiesException {
         WeightedRandomSelection<BookieNode> wRSelection = null;
-        List<Node> leaves = new ArrayList<Node>(topology.getLeaves(netPath));
+        List<Node> leaves = new ArrayList<Node>(topology.getLeavesList(netPath));
         if (!this.isWeighted) {
             Collections.shuffle(leaves);
         } else {
@@ -714,7 +726,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                 throw new BKNotEnoughBookiesException();
             }
             if (wRSelection == null) {
-                wRSelection = new WeightedRandomSelectionImpl<BookieNode>(this.maxWeightMultiple);
+                wRSelection = new AliasWeightedRandomSelectionImpl<BookieNode>(this.maxWeightMultiple);
             }
 
             Map<BookieNode, WeightedObject> rackMap = new HashMap<BookieNode, WeightedObject>();
@@ -846,7 +858,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         // to avoid creating more lists
         boolean isAnyBookieUnavailable = false;
 
-        if (useRegionAware || reorderReadsRandom) {
+        if (useRegionAware || reorderReadsRandom || reorderReadsByLatency) {
             isAnyBookieUnavailable = true;
         } else {
             for (int i = 0; i < ensemble.size(); i++) {
@@ -966,6 +978,12 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
             shuffleWithMask(writeSet, UNAVAIL_MASK, MASK_BITS);
         }
 
+        if (reorderReadsByLatency) {
+            // among the bookies with no history of failure, try the fastest ones first
+            sortByLatencyWithMask(ensemble, bookiesHealthInfo, writeSet, LOCAL_MASK);
+            sortByLatencyWithMask(ensemble, bookiesHealthInfo, writeSet, REMOTE_MASK);
+        }
+
         // nodes within a region are ordered as follows
         // (Random?) list of nodes that have no history of failure
         // Nodes with Failure history are ordered in the reverse
@@ -1013,6 +1031,63 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         return writeSet;
     }
 
+    /**
+     * Sort the entries of the write set with the given mask, which are expected to be contiguous,
+     * by the estimated latency of their bookie. The sort is stable, so bookies with the same
+     * estimate keep their relative order.
+     */
+    private static void sortByLatencyWithMask(List<BookieId> ensemble,
+                                              BookiesHealthInfo bookiesHealthInfo,
+                                              DistributionSchedule.WriteSet writeSet,
+                                              int mask) {
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < writeSet.size(); i++) {
+            if ((writeSet.get(i) & MASK_BITS) == mask) {
+                if (first == -1) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        if (first == -1 || first == last) {
+            return;
+        }
+        long[] estimates = new long[last - first + 1];
+        for (int i = first; i <= last; i++) {
+            BookieId address = ensemble.get(writeSet.get(i) & ~MASK_BITS);
+            estimates[i - first] = estimateReadLatency(address, bookiesHealthInfo);
+        }
+        // insertion sort, write sets are small
+        for (int i = first + 1; i <= last; i++) {
+            int entry = writeSet.get(i);
+            long estimate = estimates[i - first];
+            int j = i - 1;
+            while (j >= first && estimates[j - first] > estimate) {
+                writeSet.set(j + 1, writeSet.get(j));
+                estimates[j + 1 - first] = estimates[j - first];
+                j--;
+            }
+            writeSet.set(j + 1, entry);
+            estimates[j + 1 - first] = estimate;
+        }
+    }
+
+    /**
+     * Estimate how long a read sent now to the given bookie would take: its average read latency
+     * scaled by the requests queued in front of it. Bookies whose latency is not known yet are
+     * estimated at 0, so they are tried and get measured.
+     */
+    static long estimateReadLatency(BookieId address, BookiesHealthInfo bookiesHealthInfo) {
+        long latency = bookiesHealthInfo.getBookieReadLatencyEwmaNanos(address);
+        if (latency < 0) {
+            return 0L;
+        }
+        long queued = (bookiesHealthInfo.getBookiePendingRequests(address) & ~PENDINGREQ_NOTWRITABLE_MASK)
+                + bookiesHealthInfo.getBookieOutstandingBytes(address) / OUTSTANDING_BYTES_PER_QUEUED_REQUEST;
+        return latency * (1 + queued);
+    }
+
     // this method should be called in readlock scope of 'rwlock'
     @Override
     public PlacementPolicyAdherence isEnsembleAdheringToPlacementPolicy(List<BookieId> ensembleList,
@@ -111,11 +111,13 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
     public void close()
             throws InterruptedException, BKException {
         clientCtx.getLedgerManager().unregisterLedgerMetadataListener(ledgerId, this);
+        unwatchLastAddConfirmed();
     }
 
     @Override
     public void asyncClose(CloseCallback cb, Object ctx) {
         clientCtx.getLedgerManager().unregisterLedgerMetadataListener(ledgerId, this);
+        unwatchLastAddConfirmed();
         cb.closeComplete(BKException.Code.OK, this, ctx);
     }
 
@@ -153,6 +155,10 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
         if (this.ledgerId != lid) {
             return;
         }
+        LedgerMetadataCache metadataCache = clientCtx.getLedgerMetadataCache();
+        if (null != metadataCache) {
+            metadataCache.update(lid, newMetadata);
+        }
         if (null == newMetadata) {
             return;
         }
@@ -283,11 +289,16 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
             .thenCompose((metadata) -> {
                     if (metadata.getValue().isClosed()) {
                         return CompletableFuture.completedFuture(ReadOnlyLedgerHandle.this);
-                    } else {
+                    }
+                    LedgerRecoveryLimiter recoveryLimiter = clientCtx.getRecoveryLimiter();
+                    if (null == recoveryLimiter) {
                         return new LedgerRecoveryOp(ReadOnlyLedgerHandle.this, clientCtx)
                             .setEntryListener(listener)
                             .initiate();
                     }
+                    return recoveryLimiter.run(() -> new LedgerRecoveryOp(ReadOnlyLedgerHandle.this, clientCtx)
+                            .setEntryListener(listener)
+                            .initiate());
             })
             .thenCompose((ignore) -> closeRecovered())
             .whenComplete((ignore, ex) -> {
@@ -21,6 +21,7 @@
 package org.apache.bookkeeper.client;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.bookkeeper.net.BookieId;
 
 /**
  * Define an executor for issuing speculative requests.
@@ -39,4 +40,24 @@ public interface SpeculativeRequestExecutor {
      * @return whether more speculative requests should be issued
      */
     ListenableFuture<Boolean> issueSpeculativeRequest();
+
+    /**
+     * The bookie the most recent request was sent to. Used by latency aware policies
+     * to decide when to issue the next speculative request.
+     *
+     * @return the bookie, or null if unknown.
+     */
+    default BookieId getLastRequestedBookie() {
+        return null;
+    }
+
+    /**
+     * Whether the request is still waiting for a response. Used by policies that defer
+     * speculative requests, to stop checking on a request once it completed.
+     *
+     * @return false if the request completed.
+     */
+    default boolean isRequestPending() {
+        return true;
+    }
 }
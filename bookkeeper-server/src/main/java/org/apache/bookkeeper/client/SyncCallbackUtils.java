@@ -22,6 +22,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
 import org.apache.bookkeeper.client.impl.LastConfirmedAndEntryImpl;
@@ -252,6 +253,28 @@ class SyncCallbackUtils {
         }
     }
 
+    /**
+     * Completes with the id of the last entry of a batch of adds, or with the first error.
+     */
+    static class BatchAddCallback extends CompletableFuture<Long> implements AsyncCallback.AddCallback {
+
+        private final AtomicInteger pendingAdds;
+
+        BatchAddCallback(int numEntries) {
+            this.pendingAdds = new AtomicInteger(numEntries);
+        }
+
+        @Override
+        public void addComplete(int rc, LedgerHandle lh, long entry, Object ctx) {
+            if (rc != BKException.Code.OK) {
+                completeExceptionally(BKException.create(rc).fillInStackTrace());
+            } else if (pendingAdds.decrementAndGet() == 0) {
+                // adds complete in order, so the last one is the last entry of the batch
+                complete(entry);
+            }
+        }
+    }
+
     static class FutureReadLastConfirmed extends CompletableFuture<Long>
         implements AsyncCallback.ReadLastConfirmedCallback {
 
@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
@@ -44,6 +45,7 @@ import org.apache.bookkeeper.client.WeightedRandomSelection.WeightedObject;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.net.BookieNode;
 import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.net.CachedDNSToSwitchMapping;
 import org.apache.bookkeeper.net.DNSToSwitchMapping;
 import org.apache.bookkeeper.net.NetUtils;
 import org.apache.bookkeeper.net.NetworkTopology;
@@ -69,6 +71,8 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
     protected ImmutableSet<BookieId> readOnlyBookies = ImmutableSet.of();
     boolean isWeighted;
     protected WeightedRandomSelection<BookieNode> weightedSelection;
+    // adjusts the disk weights by the load of the bookies, null if load aware placement is disabled
+    protected BookieLoadWeights loadWeights = null;
     // for now, we just maintain the writable bookies' topology
     protected NetworkTopology topology;
     protected DNSToSwitchMapping dnsResolver;
@@ -83,6 +87,11 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
         help = "The distribution of number of bookies left the cluster on each network topology change"
     )
     protected OpStatsLogger bookiesLeftCounter = null;
+    // the caching resolver told about network location changes, and the listener registered with it
+    private CachedDNSToSwitchMapping rackChangeResolver = null;
+    private Consumer<Set<String>> rackChangeListener = null;
+    // subclasses written against onClusterChanged only must keep seeing every change through it
+    final boolean clusterChangedOverridden = overridesOnClusterChanged(getClass());
 
     protected static class TruePredicate implements Predicate<BookieNode> {
         public static final TruePredicate INSTANCE = new TruePredicate();
@@ -661,21 +670,70 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
             deadBookies = Sets.difference(leftBookies, readOnlyBookies).immutableCopy();
             LOG.debug("Cluster changed : left bookies are {}, joined bookies are {}, while dead bookies are {}.",
                     leftBookies, joinedBookies, deadBookies);
-            handleBookiesThatLeft(leftBookies);
-            handleBookiesThatJoined(joinedBookies);
-            if (this.isWeighted && (leftBookies.size() > 0 || joinedBookies.size() > 0)) {
-                this.weightedSelection.updateMap(this.bookieInfoMap);
-            }
-            if (!readOnlyBookies.isEmpty()) {
-                this.readOnlyBookies = ImmutableSet.copyOf(readOnlyBookies);
-            }
-
+            applyClusterChange(joinedBookies, leftBookies, readOnlyBookies);
             return deadBookies;
         } finally {
             rwLock.writeLock().unlock();
         }
     }
 
+    @Override
+    public Set<BookieId> onClusterMembershipChanged(Set<BookieId> writableBookies,
+                                                    Set<BookieId> readOnlyBookies,
+                                                    Set<BookieId> joinedBookies,
+                                                    Set<BookieId> leftBookies) {
+        if (clusterChangedOverridden) {
+            return onClusterChanged(writableBookies, readOnlyBookies);
+        }
+        rwLock.writeLock().lock();
+        try {
+            // the changes are relative to the previous view of the caller, only apply the ones which are
+            // not already reflected in the known bookies
+            ImmutableSet<BookieId> left = ImmutableSet.copyOf(Sets.filter(leftBookies, knownBookies::containsKey));
+            ImmutableSet<BookieId> joined = ImmutableSet.copyOf(
+                    Sets.filter(joinedBookies, addr -> !knownBookies.containsKey(addr)));
+            ImmutableSet<BookieId> dead = Sets.difference(left, readOnlyBookies).immutableCopy();
+            LOG.debug("Cluster changed : left bookies are {}, joined bookies are {}, while dead bookies are {}.",
+                    left, joined, dead);
+            applyClusterChange(joined, left, readOnlyBookies);
+            return dead;
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the given policy class overrides {@link #onClusterChanged(Set, Set)} outside of the policies
+     * shipped with the client, in which case the incremental changes are not applied directly.
+     */
+    static boolean overridesOnClusterChanged(Class<?> policyClass) {
+        try {
+            Class<?> declaringClass = policyClass.getMethod("onClusterChanged", Set.class, Set.class)
+                    .getDeclaringClass();
+            return declaringClass != TopologyAwareEnsemblePlacementPolicy.class
+                    && declaringClass != RackawareEnsemblePlacementPolicy.class
+                    && declaringClass != ZoneawareEnsemblePlacementPolicy.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /*
+     * this method should be called in writelock scope of 'rwLock'
+     */
+    private void applyClusterChange(Set<BookieId> joinedBookies, Set<BookieId> leftBookies,
+                                    Set<BookieId> readOnlyBookies) {
+        handleBookiesThatLeft(leftBookies);
+        resolveNetworkLocations(joinedBookies);
+        handleBookiesThatJoined(joinedBookies);
+        if (this.isWeighted && (leftBookies.size() > 0 || joinedBookies.size() > 0)) {
+            this.weightedSelection.updateMap(this.bookieInfoMap);
+        }
+        if (!readOnlyBookies.isEmpty()) {
+            this.readOnlyBookies = ImmutableSet.copyOf(readOnlyBookies);
+        }
+    }
+
     /*
      * this method should be called in writelock scope of 'rwLock'
      */
@@ -739,6 +797,86 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
         }
     }
 
+    /*
+     * Resolve the network locations of the bookies with a single call to a caching resolver, so that the
+     * bookies joining together do not resolve their location one by one when they are added to the topology.
+     *
+     * this method should be called in writelock scope of 'rwLock'
+     */
+    private void resolveNetworkLocations(Set<BookieId> bookies) {
+        DNSToSwitchMapping resolver = dnsResolver instanceof DNSResolverDecorator
+                ? ((DNSResolverDecorator) dnsResolver).resolver : dnsResolver;
+        if (bookies.size() < 2 || !(resolver instanceof CachedDNSToSwitchMapping)) {
+            return;
+        }
+        List<String> names = new ArrayList<String>(bookies.size());
+        for (BookieId addr : bookies) {
+            try {
+                names.add(NetUtils.getResolverName(resolver, bookieAddressResolver.resolve(addr)));
+            } catch (BookieAddressResolver.BookieIdNotResolvedException err) {
+                // resolved again when the bookie is added to the topology
+            }
+        }
+        try {
+            resolver.resolve(names);
+        } catch (RuntimeException re) {
+            LOG.warn("Failed to resolve the network location of {} joined bookies", names.size(), re);
+        }
+    }
+
+    /**
+     * Listen to the network locations changed when a caching resolver refreshes them.
+     *
+     * @param resolver the resolver used by the placement policy
+     */
+    protected void listenToNetworkLocationChanges(DNSToSwitchMapping resolver) {
+        if (resolver instanceof CachedDNSToSwitchMapping) {
+            stopListeningToNetworkLocationChanges();
+            rackChangeResolver = (CachedDNSToSwitchMapping) resolver;
+            rackChangeListener = this::onHostsRackChange;
+            rackChangeResolver.addRackChangeListener(rackChangeListener);
+        }
+    }
+
+    /**
+     * Stop listening to the network location changes, so the resolver no longer references this policy
+     * once it is uninitialized.
+     */
+    protected void stopListeningToNetworkLocationChanges() {
+        if (null != rackChangeResolver) {
+            rackChangeResolver.removeRackChangeListener(rackChangeListener);
+            rackChangeResolver = null;
+            rackChangeListener = null;
+        }
+    }
+
+    /**
+     * Handle rack change for the bookies running on the given hosts.
+     *
+     * @param hosts the names of the hosts, as passed to the resolver
+     */
+    protected void onHostsRackChange(Set<String> hosts) {
+        List<BookieId> bookies = new ArrayList<BookieId>();
+        rwLock.readLock().lock();
+        try {
+            for (BookieId addr : knownBookies.keySet()) {
+                try {
+                    if (hosts.contains(NetUtils.getResolverName(dnsResolver, bookieAddressResolver.resolve(addr)))) {
+                        bookies.add(addr);
+                    }
+                } catch (BookieAddressResolver.BookieIdNotResolvedException err) {
+                    // the bookie keeps its location
+                }
+            }
+        } finally {
+            rwLock.readLock().unlock();
+        }
+        if (!bookies.isEmpty()) {
+            LOG.info("Network location of bookies {} changed", bookies);
+            onBookieRackChange(bookies);
+        }
+    }
+
     @Override
     public void onBookieRackChange(List<BookieId> bookieAddressList) {
         rwLock.writeLock().lock();
@@ -774,11 +912,15 @@ abstract class TopologyAwareEnsemblePlacementPolicy implements
         rwLock.writeLock().lock();
         try {
             List<BookieNode> allBookies = new ArrayList<BookieNode>(knownBookies.values());
+            Map<BookieId, ? extends WeightedObject> weights = bookieInfoMap;
+            if (loadWeights != null) {
+                weights = loadWeights.apply(bookieInfoMap);
+            }
             // create a new map to reflect the new mapping
             Map<BookieNode, WeightedObject> map = new HashMap<BookieNode, WeightedObject>();
             for (BookieNode bookie : allBookies) {
-                if (bookieInfoMap.containsKey(bookie.getAddr())) {
-                    map.put(bookie, bookieInfoMap.get(bookie.getAddr()));
+                if (weights.containsKey(bookie.getAddr())) {
+                    map.put(bookie, weights.get(bookie.getAddr()));
                 } else {
                     map.put(bookie, new BookieInfo());
                 }
@@ -213,6 +213,10 @@ public class ZoneawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
             this.maxWeightMultiple = conf.getBookieMaxWeightMultipleForWeightBasedPlacement();
             this.weightedSelection = new DynamicWeightedRandomSelectionImpl<BookieNode>(this.maxWeightMultiple);
             LOG.info("Weight based placement with max multiple of {}", this.maxWeightMultiple);
+            if (conf.getLoadAwarePlacementEnabled()) {
+                LOG.info("Load aware placement with hysteresis of {}%", conf.getLoadAwarePlacementHysteresisPercent());
+                this.loadWeights = new BookieLoadWeights(conf.getLoadAwarePlacementHysteresisPercent());
+            }
         } else {
             LOG.info("Not weighted");
         }
@@ -241,6 +245,7 @@ public class ZoneawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
 
         this.dnsResolver = new DNSResolverDecorator(actualDNSResolver, () -> this.getDefaultFaultDomain(),
                 failedToResolveNetworkLocationCounter);
+        listenToNetworkLocationChanges(actualDNSResolver);
         dnsResolver.setBookieAddressResolver(bookieAddressResolver);
         this.stabilizePeriodSeconds = conf.getNetworkTopologyStabilizePeriodSeconds();
         // create the network topology
@@ -330,6 +335,7 @@ public class ZoneawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
 
     @Override
     public void uninitalize() {
+        stopListeningToNetworkLocationChanges();
     }
 
     @Override
@@ -478,7 +484,7 @@ public class ZoneawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     }
 
     private Set<BookieNode> getBookiesToConsider(Set<BookieId> excludeBookies) {
-        Set<Node> leaves = topology.getLeaves(NodeBase.ROOT);
+        List<Node> leaves = topology.getLeavesList(NodeBase.ROOT);
         Set<BookieNode> bookiesToConsider = new HashSet<BookieNode>();
         BookieNode bookieNode;
         for (Node leaf : leaves) {
@@ -580,7 +586,7 @@ public class ZoneawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
      */
     protected Set<BookieId> addDefaultFaultDomainBookies(Set<BookieId> excludeBookies) {
         Set<BookieId> comprehensiveExclusionBookiesSet = new HashSet<BookieId>(excludeBookies);
-        Set<Node> defaultFaultDomainLeaves = topology.getLeaves(getDefaultFaultDomain());
+        List<Node> defaultFaultDomainLeaves = topology.getLeavesList(getDefaultFaultDomain());
         for (Node node : defaultFaultDomainLeaves) {
             if (node instanceof BookieNode) {
                 comprehensiveExclusionBookiesSet.add(((BookieNode) node).getAddr());
@@ -72,4 +72,21 @@ public interface OpenBuilder extends OpBuilder<ReadHandle> {
      */
     OpenBuilder withDigestType(DigestType digestType);
 
+    /**
+     * Define whether the reads of the ledger should be sticky to a single bookie. Sticky reads route
+     * consecutive reads to the same bookie, so that its read-ahead is effective for sequential readers,
+     * and only move to another bookie after a read error or a slow read. They only apply to ledgers
+     * whose write quorum is equal to the ensemble size, as otherwise no bookie stores all the entries.
+     * It defaults to {@link ClientConfiguration#isStickyReadsEnabled()}.
+     *
+     * <p>Builders which do not support sticky reads ignore this setting.
+     *
+     * @param stickyReads whether reads are sticky to a single bookie
+     *
+     * @return the builder itself
+     */
+    default OpenBuilder withStickyReads(boolean stickyReads) {
+        return this;
+    }
+
 }
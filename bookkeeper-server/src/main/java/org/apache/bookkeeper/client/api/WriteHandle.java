@@ -23,6 +23,8 @@ package org.apache.bookkeeper.client.api;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
@@ -134,6 +136,45 @@ public interface WriteHandle extends ReadHandle, ForceableHandle {
         return append(Unpooled.wrappedBuffer(data, offset, length));
     }
 
+    /**
+     * Add a batch of entries asynchronously to an open ledger.
+     *
+     * <p>The entries are assigned consecutive entry ids, in the order of the list. Entries of a ledger
+     * are confirmed in order, so if any entry of the batch fails, the entries after it fail as well.
+     *
+     * @param data the bytebufs to be written, one per entry. The reference count of each bytebuf will be
+     *             decremented by 1 after the completable future is returned
+     *             do not reuse the buffers, bk-client will release them appropriately.
+     * @return an handle to the result, in case of success it will return the id of the last entry of the batch
+     * @since 4.16
+     */
+    default CompletableFuture<Long> appendBatchAsync(List<ByteBuf> data) {
+        if (data.isEmpty()) {
+            return FutureUtils.exception(new IllegalArgumentException("No entry to append"));
+        }
+        List<CompletableFuture<Long>> appends = new ArrayList<>(data.size());
+        for (ByteBuf entry : data) {
+            appends.add(appendAsync(entry));
+        }
+        // report the failure of any entry, not only the one of the last entry
+        CompletableFuture<Long> last = appends.get(appends.size() - 1);
+        return CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])).thenCompose(ignored -> last);
+    }
+
+    /**
+     * Add a batch of entries synchronously to an open ledger.
+     *
+     * @param data the bytebufs to be written, one per entry. The reference count of each bytebuf will be
+     *             decremented by 1 after the call completes.
+     *             do not reuse the buffers, bk-client will release them appropriately.
+     * @return the id of the last entry of the batch
+     * @see #appendBatchAsync(List)
+     * @since 4.16
+     */
+    default long appendBatch(List<ByteBuf> data) throws BKException, InterruptedException {
+        return FutureUtils.<Long, BKException>result(appendBatchAsync(data), BKException.HANDLER);
+    }
+
     /**
      * Get the entry id of the last entry that has been enqueued for addition (but
      * may not have possibly been persisted to the ledger).
@@ -44,6 +44,12 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "operation stats of creating ledgers"
     )
     private final OpStatsLogger createOpLogger;
+    @StatsDoc(
+        name = GENERATE_LEDGER_ID_OP,
+        help = "operation stats of generating the ids of new ledgers",
+        parent = CREATE_OP
+    )
+    private final OpStatsLogger generateLedgerIdOpLogger;
     @StatsDoc(
         name = DELETE_OP,
         help = "operation stats of deleting ledgers"
@@ -159,10 +165,52 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
     )
     private final Counter writeTimedOutDueToNotEnoughFaultDomains;
 
+    @StatsDoc(
+        name = ENTRY_CACHE_HITS,
+        help = "The number of entries served from the client entry cache"
+    )
+    private final Counter entryCacheHits;
+    @StatsDoc(
+        name = ENTRY_CACHE_MISSES,
+        help = "The number of entries read from bookies because they were not in the client entry cache"
+    )
+    private final Counter entryCacheMisses;
+    @StatsDoc(
+        name = ENTRY_CACHE_COALESCED_READS,
+        help = "The number of entry reads which waited for a read of the same entry already in progress"
+    )
+    private final Counter entryCacheCoalescedReads;
+    @StatsDoc(
+        name = ENTRY_CACHE_EVICTIONS,
+        help = "The number of entries evicted from the client entry cache"
+    )
+    private final Counter entryCacheEvictions;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_HITS,
+        help = "The number of ledger metadata reads served from the client ledger metadata cache"
+    )
+    private final Counter ledgerMetadataCacheHits;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_MISSES,
+        help = "The number of ledger metadata reads sent to the metadata store by the client ledger metadata cache"
+    )
+    private final Counter ledgerMetadataCacheMisses;
+
+    @StatsDoc(
+        name = CLIENT_MEMORY_WAIT,
+        help = "operation stats of waiting for the client memory limit before adds and reads"
+    )
+    private final OpStatsLogger clientMemoryWaitLogger;
+    @StatsDoc(
+        name = CLIENT_MEMORY_REJECTED,
+        help = "The number of adds and reads failed because the client memory limit was exceeded"
+    )
+    private final Counter clientMemoryRejected;
 
     public BookKeeperClientStatsImpl(StatsLogger stats) {
         this.stats = stats;
         this.createOpLogger = stats.getOpStatsLogger(CREATE_OP);
+        this.generateLedgerIdOpLogger = stats.getOpStatsLogger(GENERATE_LEDGER_ID_OP);
         this.deleteOpLogger = stats.getOpStatsLogger(DELETE_OP);
         this.openOpLogger = stats.getOpStatsLogger(OPEN_OP);
         this.recoverOpLogger = stats.getOpStatsLogger(RECOVER_OP);
@@ -190,6 +238,16 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         this.writeDelayedDueToNotEnoughFaultDomains = stats.getCounter(WRITE_DELAYED_DUE_TO_NOT_ENOUGH_FAULT_DOMAINS);
         this.writeTimedOutDueToNotEnoughFaultDomains =
                 stats.getCounter(WRITE_TIMED_OUT_DUE_TO_NOT_ENOUGH_FAULT_DOMAINS);
+
+        this.entryCacheHits = stats.getCounter(ENTRY_CACHE_HITS);
+        this.entryCacheMisses = stats.getCounter(ENTRY_CACHE_MISSES);
+        this.entryCacheCoalescedReads = stats.getCounter(ENTRY_CACHE_COALESCED_READS);
+        this.entryCacheEvictions = stats.getCounter(ENTRY_CACHE_EVICTIONS);
+        this.ledgerMetadataCacheHits = stats.getCounter(LEDGER_METADATA_CACHE_HITS);
+        this.ledgerMetadataCacheMisses = stats.getCounter(LEDGER_METADATA_CACHE_MISSES);
+
+        this.clientMemoryWaitLogger = stats.getOpStatsLogger(CLIENT_MEMORY_WAIT);
+        this.clientMemoryRejected = stats.getCounter(CLIENT_MEMORY_REJECTED);
     }
 
     @Override
@@ -197,6 +255,10 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return createOpLogger;
     }
     @Override
+    public OpStatsLogger getGenerateLedgerIdOpLogger() {
+        return generateLedgerIdOpLogger;
+    }
+    @Override
     public OpStatsLogger getOpenOpLogger() {
         return openOpLogger;
     }
@@ -289,7 +351,55 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return writeTimedOutDueToNotEnoughFaultDomains;
     }
     @Override
+    public Counter getEntryCacheHitsCounter() {
+        return entryCacheHits;
+    }
+    @Override
+    public Counter getEntryCacheMissesCounter() {
+        return entryCacheMisses;
+    }
+    @Override
+    public Counter getEntryCacheCoalescedReadsCounter() {
+        return entryCacheCoalescedReads;
+    }
+    @Override
+    public Counter getEntryCacheEvictionsCounter() {
+        return entryCacheEvictions;
+    }
+    @Override
+    public Counter getLedgerMetadataCacheHitsCounter() {
+        return ledgerMetadataCacheHits;
+    }
+    @Override
+    public Counter getLedgerMetadataCacheMissesCounter() {
+        return ledgerMetadataCacheMisses;
+    }
+    @Override
+    public OpStatsLogger getClientMemoryWaitLogger() {
+        return clientMemoryWaitLogger;
+    }
+    @Override
+    public Counter getClientMemoryRejectedCounter() {
+        return clientMemoryRejected;
+    }
+    @Override
     public void registerPendingAddsGauge(Gauge<Integer> gauge) {
         stats.registerGauge(PENDING_ADDS, gauge);
     }
+    @Override
+    public void registerEntryCacheSizeGauge(Gauge<Long> gauge) {
+        stats.registerGauge(ENTRY_CACHE_SIZE, gauge);
+    }
+    @Override
+    public void registerLedgerMetadataCacheSizeGauge(Gauge<Integer> gauge) {
+        stats.registerGauge(LEDGER_METADATA_CACHE_SIZE, gauge);
+    }
+    @Override
+    public void registerClientMemoryUsageGauge(Gauge<Long> gauge) {
+        stats.registerGauge(CLIENT_MEMORY_USAGE, gauge);
+    }
+    @Override
+    public void registerWaitingLedgerRecoveriesGauge(Gauge<Integer> gauge) {
+        stats.registerGauge(LEDGER_RECOVERIES_WAITING, gauge);
+    }
 }
@@ -38,6 +38,7 @@ public abstract class OpenBuilderBase implements OpenBuilder {
     protected long ledgerId = LedgerHandle.INVALID_LEDGER_ID;
     protected byte[] password;
     protected DigestType digestType = DigestType.CRC32;
+    protected boolean stickyReads = false;
 
     @Override
     public OpenBuilder withLedgerId(long ledgerId) {
@@ -63,6 +64,12 @@ public abstract class OpenBuilderBase implements OpenBuilder {
         return this;
     }
 
+    @Override
+    public OpenBuilder withStickyReads(boolean stickyReads) {
+        this.stickyReads = stickyReads;
+        return this;
+    }
+
     protected int validate() {
         if (ledgerId < 0) {
             LOG.error("invalid ledgerId {} < 0", ledgerId);
@@ -86,6 +86,10 @@ public abstract class AbstractConfiguration<T extends AbstractConfiguration>
     protected static final String METADATA_SERVICE_URI = "metadataServiceUri";
     protected static final String ZK_LEDGERS_ROOT_PATH = "zkLedgersRootPath";
     protected static final String ZK_REQUEST_RATE_LIMIT = "zkRequestRateLimit";
+    protected static final String METADATA_BATCH_SIZE = "metadataBatchSize";
+    protected static final String METADATA_BATCH_MAX_OUTSTANDING = "metadataBatchMaxOutstanding";
+    protected static final String LEDGER_ITERATION_CONCURRENCY = "ledgerIterationConcurrency";
+    protected static final String LEDGER_ID_RANGE_SIZE = "ledgerIdRangeSize";
     protected static final String AVAILABLE_NODE = "available";
     protected static final String REREPLICATION_ENTRY_BATCH_SIZE = "rereplicationEntryBatchSize";
     protected static final String STORE_SYSTEMTIME_AS_LEDGER_UNDERREPLICATED_MARK_TIME =
@@ -469,6 +473,10 @@ public abstract class AbstractConfiguration<T extends AbstractConfiguration>
     /**
      * Set Ledger metadata format version.
      *
+     * <p>The format applies to the ledgers created by the client, existing ledgers keep the format they
+     * were created with. Version 4 stores the ensembles more compactly than the default version 3, but can
+     * only be enabled once all the clients and bookies accessing the ledgers are able to read it.
+     *
      * @param metadataFormatVersion
      *          Ledger metadata format version. pass -1 to use default version
      */
@@ -579,6 +587,103 @@ public abstract class AbstractConfiguration<T extends AbstractConfiguration>
         setProperty(ZK_REQUEST_RATE_LIMIT, rateLimit);
     }
 
+    /**
+     * Get the max number of ledgers read, written or removed by a single metadata store request
+     * when the metadata of many ledgers is accessed at once.
+     *
+     * @return the max number of ledgers per metadata request.
+     */
+    public int getMetadataBatchSize() {
+        return getInt(METADATA_BATCH_SIZE, 100);
+    }
+
+    /**
+     * Set the max number of ledgers read, written or removed by a single metadata store request
+     * when the metadata of many ledgers is accessed at once.
+     *
+     * @param batchSize
+     *          max number of ledgers per metadata request.
+     * @return configuration.
+     */
+    public T setMetadataBatchSize(int batchSize) {
+        setProperty(METADATA_BATCH_SIZE, batchSize);
+        return getThis();
+    }
+
+    /**
+     * Get the max number of batched metadata requests in flight at the same time.
+     *
+     * @return the max number of outstanding batched metadata requests.
+     */
+    public int getMetadataBatchMaxOutstanding() {
+        return getInt(METADATA_BATCH_MAX_OUTSTANDING, 4);
+    }
+
+    /**
+     * Set the max number of batched metadata requests in flight at the same time.
+     *
+     * @param maxOutstanding
+     *          max number of outstanding batched metadata requests.
+     * @return configuration.
+     */
+    public T setMetadataBatchMaxOutstanding(int maxOutstanding) {
+        setProperty(METADATA_BATCH_MAX_OUTSTANDING, maxOutstanding);
+        return getThis();
+    }
+
+    /**
+     * Get the max number of leaf znodes listed at the same time when iterating over the ledgers of a
+     * hierarchical ledger manager.
+     *
+     * @return the max number of leaf znodes listed at the same time.
+     */
+    public int getLedgerIterationConcurrency() {
+        return getInt(LEDGER_ITERATION_CONCURRENCY, 1);
+    }
+
+    /**
+     * Set the max number of leaf znodes listed at the same time when iterating over the ledgers of a
+     * hierarchical ledger manager.
+     *
+     * <p>The leaf znodes hold the ledger znodes, there is one for every 10000 ledger ids. Processing the
+     * ledgers lists that many leaf znodes in parallel, and iterating over the ledger ranges lists that
+     * many leaf znodes ahead of the caller. The default of 1 lists one leaf znode at a time.
+     *
+     * @param concurrency
+     *          max number of leaf znodes listed at the same time.
+     * @return configuration.
+     */
+    public T setLedgerIterationConcurrency(int concurrency) {
+        setProperty(LEDGER_ITERATION_CONCURRENCY, concurrency);
+        return getThis();
+    }
+
+    /**
+     * Get the number of ledger ids reserved at a time by the ledger id generator.
+     *
+     * @return the number of ledger ids reserved at a time, 0 if ledger ids are generated one at a time.
+     */
+    public int getLedgerIdRangeSize() {
+        return getInt(LEDGER_ID_RANGE_SIZE, 0);
+    }
+
+    /**
+     * Set the number of ledger ids reserved at a time by the ledger id generator.
+     *
+     * <p>By default every new ledger id costs a write to the metadata store. With a range size greater
+     * than 1, the hierarchical ledger manager reserves ranges of that many ids with a single write and
+     * hands them out locally. The ids of a range which were not used when the client stops are skipped.
+     * The reserved ranges are 64-bit ledger ids, above the ids generated one at a time.
+     *
+     * @param rangeSize
+     *          number of ledger ids reserved at a time.
+     * @return configuration.
+     */
+    public T setLedgerIdRangeSize(int rangeSize) {
+        setProperty(LEDGER_ID_RANGE_SIZE, rangeSize);
+        return getThis();
+    }
+
     /**
      * Are z-node created with strict ACLs.
      *
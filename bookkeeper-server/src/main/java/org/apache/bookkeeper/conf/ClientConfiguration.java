@@ -101,6 +101,10 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String NUM_CHANNELS_PER_BOOKIE = "numChannelsPerBookie";
     protected static final String USE_V2_WIRE_PROTOCOL = "useV2WireProtocol";
     protected static final String NETTY_USE_POOLED_BUFFERS = "nettyUsePooledBuffers";
+    protected static final String CLIENT_FLOW_CONTROL_ENABLED = "clientFlowControlEnabled";
+    protected static final String CLIENT_WIRE_COMPRESSION_ENABLED = "clientWireCompressionEnabled";
+    protected static final String LOCAL_DIRECT_TRANSPORT_ENABLED = "localDirectTransportEnabled";
+    protected static final String WIRE_COMPRESSION_MIN_PAYLOAD_SIZE = "wireCompressionMinPayloadSize";
 
     // Read Parameters
     protected static final String READ_TIMEOUT = "readTimeout";
@@ -113,10 +117,21 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String MAX_SPECULATIVE_READ_LAC_TIMEOUT = "maxSpeculativeReadLACTimeout";
     protected static final String SPECULATIVE_READ_LAC_TIMEOUT_BACKOFF_MULTIPLIER =
         "speculativeReadLACTimeoutBackoffMultiplier";
+    protected static final String ADAPTIVE_SPECULATIVE_READ_ENABLED = "adaptiveSpeculativeReadEnabled";
+    protected static final String SPECULATIVE_READ_LATENCY_PERCENTILE = "speculativeReadLatencyPercentile";
+    protected static final String SPECULATIVE_READ_BUDGET_PERCENT = "speculativeReadBudgetPercent";
     protected static final String ENABLE_PARALLEL_RECOVERY_READ = "enableParallelRecoveryRead";
     protected static final String RECOVERY_READ_BATCH_SIZE = "recoveryReadBatchSize";
+    protected static final String RECOVERY_READ_AHEAD_BATCHES = "recoveryReadAheadBatches";
+    protected static final String MAX_CONCURRENT_LEDGER_RECOVERIES = "maxConcurrentLedgerRecoveries";
     protected static final String REORDER_READ_SEQUENCE_ENABLED = "reorderReadSequenceEnabled";
     protected static final String STICKY_READS_ENABLED = "stickyReadSEnabled";
+    protected static final String CLIENT_ENTRY_CACHE_SIZE_BYTES = "clientEntryCacheSizeBytes";
+    protected static final String LEDGER_METADATA_CACHE_SIZE = "ledgerMetadataCacheSize";
+    protected static final String LAC_WATCH_ENABLED = "lacWatchEnabled";
+    protected static final String CLIENT_MEMORY_LIMIT_BYTES = "clientMemoryLimitBytes";
+    protected static final String CLIENT_MEMORY_LIMIT_BLOCK_ADDS = "clientMemoryLimitBlockAdds";
+    protected static final String CLIENT_MEMORY_LIMIT_BLOCK_READS = "clientMemoryLimitBlockReads";
     // Add Parameters
     protected static final String OPPORTUNISTIC_STRIPING = "opportunisticStriping";
     protected static final String DELAY_ENSEMBLE_CHANGE = "delayEnsembleChange";
@@ -148,6 +163,8 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String GET_BOOKIE_INFO_RETRY_INTERVAL_SECONDS = "getBookieInfoRetryIntervalSeconds";
     protected static final String BOOKIE_MAX_MULTIPLE_FOR_WEIGHTED_PLACEMENT =
         "bookieMaxMultipleForWeightBasedPlacement";
+    protected static final String LOAD_AWARE_PLACEMENT_ENABLED = "loadAwarePlacementEnabled";
+    protected static final String LOAD_AWARE_PLACEMENT_HYSTERESIS_PERCENT = "loadAwarePlacementHysteresisPercent";
     protected static final String GET_BOOKIE_INFO_TIMEOUT_SECS = "getBookieInfoTimeoutSecs";
     protected static final String START_TLS_TIMEOUT_SECS = "startTLSTimeoutSecs";
     protected static final String TLS_HOSTNAME_VERIFICATION_ENABLED = "tlsHostnameVerificationEnabled";
@@ -596,6 +613,95 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether the client asks bookies for flow control credits and queues requests
+     * locally once the granted window is used up. Only effective with the v3 wire protocol.
+     *
+     * @return true if credit based flow control is enabled on the client.
+     */
+    public boolean isClientFlowControlEnabled() {
+        return getBoolean(CLIENT_FLOW_CONTROL_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable credit based flow control on the client.
+     *
+     * @param enabled
+     *          flag to enable/disable flow control.
+     * @return client configuration.
+     */
+    public ClientConfiguration setClientFlowControlEnabled(boolean enabled) {
+        setProperty(CLIENT_FLOW_CONTROL_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Whether the client negotiates LZ4 payload compression with bookies. Add payloads are
+     * only compressed once the bookie has advertised support for it on the connection.
+     * Only effective with the v3 wire protocol.
+     *
+     * @return true if wire compression is enabled on the client.
+     */
+    public boolean isClientWireCompressionEnabled() {
+        return getBoolean(CLIENT_WIRE_COMPRESSION_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable wire payload compression on the client.
+     *
+     * @param enabled
+     *          flag to enable/disable wire compression.
+     * @return client configuration.
+     */
+    public ClientConfiguration setClientWireCompressionEnabled(boolean enabled) {
+        setProperty(CLIENT_WIRE_COMPRESSION_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the minimum size of an add payload for it to be compressed.
+     *
+     * @return min payload size in bytes.
+     */
+    public int getWireCompressionMinPayloadSize() {
+        return getInt(WIRE_COMPRESSION_MIN_PAYLOAD_SIZE, 1024);
+    }
+
+    /**
+     * Set the minimum size of an add payload for it to be compressed.
+     *
+     * @param size
+     *          min payload size in bytes.
+     * @return client configuration.
+     */
+    public ClientConfiguration setWireCompressionMinPayloadSize(int size) {
+        setProperty(WIRE_COMPRESSION_MIN_PAYLOAD_SIZE, size);
+        return this;
+    }
+
+    /**
+     * Whether requests to bookies running in the same JVM (see
+     * {@link ServerConfiguration#isEnableLocalTransport()}) skip the wire encoding and are
+     * handed over to the bookie as objects. Ignored when TLS is configured.
+     *
+     * @return true if the local direct transport is enabled.
+     */
+    public boolean isLocalDirectTransportEnabled() {
+        return getBoolean(LOCAL_DIRECT_TRANSPORT_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable the direct transport to bookies running in the same JVM.
+     *
+     * @param enabled
+     *          flag to enable/disable the local direct transport.
+     * @return client configuration.
+     */
+    public ClientConfiguration setLocalDirectTransportEnabled(boolean enabled) {
+        setProperty(LOCAL_DIRECT_TRANSPORT_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Get the socket read timeout. This is the number of
      * seconds we wait without hearing a response from a bookie
@@ -1038,6 +1144,79 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether speculative reads are timed from the observed read latency of each bookie instead of
+     * the fixed backoff between {@link #getFirstSpeculativeReadTimeout()} and
+     * {@link #getMaxSpeculativeReadTimeout()}.
+     *
+     * <p>With the adaptive policy, a speculative read is sent once the outstanding read has taken
+     * longer than {@link #getSpeculativeReadLatencyPercentile()} of the recent reads served by the
+     * same bookie, bounded by the max speculative read timeout. The first speculative read timeout
+     * is used until enough samples have been collected for a bookie.
+     *
+     * @return true if the adaptive speculative read policy is enabled.
+     */
+    public boolean isAdaptiveSpeculativeReadEnabled() {
+        return getBoolean(ADAPTIVE_SPECULATIVE_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable the adaptive speculative read policy.
+     *
+     * @see #isAdaptiveSpeculativeReadEnabled()
+     * @param enabled
+     *          flag to enable/disable adaptive speculative reads.
+     * @return client configuration.
+     */
+    public ClientConfiguration setAdaptiveSpeculativeReadEnabled(boolean enabled) {
+        setProperty(ADAPTIVE_SPECULATIVE_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the bookie read latency percentile after which the adaptive policy sends a speculative read.
+     *
+     * @return latency percentile, default 95.0.
+     */
+    public double getSpeculativeReadLatencyPercentile() {
+        return getDouble(SPECULATIVE_READ_LATENCY_PERCENTILE, 95.0);
+    }
+
+    /**
+     * Set the bookie read latency percentile after which the adaptive policy sends a speculative read.
+     *
+     * @param percentile
+     *          latency percentile, between 0 and 100.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSpeculativeReadLatencyPercentile(double percentile) {
+        setProperty(SPECULATIVE_READ_LATENCY_PERCENTILE, percentile);
+        return this;
+    }
+
+    /**
+     * Get the budget of speculative reads of the adaptive policy, as a percentage of the reads
+     * completed by the client. Speculative reads over the budget are deferred until it grows back.
+     *
+     * @return speculative read budget in percent, default 10.0.
+     */
+    public double getSpeculativeReadBudgetPercent() {
+        return getDouble(SPECULATIVE_READ_BUDGET_PERCENT, 10.0);
+    }
+
+    /**
+     * Set the budget of speculative reads of the adaptive policy, as a percentage of the reads
+     * completed by the client.
+     *
+     * @param percent
+     *          speculative read budget in percent.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSpeculativeReadBudgetPercent(double percent) {
+        setProperty(SPECULATIVE_READ_BUDGET_PERCENT, percent);
+        return this;
+    }
+
     /**
      * Get the period of time after which the first speculative read last add confirmed and entry
      * should be triggered.
@@ -1140,6 +1319,59 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the number of batches of entries read concurrently by the recovery of a ledger.
+     *
+     * @return the number of batches of entries read concurrently by the recovery of a ledger.
+     * @see #setRecoveryReadAheadBatches(int)
+     */
+    public int getRecoveryReadAheadBatches() {
+        return getInt(RECOVERY_READ_AHEAD_BATCHES, 1);
+    }
+
+    /**
+     * Set the number of batches of {@link #getRecoveryReadBatchSize()} entries read concurrently by
+     * the recovery of a ledger. The recovery reads the next batch as soon as the first one is
+     * done, instead of waiting for the entries of the previous batch to be read before reading
+     * the next one. The entries are still added back in order.
+     *
+     * <p>The default value is 1, which reads one batch at a time.
+     *
+     * @param numBatches
+     *          number of batches of entries read concurrently.
+     * @return client configuration.
+     */
+    public ClientConfiguration setRecoveryReadAheadBatches(int numBatches) {
+        setProperty(RECOVERY_READ_AHEAD_BATCHES, numBatches);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of ledgers recovered concurrently by the client.
+     *
+     * @return the maximum number of ledgers recovered concurrently, 0 if it is not limited.
+     * @see #setMaxConcurrentLedgerRecoveries(int)
+     */
+    public int getMaxConcurrentLedgerRecoveries() {
+        return getInt(MAX_CONCURRENT_LEDGER_RECOVERIES, 0);
+    }
+
+    /**
+     * Set the maximum number of ledgers recovered concurrently by the client. Recoveries beyond the
+     * limit wait for the running ones to complete, which bounds the reads and adds sent to the
+     * bookies when many ledgers are recovered at once, for instance after a failover.
+     *
+     * <p>The default value is 0, which does not limit the recoveries.
+     *
+     * @param maxRecoveries
+     *          maximum number of ledgers recovered concurrently.
+     * @return client configuration.
+     */
+    public ClientConfiguration setMaxConcurrentLedgerRecoveries(int maxRecoveries) {
+        setProperty(MAX_CONCURRENT_LEDGER_RECOVERIES, maxRecoveries);
+        return this;
+    }
+
     /**
      * If reorder read sequence enabled or not.
      *
@@ -1198,6 +1430,158 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the size of the entry cache shared by all the ledger handles of the client.
+     *
+     * @return the size of the entry cache in bytes, 0 if the cache is disabled.
+     */
+    public long getClientEntryCacheSizeBytes() {
+        return getLong(CLIENT_ENTRY_CACHE_SIZE_BYTES, 0L);
+    }
+
+    /**
+     * Set the size of the entry cache shared by all the ledger handles of the client.
+     *
+     * <p>The cache keeps a copy of the confirmed entries read from the bookies in direct memory,
+     * so that handles tailing the same ledgers are served from the cache. Reads of an entry which
+     * is already being read by another handle wait for that read instead of issuing their own.
+     * The cache is disabled when the size is 0.
+     *
+     * @param sizeBytes the size of the entry cache in bytes.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setClientEntryCacheSizeBytes(long sizeBytes) {
+        setProperty(CLIENT_ENTRY_CACHE_SIZE_BYTES, sizeBytes);
+        return this;
+    }
+
+    /**
+     * Get the max number of closed ledgers whose metadata is cached by the client.
+     *
+     * @return the max number of ledgers in the ledger metadata cache, 0 if the cache is disabled.
+     */
+    public int getLedgerMetadataCacheSize() {
+        return getInt(LEDGER_METADATA_CACHE_SIZE, 0);
+    }
+
+    /**
+     * Set the max number of closed ledgers whose metadata is cached by the client.
+     *
+     * <p>Opening a closed ledger whose metadata is cached does not read the metadata store. The cache
+     * follows the re-replication and the deletion of the ledgers through the watches of the handles opened
+     * without recovery, the metadata of a ledger no such handle has open may be stale until it is opened
+     * again. The cache is disabled when the size is 0.
+     *
+     * @param numLedgers the max number of ledgers in the ledger metadata cache.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setLedgerMetadataCacheSize(int numLedgers) {
+        setProperty(LEDGER_METADATA_CACHE_SIZE, numLedgers);
+        return this;
+    }
+
+    /**
+     * Whether tailing reads wait for the last add confirmed through watches shared by all the
+     * ledger handles of the client.
+     *
+     * @return true if lac watches are enabled, default false.
+     */
+    public boolean isLacWatchEnabled() {
+        return getBoolean(LAC_WATCH_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable waiting for the last add confirmed through watches in
+     * {@code readLastAddConfirmedAndEntry}.
+     *
+     * <p>Instead of sending one long poll read per call to each bookie, the client registers the
+     * ledgers it tails with a single watch request per bookie connection, and the bookies push the
+     * last add confirmed updates of all the watched ledgers in batches. Ledgers whose bookies reject
+     * watches fall back to long poll reads, but bookies predating watch requests cannot decode them,
+     * so watches should only be enabled once all the bookies have been upgraded.
+     *
+     * @param enabled flag to enable/disable lac watches.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setLacWatchEnabled(boolean enabled) {
+        setProperty(LAC_WATCH_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the memory limit of the add payloads and read responses held by the client.
+     *
+     * @return the memory limit in bytes, 0 if the memory is not limited.
+     */
+    public long getClientMemoryLimitBytes() {
+        return getLong(CLIENT_MEMORY_LIMIT_BYTES, 0L);
+    }
+
+    /**
+     * Set the memory limit of the add payloads and read responses held by the client.
+     *
+     * <p>The payload of an add is accounted from the time it is submitted until all the bookies
+     * responded, and the entries of a read from the time they are received until the read
+     * completes. Once the limit is exceeded, new adds and reads either wait for memory to be
+     * released or fail with {@link org.apache.bookkeeper.client.BKException.Code#TooManyRequestsException},
+     * see {@link #setClientMemoryLimitBlockAdds(boolean)} and {@link #setClientMemoryLimitBlockReads(boolean)}.
+     * The memory is not limited when the limit is 0.
+     *
+     * @param limitBytes the memory limit in bytes.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setClientMemoryLimitBytes(long limitBytes) {
+        setProperty(CLIENT_MEMORY_LIMIT_BYTES, limitBytes);
+        return this;
+    }
+
+    /**
+     * Whether adds wait for memory when the client memory limit is exceeded.
+     *
+     * @return true if adds wait for memory, false if they fail right away, default true.
+     */
+    public boolean getClientMemoryLimitBlockAdds() {
+        return getBoolean(CLIENT_MEMORY_LIMIT_BLOCK_ADDS, true);
+    }
+
+    /**
+     * Set whether adds wait for memory when the client memory limit is exceeded.
+     *
+     * <p>Waiting adds block the thread calling {@code asyncAddEntry}, like the add throttling does.
+     * The memory of an add is released by the callbacks of the bookie responses, so adds issued from
+     * the callbacks of the same ledger fail right away instead of waiting for memory.
+     *
+     * @param block whether adds wait for memory.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setClientMemoryLimitBlockAdds(boolean block) {
+        setProperty(CLIENT_MEMORY_LIMIT_BLOCK_ADDS, block);
+        return this;
+    }
+
+    /**
+     * Whether reads wait for memory when the client memory limit is exceeded.
+     *
+     * @return true if reads wait for memory, false if they fail right away, default false.
+     */
+    public boolean getClientMemoryLimitBlockReads() {
+        return getBoolean(CLIENT_MEMORY_LIMIT_BLOCK_READS, false);
+    }
+
+    /**
+     * Set whether reads wait for memory when the client memory limit is exceeded.
+     *
+     * <p>Reads are commonly issued from the callback of the previous read, which would then block
+     * the thread completing the reads holding the memory, so reads fail fast by default.
+     *
+     * @param block whether reads wait for memory.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setClientMemoryLimitBlockReads(boolean block) {
+        setProperty(CLIENT_MEMORY_LIMIT_BLOCK_READS, block);
+        return this;
+    }
+
     /**
      * Get Ensemble Placement Policy Class.
      *
@@ -1559,6 +1943,57 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Return whether the weights of the disk weight based placement also account for the load of the
+     * bookies.
+     *
+     * @return whether load aware placement is enabled
+     */
+    public boolean getLoadAwarePlacementEnabled() {
+        return getBoolean(LOAD_AWARE_PLACEMENT_ENABLED, false);
+    }
+
+    /**
+     * Set whether the weights of the disk weight based placement also account for the load of the
+     * bookies.
+     *
+     * <p>The bookie info reader then also asks the bookies for their journal queue length, write cache
+     * usage, read latency and request rate, and the placement lowers the weight of the bookies which are
+     * busier than the others. It only applies when disk weight based placement is enabled, and bookies
+     * which do not report their load keep their disk weight.
+     *
+     * @param enabled whether load aware placement is enabled
+     * @return client configuration
+     */
+    public ClientConfiguration setLoadAwarePlacementEnabled(boolean enabled) {
+        setProperty(LOAD_AWARE_PLACEMENT_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the change of load, in percent, under which the load factor of a bookie is kept.
+     *
+     * @return the hysteresis of the load factors in percent
+     */
+    public int getLoadAwarePlacementHysteresisPercent() {
+        return getInt(LOAD_AWARE_PLACEMENT_HYSTERESIS_PERCENT, 20);
+    }
+
+    /**
+     * Set the change of load, in percent, under which the load factor of a bookie is kept.
+     *
+     * <p>The load factor of a bookie is only updated when it differs from the previous one by more than
+     * this percentage, so that the weights do not swing back and forth with every poll of the bookie
+     * info while ledgers move to the less loaded bookies.
+     *
+     * @param percent the hysteresis of the load factors in percent
+     * @return client configuration
+     */
+    public ClientConfiguration setLoadAwarePlacementHysteresisPercent(int percent) {
+        setProperty(LOAD_AWARE_PLACEMENT_HYSTERESIS_PERCENT, percent);
+        return this;
+    }
+
     /**
      * Set the timeout value in secs for the GET_BOOKIE_INFO request.
      *
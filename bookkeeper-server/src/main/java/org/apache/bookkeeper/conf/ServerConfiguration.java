@@ -158,6 +158,14 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String MAX_READS_IN_PROGRESS_LIMIT = "maxReadsInProgressLimit";
     protected static final String CLOSE_CHANNEL_ON_RESPONSE_TIMEOUT = "closeChannelOnResponseTimeout";
     protected static final String WAIT_TIMEOUT_ON_RESPONSE_BACKPRESSURE = "waitTimeoutOnResponseBackpressureMs";
+    protected static final String FLOW_CONTROL_ENABLED = "flowControlEnabled";
+    protected static final String FLOW_CONTROL_MAX_OP_CREDITS = "flowControlMaxOpCredits";
+    protected static final String FLOW_CONTROL_MAX_BYTE_CREDITS = "flowControlMaxByteCredits";
+    protected static final String PER_CLIENT_REQUEST_RATE_LIMIT = "perClientRequestRateLimit";
+    protected static final String PER_CLIENT_ADD_BYTES_RATE_LIMIT = "perClientAddBytesRateLimit";
+    protected static final String PER_CLIENT_QUOTA_WEIGHTS = "perClientQuotaWeights";
+    protected static final String WIRE_COMPRESSION_ENABLED = "wireCompressionEnabled";
+    protected static final String WIRE_COMPRESSION_MIN_PAYLOAD_SIZE = "wireCompressionMinPayloadSize";
 
     // Bookie Parameters
     protected static final String BOOKIE_PORT = "bookiePort";
@@ -228,6 +236,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     // Long poll parameters
     protected static final String REQUEST_TIMER_TICK_DURATION_MILLISEC = "requestTimerTickDurationMs";
     protected static final String REQUEST_TIMER_NO_OF_TICKS = "requestTimerNumTicks";
+    protected static final String LAC_WATCH_BATCH_DELAY_MILLISEC = "lacWatchBatchDelayMs";
+    protected static final String MAX_LAC_WATCHES_PER_CHANNEL = "maxLacWatchesPerChannel";
 
     protected static final String READ_BUFFER_SIZE = "readBufferSizeBytes";
     protected static final String WRITE_BUFFER_SIZE = "writeBufferSizeBytes";
@@ -1084,6 +1094,186 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Whether the bookie grants per-connection flow control credits to v3 clients
+     * that ask for them.
+     *
+     * @return true if credit based flow control is enabled.
+     */
+    public boolean isFlowControlEnabled() {
+        return getBoolean(FLOW_CONTROL_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable per-connection credit based flow control.
+     *
+     * @param enabled
+     *          flag to enable/disable flow control.
+     * @return server configuration.
+     */
+    public ServerConfiguration setFlowControlEnabled(boolean enabled) {
+        setProperty(FLOW_CONTROL_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the max number of outstanding requests granted to all the connections using flow
+     * control when the bookie request queues are empty. Each connection is granted an equal
+     * share, which shrinks as the queues fill up.
+     *
+     * @return max op credits of the bookie.
+     */
+    public int getFlowControlMaxOpCredits() {
+        return getInt(FLOW_CONTROL_MAX_OP_CREDITS, 1000);
+    }
+
+    /**
+     * Set the max number of outstanding requests granted to all the connections using flow control.
+     *
+     * @param credits
+     *          max op credits of the bookie.
+     * @return server configuration.
+     */
+    public ServerConfiguration setFlowControlMaxOpCredits(int credits) {
+        setProperty(FLOW_CONTROL_MAX_OP_CREDITS, credits);
+        return this;
+    }
+
+    /**
+     * Get the max number of outstanding payload bytes granted to all the connections using flow
+     * control when the bookie request queues are empty. Each connection is granted an equal
+     * share, which shrinks as the queues fill up.
+     *
+     * @return max byte credits of the bookie.
+     */
+    public long getFlowControlMaxByteCredits() {
+        return getLong(FLOW_CONTROL_MAX_BYTE_CREDITS, 16 * 1024 * 1024);
+    }
+
+    /**
+     * Set the max number of outstanding payload bytes granted to all the connections using flow control.
+     *
+     * @param credits
+     *          max byte credits of the bookie.
+     * @return server configuration.
+     */
+    public ServerConfiguration setFlowControlMaxByteCredits(long credits) {
+        setProperty(FLOW_CONTROL_MAX_BYTE_CREDITS, credits);
+        return this;
+    }
+
+    /**
+     * Get the number of add and read requests per second a single client may send to this
+     * bookie before its connections get throttled. Clients are identified by their
+     * authenticated principal, or by their host if anonymous. 0 == unlimited.
+     *
+     * @return per-client request rate limit.
+     */
+    public int getPerClientRequestRateLimit() {
+        return getInt(PER_CLIENT_REQUEST_RATE_LIMIT, 0);
+    }
+
+    /**
+     * Set the number of add and read requests per second a single client may send. 0 == unlimited.
+     *
+     * @param rateLimit
+     *          per-client request rate limit.
+     * @return server configuration.
+     */
+    public ServerConfiguration setPerClientRequestRateLimit(int rateLimit) {
+        setProperty(PER_CLIENT_REQUEST_RATE_LIMIT, rateLimit);
+        return this;
+    }
+
+    /**
+     * Get the number of add payload bytes per second a single client may send to this
+     * bookie before its connections get throttled. 0 == unlimited.
+     *
+     * @return per-client add bytes rate limit.
+     */
+    public long getPerClientAddBytesRateLimit() {
+        return getLong(PER_CLIENT_ADD_BYTES_RATE_LIMIT, 0);
+    }
+
+    /**
+     * Set the number of add payload bytes per second a single client may send. 0 == unlimited.
+     *
+     * @param rateLimit
+     *          per-client add bytes rate limit.
+     * @return server configuration.
+     */
+    public ServerConfiguration setPerClientAddBytesRateLimit(long rateLimit) {
+        setProperty(PER_CLIENT_ADD_BYTES_RATE_LIMIT, rateLimit);
+        return this;
+    }
+
+    /**
+     * Get the per-client weights applied to the per-client rate limits, in the form
+     * <i>client:weight</i>. Clients without an entry get a weight of 1. The clients with an entry are
+     * also reported separately in the client quota stats, the stats of the other clients are aggregated.
+     *
+     * @return per-client quota weights.
+     */
+    public String[] getPerClientQuotaWeights() {
+        return getStringArray(PER_CLIENT_QUOTA_WEIGHTS);
+    }
+
+    /**
+     * Set the per-client weights applied to the per-client rate limits.
+     *
+     * @param weights
+     *          list of <i>client:weight</i> entries, entries with a weight which is not positive are ignored.
+     * @return server configuration.
+     */
+    public ServerConfiguration setPerClientQuotaWeights(String[] weights) {
+        setProperty(PER_CLIENT_QUOTA_WEIGHTS, weights);
+        return this;
+    }
+
+    /**
+     * Whether the bookie negotiates LZ4 payload compression with v3 clients. When enabled,
+     * read responses are compressed for clients that can decode them, and clients are told
+     * they may send compressed add requests.
+     *
+     * @return true if wire compression is enabled.
+     */
+    public boolean isWireCompressionEnabled() {
+        return getBoolean(WIRE_COMPRESSION_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable wire payload compression.
+     *
+     * @param enabled
+     *          flag to enable/disable wire compression.
+     * @return server configuration.
+     */
+    public ServerConfiguration setWireCompressionEnabled(boolean enabled) {
+        setProperty(WIRE_COMPRESSION_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the minimum size of a read response payload for it to be compressed.
+     *
+     * @return min payload size in bytes.
+     */
+    public int getWireCompressionMinPayloadSize() {
+        return getInt(WIRE_COMPRESSION_MIN_PAYLOAD_SIZE, 1024);
+    }
+
+    /**
+     * Set the minimum size of a read response payload for it to be compressed.
+     *
+     * @param size
+     *          min payload size in bytes.
+     * @return server configuration.
+     */
+    public ServerConfiguration setWireCompressionMinPayloadSize(int size) {
+        setProperty(WIRE_COMPRESSION_MIN_PAYLOAD_SIZE, size);
+        return this;
+    }
+
     /**
      * Get bookie port that bookie server listen on.
      *
@@ -2085,6 +2275,53 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getInt(REQUEST_TIMER_NO_OF_TICKS, 1024);
     }
 
+    /**
+     * Set the time the bookie waits for more last add confirmed updates of watched ledgers before
+     * pushing them to the client in a single notification.
+     *
+     * @param delayMs
+     *          batch delay in milliseconds.
+     * @return server configuration
+     */
+    public ServerConfiguration setLacWatchBatchDelayMs(int delayMs) {
+        setProperty(LAC_WATCH_BATCH_DELAY_MILLISEC, delayMs);
+        return this;
+    }
+
+    /**
+     * Get the time the bookie waits for more last add confirmed updates of watched ledgers before
+     * pushing them to the client in a single notification. The delay is rounded up to the tick
+     * duration of the request timer.
+     *
+     * @return batch delay in milliseconds, default value is 5.
+     */
+    public int getLacWatchBatchDelayMs() {
+        return getInt(LAC_WATCH_BATCH_DELAY_MILLISEC, 5);
+    }
+
+    /**
+     * Set the maximum number of ledgers a single client connection can watch the last add
+     * confirmed of.
+     *
+     * @param maxWatches
+     *          maximum number of watched ledgers per connection.
+     * @return server configuration
+     */
+    public ServerConfiguration setMaxLacWatchesPerChannel(int maxWatches) {
+        setProperty(MAX_LAC_WATCHES_PER_CHANNEL, maxWatches);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of ledgers a single client connection can watch the last add
+     * confirmed of. Watches past the limit are rejected with {@code ETOOMANYREQUESTS}.
+     *
+     * @return maximum number of watched ledgers per connection, default value is 100000.
+     */
+    public int getMaxLacWatchesPerChannel() {
+        return getInt(MAX_LAC_WATCHES_PER_CHANNEL, 100000);
+    }
+
     /**
      * Get the number of bytes used as capacity for the write buffer. Default is
      * 64KB.
@@ -18,15 +18,26 @@
 package org.apache.bookkeeper.meta;
 
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.bookkeeper.conf.AbstractConfiguration;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.Processor;
 import org.apache.bookkeeper.util.StringUtils;
+import org.apache.bookkeeper.util.ZkUtils;
 import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
@@ -41,6 +52,9 @@ public abstract class AbstractHierarchicalLedgerManager extends AbstractZkLedger
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractHierarchicalLedgerManager.class);
 
+    // max number of leaf nodes listed at the same time when iterating over the ledgers
+    protected final int iterationConcurrency;
+
     /**
      * Constructor.
      *
@@ -51,6 +65,7 @@ public abstract class AbstractHierarchicalLedgerManager extends AbstractZkLedger
      */
     public AbstractHierarchicalLedgerManager(AbstractConfiguration conf, ZooKeeper zk) {
         super(conf, zk);
+        this.iterationConcurrency = Math.max(1, conf.getLedgerIterationConcurrency());
     }
 
     /**
@@ -60,6 +75,16 @@ public abstract class AbstractHierarchicalLedgerManager extends AbstractZkLedger
         final String path, final Processor<String> processor,
         final AsyncCallback.VoidCallback finalCb, final Object context,
         final int successRc, final int failureRc) {
+        asyncProcessLevelNodes(path, processor, finalCb, context, successRc, failureRc, 1);
+    }
+
+    /**
+     * Process hash nodes in a given path, processing up to <i>concurrency</i> nodes at the same time.
+     */
+    void asyncProcessLevelNodes(
+        final String path, final Processor<String> processor,
+        final AsyncCallback.VoidCallback finalCb, final Object context,
+        final int successRc, final int failureRc, final int concurrency) {
         zk.sync(path, new AsyncCallback.VoidCallback() {
             @Override
             public void processResult(int rc, String path, Object ctx) {
@@ -92,7 +117,7 @@ public abstract class AbstractHierarchicalLedgerManager extends AbstractZkLedger
                                 new AsyncListProcessor<String>(scheduler);
                         // process its children
                         listProcessor.process(levelNodes, processor, finalCb,
-                                              context, successRc, failureRc);
+                                              context, successRc, failureRc, concurrency);
                     }
                 }, null);
             }
@@ -100,8 +125,8 @@ public abstract class AbstractHierarchicalLedgerManager extends AbstractZkLedger
     }
 
     /**
-     * Process list one by one in asynchronize way. Process will be stopped immediately
-     * when error occurred.
+     * Process list in asynchronize way, a bounded number of elements at a time. Process will be
+     * stopped immediately when error occurred.
      */
     private static class AsyncListProcessor<T> {
         // use this to prevent long stack chains from building up in callbacks
@@ -132,31 +157,42 @@ public abstract class AbstractHierarchicalLedgerManager extends AbstractZkLedger
          *          RC passed to final callback on success
          * @param failureRc
          *          RC passed to final callback on failure
+         * @param concurrency
+         *          Max number of elements processed at the same time
          */
         public void process(final List<T> data, final Processor<T> processor,
                             final AsyncCallback.VoidCallback finalCb, final Object context,
-                            final int successRc, final int failureRc) {
+                            final int successRc, final int failureRc, final int concurrency) {
             if (data == null || data.size() == 0) {
                 finalCb.processResult(successRc, null, context);
                 return;
             }
             final int size = data.size();
-            final AtomicInteger current = new AtomicInteger(0);
+            final AtomicInteger next = new AtomicInteger(0);
+            final AtomicInteger completed = new AtomicInteger(0);
+            final AtomicBoolean done = new AtomicBoolean(false);
             AsyncCallback.VoidCallback stubCallback = new AsyncCallback.VoidCallback() {
                 @Override
                 public void processResult(int rc, String path, Object ctx) {
                     if (rc != successRc) {
                         // terminal immediately
-                        finalCb.processResult(failureRc, null, context);
+                        if (done.compareAndSet(false, true)) {
+                            finalCb.processResult(failureRc, null, context);
+                        }
+                        return;
+                    }
+                    if (completed.incrementAndGet() >= size) { // reach the end of list
+                        if (done.compareAndSet(false, true)) {
+                            finalCb.processResult(successRc, null, context);
+                        }
                         return;
                     }
                     // process next element
-                    int next = current.incrementAndGet();
-                    if (next >= size) { // reach the end of list
-                        finalCb.processResult(successRc, null, context);
+                    final int index = next.getAndIncrement();
+                    if (index >= size || done.get()) {
                         return;
                     }
-                    final T dataToProcess = data.get(next);
+                    final T dataToProcess = data.get(index);
                     final AsyncCallback.VoidCallback stub = this;
                     scheduler.submit(new Runnable() {
                         @Override
@@ -166,8 +202,113 @@ public abstract class AbstractHierarchicalLedgerManager extends AbstractZkLedger
                     });
                 }
             };
-            T firstElement = data.get(0);
-            processor.process(firstElement, stubCallback);
+            for (int i = 0; i < Math.max(1, concurrency); i++) {
+                int index = next.getAndIncrement();
+                if (index >= size) {
+                    break;
+                }
+                processor.process(data.get(index), stubCallback);
+            }
+        }
+    }
+
+    /**
+     * Iterates over the ledger ranges of the leaf nodes of the hierarchy, one range per leaf node.
+     *
+     * <p>The children of up to {@link #iterationConcurrency} leaf nodes are listed ahead of the caller,
+     * so that the next ranges are being listed while the caller processes the current one. The ranges
+     * are still returned in the order of the leaf nodes.
+     */
+    abstract class LeafNodesRangeIterator implements LedgerRangeIterator {
+        private final long zkOpTimeoutMs;
+        // leaf nodes being listed, in order
+        private final ArrayDeque<Map.Entry<String, CompletableFuture<List<String>>>> pendingLeaves =
+                new ArrayDeque<>();
+        private boolean allLeavesListed = false;
+        private LedgerRange nextRange = null;
+
+        LeafNodesRangeIterator(long zkOpTimeoutMs) {
+            this.zkOpTimeoutMs = zkOpTimeoutMs;
+        }
+
+        /**
+         * Get the path of the next leaf node.
+         *
+         * @return the path of the next leaf node, null once all the leaf nodes were returned
+         */
+        abstract String nextLeafPath() throws IOException;
+
+        /**
+         * Get the ledger range of a leaf node from its children.
+         */
+        abstract LedgerRange getLedgerRange(String leafPath, List<String> ledgerNodes) throws IOException;
+
+        private void listLeaves() throws IOException {
+            while (!allLeavesListed && pendingLeaves.size() < iterationConcurrency) {
+                String leafPath = nextLeafPath();
+                if (leafPath == null) {
+                    allLeavesListed = true;
+                } else {
+                    pendingLeaves.add(new AbstractMap.SimpleImmutableEntry<>(leafPath, listChildren(leafPath)));
+                }
+            }
+        }
+
+        private CompletableFuture<List<String>> listChildren(String path) {
+            CompletableFuture<List<String>> promise = new CompletableFuture<>();
+            ZkUtils.getChildrenInSingleNode(zk, path, (rc, children) -> {
+                if (rc == Code.OK.intValue()) {
+                    promise.complete(children);
+                } else if (rc == Code.NONODE.intValue()) {
+                    // raced with a recursive node removal
+                    promise.complete(Collections.emptyList());
+                } else {
+                    promise.completeExceptionally(KeeperException.create(KeeperException.Code.get(rc), path));
+                }
+            });
+            return promise;
+        }
+
+        private List<String> waitForChildren(String path, CompletableFuture<List<String>> children)
+                throws IOException {
+            try {
+                return zkOpTimeoutMs > 0 ? children.get(zkOpTimeoutMs, TimeUnit.MILLISECONDS) : children.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading ledgers at path " + path, ie);
+            } catch (ExecutionException ee) {
+                throw new IOException("Error on getting children from node " + path, ee.getCause());
+            } catch (TimeoutException te) {
+                throw new IOException("Timed out getting children from node " + path, te);
+            }
+        }
+
+        @Override
+        public synchronized boolean hasNext() throws IOException {
+            while (nextRange == null) {
+                listLeaves();
+                Map.Entry<String, CompletableFuture<List<String>>> leaf = pendingLeaves.poll();
+                if (leaf == null) {
+                    return false;
+                }
+                // keep listing the next leaf nodes while waiting for this one
+                listLeaves();
+                LedgerRange range = getLedgerRange(leaf.getKey(), waitForChildren(leaf.getKey(), leaf.getValue()));
+                if (range.size() > 0) {
+                    nextRange = range;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized LedgerRange next() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("next() must only be called if hasNext() is true");
+            }
+            LedgerRange range = nextRange;
+            nextRange = null;
+            return range;
         }
     }
 
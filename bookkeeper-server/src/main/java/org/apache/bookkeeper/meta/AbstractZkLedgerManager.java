@@ -22,13 +22,19 @@ import com.google.common.annotations.VisibleForTesting;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
@@ -59,6 +65,8 @@ import org.apache.zookeeper.AsyncCallback.VoidCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
@@ -513,6 +521,221 @@ public abstract class AbstractZkLedgerManager implements LedgerManager, Watcher
         return promise;
     }
 
+    @Override
+    public CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadata(Collection<Long> ledgerIds) {
+        return LedgerMetadataBatches.run(ledgerIds, conf.getMetadataBatchSize(),
+                conf.getMetadataBatchMaxOutstanding(), this::readLedgersMetadataBatch);
+    }
+
+    private CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadataBatch(List<Long> ledgerIds) {
+        CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> promise = new CompletableFuture<>();
+        List<Op> ops = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            ops.add(Op.getData(getLedgerPath(ledgerId)));
+        }
+        // a multi of reads is not a transaction, each read succeeds or fails on its own
+        zk.multi(ops, (rc, path, ctx, opResults) -> {
+            if (opResults == null) {
+                LOG.error("Could not read metadata for {} ledgers: {}", ledgerIds.size(), Code.get(rc));
+                promise.completeExceptionally(new BKException.ZKException(KeeperException.create(Code.get(rc))));
+                return;
+            }
+            Map<Long, Versioned<LedgerMetadata>> result = new HashMap<>(ledgerIds.size());
+            for (int i = 0; i < opResults.size(); i++) {
+                long ledgerId = ledgerIds.get(i);
+                OpResult opResult = opResults.get(i);
+                if (opResult instanceof OpResult.ErrorResult) {
+                    int err = ((OpResult.ErrorResult) opResult).getErr();
+                    if (err == Code.NONODE.intValue()) {
+                        continue;
+                    }
+                    LOG.error("Could not read metadata for ledger: {}: {}", ledgerId, Code.get(err));
+                    promise.completeExceptionally(new BKException.ZKException(
+                            KeeperException.create(Code.get(err), getLedgerPath(ledgerId))));
+                    return;
+                }
+                OpResult.GetDataResult dataResult = (OpResult.GetDataResult) opResult;
+                try {
+                    Stat stat = dataResult.getStat();
+                    LedgerMetadata metadata = serDe.parseConfig(dataResult.getData(), ledgerId,
+                            Optional.of(stat.getCtime()));
+                    result.put(ledgerId, new Versioned<>(metadata, new LongVersion(stat.getVersion())));
+                } catch (Throwable t) {
+                    LOG.error("Could not parse ledger metadata for ledger: {}", ledgerId, t);
+                    promise.completeExceptionally(new BKException.ZKException(
+                            new Exception("Could not parse ledger metadata for ledger: "
+                                    + ledgerId, t).fillInStackTrace()));
+                    return;
+                }
+            }
+            promise.complete(result);
+        }, null);
+        return promise;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Each batch of ledgers is written atomically by a single zookeeper transaction.
+     */
+    @Override
+    public CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> writeLedgersMetadata(
+            Map<Long, Versioned<LedgerMetadata>> ledgers) {
+        return LedgerMetadataBatches.run(ledgers.keySet(), conf.getMetadataBatchSize(),
+                conf.getMetadataBatchMaxOutstanding(), batch -> writeLedgersMetadataBatch(batch, ledgers));
+    }
+
+    private CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> writeLedgersMetadataBatch(
+            List<Long> ledgerIds, Map<Long, Versioned<LedgerMetadata>> ledgers) {
+        CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> promise = new CompletableFuture<>();
+        List<Op> ops = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            Versioned<LedgerMetadata> metadata = ledgers.get(ledgerId);
+            if (!(metadata.getVersion() instanceof LongVersion)) {
+                promise.completeExceptionally(new BKException.BKMetadataVersionException());
+                return promise;
+            }
+            try {
+                ops.add(Op.setData(getLedgerPath(ledgerId), serDe.serialize(metadata.getValue()),
+                        (int) ((LongVersion) metadata.getVersion()).getLongVersion()));
+            } catch (IOException ioe) {
+                promise.completeExceptionally(new BKException.BKMetadataSerializationException(ioe));
+                return promise;
+            }
+        }
+        zk.multi(ops, (rc, path, ctx, opResults) -> {
+            if (rc != Code.OK.intValue()) {
+                promise.completeExceptionally(getMultiException(rc, ledgerIds, opResults));
+                return;
+            }
+            Map<Long, Versioned<LedgerMetadata>> result = new HashMap<>(ledgerIds.size());
+            for (int i = 0; i < opResults.size(); i++) {
+                long ledgerId = ledgerIds.get(i);
+                Stat stat = ((OpResult.SetDataResult) opResults.get(i)).getStat();
+                result.put(ledgerId, new Versioned<>(ledgers.get(ledgerId).getValue(),
+                        new LongVersion(stat.getVersion())));
+            }
+            promise.complete(result);
+        }, null);
+        return promise;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Each batch of ledgers is removed atomically by a single zookeeper transaction. A batch containing
+     * ledgers which were already removed is removed ledger by ledger instead.
+     */
+    @Override
+    public CompletableFuture<Void> removeLedgersMetadata(Map<Long, Version> ledgers) {
+        return LedgerMetadataBatches.<Void>run(ledgers.keySet(), conf.getMetadataBatchSize(),
+                conf.getMetadataBatchMaxOutstanding(), batch -> removeLedgersMetadataBatch(batch, ledgers))
+                .thenApply(ignored -> null);
+    }
+
+    private CompletableFuture<Map<Long, Void>> removeLedgersMetadataBatch(List<Long> ledgerIds,
+                                                                          Map<Long, Version> ledgers) {
+        CompletableFuture<Map<Long, Void>> promise = new CompletableFuture<>();
+        List<Op> ops = new ArrayList<>(ledgerIds.size());
+        for (long ledgerId : ledgerIds) {
+            Version version = ledgers.get(ledgerId);
+            int znodeVersion = -1;
+            if (Version.NEW == version) {
+                LOG.error("Request to delete ledger {} metadata with version set to the initial one", ledgerId);
+                promise.completeExceptionally(new BKException.BKMetadataVersionException());
+                return promise;
+            } else if (Version.ANY != version) {
+                if (!(version instanceof LongVersion)) {
+                    LOG.info("Not an instance of ZKVersion: {}", ledgerId);
+                    promise.completeExceptionally(new BKException.BKMetadataVersionException());
+                    return promise;
+                }
+                znodeVersion = (int) ((LongVersion) version).getLongVersion();
+            }
+            ops.add(Op.delete(getLedgerPath(ledgerId), znodeVersion));
+        }
+        zk.multi(ops, (rc, path, ctx, opResults) -> {
+            if (rc == Code.NONODE.intValue()) {
+                // removing a ledger which doesn't exist succeeds, retry the ledgers one by one
+                List<CompletableFuture<Void>> removals = new ArrayList<>(ledgerIds.size());
+                for (long ledgerId : ledgerIds) {
+                    removals.add(removeLedgerMetadata(ledgerId, ledgers.get(ledgerId)));
+                }
+                FutureUtils.collect(removals).whenComplete((ignored, cause) -> {
+                    if (cause != null) {
+                        promise.completeExceptionally(getSingleRemovalException(cause));
+                    } else {
+                        promise.complete(Collections.emptyMap());
+                    }
+                });
+                return;
+            } else if (rc != Code.OK.intValue()) {
+                promise.completeExceptionally(getMultiException(rc, ledgerIds, opResults));
+                return;
+            }
+            Set<String> parentPaths = new HashSet<>();
+            for (long ledgerId : ledgerIds) {
+                listeners.remove(ledgerId);
+                String ledgerPath = getLedgerPath(ledgerId);
+                parentPaths.add(ledgerPath.substring(0, ledgerPath.lastIndexOf('/')));
+            }
+            if (this instanceof HierarchicalLedgerManager || this instanceof LongHierarchicalLedgerManager) {
+                // remove the parent nodes left empty, as removeLedgerMetadata does
+                for (String parentPath : parentPaths) {
+                    ZkUtils.asyncDeleteFullPathOptimistic(zk, parentPath, -1, (prc, ppath, pctx) -> {
+                    }, parentPath);
+                }
+            }
+            promise.complete(Collections.emptyMap());
+        }, null);
+        return promise;
+    }
+
+    /**
+     * Get the exception of a batch removed ledger by ledger, reporting a version conflict as a removal
+     * by a single transaction would.
+     */
+    private static Throwable getSingleRemovalException(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof BKException.ZKException
+                && cause.getCause() instanceof KeeperException.BadVersionException) {
+            return new BKException.BKMetadataVersionException();
+        }
+        return cause;
+    }
+
+    /**
+     * Get the exception of a failed zookeeper transaction, from the first operation which failed.
+     */
+    private static BKException getMultiException(int rc, List<Long> ledgerIds, List<OpResult> opResults) {
+        int err = rc;
+        long ledgerId = -1L;
+        if (opResults != null) {
+            for (int i = 0; i < opResults.size(); i++) {
+                OpResult opResult = opResults.get(i);
+                if (opResult instanceof OpResult.ErrorResult) {
+                    int opErr = ((OpResult.ErrorResult) opResult).getErr();
+                    if (opErr != Code.OK.intValue() && opErr != Code.RUNTIMEINCONSISTENCY.intValue()) {
+                        err = opErr;
+                        ledgerId = ledgerIds.get(i);
+                        break;
+                    }
+                }
+            }
+        }
+        LOG.warn("Batched update of {} ledgers metadata failed on ledger {}: {}",
+                ledgerIds.size(), ledgerId, Code.get(err));
+        if (err == Code.BADVERSION.intValue()) {
+            return new BKException.BKMetadataVersionException();
+        } else if (err == Code.NONODE.intValue()) {
+            return new BKException.BKNoSuchLedgerExistsOnMetadataServerException();
+        } else {
+            return new BKException.ZKException(KeeperException.create(Code.get(err)));
+        }
+    }
+
     /**
      * Process ledgers in a single zk node.
      *
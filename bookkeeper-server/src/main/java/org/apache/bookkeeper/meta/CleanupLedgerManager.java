@@ -20,7 +20,9 @@ package org.apache.bookkeeper.meta;
 import com.google.common.annotations.VisibleForTesting;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -179,6 +181,54 @@ public class CleanupLedgerManager implements LedgerManager {
         }
     }
 
+    @Override
+    public CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadata(Collection<Long> ledgerIds) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                return closedPromise();
+            }
+            CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> promise =
+                underlying.readLedgersMetadata(ledgerIds);
+            recordPromise(promise);
+            return promise;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> writeLedgersMetadata(
+            Map<Long, Versioned<LedgerMetadata>> ledgers) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                return closedPromise();
+            }
+            CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> promise =
+                underlying.writeLedgersMetadata(ledgers);
+            recordPromise(promise);
+            return promise;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> removeLedgersMetadata(Map<Long, Version> ledgers) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                return closedPromise();
+            }
+            CompletableFuture<Void> promise = underlying.removeLedgersMetadata(ledgers);
+            recordPromise(promise);
+            return promise;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
     @Override
     public void asyncProcessLedgers(Processor<Long> processor,
                                     final AsyncCallback.VoidCallback finalCb, final Object context,
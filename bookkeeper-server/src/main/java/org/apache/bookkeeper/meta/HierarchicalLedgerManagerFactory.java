@@ -34,6 +34,10 @@ public class HierarchicalLedgerManagerFactory extends LegacyHierarchicalLedgerMa
     public LedgerIdGenerator newLedgerIdGenerator() {
         List<ACL> zkAcls = ZkUtils.getACLs(conf);
         String zkLedgersRootPath = ZKMetadataDriverBase.resolveZkLedgersRootPath(conf);
+        if (conf.getLedgerIdRangeSize() > 1) {
+            return new ZkRangeLedgerIdGenerator(zk, zkLedgersRootPath, LongHierarchicalLedgerManager.IDGEN_ZNODE,
+                    conf.getLedgerIdRangeSize(), zkAcls);
+        }
         ZkLedgerIdGenerator subIdGenerator = new ZkLedgerIdGenerator(zk, zkLedgersRootPath,
                 LegacyHierarchicalLedgerManager.IDGEN_ZNODE, zkAcls);
         return new LongZkLedgerIdGenerator(zk, zkLedgersRootPath, LongHierarchicalLedgerManager.IDGEN_ZNODE,
@@ -19,11 +19,15 @@ package org.apache.bookkeeper.meta;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 
+import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.Processor;
@@ -102,6 +106,90 @@ public interface LedgerManager extends Closeable {
     CompletableFuture<Versioned<LedgerMetadata>> writeLedgerMetadata(long ledgerId, LedgerMetadata metadata,
                                                                      Version currentVersion);
 
+    /**
+     * Read the metadata of many ledgers.
+     *
+     * <p>The default implementation reads the ledgers one by one, with a bounded number of reads in flight.
+     * Ledger managers backed by a store able to read many keys at once override it to batch the reads.
+     *
+     * @param ledgerIds
+     *          Ledger Ids
+     * @return Future which, when completed, contains the versioned metadata of the ledgers by ledger id.
+     *         The ledgers which don't exist are missing from the map.
+     *         Completed with an exception:<ul>
+     *          <li>{@link BKException.ZKException}/{@link BKException.BKMetaStoreException} for other issues</li>
+     *          </ul>
+     */
+    default CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadata(Collection<Long> ledgerIds) {
+        return LedgerMetadataBatches.run(ledgerIds, 1, LedgerMetadataBatches.DEFAULT_MAX_OUTSTANDING_OPS,
+                batch -> {
+                    long ledgerId = batch.get(0);
+                    CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> promise = new CompletableFuture<>();
+                    readLedgerMetadata(ledgerId).whenComplete((metadata, cause) -> {
+                        if (cause == null) {
+                            promise.complete(Collections.singletonMap(ledgerId, metadata));
+                        } else {
+                            int rc = BKException.getExceptionCode(cause);
+                            if (rc == BKException.Code.NoSuchLedgerExistsOnMetadataServerException
+                                    || rc == BKException.Code.NoSuchLedgerExistsException) {
+                                promise.complete(Collections.emptyMap());
+                            } else {
+                                promise.completeExceptionally(cause);
+                            }
+                        }
+                    });
+                    return promise;
+                });
+    }
+
+    /**
+     * Write the metadata of many ledgers.
+     *
+     * <p>The default implementation writes the ledgers one by one, with a bounded number of writes in flight.
+     * The writes are not atomic: when the future fails, some of the ledgers may have been updated.
+     *
+     * @param ledgers
+     *          Ledger Metadata to write by ledger id, with the version of the metadata we expect to be
+     *          overwriting.
+     * @return Future which, when completed, contains the newly written metadata by ledger id.
+     *         Completed with an exception:<ul>
+     *          <li>{@link BKException.BKMetadataVersionException} if the version of a ledger doesn't match</li>
+     *          <li>{@link BKException.BKNoSuchLedgerExistsOnMetadataServerException} if a ledger doesn't exist</li>
+     *          <li>{@link BKException.ZKException}/{@link BKException.BKMetaStoreException} for other issues</li>
+     *          </ul>
+     */
+    default CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> writeLedgersMetadata(
+            Map<Long, Versioned<LedgerMetadata>> ledgers) {
+        return LedgerMetadataBatches.run(ledgers.keySet(), 1, LedgerMetadataBatches.DEFAULT_MAX_OUTSTANDING_OPS,
+                batch -> {
+                    long ledgerId = batch.get(0);
+                    Versioned<LedgerMetadata> metadata = ledgers.get(ledgerId);
+                    return writeLedgerMetadata(ledgerId, metadata.getValue(), metadata.getVersion())
+                            .thenApply(written -> Collections.singletonMap(ledgerId, written));
+                });
+    }
+
+    /**
+     * Remove the metadata of many ledgers.
+     *
+     * <p>The default implementation removes the ledgers one by one, with a bounded number of removals in
+     * flight. The removals are not atomic: when the future fails, some of the ledgers may have been removed.
+     *
+     * @param ledgers
+     *          Ledger metadata versions by ledger id
+     * @return Future which, when completed, denotes that the ledgers metadata has been removed.
+     *         Completed with an exception:<ul>
+     *          <li>{@link BKException.BKMetadataVersionException} if the version of a ledger doesn't match</li>
+     *          <li>{@link BKException.ZKException}/{@link BKException.BKMetaStoreException} for other issues</li>
+     *          </ul>
+     */
+    default CompletableFuture<Void> removeLedgersMetadata(Map<Long, Version> ledgers) {
+        return LedgerMetadataBatches.<Void>run(ledgers.keySet(), 1, LedgerMetadataBatches.DEFAULT_MAX_OUTSTANDING_OPS,
+                batch -> removeLedgerMetadata(batch.get(0), ledgers.get(batch.get(0)))
+                        .thenApply(ignored -> Collections.emptyMap()))
+                .thenApply(ignored -> null);
+    }
+
     /**
      * Register the ledger metadata <i>listener</i> on <i>ledgerId</i>.
      *
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import com.google.common.collect.Lists;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs an operation on the metadata of many ledgers in batches, with a bounded number of batches in flight.
+ *
+ * <p>The ledgers are sorted before being split in batches, so that each batch covers a range of ledger ids
+ * as small as possible. A new batch is started as soon as one completes, and no batch is started after
+ * one failed.
+ */
+public final class LedgerMetadataBatches {
+
+    /**
+     * Max number of single ledger operations in flight when a ledger manager has no batched operations.
+     */
+    public static final int DEFAULT_MAX_OUTSTANDING_OPS = 100;
+
+    private LedgerMetadataBatches() {
+    }
+
+    /**
+     * Run the operation on batches of at most <i>batchSize</i> ledgers, keeping at most <i>maxOutstanding</i>
+     * batches in flight.
+     *
+     * @param ledgerIds
+     *          the ledgers to process
+     * @param batchSize
+     *          max number of ledgers in a batch
+     * @param maxOutstanding
+     *          max number of batches in flight
+     * @param batchOp
+     *          the operation on a batch of ledgers, returning the results of the batch by ledger id
+     * @return Future which, when completed, contains the results of all the batches. Completed with the
+     *         exception of the first batch failing.
+     */
+    public static <V> CompletableFuture<Map<Long, V>> run(Collection<Long> ledgerIds, int batchSize,
+                                                          int maxOutstanding,
+                                                          Function<List<Long>, CompletableFuture<Map<Long, V>>>
+                                                                  batchOp) {
+        List<Long> sortedIds = new ArrayList<>(new TreeSet<>(ledgerIds));
+        if (sortedIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        BatchRunner<V> runner = new BatchRunner<>(Lists.partition(sortedIds, Math.max(1, batchSize)), batchOp);
+        runner.startBatches(Math.min(Math.max(1, maxOutstanding), runner.batches.size()));
+        return runner.promise;
+    }
+
+    private static final class BatchRunner<V> {
+        final List<List<Long>> batches;
+        final Function<List<Long>, CompletableFuture<Map<Long, V>>> batchOp;
+        final CompletableFuture<Map<Long, V>> promise = new CompletableFuture<>();
+        // batches to start, only the thread raising it from zero starts them, so that batches completing
+        // synchronously do not recurse
+        final AtomicInteger batchesToStart = new AtomicInteger(0);
+
+        // guarded by this
+        final Map<Long, V> results = new HashMap<>();
+        int nextBatch = 0;
+        int completedBatches = 0;
+
+        BatchRunner(List<List<Long>> batches, Function<List<Long>, CompletableFuture<Map<Long, V>>> batchOp) {
+            this.batches = batches;
+            this.batchOp = batchOp;
+        }
+
+        void startBatches(int numBatches) {
+            if (batchesToStart.getAndAdd(numBatches) != 0) {
+                return;
+            }
+            do {
+                startBatch();
+            } while (batchesToStart.decrementAndGet() != 0);
+        }
+
+        private void startBatch() {
+            List<Long> batch;
+            synchronized (this) {
+                if (promise.isDone() || nextBatch >= batches.size()) {
+                    return;
+                }
+                batch = batches.get(nextBatch++);
+            }
+            CompletableFuture<Map<Long, V>> batchFuture;
+            try {
+                batchFuture = batchOp.apply(batch);
+            } catch (Throwable t) {
+                promise.completeExceptionally(t);
+                return;
+            }
+            batchFuture.whenComplete((batchResults, cause) -> {
+                if (cause != null) {
+                    promise.completeExceptionally(
+                            cause instanceof CompletionException && cause.getCause() != null
+                                    ? cause.getCause() : cause);
+                    return;
+                }
+                boolean done;
+                synchronized (this) {
+                    results.putAll(batchResults);
+                    done = ++completedBatches == batches.size();
+                }
+                if (done) {
+                    promise.complete(results);
+                } else {
+                    startBatches(1);
+                }
+            });
+        }
+    }
+}
@@ -22,6 +22,8 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.TextFormat;
 
 import java.io.BufferedReader;
@@ -36,9 +38,12 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.apache.bookkeeper.client.LedgerMetadataBuilder;
@@ -77,7 +82,19 @@ public class LedgerMetadataSerDe {
      */
     public static final int METADATA_FORMAT_VERSION_3 = 3;
 
-    public static final int MAXIMUM_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_3;
+    /**
+     * Protobuf based, serialized in binary format, with the bookies of the ensembles stored once
+     * and the ensembles packed and decoded lazily.
+     * Available from v4.16.x onwards.
+     */
+    public static final int METADATA_FORMAT_VERSION_4 = 4;
+
+    public static final int MAXIMUM_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_4;
+    /**
+     * Format of the new ledgers, unless another one is configured with
+     * {@link org.apache.bookkeeper.conf.AbstractConfiguration#setLedgerMetadataFormatVersion(int)}.
+     * Writing a newer format must wait until all the clients and bookies are able to read it.
+     */
     public static final int CURRENT_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_3;
     private static final int LOWEST_COMPAT_METADATA_FORMAT_VERSION = METADATA_FORMAT_VERSION_1;
 
@@ -131,6 +148,9 @@ public class LedgerMetadataSerDe {
         int formatVersion = metadata.getMetadataFormatVersion();
         final byte[] serialized;
         switch (formatVersion) {
+        case METADATA_FORMAT_VERSION_4:
+            serialized = serializeVersion4(metadata);
+            break;
         case METADATA_FORMAT_VERSION_3:
             serialized = serializeVersion3(metadata);
             break;
@@ -155,51 +175,92 @@ public class LedgerMetadataSerDe {
         return serialized;
     }
 
-    private static byte[] serializeVersion3(LedgerMetadata metadata) throws IOException {
+    private static byte[] serializeVersion4(LedgerMetadata metadata) throws IOException {
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            writeHeader(os, METADATA_FORMAT_VERSION_3);
-            LedgerMetadataFormat.Builder builder = LedgerMetadataFormat.newBuilder();
-            builder.setQuorumSize(metadata.getWriteQuorumSize())
-                .setAckQuorumSize(metadata.getAckQuorumSize())
-                .setEnsembleSize(metadata.getEnsembleSize())
-                .setLength(metadata.getLength())
-                .setLastEntryId(metadata.getLastEntryId());
-
-            switch (metadata.getState()) {
-            case CLOSED:
-                builder.setState(LedgerMetadataFormat.State.CLOSED);
-                break;
-            case IN_RECOVERY:
-                builder.setState(LedgerMetadataFormat.State.IN_RECOVERY);
-                break;
-            case OPEN:
-                builder.setState(LedgerMetadataFormat.State.OPEN);
-                break;
-            default:
-                checkArgument(false,
-                              String.format("Unknown state %s for protobuf serialization", metadata.getState()));
-                break;
-            }
+            writeHeader(os, METADATA_FORMAT_VERSION_4);
+            LedgerMetadataFormat.Builder builder = buildFormat(metadata);
 
-            /** Hack to get around fact that ctime was never versioned correctly */
-            if (LedgerMetadataUtils.shouldStoreCtime(metadata)) {
-                builder.setCtime(metadata.getCtime());
+            Map<BookieId, Integer> bookieIndexes = new HashMap<>();
+            ByteString.Output packedSegments = ByteString.newOutput();
+            CodedOutputStream cos = CodedOutputStream.newInstance(packedSegments);
+            long previousFirstEntryId = 0L;
+            for (Map.Entry<Long, ? extends List<BookieId>> entry : metadata.getAllEnsembles().entrySet()) {
+                cos.writeUInt64NoTag(entry.getKey() - previousFirstEntryId);
+                previousFirstEntryId = entry.getKey();
+                cos.writeUInt32NoTag(entry.getValue().size());
+                for (BookieId addr : entry.getValue()) {
+                    Integer index = bookieIndexes.get(addr);
+                    if (index == null) {
+                        index = bookieIndexes.size();
+                        bookieIndexes.put(addr, index);
+                        builder.addBookie(addr.toString());
+                    }
+                    cos.writeUInt32NoTag(index);
+                }
             }
+            cos.flush();
+            builder.setPackedSegments(packedSegments.toByteString());
 
+            builder.setCToken(metadata.getCToken());
 
-            builder.setDigestType(apiToProtoDigestType(metadata.getDigestType()));
+            builder.build().writeDelimitedTo(os);
+            return os.toByteArray();
+        }
+    }
 
-            serializePassword(metadata.getPassword(), builder);
+    /**
+     * Build the fields shared by format version 3 and 4, all but the ensembles and the cToken.
+     */
+    private static LedgerMetadataFormat.Builder buildFormat(LedgerMetadata metadata) {
+        LedgerMetadataFormat.Builder builder = LedgerMetadataFormat.newBuilder();
+        builder.setQuorumSize(metadata.getWriteQuorumSize())
+            .setAckQuorumSize(metadata.getAckQuorumSize())
+            .setEnsembleSize(metadata.getEnsembleSize())
+            .setLength(metadata.getLength())
+            .setLastEntryId(metadata.getLastEntryId());
+
+        switch (metadata.getState()) {
+        case CLOSED:
+            builder.setState(LedgerMetadataFormat.State.CLOSED);
+            break;
+        case IN_RECOVERY:
+            builder.setState(LedgerMetadataFormat.State.IN_RECOVERY);
+            break;
+        case OPEN:
+            builder.setState(LedgerMetadataFormat.State.OPEN);
+            break;
+        default:
+            checkArgument(false,
+                          String.format("Unknown state %s for protobuf serialization", metadata.getState()));
+            break;
+        }
 
-            Map<String, byte[]> customMetadata = metadata.getCustomMetadata();
-            if (customMetadata.size() > 0) {
-                LedgerMetadataFormat.cMetadataMapEntry.Builder cMetadataBuilder =
-                    LedgerMetadataFormat.cMetadataMapEntry.newBuilder();
-                for (Map.Entry<String, byte[]> entry : customMetadata.entrySet()) {
-                    cMetadataBuilder.setKey(entry.getKey()).setValue(ByteString.copyFrom(entry.getValue()));
-                    builder.addCustomMetadata(cMetadataBuilder.build());
-                }
+        /** Hack to get around fact that ctime was never versioned correctly */
+        if (LedgerMetadataUtils.shouldStoreCtime(metadata)) {
+            builder.setCtime(metadata.getCtime());
+        }
+
+
+        builder.setDigestType(apiToProtoDigestType(metadata.getDigestType()));
+
+        serializePassword(metadata.getPassword(), builder);
+
+        Map<String, byte[]> customMetadata = metadata.getCustomMetadata();
+        if (customMetadata.size() > 0) {
+            LedgerMetadataFormat.cMetadataMapEntry.Builder cMetadataBuilder =
+                LedgerMetadataFormat.cMetadataMapEntry.newBuilder();
+            for (Map.Entry<String, byte[]> entry : customMetadata.entrySet()) {
+                cMetadataBuilder.setKey(entry.getKey()).setValue(ByteString.copyFrom(entry.getValue()));
+                builder.addCustomMetadata(cMetadataBuilder.build());
             }
+        }
+        return builder;
+    }
+
+    private static byte[] serializeVersion3(LedgerMetadata metadata) throws IOException {
+        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+            writeHeader(os, METADATA_FORMAT_VERSION_3);
+            LedgerMetadataFormat.Builder builder = buildFormat(metadata);
 
             for (Map.Entry<Long, ? extends List<BookieId>> entry : metadata.getAllEnsembles().entrySet()) {
                 LedgerMetadataFormat.Segment.Builder segmentBuilder = LedgerMetadataFormat.Segment.newBuilder();
@@ -356,6 +417,8 @@ public class LedgerMetadataSerDe {
             }
 
             switch (metadataFormatVersion) {
+            case METADATA_FORMAT_VERSION_4:
+                return parseVersion4Config(ledgerId, is, metadataStoreCtime);
             case METADATA_FORMAT_VERSION_3:
                 return parseVersion3Config(ledgerId, is, metadataStoreCtime);
             case METADATA_FORMAT_VERSION_2:
@@ -365,12 +428,97 @@ public class LedgerMetadataSerDe {
             default:
                 throw new IOException(
                         String.format("Metadata version not compatible. Expected between %d and %d, but got %d",
-                                      LOWEST_COMPAT_METADATA_FORMAT_VERSION, CURRENT_METADATA_FORMAT_VERSION,
+                                      LOWEST_COMPAT_METADATA_FORMAT_VERSION, MAXIMUM_METADATA_FORMAT_VERSION,
                                       metadataFormatVersion));
             }
         }
     }
 
+    private static LedgerMetadata parseVersion4Config(long ledgerId, InputStream is, Optional<Long> metadataStoreCtime)
+            throws IOException {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withMetadataFormatVersion(METADATA_FORMAT_VERSION_4);
+        LedgerMetadataFormat.Builder formatBuilder = LedgerMetadataFormat.newBuilder();
+        formatBuilder.mergeDelimitedFrom(is);
+        LedgerMetadataFormat data = formatBuilder.build();
+        decodeFormat(data, builder);
+
+        List<BookieId> bookies = new ArrayList<>(data.getBookieCount());
+        for (String addr : data.getBookieList()) {
+            bookies.add(BookieId.parse(addr));
+        }
+        ByteString packedSegments = data.getPackedSegments();
+        validateSegments(ledgerId, packedSegments, bookies.size(), data.getEnsembleSize());
+        builder.withLazyEnsembles(() -> unpackSegments(ledgerId, packedSegments, bookies));
+
+        if (data.hasCtime()) {
+            builder.storingCreationTime(true);
+        } else if (metadataStoreCtime.isPresent()) {
+            builder.withCreationTime(metadataStoreCtime.get()).storingCreationTime(false);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Walk the packed segments once without building them, so that corrupted metadata is rejected when it is
+     * read rather than when the ensembles are first accessed.
+     */
+    private static void validateSegments(long ledgerId, ByteString packedSegments, int numBookies,
+                                         int ensembleSize) throws IOException {
+        if (packedSegments.isEmpty()) {
+            throw new IOException("No ensembles in the metadata of ledger " + ledgerId);
+        }
+        CodedInputStream cis = packedSegments.newCodedInput();
+        long firstEntryId = 0L;
+        boolean first = true;
+        while (!cis.isAtEnd()) {
+            long delta = cis.readUInt64();
+            if (delta < 0 || (!first && delta == 0) || firstEntryId + delta < firstEntryId) {
+                throw new IOException("Ensembles of ledger " + ledgerId + " do not start at increasing entry ids");
+            }
+            firstEntryId += delta;
+            first = false;
+            int numMembers = cis.readUInt32();
+            if (numMembers != ensembleSize) {
+                throw new IOException("Ensemble of ledger " + ledgerId + " starting at entry " + firstEntryId
+                        + " has " + numMembers + " bookies, expected " + ensembleSize);
+            }
+            for (int i = 0; i < numMembers; i++) {
+                int index = cis.readUInt32();
+                if (index < 0 || index >= numBookies) {
+                    throw new IOException("Ensemble of ledger " + ledgerId + " starting at entry " + firstEntryId
+                            + " refers to unknown bookie " + index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the segments checked by {@link #validateSegments(long, ByteString, int, int)}.
+     */
+    private static NavigableMap<Long, List<BookieId>> unpackSegments(long ledgerId, ByteString packedSegments,
+                                                                     List<BookieId> bookies) {
+        NavigableMap<Long, List<BookieId>> ensembles = new TreeMap<>();
+        try {
+            CodedInputStream cis = packedSegments.newCodedInput();
+            long firstEntryId = 0L;
+            while (!cis.isAtEnd()) {
+                firstEntryId += cis.readUInt64();
+                int numMembers = cis.readUInt32();
+                List<BookieId> ensemble = new ArrayList<>(numMembers);
+                for (int i = 0; i < numMembers; i++) {
+                    ensemble.add(bookies.get(cis.readUInt32()));
+                }
+                ensembles.put(firstEntryId, ensemble);
+            }
+        } catch (IOException e) {
+            // cannot happen, the segments were validated when the metadata was parsed
+            throw new IllegalStateException("Corrupted ensembles in the metadata of ledger " + ledgerId, e);
+        }
+        return ensembles;
+    }
+
     private static LedgerMetadata parseVersion3Config(long ledgerId, InputStream is, Optional<Long> metadataStoreCtime)
             throws IOException {
         LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
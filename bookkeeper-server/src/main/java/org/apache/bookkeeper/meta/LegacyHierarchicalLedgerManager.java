@@ -18,17 +18,14 @@
 package org.apache.bookkeeper.meta;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NavigableSet;
-import java.util.NoSuchElementException;
 
 import org.apache.bookkeeper.conf.AbstractConfiguration;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.Processor;
 import org.apache.bookkeeper.util.StringUtils;
-import org.apache.bookkeeper.util.ZkUtils;
 import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.ZooKeeper;
@@ -142,7 +139,7 @@ class LegacyHierarchicalLedgerManager extends AbstractHierarchicalLedgerManager
                         asyncProcessLedgersInSingleNode(l2NodePath, processor, cb2,
                                                         context, successRc, failureRc);
                     }
-                }, cb1, context, successRc, failureRc);
+                }, cb1, context, successRc, failureRc, iterationConcurrency);
             }
         }, finalCb, context, successRc, failureRc);
     }
@@ -160,16 +157,13 @@ class LegacyHierarchicalLedgerManager extends AbstractHierarchicalLedgerManager
     /**
      * Iterator through each metadata bucket with hierarchical mode.
      */
-    private class LegacyHierarchicalLedgerRangeIterator implements LedgerRangeIterator {
+    private class LegacyHierarchicalLedgerRangeIterator extends LeafNodesRangeIterator {
         private Iterator<String> l1NodesIter = null;
         private Iterator<String> l2NodesIter = null;
         private String curL1Nodes = "";
-        private boolean iteratorDone = false;
-        private LedgerRange nextRange = null;
-        private final long zkOpTimeoutMs;
 
         public LegacyHierarchicalLedgerRangeIterator(long zkOpTimeoutMs) {
-            this.zkOpTimeoutMs = zkOpTimeoutMs;
+            super(zkOpTimeoutMs);
         }
 
         /**
@@ -201,80 +195,50 @@ class LegacyHierarchicalLedgerManager extends AbstractHierarchicalLedgerManager
             return true;
         }
 
-        private synchronized void preload() throws IOException {
-            while (nextRange == null && !iteratorDone) {
-                boolean hasMoreElements = false;
-                try {
-                    if (l1NodesIter == null) {
-                        List<String> l1Nodes = zk.getChildren(ledgerRootPath, null);
-                        Collections.sort(l1Nodes);
-                        l1NodesIter = l1Nodes.iterator();
-                        hasMoreElements = nextL1Node();
-                    } else if (l2NodesIter == null || !l2NodesIter.hasNext()) {
-                        hasMoreElements = nextL1Node();
-                    } else {
-                        hasMoreElements = true;
-                    }
-                } catch (KeeperException ke) {
-                    throw new IOException("Error preloading next range", ke);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("Interrupted while preloading", ie);
-                }
-                if (hasMoreElements) {
-                    nextRange = getLedgerRangeByLevel(curL1Nodes, l2NodesIter.next());
-                    if (nextRange.size() == 0) {
-                        nextRange = null;
-                    }
+        @Override
+        String nextLeafPath() throws IOException {
+            boolean hasMoreElements;
+            try {
+                if (l1NodesIter == null) {
+                    List<String> l1Nodes = zk.getChildren(ledgerRootPath, null);
+                    Collections.sort(l1Nodes);
+                    l1NodesIter = l1Nodes.iterator();
+                    hasMoreElements = nextL1Node();
+                } else if (l2NodesIter == null || !l2NodesIter.hasNext()) {
+                    hasMoreElements = nextL1Node();
                 } else {
-                    iteratorDone = true;
+                    hasMoreElements = true;
                 }
+            } catch (KeeperException ke) {
+                throw new IOException("Error preloading next range", ke);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while preloading", ie);
             }
-        }
-
-        @Override
-        public synchronized boolean hasNext() throws IOException {
-            preload();
-            return nextRange != null && !iteratorDone;
-        }
-
-        @Override
-        public synchronized LedgerRange next() throws IOException {
-            if (!hasNext()) {
-                throw new NoSuchElementException();
+            if (!hasMoreElements) {
+                return null;
             }
-            LedgerRange r = nextRange;
-            nextRange = null;
-            return r;
+            StringBuilder nodeBuilder = threadLocalNodeBuilder.get();
+            nodeBuilder.setLength(0);
+            nodeBuilder.append(ledgerRootPath).append("/")
+                       .append(curL1Nodes).append("/").append(l2NodesIter.next());
+            return nodeBuilder.toString();
         }
 
         /**
-         * Get a single node level1/level2.
+         * Get the ledgers of a single node level1/level2.
          *
-         * @param level1
-         *          1st level node name
-         * @param level2
-         *          2nd level node name
+         * @param nodePath
+         *          path of the level1/level2 node
+         * @param ledgerNodes
+         *          children of the node
          * @throws IOException
          */
-        LedgerRange getLedgerRangeByLevel(final String level1, final String level2)
-                throws IOException {
-            StringBuilder nodeBuilder = threadLocalNodeBuilder.get();
-            nodeBuilder.setLength(0);
-            nodeBuilder.append(ledgerRootPath).append("/")
-                       .append(level1).append("/").append(level2);
-            String nodePath = nodeBuilder.toString();
-            List<String> ledgerNodes = null;
-            try {
-                ledgerNodes = ZkUtils.getChildrenInSingleNode(zk, nodePath, zkOpTimeoutMs);
-            } catch (KeeperException.NoNodeException e) {
-                /* If the node doesn't exist, we must have raced with a recursive node removal, just
-                 * return an empty list. */
-                ledgerNodes = new ArrayList<>();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException("Error when get child nodes from zk", e);
-            }
+        @Override
+        LedgerRange getLedgerRange(String nodePath, List<String> ledgerNodes) throws IOException {
+            String[] levels = nodePath.substring(ledgerRootPath.length() + 1).split("/");
+            String level1 = levels[0];
+            String level2 = levels[1];
             NavigableSet<Long> zkActiveLedgers = ledgerListToSet(ledgerNodes, nodePath);
             if (LOG.isDebugEnabled()) {
                 LOG.debug("All active ledgers from ZK for hash node "
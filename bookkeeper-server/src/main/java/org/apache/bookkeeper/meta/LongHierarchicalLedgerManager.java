@@ -22,7 +22,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.bookkeeper.conf.AbstractConfiguration;
@@ -127,9 +126,10 @@ class LongHierarchicalLedgerManager extends AbstractHierarchicalLedgerManager {
                 cb.processResult(successRc, null, context);
                 return;
             } else if (level < 3) {
+                // the level3 nodes are the leaf nodes holding the ledgers, they are listed in parallel
                 asyncProcessLevelNodes(nodePath,
                         new RecursiveProcessor(level + 1, nodePath, processor, context, successRc, failureRc), cb,
-                        context, successRc, failureRc);
+                        context, successRc, failureRc, level == 2 ? iterationConcurrency : 1);
             } else {
                 // process each ledger after all ledger are processed, cb will be call to continue processing next
                 // level4 node
@@ -147,9 +147,12 @@ class LongHierarchicalLedgerManager extends AbstractHierarchicalLedgerManager {
     /**
      * Iterates recursively through each metadata bucket.
      */
-    private class LongHierarchicalLedgerRangeIterator implements LedgerRangeIterator {
-        LedgerRangeIterator rootIterator;
+    private class LongHierarchicalLedgerRangeIterator extends LeafNodesRangeIterator {
         final long zkOpTimeoutMs;
+        // the paths of the nodes from the root to the current level3 node, and their remaining children
+        final List<String> levelPaths = new ArrayList<>();
+        final List<Iterator<String>> levelIterators = new ArrayList<>();
+        boolean bootstrapped = false;
 
         /**
          * Returns all children with path as a parent.  If path is non-existent,
@@ -177,134 +180,53 @@ class LongHierarchicalLedgerManager extends AbstractHierarchicalLedgerManager {
             }
         }
 
-        /**
-         * Represents the ledger range rooted at a leaf node, returns at most one LedgerRange.
-         */
-        class LeafIterator implements LedgerRangeIterator {
-            // Null iff iteration is complete
-            LedgerRange range;
-
-            LeafIterator(String path) throws IOException {
-                List<String> ledgerLeafNodes = getChildrenAt(path);
-                Set<Long> ledgerIds = ledgerListToSet(ledgerLeafNodes, path);
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("All active ledgers from ZK for hash node {}: {}", path, ledgerIds);
-                }
-                if (!ledgerIds.isEmpty()) {
-                    range = new LedgerRange(ledgerIds);
-                } // else, hasNext() should return false so that advance will skip us and move on
-            }
-
-            @Override
-            public boolean hasNext() throws IOException {
-                return range != null;
-            }
-
-            @Override
-            public LedgerRange next() throws IOException {
-                if (range == null) {
-                    throw new NoSuchElementException(
-                            "next() must only be called if hasNext() is true");
-                }
-                LedgerRange ret = range;
-                range = null;
-                return ret;
-            }
+        private LongHierarchicalLedgerRangeIterator(long zkOpTimeoutMs) {
+            super(zkOpTimeoutMs);
+            this.zkOpTimeoutMs = zkOpTimeoutMs;
         }
 
+        private void enterLevel(String path) throws IOException {
+            levelPaths.add(path);
+            levelIterators.add(getChildrenAt(path).iterator());
+        }
 
         /**
-         * The main constraint is that between calls one of two things must be true.
-         * 1) nextLevelIterator is null and thisLevelIterator.hasNext() == false: iteration complete, hasNext()
-         *    returns false
-         * 2) nextLevelIterator is non-null: nextLevelIterator.hasNext() must return true and nextLevelIterator.next()
-         *    must return the next LedgerRange
-         * The above means that nextLevelIterator != null ==> nextLevelIterator.hasNext()
-         * It also means that hasNext() iff nextLevelIterator != null
+         * Walks the levels 0 to 3 in depth first order, the level4 nodes are the ledgers of the level3 nodes.
          */
-        private class InnerIterator implements LedgerRangeIterator {
-            final String path;
-            final int level;
-
-            // Always non-null
-            final Iterator<String> thisLevelIterator;
-            // non-null iff nextLevelIterator.hasNext() is true
-            LedgerRangeIterator nextLevelIterator;
-
-            /**
-             * Builds InnerIterator.
-             *
-             * @param path Subpath for thisLevelIterator
-             * @param level Level of thisLevelIterator (must be <= 3)
-             * @throws IOException
-             */
-            InnerIterator(String path, int level) throws IOException {
-                this.path = path;
-                this.level = level;
-                thisLevelIterator = getChildrenAt(path).iterator();
-                advance();
+        @Override
+        String nextLeafPath() throws IOException {
+            if (!bootstrapped) {
+                bootstrapped = true;
+                enterLevel(ledgerRootPath);
             }
-
-            /**
-             * Resolves the difference between cases 1 and 2 after nextLevelIterator is exhausted.
-             * Pre-condition: nextLevelIterator == null, thisLevelIterator != null
-             * Post-condition: nextLevelIterator == null && !thisLevelIterator.hasNext() OR
-             *                 nextLevelIterator.hasNext() == true and nextLevelIterator.next()
-             *                 yields the next result of next()
-             * @throws IOException Exception representing error
-             */
-            void advance() throws IOException {
-                while (thisLevelIterator.hasNext()) {
-                    String node = thisLevelIterator.next();
-                    if (level == 0 && !isLedgerParentNode(node)) {
-                        continue;
-                    }
-                    LedgerRangeIterator nextIterator = level < 3
-                            ? new InnerIterator(path + "/" + node, level + 1)
-                            : new LeafIterator(path + "/" + node);
-                    if (nextIterator.hasNext()) {
-                        nextLevelIterator = nextIterator;
-                        break;
-                    }
+            while (!levelIterators.isEmpty()) {
+                int level = levelIterators.size() - 1;
+                Iterator<String> thisLevelIterator = levelIterators.get(level);
+                if (!thisLevelIterator.hasNext()) {
+                    levelIterators.remove(level);
+                    levelPaths.remove(level);
+                    continue;
                 }
-            }
-
-            @Override
-            public boolean hasNext() throws IOException {
-                return nextLevelIterator != null;
-            }
-
-            @Override
-            public LedgerRange next() throws IOException {
-                LedgerRange ret = nextLevelIterator.next();
-                if (!nextLevelIterator.hasNext()) {
-                    nextLevelIterator = null;
-                    advance();
+                String node = thisLevelIterator.next();
+                if (level == 0 && !isLedgerParentNode(node)) {
+                    continue;
                 }
-                return ret;
-            }
-        }
-
-        private LongHierarchicalLedgerRangeIterator(long zkOpTimeoutMs) {
-            this.zkOpTimeoutMs = zkOpTimeoutMs;
-        }
-
-        private void bootstrap() throws IOException {
-            if (rootIterator == null) {
-                rootIterator = new InnerIterator(ledgerRootPath, 0);
+                String nodePath = levelPaths.get(level) + "/" + node;
+                if (level == 3) {
+                    return nodePath;
+                }
+                enterLevel(nodePath);
             }
+            return null;
         }
 
         @Override
-        public synchronized boolean hasNext() throws IOException {
-            bootstrap();
-            return rootIterator.hasNext();
-        }
-
-        @Override
-        public synchronized LedgerRange next() throws IOException {
-            bootstrap();
-            return rootIterator.next();
+        LedgerRange getLedgerRange(String path, List<String> ledgerLeafNodes) throws IOException {
+            Set<Long> ledgerIds = ledgerListToSet(ledgerLeafNodes, path);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("All active ledgers from ZK for hash node {}: {}", path, ledgerIds);
+            }
+            return new LedgerRange(ledgerIds);
         }
     }
 
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+import org.apache.bookkeeper.util.ZkUtils;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.ACL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ZooKeeper based ledger id generator class, which reserves ranges of ledger ids with a single
+ * compare-and-set on the <i>(ledgersRootPath)/idgen-range</i> counter znode, and hands out the ids
+ * of the range locally.
+ *
+ * <p>The counter znode holds the first id which was not reserved yet. Ids of a range which were not
+ * handed out when the generator is closed, or when the client crashes, are never used.
+ *
+ * <p>The counter starts past the <i>HOB-</i> directories of {@link LongZkLedgerIdGenerator}, so that the
+ * clients still generating one id at a time keep generating ids below the reserved ranges until the
+ * <i>HOB-</i> directory they are in is full, which takes 2^31 ledgers.
+ */
+public class ZkRangeLedgerIdGenerator implements LedgerIdGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(ZkRangeLedgerIdGenerator.class);
+
+    static final String IDGEN_RANGE_ZNODE = "idgen-range";
+    private static final String HOB_PREFIX = "HOB-";
+
+    private final ZooKeeper zk;
+    private final String counterPath;
+    private final String longIdGenPath;
+    private final int rangeSize;
+    private final List<ACL> zkAcls;
+
+    // guarded by this
+    private long nextId = 0L;
+    private long rangeEnd = 0L;
+    private boolean reserving = false;
+    private List<GenericCallback<Long>> pendingCallbacks = new ArrayList<>();
+
+    public ZkRangeLedgerIdGenerator(ZooKeeper zk, String ledgersPath, String longIdGenZnodeName, int rangeSize,
+                                    List<ACL> zkAcls) {
+        this.zk = zk;
+        this.counterPath = ledgersPath + "/" + IDGEN_RANGE_ZNODE;
+        this.longIdGenPath = ledgersPath + "/" + longIdGenZnodeName;
+        this.rangeSize = rangeSize;
+        this.zkAcls = zkAcls;
+    }
+
+    @Override
+    public void generateLedgerId(GenericCallback<Long> cb) {
+        long ledgerId;
+        synchronized (this) {
+            if (nextId >= rangeEnd) {
+                pendingCallbacks.add(cb);
+                if (!reserving) {
+                    reserving = true;
+                    reserveRange();
+                }
+                return;
+            }
+            ledgerId = nextId++;
+        }
+        cb.operationComplete(BKException.Code.OK, ledgerId);
+    }
+
+    private void reserveRange() {
+        zk.getData(counterPath, false, (rc, path, ctx, data, stat) -> {
+            if (rc == Code.NONODE.intValue()) {
+                createCounter();
+                return;
+            } else if (rc != Code.OK.intValue()) {
+                LOG.error("Could not read the ledger id counter",
+                        KeeperException.create(KeeperException.Code.get(rc), path));
+                failPendingCallbacks(BKException.Code.ZKException);
+                return;
+            }
+            long start;
+            try {
+                start = Long.parseLong(new String(data, UTF_8));
+            } catch (NumberFormatException e) {
+                LOG.error("Invalid ledger id counter at {}", path, e);
+                failPendingCallbacks(BKException.Code.ZKException);
+                return;
+            }
+            long end = start + rangeSize;
+            if (start < 0 || end < 0) {
+                failPendingCallbacks(BKException.Code.LedgerIdOverflowException);
+                return;
+            }
+            byte[] newCounter = Long.toString(end).getBytes(UTF_8);
+            zk.setData(counterPath, newCounter, stat.getVersion(), (rc2, path2, ctx2, stat2) -> {
+                if (rc2 == Code.OK.intValue()) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Reserved ledger ids [{}, {})", start, end);
+                    }
+                    rangeReserved(start, end);
+                } else if (rc2 == Code.BADVERSION.intValue()) {
+                    // raced with another client reserving a range
+                    reserveRange();
+                } else {
+                    LOG.error("Could not update the ledger id counter",
+                            KeeperException.create(KeeperException.Code.get(rc2), path2));
+                    failPendingCallbacks(BKException.Code.ZKException);
+                }
+            }, null);
+        }, null);
+    }
+
+    private void createCounter() {
+        zk.getChildren(longIdGenPath, false, (rc, path, ctx, children) -> {
+            long highBits;
+            if (rc == Code.NONODE.intValue()) {
+                // the long id generator starts at HOB-0000000001
+                highBits = 1L;
+            } else if (rc == Code.OK.intValue()) {
+                highBits = 1L;
+                for (String child : children) {
+                    try {
+                        highBits = Math.max(highBits, Long.parseLong(child.replace(HOB_PREFIX, "")));
+                    } catch (NumberFormatException e) {
+                        // not a HOB- directory
+                    }
+                }
+            } else {
+                LOG.error("Could not read the long ledger id generator path",
+                        KeeperException.create(KeeperException.Code.get(rc), path));
+                failPendingCallbacks(BKException.Code.ZKException);
+                return;
+            }
+            long firstId = (highBits + 1) << 32;
+            ZkUtils.asyncCreateFullPathOptimistic(zk, counterPath, Long.toString(firstId).getBytes(UTF_8), zkAcls,
+                    CreateMode.PERSISTENT, (rc2, path2, ctx2, name) -> {
+                        if (rc2 == Code.OK.intValue() || rc2 == Code.NODEEXISTS.intValue()) {
+                            reserveRange();
+                        } else {
+                            LOG.error("Could not create the ledger id counter",
+                                    KeeperException.create(KeeperException.Code.get(rc2), path2));
+                            failPendingCallbacks(BKException.Code.ZKException);
+                        }
+                    }, null);
+        }, null);
+    }
+
+    private void rangeReserved(long start, long end) {
+        List<GenericCallback<Long>> callbacks;
+        long firstId;
+        synchronized (this) {
+            nextId = start;
+            rangeEnd = end;
+            int numIds = (int) Math.min(pendingCallbacks.size(), rangeEnd - nextId);
+            callbacks = new ArrayList<>(pendingCallbacks.subList(0, numIds));
+            pendingCallbacks.subList(0, numIds).clear();
+            firstId = nextId;
+            nextId += numIds;
+            if (pendingCallbacks.isEmpty()) {
+                reserving = false;
+            } else {
+                // more ids were requested than the range holds
+                reserveRange();
+            }
+        }
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).operationComplete(BKException.Code.OK, firstId + i);
+        }
+    }
+
+    private void failPendingCallbacks(int rc) {
+        List<GenericCallback<Long>> callbacks;
+        synchronized (this) {
+            callbacks = pendingCallbacks;
+            pendingCallbacks = new ArrayList<>();
+            reserving = false;
+        }
+        for (GenericCallback<Long> cb : callbacks) {
+            cb.operationComplete(rc, null);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -17,11 +17,24 @@
  */
 package org.apache.bookkeeper.net;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A cached implementation of DNSToSwitchMapping that takes an
@@ -29,9 +42,58 @@ import java.util.concurrent.ConcurrentHashMap;
  * a cache. The following calls to a resolved network location
  * will get its location from the cache.
  *
+ * <p>When {@link CommonConfigurationKeys#NET_TOPOLOGY_CACHE_TTL_MS_KEY} is set,
+ * a cached location which expired is still returned, and refreshed in the
+ * background together with the other expired locations in a single call to
+ * the raw mapping. The listeners registered with
+ * {@link #addRackChangeListener(Consumer)} are told about the hosts whose
+ * location changed. When {@link CommonConfigurationKeys#NET_TOPOLOGY_NEGATIVE_CACHE_TTL_MS_KEY}
+ * is set, the hosts which could not be resolved are not resolved again
+ * until it expires.
+ *
  */
 public class CachedDNSToSwitchMapping extends AbstractDNSToSwitchMapping {
-  private Map<String, String> cache = new ConcurrentHashMap<String, String>();
+  private static final Logger LOG = LoggerFactory.getLogger(CachedDNSToSwitchMapping.class);
+
+  // a single thread refreshing the locations of all the mappings, which stops when idle
+  private static final ExecutorService REFRESH_EXECUTOR;
+  static {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("NetworkLocationRefresh-%d").setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    REFRESH_EXECUTOR = executor;
+  }
+
+  /**
+   * A cached network location.
+   */
+  private static final class CachedLocation {
+    // null if the host could not be resolved
+    final String location;
+    final long expiresAtNanos;
+
+    CachedLocation(String location, long nowNanos, long ttlNanos) {
+      this.location = location;
+      this.expiresAtNanos = ttlNanos > 0 ? nowNanos + ttlNanos : Long.MAX_VALUE;
+    }
+
+    boolean isExpired(long nowNanos) {
+      return expiresAtNanos != Long.MAX_VALUE && nowNanos - expiresAtNanos >= 0;
+    }
+  }
+
+  private Map<String, CachedLocation> cache = new ConcurrentHashMap<String, CachedLocation>();
+  private volatile long cacheTtlNanos =
+      TimeUnit.MILLISECONDS.toNanos(CommonConfigurationKeys.NET_TOPOLOGY_CACHE_TTL_MS_DEFAULT);
+  private volatile long negativeCacheTtlNanos =
+      TimeUnit.MILLISECONDS.toNanos(CommonConfigurationKeys.NET_TOPOLOGY_NEGATIVE_CACHE_TTL_MS_DEFAULT);
+
+  // hosts waiting to be refreshed, guarded by itself
+  private final Set<String> pendingRefreshes = new LinkedHashSet<String>();
+  private boolean refreshScheduled = false;
+  private final List<Consumer<Set<String>>> rackChangeListeners =
+      new CopyOnWriteArrayList<Consumer<Set<String>>>();
 
   /**
    * The uncached mapping.
@@ -46,6 +108,19 @@ public class CachedDNSToSwitchMapping extends AbstractDNSToSwitchMapping {
     this.rawMapping = rawMapping;
   }
 
+  @Override
+  public void setConf(Configuration conf) {
+    super.setConf(conf);
+    if (conf != null) {
+      cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(conf.getLong(
+          CommonConfigurationKeys.NET_TOPOLOGY_CACHE_TTL_MS_KEY,
+          CommonConfigurationKeys.NET_TOPOLOGY_CACHE_TTL_MS_DEFAULT));
+      negativeCacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(conf.getLong(
+          CommonConfigurationKeys.NET_TOPOLOGY_NEGATIVE_CACHE_TTL_MS_KEY,
+          CommonConfigurationKeys.NET_TOPOLOGY_NEGATIVE_CACHE_TTL_MS_DEFAULT));
+    }
+  }
+
   // we'll use IP Address for these mappings.
   @Override
   public boolean useHostName() {
@@ -53,18 +128,22 @@ public class CachedDNSToSwitchMapping extends AbstractDNSToSwitchMapping {
   }
 
   /**
-   * @param names a list of hostnames to probe for being cached
-   * @return the hosts from 'names' that have not been cached previously
+   * Register a listener told about the hosts whose network location changed
+   * when it was refreshed in the background.
+   *
+   * @param listener the listener, called from the refresh thread
    */
-  private List<String> getUncachedHosts(List<String> names) {
-    // find out all names without cached resolved location
-    List<String> unCachedHosts = new ArrayList<String>(names.size());
-    for (String name : names) {
-      if (cache.get(name) == null) {
-        unCachedHosts.add(name);
-      }
-    }
-    return unCachedHosts;
+  public void addRackChangeListener(Consumer<Set<String>> listener) {
+    rackChangeListeners.add(listener);
+  }
+
+  /**
+   * Deregister a listener registered with {@link #addRackChangeListener(Consumer)}.
+   *
+   * @param listener the listener to remove
+   */
+  public void removeRackChangeListener(Consumer<Set<String>> listener) {
+    rackChangeListeners.remove(listener);
   }
 
   /**
@@ -74,15 +153,34 @@ public class CachedDNSToSwitchMapping extends AbstractDNSToSwitchMapping {
    * @param uncachedHosts a list of hosts that were uncached
    * @param resolvedHosts a list of resolved host entries where the element
    * at index(i) is the resolved value for the entry in uncachedHosts[i]
+   * @return the hosts whose previously cached location changed
    */
-  private void cacheResolvedHosts(List<String> uncachedHosts,
+  private Set<String> cacheResolvedHosts(List<String> uncachedHosts,
       List<String> resolvedHosts) {
+    Set<String> changedHosts = new HashSet<String>();
+    boolean failed = resolvedHosts == null || resolvedHosts.size() != uncachedHosts.size();
+    long ttl = cacheTtlNanos;
+    long negativeTtl = negativeCacheTtlNanos;
+    long now = System.nanoTime();
     // Cache the result
-    if (resolvedHosts != null) {
-      for (int i = 0; i < uncachedHosts.size(); i++) {
-        cache.put(uncachedHosts.get(i), resolvedHosts.get(i));
+    for (int i = 0; i < uncachedHosts.size(); i++) {
+      String host = uncachedHosts.get(i);
+      String location = failed ? null : resolvedHosts.get(i);
+      CachedLocation previous = cache.get(host);
+      String previousLocation = previous == null ? null : previous.location;
+      if (location != null) {
+        cache.put(host, new CachedLocation(location, now, ttl));
+        if (previousLocation != null && !previousLocation.equals(location)) {
+          changedHosts.add(host);
+        }
+      } else if (previousLocation != null) {
+        // keep the last known location until the next refresh
+        cache.put(host, new CachedLocation(previousLocation, now, negativeTtl > 0 ? negativeTtl : ttl));
+      } else if (negativeTtl > 0) {
+        cache.put(host, new CachedLocation(null, now, negativeTtl));
       }
     }
+    return changedHosts;
   }
 
   /**
@@ -94,9 +192,9 @@ public class CachedDNSToSwitchMapping extends AbstractDNSToSwitchMapping {
     List<String> result = new ArrayList<String>(names.size());
     // Construct the result
     for (String name : names) {
-      String networkLocation = cache.get(name);
-      if (networkLocation != null) {
-        result.add(networkLocation);
+      CachedLocation cached = cache.get(name);
+      if (cached != null && cached.location != null) {
+        result.add(cached.location);
       } else {
         return null;
       }
@@ -114,24 +212,87 @@ public class CachedDNSToSwitchMapping extends AbstractDNSToSwitchMapping {
       return result;
     }
 
-    List<String> uncachedHosts = getUncachedHosts(names);
+    // find out all names without a usable cached location
+    long now = System.nanoTime();
+    List<String> uncachedHosts = new ArrayList<String>(names.size());
+    List<String> expiredHosts = null;
+    for (String name : names) {
+      CachedLocation cached = cache.get(name);
+      if (cached == null || (cached.location == null && cached.isExpired(now))) {
+        uncachedHosts.add(name);
+      } else if (cached.location != null && cached.isExpired(now)) {
+        if (expiredHosts == null) {
+          expiredHosts = new ArrayList<String>();
+        }
+        expiredHosts.add(name);
+      }
+    }
 
-    // Resolve the uncached hosts
-    List<String> resolvedHosts = rawMapping.resolve(uncachedHosts);
-    //cache them
-    cacheResolvedHosts(uncachedHosts, resolvedHosts);
+    if (!uncachedHosts.isEmpty()) {
+      // Resolve the uncached hosts in one batch and cache them
+      cacheResolvedHosts(uncachedHosts, rawMapping.resolve(uncachedHosts));
+    }
+    if (expiredHosts != null) {
+      // the expired hosts keep their last known location until they are refreshed
+      scheduleRefresh(expiredHosts);
+    }
     //now look up the entire list in the cache
     return getCachedHosts(names);
 
   }
 
+  private void scheduleRefresh(List<String> hosts) {
+    synchronized (pendingRefreshes) {
+      pendingRefreshes.addAll(hosts);
+      if (refreshScheduled) {
+        return;
+      }
+      refreshScheduled = true;
+    }
+    REFRESH_EXECUTOR.execute(this::refreshPendingHosts);
+  }
+
+  private void refreshPendingHosts() {
+    List<String> hosts;
+    synchronized (pendingRefreshes) {
+      hosts = new ArrayList<String>(pendingRefreshes);
+      pendingRefreshes.clear();
+      refreshScheduled = false;
+    }
+    Set<String> changedHosts;
+    try {
+      changedHosts = cacheResolvedHosts(hosts, rawMapping.resolve(hosts));
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to refresh the network location of {} hosts", hosts.size(), e);
+      changedHosts = cacheResolvedHosts(hosts, null);
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Refreshed the network location of {} hosts, {} changed", hosts.size(), changedHosts.size());
+    }
+    if (!changedHosts.isEmpty()) {
+      LOG.info("Network location of hosts {} changed", changedHosts);
+      for (Consumer<Set<String>> listener : rackChangeListeners) {
+        try {
+          listener.accept(changedHosts);
+        } catch (RuntimeException e) {
+          LOG.error("Failed to notify the change of network location of hosts {}", changedHosts, e);
+        }
+      }
+    }
+  }
+
   /**
    * Get the (host x switch) map.
    * @return a copy of the cached map of hosts to rack
    */
   @Override
   public Map<String, String> getSwitchMap() {
-    Map<String, String> switchMap = new HashMap<String, String>(cache);
+    Map<String, String> switchMap = new HashMap<String, String>(cache.size());
+    for (Map.Entry<String, CachedLocation> e : cache.entrySet()) {
+      if (e.getValue().location != null) {
+        switchMap.put(e.getKey(), e.getValue().location);
+      }
+    }
     return switchMap;
   }
 
@@ -31,4 +31,12 @@ public interface CommonConfigurationKeys {
     String NET_TOPOLOGY_SCRIPT_NUMBER_ARGS_KEY = "networkTopologyScriptNumberArgs";
     // default value of NET_TOPOLOGY_SCRIPT_NUMBER_ARGS_KEY
     int NET_TOPOLOGY_SCRIPT_NUMBER_ARGS_DEFAULT = 100;
+    // time after which a cached network location is refreshed in the background, 0 never refreshes it
+    String NET_TOPOLOGY_CACHE_TTL_MS_KEY = "networkTopologyCacheTtlMs";
+    // default value of NET_TOPOLOGY_CACHE_TTL_MS_KEY
+    long NET_TOPOLOGY_CACHE_TTL_MS_DEFAULT = 0L;
+    // time a failed network location resolution is cached, 0 does not cache failures
+    String NET_TOPOLOGY_NEGATIVE_CACHE_TTL_MS_KEY = "networkTopologyNegativeCacheTtlMs";
+    // default value of NET_TOPOLOGY_NEGATIVE_CACHE_TTL_MS_KEY
+    long NET_TOPOLOGY_NEGATIVE_CACHE_TTL_MS_DEFAULT = 0L;
 }
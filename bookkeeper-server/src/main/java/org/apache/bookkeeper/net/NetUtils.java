@@ -21,7 +21,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.net.InetAddress;
-import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -64,21 +63,30 @@ public class NetUtils {
         return hostNames;
     }
 
+    /**
+     * Get the name of the address passed to the resolver, its host name or its IP address
+     * depending on {@link DNSToSwitchMapping#useHostName()}.
+     *
+     * @param dnsResolver the resolver
+     * @param addr the address to resolve
+     * @return the name to resolve
+     */
+    public static String getResolverName(DNSToSwitchMapping dnsResolver,
+                                         BookieSocketAddress addr) {
+        if (dnsResolver.useHostName()) {
+            return addr.getHostName();
+        }
+        InetAddress inetAddress = addr.getSocketAddress().getAddress();
+        if (null == inetAddress) {
+            return addr.getHostName();
+        }
+        return inetAddress.getHostAddress();
+    }
+
     public static String resolveNetworkLocation(DNSToSwitchMapping dnsResolver,
                                                 BookieSocketAddress addr) {
         List<String> names = new ArrayList<String>(1);
-
-        InetSocketAddress inetSocketAddress = addr.getSocketAddress();
-        if (dnsResolver.useHostName()) {
-            names.add(addr.getHostName());
-        } else {
-            InetAddress inetAddress = inetSocketAddress.getAddress();
-            if (null == inetAddress) {
-                names.add(addr.getHostName());
-            } else {
-                names.add(inetAddress.getHostAddress());
-            }
-        }
+        names.add(getResolverName(dnsResolver, addr));
 
         // resolve network addresses
         List<String> rNames = dnsResolver.resolve(names);
@@ -17,7 +17,10 @@
  */
 package org.apache.bookkeeper.net;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -80,6 +83,18 @@ public interface NetworkTopology {
      */
     Set<Node> getLeaves(String loc);
 
+    /**
+     * Returns the nodes under a location as an immutable list, which implementations may share
+     * between callers instead of copying the nodes on every call.
+     *
+     * @param loc
+     *      network location
+     * @return nodes under a location
+     */
+    default List<Node> getLeavesList(String loc) {
+        return Collections.unmodifiableList(new ArrayList<>(getLeaves(loc)));
+    }
+
     /**
      * Return the number of leaves in <i>scope</i> but not in <i>excludedNodes</i>.
      *
@@ -19,10 +19,12 @@ package org.apache.bookkeeper.net;
 
 import com.google.common.base.Strings;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -390,6 +392,62 @@ public class NetworkTopologyImpl implements NetworkTopology {
      */
     protected ReadWriteLock netlock = new ReentrantReadWriteLock();
 
+    /**
+     * An immutable copy of the leaves of the tree, indexed by the path of every node of the tree.
+     *
+     * <p>The leaves under a location are looked up without walking the tree nor taking the lock,
+     * which is what placement policies do for every ensemble they create.
+     */
+    static final class Snapshot {
+        final int numOfRacks;
+        final int numOfLeaves;
+        // normalized path of every inner node to the leaves under it, in tree order
+        final Map<String, List<Node>> leavesByLocation;
+        final Map<String, Node> leavesByPath;
+
+        Snapshot(InnerNode root, int numOfRacks) {
+            this.numOfRacks = numOfRacks;
+            this.numOfLeaves = root.getNumOfLeaves();
+            this.leavesByLocation = new HashMap<>();
+            this.leavesByPath = new HashMap<>();
+            List<Node> leaves = collectLeaves(root);
+            leavesByLocation.put(NodeBase.ROOT, leaves);
+        }
+
+        private List<Node> collectLeaves(InnerNode node) {
+            List<Node> leaves = new ArrayList<>(node.getNumOfLeaves());
+            for (Node child : node.getChildren()) {
+                if (child instanceof InnerNode) {
+                    List<Node> childLeaves = collectLeaves((InnerNode) child);
+                    leavesByLocation.put(NodeBase.normalize(NodeBase.getPath(child)), childLeaves);
+                    leaves.addAll(childLeaves);
+                } else {
+                    leavesByPath.put(NodeBase.getPath(child), child);
+                    leaves.add(child);
+                }
+            }
+            return Collections.unmodifiableList(leaves);
+        }
+
+        List<Node> getLeaves(String loc) {
+            loc = NodeBase.normalize(loc);
+            List<Node> leaves = leavesByLocation.get(loc);
+            if (leaves != null) {
+                return leaves;
+            }
+            Node leaf = leavesByPath.get(loc);
+            return leaf == null ? Collections.emptyList() : Collections.singletonList(leaf);
+        }
+
+        int getNumOfLeaves(String loc) {
+            List<Node> leaves = leavesByLocation.get(loc);
+            return leaves == null ? 0 : leaves.size();
+        }
+    }
+
+    // rebuilt by the first read after the tree changed, guarded by netlock for writes
+    private volatile Snapshot snapshot = null;
+
     public NetworkTopologyImpl() {
         clusterMap = new InnerNode(InnerNode.ROOT);
     }
@@ -425,6 +483,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
                         + " at an illegal network location");
             }
             if (clusterMap.add(node)) {
+                snapshot = null;
                 LOG.info("Adding a new node: " + NodeBase.getPath(node));
                 if (rack == null) {
                     numOfRacks++;
@@ -501,6 +560,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
         netlock.writeLock().lock();
         try {
             if (clusterMap.remove(node)) {
+                snapshot = null;
                 InnerNode rack = (InnerNode) getNode(node.getNetworkLocation());
                 if (rack == null) {
                     numOfRacks--;
@@ -574,25 +634,37 @@ public class NetworkTopologyImpl implements NetworkTopology {
         return loc;
     }
 
-    /** @return the total number of racks */
-    @Override
-    public int getNumOfRacks() {
+    /**
+     * Get the snapshot of the current tree, building it if the tree changed since the last one.
+     */
+    Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
         netlock.readLock().lock();
         try {
-            return numOfRacks;
+            // the tree cannot change while the read lock is held, so the snapshot is up to date
+            s = snapshot;
+            if (s == null) {
+                s = new Snapshot(clusterMap, numOfRacks);
+                snapshot = s;
+            }
+            return s;
         } finally {
             netlock.readLock().unlock();
         }
     }
 
+    /** @return the total number of racks */
+    @Override
+    public int getNumOfRacks() {
+        return getSnapshot().numOfRacks;
+    }
+
     /** @return the total number of leaf nodes */
     public int getNumOfLeaves() {
-        netlock.readLock().lock();
-        try {
-            return clusterMap.getNumOfLeaves();
-        } finally {
-            netlock.readLock().unlock();
-        }
+        return getSnapshot().numOfLeaves;
     }
 
     /**
@@ -748,48 +820,31 @@ public class NetworkTopologyImpl implements NetworkTopology {
         return innerNode.getLeaf(leaveIndex, node);
     }
 
-    /**
-     * Return leaves in <i>scope</i>.
-     * @param scope a path string
-     * @return leaves nodes under specific scope
-     */
-    private Set<Node> doGetLeaves(String scope) {
-        Node node = getNode(scope);
-        Set<Node> leafNodes = new HashSet<Node>();
-        if (node == null) {
-            return leafNodes;
-        }
-
-        if (!(node instanceof InnerNode)) {
-            leafNodes.add(node);
-        } else {
-            InnerNode innerNode = (InnerNode) node;
-            for (int i = 0; i < innerNode.getNumOfLeaves(); i++) {
-                leafNodes.add(innerNode.getLeaf(i, null));
+    @Override
+    public Set<Node> getLeaves(String scope) {
+        Snapshot s = getSnapshot();
+        if (scope.startsWith("~")) {
+            Set<Node> allNodes = new HashSet<Node>(s.getLeaves(NodeBase.ROOT));
+            String[] excludeScopes = scope.substring(1).split(NODE_SEPARATOR);
+            for (String excludeScope : excludeScopes) {
+                allNodes.removeAll(s.getLeaves(excludeScope));
             }
+            return allNodes;
+        } else {
+            return new HashSet<Node>(s.getLeaves(scope));
         }
-        return leafNodes;
     }
 
+    /**
+     * Returns the leaves under a location from the snapshot of the tree, without copying them.
+     *
+     * @param loc
+     *      network location, excluded locations starting with ~ are not supported
+     * @return an immutable list of the leaves under the location
+     */
     @Override
-    public Set<Node> getLeaves(String scope) {
-        netlock.readLock().lock();
-        try {
-            if (scope.startsWith("~")) {
-                Set<Node> allNodes = doGetLeaves(NodeBase.ROOT);
-                String[] excludeScopes = scope.substring(1).split(NODE_SEPARATOR);
-                Set<Node> excludeNodes = new HashSet<Node>();
-                Arrays.stream(excludeScopes).forEach((excludeScope) -> {
-                    excludeNodes.addAll(doGetLeaves(excludeScope));
-                });
-                allNodes.removeAll(excludeNodes);
-                return allNodes;
-            } else {
-                return doGetLeaves(scope);
-            }
-        } finally {
-            netlock.readLock().unlock();
-        }
+    public List<Node> getLeavesList(String loc) {
+        return getSnapshot().getLeaves(loc);
     }
 
     @Override
@@ -801,26 +856,18 @@ public class NetworkTopologyImpl implements NetworkTopology {
         }
         scope = NodeBase.normalize(scope);
         int count = 0; // the number of nodes in both scope & excludedNodes
-        netlock.readLock().lock();
-        try {
-            for (Node node : excludedNodes) {
-                if ((NodeBase.getPath(node) + NodeBase.PATH_SEPARATOR_STR).startsWith(scope
-                        + NodeBase.PATH_SEPARATOR_STR)) {
-                    count++;
-                }
-            }
-            Node n = getNode(scope);
-            int scopeNodeCount = 0;
-            if (n instanceof InnerNode) {
-                scopeNodeCount = ((InnerNode) n).getNumOfLeaves();
-            }
-            if (isExcluded) {
-                return clusterMap.getNumOfLeaves() - scopeNodeCount - excludedNodes.size() + count;
-            } else {
-                return scopeNodeCount - count;
+        for (Node node : excludedNodes) {
+            if ((NodeBase.getPath(node) + NodeBase.PATH_SEPARATOR_STR).startsWith(scope
+                    + NodeBase.PATH_SEPARATOR_STR)) {
+                count++;
             }
-        } finally {
-            netlock.readLock().unlock();
+        }
+        Snapshot s = getSnapshot();
+        int scopeNodeCount = s.getNumOfLeaves(scope);
+        if (isExcluded) {
+            return s.numOfLeaves - scopeNodeCount - excludedNodes.size() + count;
+        } else {
+            return scopeNodeCount - count;
         }
     }
 
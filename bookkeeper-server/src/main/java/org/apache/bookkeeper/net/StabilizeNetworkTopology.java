@@ -22,6 +22,7 @@ import io.netty.util.Timeout;
 import io.netty.util.TimerTask;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -153,6 +154,11 @@ public class StabilizeNetworkTopology implements NetworkTopology {
         return impl.getLeaves(loc);
     }
 
+    @Override
+    public List<Node> getLeavesList(String loc) {
+        return impl.getLeavesList(loc);
+    }
+
     @Override
     public int countNumOfAvailableNodes(String scope, Collection<Node> excludedNodes) {
         return impl.countNumOfAvailableNodes(scope, excludedNodes);
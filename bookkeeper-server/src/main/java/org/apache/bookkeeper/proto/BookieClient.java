@@ -20,13 +20,17 @@
  */
 package org.apache.bookkeeper.proto;
 
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
@@ -84,6 +88,28 @@ public interface BookieClient {
      */
     long getNumPendingRequests(BookieId address, long ledgerId);
 
+    /**
+     * Get the exponentially weighted moving average of the latency of the reads
+     * served by the bookie at {@code address}.
+     *
+     * @param address the address of the bookie
+     * @return the latency in nanoseconds, or -1 if it is unknown
+     */
+    default long getReadLatencyEwmaNanos(BookieId address) {
+        return -1L;
+    }
+
+    /**
+     * Get the number of payload bytes sent to the bookie at {@code address}
+     * whose requests did not complete yet.
+     *
+     * @param address the address of the bookie
+     * @return the number of outstanding bytes
+     */
+    default long getOutstandingBytes(BookieId address) {
+        return 0L;
+    }
+
     /**
      * Send a force request to the server. When complete all entries which have
      * been written for {@code ledgerId} to this bookie will be persisted on disk.
@@ -143,6 +169,25 @@ public interface BookieClient {
                   long entryId, ByteBufList toSend, WriteCallback cb, Object ctx,
                   int options, boolean allowFastFail, EnumSet<WriteFlag> writeFlags);
 
+    /**
+     * Add a batch of entries for ledger {@code ledgerId} on the bookie at address {@code address}.
+     * The entries are sent on the same connection, which is flushed once for the whole batch.
+     *
+     * @param entryIds the ids of the entries we wish to add
+     * @param toSend the buffers containing the entries and their digest, in the order of the ids
+     * @param cbs the callbacks notified when the requests complete, in the order of the ids
+     * @param ctx a context object passed to all the callbacks on completion
+     * @see #addEntry(BookieId, long, byte[], long, ByteBufList, WriteCallback, Object, int, boolean, EnumSet)
+     */
+    default void addEntries(BookieId address, long ledgerId, byte[] masterKey,
+                            long[] entryIds, ByteBufList[] toSend, WriteCallback[] cbs, Object ctx,
+                            int options, boolean allowFastFail, EnumSet<WriteFlag> writeFlags) {
+        for (int i = 0; i < entryIds.length; i++) {
+            addEntry(address, ledgerId, masterKey, entryIds[i], toSend[i], cbs[i], ctx,
+                     options, allowFastFail, writeFlags);
+        }
+    }
+
     /**
      * Read entry with a null masterkey, disallowing failfast.
      * @see #readEntry(BookieId,long,long,ReadEntryCallback,Object,int,byte[],boolean)
@@ -230,6 +275,22 @@ public interface BookieClient {
     CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
             long ledgerId);
 
+    /**
+     * Watch and unwatch the last add confirmed of ledgers on the bookie at {@code address}. All the
+     * watches of a bookie are registered on the same connection, and the bookie pushes the updates
+     * of the watched ledgers to the {@link LacWatchListener} of the client until they are unwatched
+     * or the connection is closed.
+     *
+     * @param address the address of the bookie
+     * @param watch the ledgers to watch, mapped to the last add confirmed the caller already knows
+     * @param unwatch the ledgers to stop watching
+     * @param cb the callback notified once the bookie applied the request
+     */
+    default void watchLac(BookieId address, Map<Long, Long> watch, Collection<Long> unwatch,
+                          GenericCallback<Void> cb) {
+        cb.operationComplete(BKException.Code.IllegalOpException, null);
+    }
+
     /**
      * @return whether bookie client object has been closed
      */
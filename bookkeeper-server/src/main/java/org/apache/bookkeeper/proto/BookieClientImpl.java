@@ -36,8 +36,10 @@ import io.netty.util.Recycler.Handle;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
@@ -80,6 +82,8 @@ import org.slf4j.LoggerFactory;
  */
 public class BookieClientImpl implements BookieClient, PerChannelBookieClientFactory {
     static final Logger LOG = LoggerFactory.getLogger(BookieClientImpl.class);
+    // connection of a bookie the lac watches are registered on
+    private static final long LAC_WATCH_ORDERING_KEY = 0L;
 
     private final OrderedExecutor executor;
     private final ScheduledExecutorService scheduler;
@@ -103,6 +107,8 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
     private final BookieAddressResolver bookieAddressResolver;
 
     private final long bookieErrorThresholdPerInterval;
+    private volatile BookieLatencyListener latencyListener = null;
+    private volatile LacWatchListener lacWatchListener = null;
 
     public BookieClientImpl(ClientConfiguration conf, EventLoopGroup eventLoopGroup,
                             ByteBufAllocator allocator,
@@ -184,6 +190,18 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }
     }
 
+    @Override
+    public long getReadLatencyEwmaNanos(BookieId address) {
+        PerChannelBookieClientPool pcbcPool = lookupClient(address);
+        return pcbcPool == null ? -1L : pcbcPool.getReadLatencyEwmaNanos();
+    }
+
+    @Override
+    public long getOutstandingBytes(BookieId address) {
+        PerChannelBookieClientPool pcbcPool = lookupClient(address);
+        return pcbcPool == null ? 0L : pcbcPool.getOutstandingAddBytes();
+    }
+
     @Override
     public PerChannelBookieClient create(BookieId address, PerChannelBookieClientPool pcbcPool,
             SecurityHandlerFactory shFactory, boolean forceUseV3) throws SecurityException {
@@ -195,9 +213,28 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         if (forceUseV3) {
             clientConfiguration = v3Conf;
         }
-        return new PerChannelBookieClient(clientConfiguration, executor, eventLoopGroup, allocator, address,
-                                   statsLoggerForPCBC, authProviderFactory, registry, pcbcPool,
-                                   shFactory, bookieAddressResolver);
+        PerChannelBookieClient pcbc = new PerChannelBookieClient(clientConfiguration, executor, eventLoopGroup,
+                allocator, address, statsLoggerForPCBC, authProviderFactory, registry, pcbcPool,
+                shFactory, bookieAddressResolver);
+        pcbc.setLatencyListener(latencyListener);
+        pcbc.setLacWatchListener(lacWatchListener);
+        return pcbc;
+    }
+
+    /**
+     * Set the listener notified of the latency of the requests completed by the bookies.
+     * Only applies to connections created afterwards, so it should be set before the client is used.
+     */
+    public void setLatencyListener(BookieLatencyListener latencyListener) {
+        this.latencyListener = latencyListener;
+    }
+
+    /**
+     * Set the listener notified of the last add confirmed updates of the watched ledgers.
+     * Only applies to connections created afterwards, so it should be set before the client is used.
+     */
+    public void setLacWatchListener(LacWatchListener lacWatchListener) {
+        this.lacWatchListener = lacWatchListener;
     }
 
     public PerChannelBookieClientPool lookupClient(BookieId addr) {
@@ -332,6 +369,46 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
                       ledgerId);
     }
 
+    @Override
+    public void addEntries(final BookieId addr,
+                           final long ledgerId,
+                           final byte[] masterKey,
+                           final long[] entryIds,
+                           final ByteBufList[] toSend,
+                           final WriteCallback[] cbs,
+                           final Object ctx,
+                           final int options,
+                           final boolean allowFastFail,
+                           final EnumSet<WriteFlag> writeFlags) {
+        final PerChannelBookieClientPool client = lookupClient(addr);
+        if (client == null) {
+            for (int i = 0; i < entryIds.length; i++) {
+                completeAdd(getRc(BKException.Code.BookieHandleNotAvailableException),
+                            ledgerId, entryIds[i], addr, cbs[i], ctx);
+            }
+            return;
+        }
+
+        // Retain the buffers, since the connection could be obtained after
+        // the PendingAddOps might have already failed
+        for (ByteBufList buf : toSend) {
+            buf.retain();
+        }
+
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                for (int i = 0; i < entryIds.length; i++) {
+                    completeAdd(rc, ledgerId, entryIds[i], addr, cbs[i], ctx);
+                }
+            } else {
+                pcbc.addEntries(ledgerId, masterKey, entryIds, toSend, cbs, ctx, options, allowFastFail, writeFlags);
+            }
+            for (ByteBufList buf : toSend) {
+                buf.release();
+            }
+        }, ledgerId);
+    }
+
     @Override
     public CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
             long ledgerId) {
@@ -483,6 +560,30 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }, ledgerId, useV3Enforced);
     }
 
+    @Override
+    public void watchLac(final BookieId addr, final Map<Long, Long> watch, final Collection<Long> unwatch,
+                         final GenericCallback<Void> cb) {
+        final PerChannelBookieClientPool client = lookupClient(addr);
+        if (client == null) {
+            cb.operationComplete(getRc(BKException.Code.BookieHandleNotAvailableException), null);
+            return;
+        }
+        // all the watches of a bookie go through the same connection
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                try {
+                    executor.executeOrdered(LAC_WATCH_ORDERING_KEY, safeRun(() -> {
+                        cb.operationComplete(rc, null);
+                    }));
+                } catch (RejectedExecutionException re) {
+                    cb.operationComplete(getRc(BKException.Code.InterruptedException), null);
+                }
+            } else {
+                pcbc.watchLac(watch, unwatch, cb);
+            }
+        }, LAC_WATCH_ORDERING_KEY, true);
+    }
+
     @Override
     public void readEntry(BookieId addr, long ledgerId, long entryId,
                           ReadEntryCallback cb, Object ctx, int flags) {
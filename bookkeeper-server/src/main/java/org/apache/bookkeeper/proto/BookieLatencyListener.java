@@ -0,0 +1,39 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import org.apache.bookkeeper.net.BookieId;
+
+/**
+ * Receives the latency of the requests completed by the per channel bookie clients.
+ *
+ * <p>Listeners are invoked on the client callback threads and should not block.
+ */
+public interface BookieLatencyListener {
+
+    /**
+     * A read served by the given bookie completed successfully.
+     *
+     * @param bookieId the bookie that served the read
+     * @param latencyNanos time between sending the request and receiving the response
+     */
+    void onReadCompleted(BookieId bookieId, long latencyNanos);
+}
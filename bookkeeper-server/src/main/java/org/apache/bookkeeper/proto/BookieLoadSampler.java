@@ -0,0 +1,96 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.LedgerStorage;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BookieLoad;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * Samples the load of the bookie reported to the clients in {@link BookieLoad}.
+ *
+ * <p>The request rate and the read latency are averaged since the previous sample. As every client
+ * polls the bookie info on its own schedule, a sample taken less than {@link #MIN_SAMPLE_INTERVAL_MS}
+ * after the previous one is served the rates of the previous one, so that clients polling at about
+ * the same time see the same load.
+ */
+class BookieLoadSampler {
+
+    static final long MIN_SAMPLE_INTERVAL_MS = 1000L;
+
+    private final Bookie bookie;
+    private final RequestStats requestStats;
+
+    // guarded by this
+    private long lastSampleNanos;
+    private long lastCompletedRequests;
+    private long lastSuccessfulReads;
+    private long lastSuccessfulReadsLatencyNanos;
+    private long requestsPerSecond = 0L;
+    private long readLatencyMicros = 0L;
+
+    BookieLoadSampler(Bookie bookie, RequestStats requestStats) {
+        this.bookie = bookie;
+        this.requestStats = requestStats;
+        this.lastSampleNanos = MathUtils.nowInNano();
+    }
+
+    BookieLoad sample() {
+        long requests;
+        long latency;
+        synchronized (this) {
+            long elapsedNanos = MathUtils.elapsedNanos(lastSampleNanos);
+            if (elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(MIN_SAMPLE_INTERVAL_MS)) {
+                long completedRequests = requestStats.completedRequests.sum();
+                long successfulReads = requestStats.successfulReads.sum();
+                long successfulReadsLatencyNanos = requestStats.successfulReadsLatencyNanos.sum();
+
+                requestsPerSecond = (completedRequests - lastCompletedRequests)
+                        * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+                long reads = successfulReads - lastSuccessfulReads;
+                readLatencyMicros = reads > 0
+                        ? TimeUnit.NANOSECONDS.toMicros(
+                                (successfulReadsLatencyNanos - lastSuccessfulReadsLatencyNanos) / reads)
+                        : 0L;
+
+                lastSampleNanos += elapsedNanos;
+                lastCompletedRequests = completedRequests;
+                lastSuccessfulReads = successfulReads;
+                lastSuccessfulReadsLatencyNanos = successfulReadsLatencyNanos;
+            }
+            requests = requestsPerSecond;
+            latency = readLatencyMicros;
+        }
+
+        BookieLoad.Builder load = BookieLoad.newBuilder()
+                .setJournalQueueLength(bookie.getJournalQueueLength())
+                .setRequestsPerSecond(requests)
+                .setReadLatencyMicros(latency);
+        LedgerStorage ledgerStorage = bookie.getLedgerStorage();
+        long writeCacheMaxSize = ledgerStorage.getWriteCacheMaxSize();
+        if (writeCacheMaxSize > 0) {
+            load.setWriteCacheUsagePercent((int) (100 * ledgerStorage.getWriteCacheSize() / writeCacheMaxSize));
+        }
+        return load.build();
+    }
+}
@@ -397,6 +397,9 @@ class BookieNettyServer {
                         new BookieSideConnectionPeerContextHandler();
                     ChannelPipeline pipeline = ch.pipeline();
 
+                    // in-JVM clients may skip the wire encoding altogether
+                    pipeline.addLast(LocalDirectTransport.DETECTOR_NAME, new LocalDirectTransport.Detector(
+                            "lengthbaseddecoder", "lengthprepender", "bookieProtoDecoder", "bookieProtoEncoder"));
                     pipeline.addLast("lengthbaseddecoder", new LengthFieldBasedFrameDecoder(maxFrameSize, 0, 4, 0, 4));
                     pipeline.addLast("lengthprepender", new LengthFieldPrepender(4));
 
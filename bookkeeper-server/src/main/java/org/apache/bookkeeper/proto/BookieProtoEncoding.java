@@ -20,6 +20,7 @@
  */
 package org.apache.bookkeeper.proto;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -319,7 +320,10 @@ public class BookieProtoEncoding {
 
         @Override
         public Object decode(ByteBuf packet) throws Exception {
-            return BookkeeperProtocol.Request.parseFrom(new ByteBufInputStream(packet), extensionRegistry);
+            BookkeeperProtocol.Request request =
+                    BookkeeperProtocol.Request.parseFrom(newCodedInput(packet), extensionRegistry);
+            packet.skipBytes(packet.readableBytes());
+            return request;
         }
 
         @Override
@@ -342,8 +346,10 @@ public class BookieProtoEncoding {
 
         @Override
         public Object decode(ByteBuf packet) throws Exception {
-            return BookkeeperProtocol.Response.parseFrom(new ByteBufInputStream(packet),
-                                                         extensionRegistry);
+            BookkeeperProtocol.Response response =
+                    BookkeeperProtocol.Response.parseFrom(newCodedInput(packet), extensionRegistry);
+            packet.skipBytes(packet.readableBytes());
+            return response;
         }
 
         @Override
@@ -354,6 +360,22 @@ public class BookieProtoEncoding {
 
     }
 
+    /**
+     * Create a protobuf input over the readable bytes of a frame. When the frame is backed by a
+     * single nio buffer (the common case for frames produced by the length based frame decoder),
+     * protobuf reads straight from the (direct) memory and copies bytes fields such as the entry
+     * body only once, instead of pulling everything through an InputStream and an intermediate
+     * heap buffer. The decoded message never aliases the frame, which is released as soon as
+     * the message has been fired down the pipeline.
+     */
+    static CodedInputStream newCodedInput(ByteBuf packet) {
+        if (packet.nioBufferCount() == 1) {
+            return CodedInputStream.newInstance(packet.nioBuffer());
+        } else {
+            return CodedInputStream.newInstance(new ByteBufInputStream(packet));
+        }
+    }
+
     private static ByteBuf serializeProtobuf(MessageLite msg, ByteBufAllocator allocator) {
         int size = msg.getSerializedSize();
         // Protobuf serialization is the last step of the netty pipeline. We used to allocate
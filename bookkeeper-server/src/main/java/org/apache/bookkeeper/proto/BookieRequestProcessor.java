@@ -21,6 +21,10 @@
 package org.apache.bookkeeper.proto;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WIRE_COMPRESSION_COMPRESSED_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WIRE_COMPRESSION_TIME;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WIRE_COMPRESSION_UNCOMPRESSED_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WIRE_DECOMPRESSION_TIME;
 import static org.apache.bookkeeper.proto.RequestUtils.hasFlag;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -32,6 +36,7 @@ import com.google.protobuf.ByteString;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
@@ -41,6 +46,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import lombok.AccessLevel;
@@ -69,6 +75,8 @@ public class BookieRequestProcessor implements RequestProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(BookieRequestProcessor.class);
 
+    private static final AttributeKey<Boolean> FLOW_CONTROL_CHANNEL = AttributeKey.valueOf("flowControlChannel");
+
     /**
      * The server configuration. We use this for getting the number of add and read
      * worker threads.
@@ -118,6 +126,7 @@ public class BookieRequestProcessor implements RequestProcessor {
     private final boolean statsEnabled;
 
     private final RequestStats requestStats;
+    private final BookieLoadSampler loadSampler;
 
     final Semaphore addsSemaphore;
     final Semaphore readsSemaphore;
@@ -130,6 +139,29 @@ public class BookieRequestProcessor implements RequestProcessor {
 
     private final boolean throttleReadResponses;
 
+    /**
+     * Credit based flow control settings, the grant shrinks as the request queues fill up.
+     */
+    private final boolean flowControlEnabled;
+    private final int flowControlMaxOpCredits;
+    private final long flowControlMaxByteCredits;
+    // connections the credits are shared by
+    private final AtomicInteger flowControlChannels = new AtomicInteger();
+    private final int addQueueCapacity;
+    private final int readQueueCapacity;
+
+    /**
+     * Per-client request quotas, null if disabled.
+     */
+    private final ClientQuotaManager clientQuotaManager;
+
+    /**
+     * Whether read responses may be compressed for clients that can decode them. Compressed
+     * add requests are always accepted, clients only send them once the bookie advertised it.
+     */
+    private final boolean wireCompressionEnabled;
+    private final PayloadCompression payloadCompression;
+
     public BookieRequestProcessor(ServerConfiguration serverCfg, Bookie bookie, StatsLogger statsLogger,
             SecurityHandlerFactory shFactory, ByteBufAllocator allocator) throws SecurityException {
         this.serverCfg = serverCfg;
@@ -196,23 +228,101 @@ public class BookieRequestProcessor implements RequestProcessor {
         // Expose Stats
         this.statsEnabled = serverCfg.isStatisticsEnabled();
         this.requestStats = new RequestStats(statsLogger);
+        this.loadSampler = new BookieLoadSampler(bookie, requestStats);
 
         int maxAdds = serverCfg.getMaxAddsInProgressLimit();
         addsSemaphore = maxAdds > 0 ? new Semaphore(maxAdds, true) : null;
 
         int maxReads = serverCfg.getMaxReadsInProgressLimit();
         readsSemaphore = maxReads > 0 ? new Semaphore(maxReads, true) : null;
+
+        this.flowControlEnabled = serverCfg.isFlowControlEnabled();
+        this.flowControlMaxOpCredits = serverCfg.getFlowControlMaxOpCredits();
+        this.flowControlMaxByteCredits = serverCfg.getFlowControlMaxByteCredits();
+        this.addQueueCapacity = queueCapacity(maxAdds, serverCfg.getNumAddWorkerThreads(),
+                serverCfg.getMaxPendingAddRequestPerThread());
+        this.readQueueCapacity = queueCapacity(maxReads, serverCfg.getNumReadWorkerThreads(),
+                serverCfg.getMaxPendingReadRequestPerThread());
+
+        if (ClientQuotaManager.isEnabled(serverCfg)) {
+            this.clientQuotaManager = new ClientQuotaManager(serverCfg, requestTimer, statsLogger);
+        } else {
+            this.clientQuotaManager = null;
+        }
+
+        this.wireCompressionEnabled = serverCfg.isWireCompressionEnabled();
+        this.payloadCompression = new PayloadCompression(
+                serverCfg.getWireCompressionMinPayloadSize(),
+                serverCfg.getNettyMaxFrameSizeBytes(),
+                statsLogger.getCounter(WIRE_COMPRESSION_UNCOMPRESSED_BYTES),
+                statsLogger.getCounter(WIRE_COMPRESSION_COMPRESSED_BYTES),
+                statsLogger.getOpStatsLogger(WIRE_COMPRESSION_TIME),
+                statsLogger.getOpStatsLogger(WIRE_DECOMPRESSION_TIME));
+    }
+
+    private static int queueCapacity(int maxInProgress, int numThreads, int maxPendingPerThread) {
+        if (maxInProgress > 0) {
+            return maxInProgress;
+        } else if (numThreads > 0 && maxPendingPerThread > 0) {
+            return numThreads * maxPendingPerThread;
+        } else {
+            // unbounded
+            return 0;
+        }
+    }
+
+    private static double freeFraction(int inProgress, int capacity) {
+        if (capacity <= 0) {
+            return 1.0;
+        }
+        return Math.max(0.0, 1.0 - (double) inProgress / capacity);
+    }
+
+    boolean isFlowControlEnabled() {
+        return flowControlEnabled;
+    }
+
+    /**
+     * Compute the flow control window granted to a connection, based on how full the
+     * add and read request queues currently are. The credits are shared by all the
+     * connections using flow control, so that the bookie never grants more than its
+     * budget at once.
+     */
+    BookkeeperProtocol.FlowControlGrant getFlowControlGrant(Channel channel) {
+        if (channel.attr(FLOW_CONTROL_CHANNEL).setIfAbsent(Boolean.TRUE) == null) {
+            flowControlChannels.incrementAndGet();
+            channel.closeFuture().addListener(future -> flowControlChannels.decrementAndGet());
+        }
+        double free = Math.min(
+                freeFraction(requestStats.addsInProgress.get(), addQueueCapacity),
+                freeFraction(requestStats.readsInProgress.get(), readQueueCapacity));
+        return flowControlGrant(flowControlMaxOpCredits, flowControlMaxByteCredits, free, flowControlChannels.get());
+    }
+
+    /**
+     * Share of the credits of a single connection. The grant never drops below a single
+     * request so that clients can always make progress.
+     */
+    @VisibleForTesting
+    static BookkeeperProtocol.FlowControlGrant flowControlGrant(int maxOpCredits, long maxByteCredits,
+                                                                double free, int numChannels) {
+        double share = free / Math.max(1, numChannels);
+        return BookkeeperProtocol.FlowControlGrant.newBuilder()
+                .setOpCredits(Math.max(1, (int) (maxOpCredits * share)))
+                .setByteCredits(Math.max(1L, (long) (maxByteCredits * share)))
+                .build();
     }
 
     protected void onAddRequestStart(Channel channel) {
         if (addsSemaphore != null) {
             if (!addsSemaphore.tryAcquire()) {
                 final long throttlingStartTimeNanos = MathUtils.nowInNano();
-                channel.config().setAutoRead(false);
+                ChannelReadGate readGate = ChannelReadGate.get(channel);
+                readGate.pause(ChannelReadGate.ADDS_IN_PROGRESS);
                 LOG.info("Too many add requests in progress, disabling autoread on channel {}", channel);
                 requestStats.blockAddRequest();
                 addsSemaphore.acquireUninterruptibly();
-                channel.config().setAutoRead(true);
+                readGate.resume(ChannelReadGate.ADDS_IN_PROGRESS);
                 final long delayNanos = MathUtils.elapsedNanos(throttlingStartTimeNanos);
                 LOG.info("Re-enabled autoread on channel {} after AddRequest delay of {} nanos", channel, delayNanos);
                 requestStats.unblockAddRequest(delayNanos);
@@ -232,11 +342,12 @@ public class BookieRequestProcessor implements RequestProcessor {
         if (readsSemaphore != null) {
             if (!readsSemaphore.tryAcquire()) {
                 final long throttlingStartTimeNanos = MathUtils.nowInNano();
-                channel.config().setAutoRead(false);
+                ChannelReadGate readGate = ChannelReadGate.get(channel);
+                readGate.pause(ChannelReadGate.READS_IN_PROGRESS);
                 LOG.info("Too many read requests in progress, disabling autoread on channel {}", channel);
                 requestStats.blockReadRequest();
                 readsSemaphore.acquireUninterruptibly();
-                channel.config().setAutoRead(true);
+                readGate.resume(ChannelReadGate.READS_IN_PROGRESS);
                 final long delayNanos = MathUtils.elapsedNanos(throttlingStartTimeNanos);
                 LOG.info("Re-enabled autoread on channel {} after ReadRequest delay of {} nanos", channel, delayNanos);
                 requestStats.unblockReadRequest(delayNanos);
@@ -313,9 +424,11 @@ public class BookieRequestProcessor implements RequestProcessor {
                 BookkeeperProtocol.BKPacketHeader header = r.getHeader();
                 switch (header.getOperation()) {
                     case ADD_ENTRY:
+                        admitClientRequest(c, r.getAddRequest().getBody().size());
                         processAddRequestV3(r, c);
                         break;
                     case READ_ENTRY:
+                        admitClientRequest(c, 0);
                         processReadRequestV3(r, c);
                         break;
                     case FORCE_LEDGER:
@@ -349,6 +462,9 @@ public class BookieRequestProcessor implements RequestProcessor {
                     case GET_LIST_OF_ENTRIES_OF_LEDGER:
                         processGetListOfEntriesOfLedgerProcessorV3(r, c);
                         break;
+                    case WATCH_LAC:
+                        processWatchLacRequestV3(r, c);
+                        break;
                     default:
                         LOG.info("Unknown operation type {}", header.getOperation());
                         BookkeeperProtocol.Response.Builder response =
@@ -369,10 +485,12 @@ public class BookieRequestProcessor implements RequestProcessor {
             switch (r.getOpCode()) {
                 case BookieProtocol.ADDENTRY:
                     checkArgument(r instanceof BookieProtocol.ParsedAddRequest);
+                    admitClientRequest(c, ((BookieProtocol.ParsedAddRequest) r).getData().readableBytes());
                     processAddRequest((BookieProtocol.ParsedAddRequest) r, c);
                     break;
                 case BookieProtocol.READENTRY:
                     checkArgument(r instanceof BookieProtocol.ReadRequest);
+                    admitClientRequest(c, 0);
                     processReadRequest((BookieProtocol.ReadRequest) r, c);
                     break;
                 case BookieProtocol.AUTH:
@@ -397,6 +515,12 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void admitClientRequest(Channel c, long addBytes) {
+        if (clientQuotaManager != null) {
+            clientQuotaManager.admit(c, addBytes);
+        }
+    }
+
     private void restoreMdcContextFromRequest(BookkeeperProtocol.Request req) {
         if (preserveMdcForTaskExecution) {
             MDC.clear();
@@ -618,6 +742,23 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processWatchLacRequestV3(final BookkeeperProtocol.Request r, final Channel c) {
+        // the watches of a channel are only touched from its long poll thread
+        LacWatchSet watchSet = LacWatchSet.get(c, this);
+        WatchLacProcessorV3 watchLac = new WatchLacProcessorV3(r, c, this, watchSet);
+        try {
+            watchSet.getExecutor().execute(watchLac);
+        } catch (RejectedExecutionException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Failed to process request to watch lac. Too many pending requests", e);
+            }
+            BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
+                    .setHeader(watchLac.getHeader())
+                    .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
+            watchLac.sendResponse(response.getStatus(), response.build(), requestStats.getWatchLacRequestStats());
+        }
+    }
+
     private void processAddRequest(final BookieProtocol.ParsedAddRequest r, final Channel c) {
         WriteEntryProcessor write = WriteEntryProcessor.create(r, c, this);
 
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+/**
+ * Turns auto-read of a channel off and on for several independent reasons.
+ *
+ * <p>The request processor pauses a channel while too many adds or reads are in progress, and the
+ * client quota manager pauses it while its client is over quota. Auto-read is only turned back on
+ * once none of the reasons to pause the channel remain, so that one mechanism does not re-open a
+ * channel the other one paused.
+ */
+final class ChannelReadGate {
+
+    static final int ADDS_IN_PROGRESS = 1;
+    static final int READS_IN_PROGRESS = 1 << 1;
+    static final int CLIENT_QUOTA = 1 << 2;
+
+    private static final AttributeKey<ChannelReadGate> READ_GATE = AttributeKey.valueOf("readGate");
+
+    private final Channel channel;
+    // reasons the channel is paused for, guarded by this
+    private int pausedFor = 0;
+
+    private ChannelReadGate(Channel channel) {
+        this.channel = channel;
+    }
+
+    static ChannelReadGate get(Channel channel) {
+        Attribute<ChannelReadGate> attr = channel.attr(READ_GATE);
+        ChannelReadGate gate = attr.get();
+        if (null == gate) {
+            ChannelReadGate newGate = new ChannelReadGate(channel);
+            gate = attr.setIfAbsent(newGate);
+            if (null == gate) {
+                gate = newGate;
+            }
+        }
+        return gate;
+    }
+
+    /**
+     * Pause the channel for the given reason.
+     *
+     * @return false if the channel was already paused for this reason
+     */
+    synchronized boolean pause(int reason) {
+        if ((pausedFor & reason) != 0) {
+            return false;
+        }
+        pausedFor |= reason;
+        channel.config().setAutoRead(false);
+        return true;
+    }
+
+    /**
+     * Remove a reason to pause the channel, turning auto-read back on if no other reason remains.
+     */
+    synchronized void resume(int reason) {
+        pausedFor &= ~reason;
+        if (pausedFor == 0) {
+            channel.config().setAutoRead(true);
+        }
+    }
+}
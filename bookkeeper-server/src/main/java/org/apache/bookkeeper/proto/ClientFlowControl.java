@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.FlowControlGrant;
+
+/**
+ * Client side accounting of the flow control window granted by a bookie on a single connection.
+ *
+ * <p>Until the bookie sends its first grant the window is unbounded, so talking to bookies
+ * that do not support flow control behaves exactly as before. Once a grant is known, requests
+ * that do not fit into the window are queued locally and sent, in order, as responses free up
+ * credits. A single request is always allowed when nothing is outstanding, so a request larger
+ * than the byte window cannot get stuck.
+ */
+class ClientFlowControl {
+
+    /**
+     * A request waiting for flow control credits.
+     */
+    interface Op {
+        /**
+         * Payload size accounted against the byte credits.
+         */
+        long size();
+
+        /**
+         * Called once credits have been acquired for this op.
+         */
+        void send();
+
+        /**
+         * Called when the op could not be sent immediately and is parked in the queue.
+         */
+        void onQueued();
+
+        /**
+         * Called when a queued op is dropped without being sent.
+         */
+        void discard();
+    }
+
+    private final ArrayDeque<Op> queue = new ArrayDeque<>();
+
+    private boolean granted = false;
+    private int opCredits = Integer.MAX_VALUE;
+    private long byteCredits = Long.MAX_VALUE;
+    private int outstandingOps = 0;
+    private long outstandingBytes = 0;
+
+    /**
+     * Sends the op right away if the window allows it, otherwise queues it.
+     *
+     * @return true if the op was sent, false if it was queued.
+     */
+    boolean submit(Op op) {
+        synchronized (this) {
+            if (!queue.isEmpty() || !fits(op.size())) {
+                op.onQueued();
+                queue.add(op);
+                return false;
+            }
+            acquire(op.size());
+        }
+        op.send();
+        return true;
+    }
+
+    /**
+     * Returns the credits held by a completed request and sends whatever queued ops now fit.
+     */
+    void release(long size) {
+        List<Op> toSend;
+        synchronized (this) {
+            outstandingOps = Math.max(0, outstandingOps - 1);
+            outstandingBytes = Math.max(0, outstandingBytes - size);
+            toSend = drain();
+        }
+        sendAll(toSend);
+    }
+
+    /**
+     * Applies the latest grant received from the bookie.
+     */
+    void updateGrant(FlowControlGrant grant) {
+        List<Op> toSend;
+        synchronized (this) {
+            granted = true;
+            opCredits = grant.hasOpCredits() ? grant.getOpCredits() : Integer.MAX_VALUE;
+            byteCredits = grant.hasByteCredits() ? grant.getByteCredits() : Long.MAX_VALUE;
+            toSend = drain();
+        }
+        sendAll(toSend);
+    }
+
+    /**
+     * Forgets the window and drops the queued ops, used when the connection goes away.
+     * The completions of the dropped ops are expected to be errored out by the caller.
+     */
+    void reset() {
+        List<Op> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            granted = false;
+            opCredits = Integer.MAX_VALUE;
+            byteCredits = Long.MAX_VALUE;
+            outstandingOps = 0;
+            outstandingBytes = 0;
+        }
+        for (Op op : dropped) {
+            op.discard();
+        }
+    }
+
+    synchronized int getNumQueuedOps() {
+        return queue.size();
+    }
+
+    private boolean fits(long size) {
+        return !granted
+            || outstandingOps == 0
+            || (outstandingOps < opCredits && outstandingBytes + size <= byteCredits);
+    }
+
+    private void acquire(long size) {
+        outstandingOps++;
+        outstandingBytes += size;
+    }
+
+    private List<Op> drain() {
+        List<Op> toSend = null;
+        while (!queue.isEmpty() && fits(queue.peek().size())) {
+            Op op = queue.poll();
+            acquire(op.size());
+            if (toSend == null) {
+                toSend = new ArrayList<>();
+            }
+            toSend.add(op);
+        }
+        return toSend;
+    }
+
+    private static void sendAll(List<Op> ops) {
+        if (ops != null) {
+            for (Op op : ops) {
+                op.send();
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_QUOTA_ADD_BYTES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_QUOTA_REQUESTS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_QUOTA_SCOPE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_QUOTA_THROTTLED;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CLIENT_QUOTA_THROTTLE_DELAY;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.netty.channel.Channel;
+import io.netty.util.Timer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.auth.BookKeeperPrincipal;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-client admission control for the bookie request processor.
+ *
+ * <p>Clients are identified by the principal their connection authenticated as, or by the
+ * remote host when the connection is anonymous, so that all the connections of one client
+ * share the same budget. Each client gets a token bucket for requests/s and one for add
+ * bytes/s, scaled by an optional per-client weight. A client that runs out of tokens is
+ * throttled by turning off auto-read on the offending channel until its bucket refills,
+ * leaving the read and write thread pools to the other clients.
+ */
+class ClientQuotaManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClientQuotaManager.class);
+
+    private final double requestsPerSecond;
+    private final double addBytesPerSecond;
+    private final Map<String, Double> weights;
+    private final Timer timer;
+    // clients are only labelled in the stats when they have a configured weight, the others are
+    // aggregated, so that the number of series does not grow with the number of clients
+    private final QuotaStats aggregatedStats;
+    private final Map<String, QuotaStats> weightedStats;
+    private final LoadingCache<String, ClientQuota> quotas;
+
+    ClientQuotaManager(ServerConfiguration conf, Timer timer, StatsLogger statsLogger) {
+        this.requestsPerSecond = conf.getPerClientRequestRateLimit();
+        this.addBytesPerSecond = conf.getPerClientAddBytesRateLimit();
+        this.weights = parseWeights(conf.getPerClientQuotaWeights());
+        this.timer = timer;
+        StatsLogger quotaStatsLogger = statsLogger.scope(CLIENT_QUOTA_SCOPE);
+        this.aggregatedStats = new QuotaStats(quotaStatsLogger);
+        this.weightedStats = new HashMap<>();
+        for (String clientId : weights.keySet()) {
+            weightedStats.put(clientId, new QuotaStats(quotaStatsLogger.scopeLabel("client", clientId)));
+        }
+        this.quotas = CacheBuilder.newBuilder()
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build(new CacheLoader<String, ClientQuota>() {
+                    @Override
+                    public ClientQuota load(String clientId) {
+                        return new ClientQuota(clientId);
+                    }
+                });
+    }
+
+    static boolean isEnabled(ServerConfiguration conf) {
+        return conf.getPerClientRequestRateLimit() > 0 || conf.getPerClientAddBytesRateLimit() > 0;
+    }
+
+    /**
+     * Charge a request to the client owning the channel, throttling the channel if the
+     * client went over its quota.
+     *
+     * @param channel channel the request was received on
+     * @param addBytes payload size for add requests, 0 for reads
+     */
+    void admit(Channel channel, long addBytes) {
+        ClientQuota quota = quotas.getUnchecked(clientId(channel));
+        long delayNanos = quota.charge(addBytes);
+        if (delayNanos > 0 && ChannelReadGate.get(channel).pause(ChannelReadGate.CLIENT_QUOTA)) {
+            quota.stats.throttled.inc();
+            quota.stats.throttleDelay.registerSuccessfulEvent(delayNanos, TimeUnit.NANOSECONDS);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Client {} over quota, pausing channel {} for {} ns", quota.clientId, channel, delayNanos);
+            }
+            timer.newTimeout(timeout -> ChannelReadGate.get(channel).resume(ChannelReadGate.CLIENT_QUOTA),
+                    delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    static String clientId(Channel channel) {
+        BookieNettyServer.BookieSideConnectionPeerContextHandler peerContext =
+                channel.pipeline().get(BookieNettyServer.BookieSideConnectionPeerContextHandler.class);
+        if (peerContext != null) {
+            BookKeeperPrincipal principal = peerContext.getConnectionPeer().getAuthorizedId();
+            if (principal != null && !BookKeeperPrincipal.ANONYMOUS.equals(principal)) {
+                return principal.getName();
+            }
+        }
+        SocketAddress remote = channel.remoteAddress();
+        if (remote instanceof InetSocketAddress) {
+            return ((InetSocketAddress) remote).getHostString();
+        }
+        return String.valueOf(remote);
+    }
+
+    /**
+     * Parses "client1:2.0,client2:0.5" into a map of weights.
+     */
+    static Map<String, Double> parseWeights(String[] entries) {
+        if (entries == null || entries.length == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, Double> weights = new HashMap<>();
+        for (String entry : entries) {
+            int idx = entry.lastIndexOf(':');
+            if (idx <= 0) {
+                LOG.warn("Ignoring malformed client quota weight '{}'", entry);
+                continue;
+            }
+            double weight;
+            try {
+                weight = Double.parseDouble(entry.substring(idx + 1).trim());
+            } catch (NumberFormatException nfe) {
+                LOG.warn("Ignoring malformed client quota weight '{}'", entry);
+                continue;
+            }
+            // a zero weight would pause the client forever, a negative one would never throttle it
+            if (!(weight > 0) || Double.isInfinite(weight)) {
+                LOG.warn("Ignoring client quota weight '{}', weights must be positive", entry);
+                continue;
+            }
+            weights.put(entry.substring(0, idx).trim(), weight);
+        }
+        return weights;
+    }
+
+    /**
+     * A simple token bucket allowing up to one second of burst. Going into debt is allowed,
+     * the debt is turned into the time the client has to wait.
+     */
+    static class TokenBucket {
+        private final double rate;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(double rate) {
+            this(rate, MathUtils.nowInNano());
+        }
+
+        TokenBucket(double rate, long nowNanos) {
+            this.rate = rate;
+            this.tokens = rate;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        long take(double permits, long nowNanos) {
+            tokens = Math.min(rate, tokens + (nowNanos - lastRefillNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = nowNanos;
+            tokens -= permits;
+            if (tokens >= 0) {
+                return 0L;
+            }
+            return (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / rate);
+        }
+    }
+
+    private static class QuotaStats {
+        final Counter requests;
+        final Counter addBytes;
+        final Counter throttled;
+        final OpStatsLogger throttleDelay;
+
+        QuotaStats(StatsLogger statsLogger) {
+            this.requests = statsLogger.getCounter(CLIENT_QUOTA_REQUESTS);
+            this.addBytes = statsLogger.getCounter(CLIENT_QUOTA_ADD_BYTES);
+            this.throttled = statsLogger.getCounter(CLIENT_QUOTA_THROTTLED);
+            this.throttleDelay = statsLogger.getOpStatsLogger(CLIENT_QUOTA_THROTTLE_DELAY);
+        }
+    }
+
+    private class ClientQuota {
+        final String clientId;
+        final TokenBucket requests;
+        final TokenBucket addBytes;
+        final QuotaStats stats;
+
+        ClientQuota(String clientId) {
+            this.clientId = clientId;
+            double weight = weights.getOrDefault(clientId, 1.0);
+            this.requests = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond * weight) : null;
+            this.addBytes = addBytesPerSecond > 0 ? new TokenBucket(addBytesPerSecond * weight) : null;
+            this.stats = weightedStats.getOrDefault(clientId, aggregatedStats);
+        }
+
+        synchronized long charge(long bytes) {
+            stats.requests.inc();
+            long now = MathUtils.nowInNano();
+            long delay = 0L;
+            if (requests != null) {
+                delay = requests.take(1, now);
+            }
+            if (bytes > 0) {
+                stats.addBytes.add(bytes);
+                if (addBytes != null) {
+                    delay = Math.max(delay, addBytes.take(bytes, now));
+                }
+            }
+            return delay;
+        }
+    }
+}
@@ -174,4 +174,32 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         }
         return numPending;
     }
+
+    @Override
+    public long getReadLatencyEwmaNanos() {
+        long sum = 0;
+        int count = 0;
+        for (PerChannelBookieClient pcbc : clients) {
+            long latency = pcbc.getReadLatencyEwmaNanos();
+            if (latency >= 0) {
+                sum += latency;
+                count++;
+            }
+        }
+        return count == 0 ? -1L : sum / count;
+    }
+
+    @Override
+    public long getOutstandingAddBytes() {
+        long bytes = 0;
+        for (PerChannelBookieClient pcbc : clients) {
+            bytes += pcbc.getOutstandingAddBytes();
+        }
+        if (clients != clientsV3Enforced) {
+            for (PerChannelBookieClient pcbc : clientsV3Enforced) {
+                bytes += pcbc.getOutstandingAddBytes();
+            }
+        }
+        return bytes;
+    }
 }
@@ -73,6 +73,9 @@ public class GetBookieInfoProcessorV3 extends PacketProcessorBaseV3 implements R
                 totalDiskSpace = requestProcessor.getBookie().getTotalDiskSpace();
                 getBookieInfoResponse.setTotalDiskCapacity(totalDiskSpace);
             }
+            if ((requested & GetBookieInfoRequest.Flags.LOAD_VALUE) != 0) {
+                getBookieInfoResponse.setLoad(requestProcessor.getLoadSampler().sample());
+            }
             LOG.debug("FreeDiskSpace info is " + freeDiskSpace + " totalDiskSpace is: " + totalDiskSpace);
         } catch (IOException e) {
             status = StatusCode.EIO;
@@ -0,0 +1,50 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import org.apache.bookkeeper.net.BookieId;
+
+/**
+ * Receives the last add confirmed updates of the ledgers watched with
+ * {@link BookieClient#watchLac}.
+ *
+ * <p>Listeners are invoked on the client callback threads and should not block.
+ */
+public interface LacWatchListener {
+
+    /**
+     * The last add confirmed of a watched ledger advanced on a bookie, or the bookie dropped the
+     * watch of the ledger.
+     *
+     * @param bookieId the bookie that sent the update
+     * @param ledgerId the watched ledger
+     * @param rc {@code OK} if the last add confirmed advanced, otherwise the reason the watch was dropped
+     * @param lac the last add confirmed known by the bookie, if {@code rc} is {@code OK}
+     */
+    void onLacUpdate(BookieId bookieId, long ledgerId, int rc, long lac);
+
+    /**
+     * The connection the watches were registered on was closed, so the bookie forgot all of them.
+     *
+     * @param bookieId the bookie whose watches were lost
+     */
+    void onLacWatchesLost(BookieId bookieId);
+}
@@ -0,0 +1,345 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
+import org.apache.bookkeeper.common.util.Watcher;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacResponse.LacNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ledgers whose last add confirmed is watched by a client connection.
+ *
+ * <p>Each watched ledger registers a one-shot watcher with the bookie. When the last add confirmed
+ * of a ledger advances, the ledger is marked as updated and a flush is scheduled after the batch
+ * delay, so the updates of many ledgers are pushed to the client in a single
+ * {@link WatchLacResponse} with txnId {@link #NOTIFICATION_TXN_ID}. The watchers of the updated
+ * ledgers are registered again by the flush.
+ *
+ * <p>Watch requests and flushes of a connection run on the long poll thread of the connection, only
+ * the set of updated ledgers is shared with the threads notifying the watchers.
+ */
+class LacWatchSet {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LacWatchSet.class);
+
+    static final AttributeKey<LacWatchSet> LAC_WATCH_SET = AttributeKey.valueOf("lacWatchSet");
+
+    // txnId of the notifications which are not a response to a watch request
+    static final long NOTIFICATION_TXN_ID = 0L;
+
+    // delay before submitting again a task the long poll thread rejected
+    private static final long RETRY_DELAY_MS = 1L;
+    // min delay before trying again a flush held back by a channel which is not writable
+    static final long UNWRITABLE_FLUSH_DELAY_MS = 10L;
+
+    private final Channel channel;
+    private final BookieRequestProcessor requestProcessor;
+    private final ExecutorService executor;
+    private final long batchDelayMs;
+    private final int maxWatches;
+
+    // only accessed from the executor
+    private final Map<Long, LedgerWatch> watches = new HashMap<>();
+
+    // guarded by this
+    private Set<LedgerWatch> updated = new LinkedHashSet<>();
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    private LacWatchSet(Channel channel, BookieRequestProcessor requestProcessor) {
+        this.channel = channel;
+        this.requestProcessor = requestProcessor;
+        this.executor = requestProcessor.getLongPollThreadPool().chooseThread(channel);
+        this.batchDelayMs = requestProcessor.getServerCfg().getLacWatchBatchDelayMs();
+        this.maxWatches = requestProcessor.getServerCfg().getMaxLacWatchesPerChannel();
+    }
+
+    /**
+     * Get the watch set of a connection, creating it on the first watch request.
+     */
+    static LacWatchSet get(Channel channel, BookieRequestProcessor requestProcessor) {
+        Attribute<LacWatchSet> attr = channel.attr(LAC_WATCH_SET);
+        LacWatchSet watchSet = attr.get();
+        if (null == watchSet) {
+            LacWatchSet newWatchSet = new LacWatchSet(channel, requestProcessor);
+            watchSet = attr.setIfAbsent(newWatchSet);
+            if (null == watchSet) {
+                watchSet = newWatchSet;
+                channel.closeFuture().addListener(future -> newWatchSet.execute(newWatchSet::close, () -> { }));
+            }
+        }
+        return watchSet;
+    }
+
+    /**
+     * Executor the requests of the connection must be processed on.
+     */
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Apply a watch request. Ledgers whose last add confirmed is already past the one seen by the
+     * client are notified in the given response.
+     */
+    void process(WatchLacRequest request, WatchLacResponse.Builder response) {
+        for (long ledgerId : request.getUnwatchList()) {
+            LedgerWatch watch = watches.remove(ledgerId);
+            if (null != watch) {
+                watch.cancel();
+                requestProcessor.getRequestStats().trackLacWatches(-1);
+            }
+        }
+        for (WatchLacRequest.WatchedLedger watched : request.getWatchList()) {
+            long ledgerId = watched.getLedgerId();
+            LedgerWatch watch = watches.get(ledgerId);
+            if (null == watch) {
+                if (watches.size() >= maxWatches) {
+                    response.addNotifications(LacNotification.newBuilder()
+                            .setLedgerId(ledgerId)
+                            .setStatus(StatusCode.ETOOMANYREQUESTS));
+                    continue;
+                }
+                watch = new LedgerWatch(ledgerId);
+                watches.put(ledgerId, watch);
+                requestProcessor.getRequestStats().trackLacWatches(1);
+            }
+            // the client may have reconnected and seen less than what was already notified
+            watch.lastNotifiedLac = watched.getLastSeenLAC();
+            checkAndWatch(watch, response);
+        }
+    }
+
+    /**
+     * Notify the last add confirmed of the ledger if it advanced and make sure the bookie notifies
+     * the next update.
+     */
+    private void checkAndWatch(LedgerWatch watch, WatchLacResponse.Builder response) {
+        long ledgerId = watch.ledgerId;
+        StatusCode status;
+        try {
+            long lac = requestProcessor.getBookie().readLastAddConfirmed(ledgerId);
+            if (lac > watch.lastNotifiedLac) {
+                response.addNotifications(LacNotification.newBuilder()
+                        .setLedgerId(ledgerId)
+                        .setStatus(StatusCode.EOK)
+                        .setLac(lac));
+                watch.lastNotifiedLac = lac;
+            }
+            if (!watch.registered) {
+                watch.registered = true;
+                if (!requestProcessor.getBookie().waitForLastAddConfirmedUpdate(ledgerId, watch.lastNotifiedLac,
+                        watch)) {
+                    // either the lac advanced since it was read or the ledger info is being
+                    // closed, look at it again in the next flush
+                    watch.registered = false;
+                    markUpdated(watch);
+                }
+            }
+            return;
+        } catch (Bookie.NoLedgerException e) {
+            status = StatusCode.ENOLEDGER;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No ledger found while watching lac of ledger {}", ledgerId);
+            }
+        } catch (BookieException.DataUnknownException e) {
+            status = StatusCode.EUNKNOWNLEDGERSTATE;
+            LOG.error("Ledger {} in unknown state and cannot be watched", ledgerId, e);
+        } catch (BookieException | IOException e) {
+            status = StatusCode.EIO;
+            LOG.error("IOException while watching lac of ledger {}", ledgerId, e);
+        }
+        // the watch is dropped, the client has to watch the ledger again
+        response.addNotifications(LacNotification.newBuilder()
+                .setLedgerId(ledgerId)
+                .setStatus(status));
+        if (watches.remove(ledgerId, watch)) {
+            watch.cancel();
+            requestProcessor.getRequestStats().trackLacWatches(-1);
+        }
+    }
+
+    private void markUpdated(LedgerWatch watch) {
+        boolean schedule;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            updated.add(watch);
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        if (schedule) {
+            scheduleFlush(batchDelayMs);
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (delayMs <= 0) {
+            execute(this::flush, this::flushDropped);
+            return;
+        }
+        try {
+            requestProcessor.getRequestTimer().newTimeout(timeout -> execute(this::flush, this::flushDropped),
+                    delayMs, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // the request timer is stopped, the bookie is shutting down
+            flushDropped();
+        }
+    }
+
+    /**
+     * The scheduled flush will not run, let the next update schedule a new one.
+     */
+    private synchronized void flushDropped() {
+        flushScheduled = false;
+    }
+
+    private void execute(Runnable task, Runnable onDropped) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                if (closed || executor.isShutdown()) {
+                    // nothing left to run the task for
+                    onDropped.run();
+                    return;
+                }
+            }
+            // the queue of the long poll thread is full, try again on the next tick
+            try {
+                requestProcessor.getRequestTimer().newTimeout(timeout -> execute(task, onDropped),
+                        RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException ise) {
+                // the request timer is stopped, the bookie is shutting down
+                onDropped.run();
+            }
+        }
+    }
+
+    /**
+     * Push the last add confirmed of the ledgers updated since the previous flush.
+     */
+    private void flush() {
+        Set<LedgerWatch> toFlush;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (!channel.isWritable()) {
+                // keep accumulating the updates until the client catches up, without spinning on the
+                // long poll thread when there is no batch delay
+                scheduleFlush(Math.max(batchDelayMs, UNWRITABLE_FLUSH_DELAY_MS));
+                return;
+            }
+            toFlush = updated;
+            updated = new LinkedHashSet<>();
+            flushScheduled = false;
+        }
+
+        WatchLacResponse.Builder notifications = WatchLacResponse.newBuilder();
+        for (LedgerWatch watch : toFlush) {
+            if (watches.get(watch.ledgerId) == watch) {
+                checkAndWatch(watch, notifications);
+            }
+        }
+        if (notifications.getNotificationsCount() == 0 || !channel.isActive()) {
+            return;
+        }
+        requestProcessor.getRequestStats().getLacWatchNotificationsCounter()
+                .add(notifications.getNotificationsCount());
+        BKPacketHeader header = BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.WATCH_LAC)
+                .setTxnId(NOTIFICATION_TXN_ID)
+                .build();
+        channel.writeAndFlush(Response.newBuilder()
+                .setHeader(header)
+                .setStatus(StatusCode.EOK)
+                .setWatchLacResponse(notifications)
+                .build());
+    }
+
+    private void close() {
+        synchronized (this) {
+            closed = true;
+            updated.clear();
+        }
+        for (LedgerWatch watch : watches.values()) {
+            watch.cancel();
+        }
+        requestProcessor.getRequestStats().trackLacWatches(-watches.size());
+        watches.clear();
+    }
+
+    private class LedgerWatch implements Watcher<LastAddConfirmedUpdateNotification> {
+        final long ledgerId;
+        // only accessed from the executor
+        long lastNotifiedLac = BookieProtocol.INVALID_ENTRY_ID;
+        // whether the watcher is registered with the bookie, cleared when it is notified
+        volatile boolean registered = false;
+
+        LedgerWatch(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        @Override
+        public void update(LastAddConfirmedUpdateNotification notification) {
+            notification.recycle();
+            registered = false;
+            markUpdated(this);
+        }
+
+        void cancel() {
+            if (!registered) {
+                return;
+            }
+            try {
+                requestProcessor.getBookie().cancelWaitForLastAddConfirmedUpdate(ledgerId, this);
+            } catch (IOException e) {
+                LOG.warn("Failed to cancel the lac watch of ledger {}", ledgerId, e);
+            }
+            registered = false;
+        }
+    }
+}
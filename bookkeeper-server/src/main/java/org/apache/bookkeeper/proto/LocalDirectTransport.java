@@ -0,0 +1,160 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handlers that let a client talk to a bookie running in the same JVM without going through
+ * the wire encoding.
+ *
+ * <p>The client and the bookie still exchange messages over a netty local channel, so requests
+ * and responses are handed over between the same event loops and thread pools as before, but
+ * the messages are the decoded request and response objects themselves. The client replaces its
+ * codec with a {@link RequestEncoder}, which only turns requests into the shape the bookie side
+ * decoder would have produced. The bookie keeps its regular pipeline and drops the codec
+ * handlers once it sees that the first message on a channel is not a serialized frame, so
+ * clients with the direct transport disabled keep working against the same bookie.
+ */
+public class LocalDirectTransport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalDirectTransport.class);
+
+    static final String DETECTOR_NAME = "localDirectTransportDetector";
+
+    /**
+     * Client side replacement of {@link BookieProtoEncoding.RequestEncoder}.
+     *
+     * <p>V3 entry payloads are built by aliasing the caller's buffers, which may be released as
+     * soon as the write quorum has been reached, so they are copied once into the request. V2 add
+     * requests are handed over as {@link BookieProtocol.ParsedAddRequest}s holding a reference to
+     * the payload buffers, without copying them.
+     */
+    @Sharable
+    public static class RequestEncoder extends ChannelOutboundHandlerAdapter {
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Hand over request {} to local channel {}.", msg, ctx.channel());
+            }
+            if (msg instanceof Request) {
+                ctx.write(detachPayload((Request) msg), promise);
+            } else if (msg instanceof BookieProtocol.AddRequest) {
+                ctx.write(toParsedAddRequest(ctx, (BookieProtocol.AddRequest) msg), promise);
+            } else {
+                ctx.write(msg, promise);
+            }
+        }
+
+        private static Request detachPayload(Request request) {
+            if (request.hasAddRequest()) {
+                BookkeeperProtocol.AddRequest add = request.getAddRequest();
+                return request.toBuilder()
+                        .setAddRequest(add.toBuilder().setBody(copy(add.getBody())))
+                        .build();
+            } else if (request.hasWriteLacRequest()) {
+                BookkeeperProtocol.WriteLacRequest writeLac = request.getWriteLacRequest();
+                return request.toBuilder()
+                        .setWriteLacRequest(writeLac.toBuilder().setBody(copy(writeLac.getBody())))
+                        .build();
+            } else {
+                return request;
+            }
+        }
+
+        private static ByteString copy(ByteString body) {
+            return ByteString.copyFrom(body.asReadOnlyByteBuffer());
+        }
+
+        private static BookieProtocol.ParsedAddRequest toParsedAddRequest(ChannelHandlerContext ctx,
+                                                                          BookieProtocol.AddRequest ar) {
+            ByteBufList data = ar.getData();
+            ByteBuf payload;
+            try {
+                if (data.size() == 1) {
+                    payload = data.getBuffer(0).retain();
+                } else {
+                    CompositeByteBuf composite = ctx.alloc().compositeBuffer(data.size());
+                    for (int i = 0; i < data.size(); i++) {
+                        composite.addComponent(true, data.getBuffer(i).retain());
+                    }
+                    payload = composite;
+                }
+            } finally {
+                data.release();
+            }
+            try {
+                // the bookie resets to the mark when it needs to re-read the entry
+                payload.markReaderIndex();
+                return BookieProtocol.ParsedAddRequest.create(
+                        ar.getProtocolVersion(), ar.getLedgerId(), ar.getEntryId(), ar.getFlags(),
+                        ar.getMasterKey(), payload);
+            } finally {
+                payload.release();
+                ar.recycle();
+            }
+        }
+    }
+
+    /**
+     * Bookie side handler placed at the head of the local channel pipeline. It looks at the first
+     * message received on the channel: if it is an already decoded request, the frame and codec
+     * handlers are removed from the pipeline for the lifetime of the channel.
+     */
+    public static class Detector extends ChannelInboundHandlerAdapter {
+
+        private final String[] codecHandlers;
+
+        public Detector(String... codecHandlers) {
+            this.codecHandlers = codecHandlers;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            ChannelPipeline pipeline = ctx.pipeline();
+            if (!(msg instanceof ByteBuf)) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Switching local channel {} to the direct transport", ctx.channel());
+                }
+                for (String name : codecHandlers) {
+                    if (pipeline.get(name) != null) {
+                        pipeline.remove(name);
+                    }
+                }
+            }
+            pipeline.remove(this);
+            ctx.fireChannelRead(msg);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import io.netty.channel.ChannelFutureListener;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.CompressionType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
@@ -126,6 +127,13 @@ public abstract class PacketProcessorBaseV3 extends SafeRunnable {
         header.setVersion(ProtocolVersion.VERSION_THREE);
         header.setOperation(request.getHeader().getOperation());
         header.setTxnId(request.getHeader().getTxnId());
+        if (request.getHeader().hasFlowControl() && requestProcessor.isFlowControlEnabled()) {
+            header.setFlowControl(requestProcessor.getFlowControlGrant(channel));
+        }
+        if (requestProcessor.isWireCompressionEnabled()
+                && request.getHeader().getCompression() == CompressionType.LZ4) {
+            header.setCompression(CompressionType.LZ4);
+        }
         return header.build();
     }
 
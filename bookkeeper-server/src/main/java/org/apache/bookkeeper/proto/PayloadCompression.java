@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
+
+/**
+ * LZ4 compression of entry payloads on the v3 wire protocol.
+ *
+ * <p>Compression is negotiated per connection through the {@code compression} field of the
+ * packet header: the client advertises that it can decode compressed read responses, the
+ * bookie advertises that it accepts compressed add requests. Payloads are only compressed
+ * above a size threshold and only sent compressed when that actually saves space.
+ *
+ * <p>Compressed payloads come from the peer, so they are decompressed with the safe decompressor
+ * and their declared uncompressed size is checked against the max frame size before anything is
+ * allocated.
+ */
+class PayloadCompression {
+
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+    private static final LZ4Compressor COMPRESSOR = FACTORY.fastCompressor();
+    private static final LZ4SafeDecompressor DECOMPRESSOR = FACTORY.safeDecompressor();
+
+    private final int minPayloadSize;
+    private final int maxPayloadSize;
+    private final Counter uncompressedBytes;
+    private final Counter compressedBytes;
+    private final OpStatsLogger compressStats;
+    private final OpStatsLogger decompressStats;
+
+    PayloadCompression(int minPayloadSize,
+                       int maxPayloadSize,
+                       Counter uncompressedBytes,
+                       Counter compressedBytes,
+                       OpStatsLogger compressStats,
+                       OpStatsLogger decompressStats) {
+        this.minPayloadSize = minPayloadSize;
+        this.maxPayloadSize = maxPayloadSize;
+        this.uncompressedBytes = uncompressedBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressStats = compressStats;
+        this.decompressStats = decompressStats;
+    }
+
+    /**
+     * Compress the readable bytes of the given buffers into a pooled buffer. The caller owns the
+     * returned buffer.
+     *
+     * @return the compressed payload, or null if the payload is below the threshold
+     *         or does not compress.
+     */
+    ByteBuf compress(ByteBufAllocator allocator, ByteBuf... buffers) {
+        int size = 0;
+        for (ByteBuf buf : buffers) {
+            size += buf.readableBytes();
+        }
+        if (size < minPayloadSize) {
+            return null;
+        }
+
+        final long startNanos = MathUtils.nowInNano();
+        ByteBuf contiguous = null;
+        ByteBuf dst = null;
+        try {
+            ByteBuffer src;
+            if (buffers.length == 1 && buffers[0].nioBufferCount() == 1) {
+                src = buffers[0].nioBuffer();
+            } else {
+                // coalesce into a pooled buffer, lz4 needs contiguous input
+                contiguous = allocator.buffer(size, size);
+                for (ByteBuf buf : buffers) {
+                    contiguous.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+                }
+                src = contiguous.nioBuffer();
+            }
+
+            int maxLen = COMPRESSOR.maxCompressedLength(size);
+            dst = allocator.directBuffer(maxLen, maxLen);
+            ByteBuffer dstNio = dst.nioBuffer(0, maxLen);
+            int compressedLen = COMPRESSOR.compress(src, src.position(), size, dstNio, dstNio.position(), maxLen);
+            if (compressedLen >= size) {
+                compressStats.registerFailedEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+                return null;
+            }
+            dst.writerIndex(compressedLen);
+            uncompressedBytes.add(size);
+            compressedBytes.add(compressedLen);
+            compressStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+            ByteBuf compressed = dst;
+            dst = null;
+            return compressed;
+        } finally {
+            if (contiguous != null) {
+                contiguous.release();
+            }
+            if (dst != null) {
+                dst.release();
+            }
+        }
+    }
+
+    /**
+     * Decompress a payload into a pooled buffer. The caller owns the returned buffer.
+     *
+     * @throws LZ4Exception if the uncompressed size is out of range or the payload does not
+     *         decompress to exactly that size.
+     */
+    ByteBuf decompress(ByteBufAllocator allocator, ByteString compressed, int uncompressedSize) {
+        final long startNanos = MathUtils.nowInNano();
+        // the size comes from the peer, check it before allocating
+        if (uncompressedSize <= 0 || uncompressedSize > maxPayloadSize) {
+            decompressStats.registerFailedEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+            throw new LZ4Exception("Invalid uncompressed payload size " + uncompressedSize);
+        }
+        ByteBuf dst = allocator.buffer(uncompressedSize, uncompressedSize);
+        try {
+            ByteBuffer src = compressed.asReadOnlyByteBuffer();
+            ByteBuffer dstNio = dst.nioBuffer(0, uncompressedSize);
+            int decompressedLen = DECOMPRESSOR.decompress(src, src.position(), src.remaining(),
+                    dstNio, dstNio.position(), uncompressedSize);
+            if (decompressedLen != uncompressedSize) {
+                throw new LZ4Exception("Payload decompressed to " + decompressedLen + " bytes instead of "
+                        + uncompressedSize);
+            }
+            dst.writerIndex(uncompressedSize);
+        } catch (LZ4Exception e) {
+            dst.release();
+            decompressStats.registerFailedEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        decompressStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+        return dst;
+    }
+}
@@ -57,6 +57,7 @@ import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import java.io.IOException;
@@ -77,14 +78,18 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiPredicate;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import lombok.SneakyThrows;
+import net.jpountz.lz4.LZ4Exception;
 import org.apache.bookkeeper.auth.BookKeeperPrincipal;
 import org.apache.bookkeeper.auth.ClientAuthProvider;
 import org.apache.bookkeeper.client.BKException;
@@ -109,6 +114,8 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.CompressionType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.FlowControlGrant;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ForceLedgerRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ForceLedgerResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetBookieInfoRequest;
@@ -124,6 +131,8 @@ import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.WriteLacRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.WriteLacResponse;
 import org.apache.bookkeeper.stats.Counter;
@@ -169,6 +178,12 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                         BKException.Code.WriteOnReadOnlyBookieException));
     private static final int DEFAULT_HIGH_PRIORITY_VALUE = 100; // We may add finer grained priority later.
     private static final AtomicLong txnIdGenerator = new AtomicLong(0);
+    // txnId of the last add confirmed updates pushed by the bookies, never used by requests
+    private static final long LAC_NOTIFICATION_TXN_ID = 0L;
+    // weight of the latest sample in the read latency moving average
+    private static final double READ_LATENCY_EWMA_ALPHA = 0.2;
+    private static final AtomicLongFieldUpdater<CompletionValue> FLOW_CONTROL_BYTES_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(CompletionValue.class, "flowControlBytes");
 
     final BookieId bookieId;
     final BookieAddressResolver bookieAddressResolver;
@@ -260,6 +275,16 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         help = "timeout stats of start_tls requests"
     )
     private final OpStatsLogger startTLSTimeoutOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_WATCH_LAC_OP,
+        help = "channel stats of watch_lac requests"
+    )
+    private final OpStatsLogger watchLacOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_TIMEOUT_WATCH_LAC,
+        help = "timeout stats of watch_lac requests"
+    )
+    private final OpStatsLogger watchLacTimeoutOpLogger;
     @StatsDoc(
         name = BookKeeperClientStats.CLIENT_CONNECT_TIMER,
         help = "channel stats of connect requests"
@@ -308,8 +333,60 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         help = "the number of failed tls handshakes"
     )
     private final Counter failedTlsHandshakeCounter;
+    @StatsDoc(
+        name = BookKeeperClientStats.FLOW_CONTROL_QUEUED,
+        help = "the number of requests queued locally waiting for flow control credits"
+    )
+    private final Counter flowControlQueuedCounter;
+    @StatsDoc(
+        name = BookKeeperClientStats.WIRE_COMPRESSION_UNCOMPRESSED_BYTES,
+        help = "the number of add payload bytes that were compressed before being sent"
+    )
+    private final Counter wireCompressionUncompressedBytes;
+    @StatsDoc(
+        name = BookKeeperClientStats.WIRE_COMPRESSION_COMPRESSED_BYTES,
+        help = "the number of bytes sent on the wire for compressed add payloads"
+    )
+    private final Counter wireCompressionCompressedBytes;
+    @StatsDoc(
+        name = BookKeeperClientStats.WIRE_COMPRESSION_TIME,
+        help = "the time spent compressing add payloads"
+    )
+    private final OpStatsLogger wireCompressionTimeOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.WIRE_DECOMPRESSION_TIME,
+        help = "the time spent decompressing read payloads"
+    )
+    private final OpStatsLogger wireDecompressionTimeOpLogger;
 
     private final boolean useV2WireProtocol;
+    /**
+     * Whether requests to a bookie running in this JVM are handed over without wire encoding.
+     */
+    private final boolean useLocalDirectTransport;
+    /**
+     * Credit based flow control window for this connection, null if disabled.
+     */
+    private final ClientFlowControl flowControl;
+    /**
+     * Payload compression for this connection, null if disabled. Add payloads are only sent
+     * compressed once the bookie advertised that it accepts them.
+     */
+    private final PayloadCompression payloadCompression;
+    private volatile boolean peerAcceptsCompression = false;
+    private volatile BookieLatencyListener latencyListener = null;
+    private volatile LacWatchListener lacWatchListener = null;
+    // set once a watch request was sent on the current channel, the bookie drops the watches with the channel
+    private volatile boolean lacWatchesRegistered = false;
+    /**
+     * Exponentially weighted moving average of the latency of successful reads, -1 until the first read
+     * completes. Concurrent updates may be lost, which is fine for a heuristic.
+     */
+    private volatile long readLatencyEwmaNanos = -1L;
+    /**
+     * Payload bytes of the adds sent on this channel that did not complete yet.
+     */
+    private final LongAdder outstandingAddBytes = new LongAdder();
     private final boolean preserveMdcForTaskExecution;
 
     /**
@@ -398,10 +475,15 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         this.startTLSTimeout = conf.getStartTLSTimeout();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
         this.preserveMdcForTaskExecution = conf.getPreserveMdcForTaskExecution();
+        this.flowControl = conf.isClientFlowControlEnabled() && !useV2WireProtocol ? new ClientFlowControl() : null;
 
         this.authProviderFactory = authProviderFactory;
         this.extRegistry = extRegistry;
         this.shFactory = shFactory;
+        // TLS needs the wire encoding, keep the regular pipeline when it is configured
+        this.useLocalDirectTransport = conf.isLocalDirectTransportEnabled()
+                && shFactory == null
+                && LocalBookiesRegistry.isLocalBookie(bookieId);
         if (shFactory != null) {
             shFactory.init(NodeType.Client, conf, allocator);
         }
@@ -425,6 +507,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         getBookieInfoTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.TIMEOUT_GET_BOOKIE_INFO);
         startTLSOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_START_TLS_OP);
         startTLSTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_START_TLS_OP);
+        watchLacOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_WATCH_LAC_OP);
+        watchLacTimeoutOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_TIMEOUT_WATCH_LAC);
         getListOfEntriesOfLedgerCompletionTimeoutOpLogger = statsLogger
                 .getOpStatsLogger(BookKeeperClientStats.TIMEOUT_GET_LIST_OF_ENTRIES_OF_LEDGER);
         exceptionCounter = statsLogger.getCounter(BookKeeperClientStats.NETTY_EXCEPTION_CNT);
@@ -436,6 +520,21 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         activeTlsChannelCounter = statsLogger.getCounter(BookKeeperClientStats.ACTIVE_TLS_CHANNEL_COUNTER);
         failedConnectionCounter = statsLogger.getCounter(BookKeeperClientStats.FAILED_CONNECTION_COUNTER);
         failedTlsHandshakeCounter = statsLogger.getCounter(BookKeeperClientStats.FAILED_TLS_HANDSHAKE_COUNTER);
+        flowControlQueuedCounter = statsLogger.getCounter(BookKeeperClientStats.FLOW_CONTROL_QUEUED);
+        wireCompressionUncompressedBytes =
+            statsLogger.getCounter(BookKeeperClientStats.WIRE_COMPRESSION_UNCOMPRESSED_BYTES);
+        wireCompressionCompressedBytes =
+            statsLogger.getCounter(BookKeeperClientStats.WIRE_COMPRESSION_COMPRESSED_BYTES);
+        wireCompressionTimeOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.WIRE_COMPRESSION_TIME);
+        wireDecompressionTimeOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.WIRE_DECOMPRESSION_TIME);
+        if (conf.isClientWireCompressionEnabled() && !useV2WireProtocol) {
+            this.payloadCompression = new PayloadCompression(conf.getWireCompressionMinPayloadSize(),
+                    conf.getNettyMaxFrameSizeBytes(),
+                    wireCompressionUncompressedBytes, wireCompressionCompressedBytes,
+                    wireCompressionTimeOpLogger, wireDecompressionTimeOpLogger);
+        } else {
+            this.payloadCompression = null;
+        }
 
         this.pcbcPool = pcbcPool;
 
@@ -524,6 +623,23 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         return completionObjects.size();
     }
 
+    long getReadLatencyEwmaNanos() {
+        return readLatencyEwmaNanos;
+    }
+
+    long getOutstandingAddBytes() {
+        return outstandingAddBytes.sum();
+    }
+
+    private void updateReadLatencyEwma(long latencyNanos) {
+        long current = readLatencyEwmaNanos;
+        if (current < 0) {
+            readLatencyEwmaNanos = latencyNanos;
+        } else {
+            readLatencyEwmaNanos = current + (long) (READ_LATENCY_EWMA_ALPHA * (latencyNanos - current));
+        }
+    }
+
     protected ChannelFuture connect() {
         final long startTime = MathUtils.nowInNano();
         if (LOG.isDebugEnabled()) {
@@ -583,14 +699,18 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             protected void initChannel(Channel ch) throws Exception {
                 ChannelPipeline pipeline = ch.pipeline();
 
-                pipeline.addLast("bytebufList", ByteBufList.ENCODER_WITH_SIZE);
-                pipeline.addLast("lengthbasedframedecoder",
-                        new LengthFieldBasedFrameDecoder(maxFrameSize, 0, 4, 0, 4));
-                pipeline.addLast("lengthprepender", new LengthFieldPrepender(4));
-                pipeline.addLast("bookieProtoEncoder", new BookieProtoEncoding.RequestEncoder(extRegistry));
-                pipeline.addLast(
-                    "bookieProtoDecoder",
-                    new BookieProtoEncoding.ResponseDecoder(extRegistry, useV2WireProtocol, shFactory != null));
+                if (useLocalDirectTransport) {
+                    pipeline.addLast("bookieProtoEncoder", new LocalDirectTransport.RequestEncoder());
+                } else {
+                    pipeline.addLast("bytebufList", ByteBufList.ENCODER_WITH_SIZE);
+                    pipeline.addLast("lengthbasedframedecoder",
+                            new LengthFieldBasedFrameDecoder(maxFrameSize, 0, 4, 0, 4));
+                    pipeline.addLast("lengthprepender", new LengthFieldPrepender(4));
+                    pipeline.addLast("bookieProtoEncoder", new BookieProtoEncoding.RequestEncoder(extRegistry));
+                    pipeline.addLast(
+                        "bookieProtoDecoder",
+                        new BookieProtoEncoding.ResponseDecoder(extRegistry, useV2WireProtocol, shFactory != null));
+                }
                 pipeline.addLast("authHandler", new AuthHandler.ClientSideHandler(authProviderFactory, txnIdGenerator,
                             connectionPeer, useV2WireProtocol));
                 pipeline.addLast("mainhandler", PerChannelBookieClient.this);
@@ -613,6 +733,20 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         close();
     }
 
+    /**
+     * Set the listener notified of the latency of the requests completed on this channel.
+     */
+    void setLatencyListener(BookieLatencyListener latencyListener) {
+        this.latencyListener = latencyListener;
+    }
+
+    /**
+     * Set the listener notified of the last add confirmed updates of the ledgers watched on this channel.
+     */
+    void setLacWatchListener(LacWatchListener lacWatchListener) {
+        this.lacWatchListener = lacWatchListener;
+    }
+
     /**
      *
      * @return boolean, true is PCBC is writable
@@ -763,8 +897,34 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
      */
     void addEntry(final long ledgerId, byte[] masterKey, final long entryId, ByteBufList toSend, WriteCallback cb,
                   Object ctx, final int options, boolean allowFastFail, final EnumSet<WriteFlag> writeFlags) {
+        addEntry(ledgerId, masterKey, entryId, toSend, cb, ctx, options, allowFastFail, writeFlags, true);
+    }
+
+    /**
+     * Add a batch of entries, writing them to the connection before flushing it once.
+     *
+     * @see #addEntry(long, byte[], long, ByteBufList, WriteCallback, Object, int, boolean, EnumSet)
+     */
+    void addEntries(final long ledgerId, byte[] masterKey, final long[] entryIds, ByteBufList[] toSend,
+                    WriteCallback[] cbs, Object ctx, final int options, boolean allowFastFail,
+                    final EnumSet<WriteFlag> writeFlags) {
+        for (int i = 0; i < entryIds.length; i++) {
+            addEntry(ledgerId, masterKey, entryIds[i], toSend[i], cbs[i], ctx, options, allowFastFail, writeFlags,
+                     false);
+        }
+        final Channel c = channel;
+        if (c != null) {
+            c.flush();
+        }
+    }
+
+    private void addEntry(final long ledgerId, byte[] masterKey, final long entryId, ByteBufList toSend,
+                          WriteCallback cb, Object ctx, final int options, boolean allowFastFail,
+                          final EnumSet<WriteFlag> writeFlags, final boolean flush) {
         Object request = null;
         CompletionKey completionKey = null;
+        // pooled, released once the request is written or dropped
+        ByteBuf compressedBody = null;
         if (useV2WireProtocol) {
             if (writeFlags.contains(WriteFlag.DEFERRED_SYNC)) {
                 LOG.error("invalid writeflags {} for v2 protocol", writeFlags);
@@ -789,15 +949,36 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             if (((short) options & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
                 headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
             }
+            if (flowControl != null) {
+                headerBuilder.setFlowControl(FlowControlGrant.getDefaultInstance());
+            }
+            if (payloadCompression != null) {
+                headerBuilder.setCompression(CompressionType.LZ4);
+            }
 
             ByteString body = null;
-            if (toSend.hasArray()) {
-                body = UnsafeByteOperations.unsafeWrap(toSend.array(), toSend.arrayOffset(), toSend.readableBytes());
-            } else {
-                for (int i = 0; i < toSend.size(); i++) {
-                    ByteString piece = UnsafeByteOperations.unsafeWrap(toSend.getBuffer(i).nioBuffer());
-                    // use ByteString.concat to avoid byte[] allocation when toSend has multiple ByteBufs
-                    body = (body == null) ? piece : body.concat(piece);
+            int uncompressedSize = -1;
+            if (payloadCompression != null && peerAcceptsCompression) {
+                ByteBuf[] buffers = new ByteBuf[toSend.size()];
+                for (int i = 0; i < buffers.length; i++) {
+                    buffers[i] = toSend.getBuffer(i);
+                }
+                compressedBody = payloadCompression.compress(allocator, buffers);
+                if (compressedBody != null) {
+                    body = UnsafeByteOperations.unsafeWrap(compressedBody.nioBuffer());
+                    uncompressedSize = toSend.readableBytes();
+                }
+            }
+            if (body == null) {
+                if (toSend.hasArray()) {
+                    body = UnsafeByteOperations.unsafeWrap(toSend.array(), toSend.arrayOffset(),
+                                                           toSend.readableBytes());
+                } else {
+                    for (int i = 0; i < toSend.size(); i++) {
+                        ByteString piece = UnsafeByteOperations.unsafeWrap(toSend.getBuffer(i).nioBuffer());
+                        // use ByteString.concat to avoid byte[] allocation when toSend has multiple ByteBufs
+                        body = (body == null) ? piece : body.concat(piece);
+                    }
                 }
             }
             AddRequest.Builder addBuilder = AddRequest.newBuilder()
@@ -805,6 +986,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .setEntryId(entryId)
                     .setMasterKey(UnsafeByteOperations.unsafeWrap(masterKey))
                     .setBody(body);
+            if (uncompressedSize >= 0) {
+                addBuilder.setUncompressedSize(uncompressedSize);
+            }
 
             if (((short) options & BookieProtocol.FLAG_RECOVERY_ADD) == BookieProtocol.FLAG_RECOVERY_ADD) {
                 addBuilder.setFlag(AddRequest.Flag.RECOVERY_ADD);
@@ -821,19 +1005,24 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .build();
         }
 
-        putCompletionKeyValue(completionKey,
-                              acquireAddCompletion(completionKey,
-                                                   cb, ctx, ledgerId, entryId));
+        AddCompletion addCompletion = acquireAddCompletion(completionKey, cb, ctx, ledgerId, entryId);
+        addCompletion.outstandingBytes = toSend.readableBytes();
+        outstandingAddBytes.add(addCompletion.outstandingBytes);
+        putCompletionKeyValue(completionKey, addCompletion);
         final Channel c = channel;
         if (c == null) {
             // usually checked in writeAndFlush, but we have extra check
             // because we need to release toSend.
             errorOut(completionKey);
             toSend.release();
+            ReferenceCountUtil.release(compressedBody);
             return;
+        } else if (flowControl != null) {
+            flowControl.submit(new CreditedRequest(c, completionKey, request, allowFastFail,
+                                                   flush, toSend.readableBytes(), toSend, compressedBody));
         } else {
             // addEntry times out on backpressure
-            writeAndFlush(c, completionKey, request, allowFastFail);
+            writeAndFlush(c, completionKey, request, allowFastFail, flush, compressedBody);
         }
     }
 
@@ -884,6 +1073,60 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         writeAndFlush(channel, completionKey, getListOfEntriesOfLedgerRequest);
     }
 
+    /**
+     * Watch and unwatch the last add confirmed of ledgers on this channel. Updates are delivered to
+     * the {@link LacWatchListener}, including the ones already known when the request is processed.
+     *
+     * @param watch the ledgers to watch, mapped to the last add confirmed the caller already knows
+     * @param unwatch the ledgers to stop watching
+     */
+    public void watchLac(Map<Long, Long> watch, Collection<Long> unwatch, GenericCallback<Void> cb) {
+        final long txnId = getTxnId();
+        final CompletionKey completionKey = new V3CompletionKey(txnId, OperationType.WATCH_LAC);
+        completionObjects.put(completionKey, new WatchLacCompletion(completionKey, cb));
+
+        BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.WATCH_LAC)
+                .setTxnId(txnId);
+        WatchLacRequest.Builder watchLacBuilder = WatchLacRequest.newBuilder();
+        watch.forEach((ledgerId, lastSeenLac) -> watchLacBuilder.addWatch(WatchLacRequest.WatchedLedger.newBuilder()
+                .setLedgerId(ledgerId)
+                .setLastSeenLAC(lastSeenLac)));
+        watchLacBuilder.addAllUnwatch(unwatch);
+        final Request watchLacRequest = withRequestContext(Request.newBuilder())
+                .setHeader(headerBuilder)
+                .setWatchLacRequest(watchLacBuilder)
+                .build();
+        if (!watch.isEmpty()) {
+            lacWatchesRegistered = true;
+        }
+        writeAndFlush(channel, completionKey, watchLacRequest);
+    }
+
+    private void notifyLacWatchListener(WatchLacResponse watchLacResponse) {
+        final LacWatchListener listener = lacWatchListener;
+        if (listener == null) {
+            return;
+        }
+        for (WatchLacResponse.LacNotification notification : watchLacResponse.getNotificationsList()) {
+            final long ledgerId = notification.getLedgerId();
+            final int code = statusCodeToExceptionCode(notification.getStatus());
+            final int rc = code == BKException.Code.UNINITIALIZED ? BKException.Code.ReadException : code;
+            final long lac = notification.hasLac() ? notification.getLac() : INVALID_ENTRY_ID;
+            try {
+                executor.executeOrdered(ledgerId, new SafeRunnable() {
+                    @Override
+                    public void safeRun() {
+                        listener.onLacUpdate(bookieId, ledgerId, rc, lac);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the client is shutting down
+            }
+        }
+    }
+
     /**
      * Long Poll Reads.
      */
@@ -940,6 +1183,12 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             if (((short) flags & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
                 headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
             }
+            if (flowControl != null) {
+                headerBuilder.setFlowControl(FlowControlGrant.getDefaultInstance());
+            }
+            if (payloadCompression != null) {
+                headerBuilder.setCompression(CompressionType.LZ4);
+            }
 
             ReadRequest.Builder readBuilder = ReadRequest.newBuilder()
                     .setLedgerId(ledgerId)
@@ -989,7 +1238,14 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         ReadCompletion readCompletion = new ReadCompletion(completionKey, cb, ctx, ledgerId, entryId);
         putCompletionKeyValue(completionKey, readCompletion);
 
-        writeAndFlush(channel, completionKey, request, allowFastFail);
+        final Channel c = channel;
+        if (flowControl != null && c != null) {
+            // read responses are not known in advance, so reads are only accounted in op credits
+            flowControl.submit(new CreditedRequest(c, completionKey, request, allowFastFail, true, 0L,
+                                                   null, null));
+        } else {
+            writeAndFlush(c, completionKey, request, allowFastFail);
+        }
     }
 
     public void getBookieInfo(final long requested, GetBookieInfoCallback cb, Object ctx) {
@@ -1059,6 +1315,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             }
             state = ConnectionState.CLOSED;
             errorOutOutstandingEntries(BKException.Code.ClientClosedException);
+            if (flowControl != null) {
+                flowControl.reset();
+            }
         } finally {
             closeLock.writeLock().unlock();
         }
@@ -1118,9 +1377,31 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                            final CompletionKey key,
                            final Object request,
                            final boolean allowFastFail) {
+        writeAndFlush(channel, key, request, allowFastFail, true);
+    }
+
+    private void writeAndFlush(final Channel channel,
+                               final CompletionKey key,
+                               final Object request,
+                               final boolean allowFastFail,
+                               final boolean flush) {
+        writeAndFlush(channel, key, request, allowFastFail, flush, null);
+    }
+
+    /**
+     * Write a request whose payload lives in a buffer the request does not own, such as a compressed
+     * body. The payload is released once the write completes or the request is dropped.
+     */
+    private void writeAndFlush(final Channel channel,
+                               final CompletionKey key,
+                               final Object request,
+                               final boolean allowFastFail,
+                               final boolean flush,
+                               final ByteBuf payload) {
         if (channel == null) {
             LOG.warn("Operation {} failed: channel == null", StringUtils.requestToString(request));
             errorOut(key);
+            ReferenceCountUtil.release(payload);
             return;
         }
 
@@ -1143,13 +1424,16 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 BookieProtocol.AddRequest ar = (BookieProtocol.AddRequest) request;
                 ar.recycle();
             }
+            ReferenceCountUtil.release(payload);
             return;
         }
 
+        ChannelPromise promise = null;
         try {
             final long startTime = MathUtils.nowInNano();
 
-            ChannelPromise promise = channel.newPromise().addListener(future -> {
+            promise = channel.newPromise().addListener(future -> {
+                ReferenceCountUtil.release(payload);
                 if (future.isSuccess()) {
                     nettyOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
                     CompletionValue completion = completionObjects.get(key);
@@ -1161,10 +1445,21 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 }
             });
 
-            channel.writeAndFlush(request, promise);
+            if (flush) {
+                channel.writeAndFlush(request, promise);
+            } else {
+                // more requests follow, the last one flushes the channel
+                channel.write(request, promise);
+            }
         } catch (Throwable e) {
             LOG.warn("Operation {} failed", StringUtils.requestToString(request), e);
             errorOut(key);
+            if (promise == null) {
+                ReferenceCountUtil.release(payload);
+            } else {
+                // releases the payload, unless the write already completed it
+                promise.tryFailure(e);
+            }
         }
     }
 
@@ -1174,6 +1469,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
         CompletionValue completion = completionObjects.remove(key);
         if (completion != null) {
+            completion.releaseFlowControlCredits();
             completion.errorOut();
         } else {
             // If there's no completion object here, try in the multimap
@@ -1187,6 +1483,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
         CompletionValue completion = completionObjects.remove(key);
         if (completion != null) {
+            completion.releaseFlowControlCredits();
             completion.errorOut(rc);
         } else {
             // If there's no completion object here, try in the multimap
@@ -1252,6 +1549,18 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
         errorOutOutstandingEntries(BKException.Code.BookieHandleNotAvailableException);
         errorOutPendingOps(BKException.Code.BookieHandleNotAvailableException);
+        if (flowControl != null) {
+            flowControl.reset();
+        }
+        // the bookie on the other side may come back with a different configuration
+        peerAcceptsCompression = false;
+        if (lacWatchesRegistered) {
+            lacWatchesRegistered = false;
+            LacWatchListener listener = lacWatchListener;
+            if (listener != null) {
+                listener.onLacWatchesLost(bookieId);
+            }
+        }
 
         synchronized (this) {
             if (this.channel == ctx.channel()
@@ -1465,9 +1774,23 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     private void readV3Response(final Response response) {
         final BKPacketHeader header = response.getHeader();
 
+        if (header.getOperation() == OperationType.WATCH_LAC && header.getTxnId() == LAC_NOTIFICATION_TXN_ID) {
+            // pushed by the bookie, not a response to a request
+            notifyLacWatchListener(response.getWatchLacResponse());
+            return;
+        }
+
         final CompletionKey key = newCompletionKey(header.getTxnId(), header.getOperation());
         final CompletionValue completionValue = completionObjects.get(key);
 
+        if (flowControl != null && header.hasFlowControl()) {
+            flowControl.updateGrant(header.getFlowControl());
+        }
+        if (payloadCompression != null && !peerAcceptsCompression
+                && header.getCompression() == CompressionType.LZ4) {
+            peerAcceptsCompression = true;
+        }
+
         if (null == completionValue) {
             // Unexpected response, so log it. The txnId should have been present.
             if (LOG.isDebugEnabled()) {
@@ -1475,6 +1798,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                         + header.getOperation() + " and txnId : " + header.getTxnId());
             }
         } else {
+            // release before handing over, add completions are recycled once handled
+            completionValue.releaseFlowControlCredits();
             long orderingKey = completionValue.ledgerId;
             executor.executeOrdered(orderingKey, new SafeRunnable() {
                 @Override
@@ -1566,6 +1891,84 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             });
     }
 
+    /**
+     * A v3 request that is only written to the channel once the bookie granted enough credits.
+     */
+    private class CreditedRequest implements ClientFlowControl.Op {
+        private final Channel channel;
+        private final CompletionKey key;
+        private final Object request;
+        private final boolean allowFastFail;
+        // whether the request is flushed when it is sent right away, a queued request is always flushed
+        // as the caller flushed the channel before it got the credits
+        private final boolean flush;
+        private final long size;
+        private final ByteBufList payload;
+        private boolean retained = false;
+        private boolean queued = false;
+        // owned by the request until it is written
+        private ByteBuf compressedBody;
+
+        CreditedRequest(Channel channel, CompletionKey key, Object request, boolean allowFastFail,
+                        boolean flush, long size, ByteBufList payload, ByteBuf compressedBody) {
+            this.channel = channel;
+            this.key = key;
+            this.request = request;
+            this.allowFastFail = allowFastFail;
+            this.flush = flush;
+            this.size = size;
+            this.payload = payload;
+            this.compressedBody = compressedBody;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void send() {
+            CompletionValue completion = completionObjects.get(key);
+            if (completion == null) {
+                // timed out or errored out while waiting for credits
+                flowControl.release(size);
+                discard();
+                return;
+            }
+            completion.flowControlBytes = size;
+            if (completionObjects.get(key) != completion) {
+                completion.releaseFlowControlCredits();
+            }
+            ByteBuf body = compressedBody;
+            compressedBody = null;
+            writeAndFlush(channel, key, request, allowFastFail, flush || queued, body);
+            discard();
+        }
+
+        @Override
+        public void onQueued() {
+            flowControlQueuedCounter.inc();
+            queued = true;
+            if (payload != null) {
+                // the caller releases its reference once addEntry returns
+                payload.retain();
+                retained = true;
+            }
+        }
+
+        @Override
+        public void discard() {
+            if (retained) {
+                retained = false;
+                payload.release();
+            }
+            if (compressedBody != null) {
+                compressedBody.release();
+                compressedBody = null;
+            }
+        }
+    }
+
     /**
      * Boiler-plate wrapper classes follow.
      *
@@ -1581,6 +1984,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         protected long ledgerId;
         protected long entryId;
         protected long startTime;
+        // payload bytes accounted against the flow control window, -1 if no credits are held
+        volatile long flowControlBytes = -1;
 
         public CompletionValue(String operationName,
                                Object ctx,
@@ -1597,7 +2002,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             this.mdcContextMap = preserveMdcForTaskExecution ? MDC.getCopyOfContextMap() : null;
         }
 
-        private long latency() {
+        long latency() {
             return MathUtils.elapsedNanos(startTime);
         }
 
@@ -1624,6 +2029,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
 
         void timeout() {
+            releaseFlowControlCredits();
             errorOut(BKException.Code.TimeoutException);
             timeoutOpLogger.registerSuccessfulEvent(latency(),
                                                     TimeUnit.NANOSECONDS);
@@ -1652,6 +2058,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             MdcUtils.restoreContext(mdcContextMap);
         }
 
+        void releaseFlowControlCredits() {
+            long bytes = FLOW_CONTROL_BYTES_UPDATER.getAndSet(this, -1);
+            if (bytes >= 0 && flowControl != null) {
+                flowControl.release(bytes);
+            }
+        }
+
         public abstract void errorOut();
         public abstract void errorOut(int rc);
         public void setOutstanding() {
@@ -1864,6 +2277,14 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                                                   long entryId, ByteBuf buffer,
                                                   Object ctx) {
                         logOpResult(rc);
+                        if (rc == BKException.Code.OK) {
+                            long latencyNanos = latency();
+                            updateReadLatencyEwma(latencyNanos);
+                            BookieLatencyListener listener = latencyListener;
+                            if (listener != null) {
+                                listener.onReadCompleted(bookieId, latencyNanos);
+                            }
+                        }
                         originalCallback.readEntryComplete(rc,
                                                            ledgerId, entryId,
                                                            buffer, originalCtx);
@@ -1909,7 +2330,16 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             StatusCode status = response.getStatus() == StatusCode.EOK
                 ? readResponse.getStatus() : response.getStatus();
             ByteBuf buffer = Unpooled.EMPTY_BUFFER;
-            if (readResponse.hasBody()) {
+            if (readResponse.hasBody() && readResponse.hasUncompressedSize() && payloadCompression != null) {
+                try {
+                    buffer = payloadCompression.decompress(allocator, readResponse.getBody(),
+                                                           readResponse.getUncompressedSize());
+                } catch (LZ4Exception e) {
+                    LOG.warn("Failed to decompress entry {}@{} read from {}",
+                             readResponse.getEntryId(), readResponse.getLedgerId(), bookieId, e);
+                    status = StatusCode.EIO;
+                }
+            } else if (readResponse.hasBody()) {
                 buffer = Unpooled.wrappedBuffer(readResponse.getBody().asReadOnlyByteBuffer());
             }
             long maxLAC = INVALID_ENTRY_ID;
@@ -2057,7 +2487,48 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             int rc = convertStatus(status, BKException.Code.ReadException);
             cb.getBookieInfoComplete(rc,
                                      new BookieInfo(totalDiskSpace,
-                                                    freeDiskSpace), ctx);
+                                                    freeDiskSpace,
+                                                    getBookieInfoResponse.hasLoad()
+                                                        ? getBookieInfoResponse.getLoad() : null), ctx);
+        }
+    }
+
+    class WatchLacCompletion extends CompletionValue {
+        final GenericCallback<Void> cb;
+
+        public WatchLacCompletion(final CompletionKey key, final GenericCallback<Void> origCallback) {
+            super("WatchLac", null, -1L, -1L, watchLacOpLogger, watchLacTimeoutOpLogger);
+            this.cb = new GenericCallback<Void>() {
+                @Override
+                public void operationComplete(int rc, Void result) {
+                    logOpResult(rc);
+                    origCallback.operationComplete(rc, result);
+                    key.release();
+                }
+            };
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(() -> cb.operationComplete(rc, null));
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            StatusCode status = response.getStatus();
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "notifications", response.getWatchLacResponse().getNotificationsCount());
+            }
+            int rc = convertStatus(status, BKException.Code.ReadException);
+            if (rc == BKException.Code.OK) {
+                notifyLacWatchListener(response.getWatchLacResponse());
+            }
+            cb.operationComplete(rc, null);
         }
     }
 
@@ -2138,6 +2609,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
         CompletionKey key = null;
         WriteCallback originalCallback = null;
+        // payload bytes accounted in outstandingAddBytes until the add completes
+        long outstandingBytes = 0;
 
         AddCompletion(Recycler.Handle<AddCompletion> handle) {
             super("Add", null, -1, -1, addEntryOpLogger, addTimeoutOpLogger);
@@ -2154,12 +2627,16 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             this.ledgerId = ledgerId;
             this.entryId = entryId;
             this.startTime = MathUtils.nowInNano();
+            this.flowControlBytes = -1;
+            this.outstandingBytes = 0;
         }
 
         @Override
         public void writeComplete(int rc, long ledgerId, long entryId,
                                   BookieId addr,
                                   Object ctx) {
+            outstandingAddBytes.add(-outstandingBytes);
+            outstandingBytes = 0;
             logOpResult(rc);
             originalCallback.writeComplete(rc, ledgerId, entryId, addr, ctx);
             key.release();
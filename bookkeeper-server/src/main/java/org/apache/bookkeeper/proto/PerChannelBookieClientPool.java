@@ -92,4 +92,20 @@ public interface PerChannelBookieClientPool {
      * Get the number of pending completion requests in the channel.
      */
     long getNumPendingCompletionRequests();
+
+    /**
+     * Get the moving average of the read latency observed on the channels of the pool.
+     *
+     * @return the latency in nanoseconds, or -1 if no read completed yet.
+     */
+    default long getReadLatencyEwmaNanos() {
+        return -1L;
+    }
+
+    /**
+     * Get the payload bytes of the adds that were sent on the channels of the pool and did not complete yet.
+     */
+    default long getOutstandingAddBytes() {
+        return 0L;
+    }
 }
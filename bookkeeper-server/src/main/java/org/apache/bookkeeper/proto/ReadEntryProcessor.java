@@ -123,7 +123,9 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         final OpStatsLogger logger = stats.getReadEntryStats();
         BookieProtocol.Response response;
         if (errorCode == BookieProtocol.EOK) {
-            logger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            long latencyNanos = MathUtils.elapsedNanos(startTimeNanos);
+            logger.registerSuccessfulEvent(latencyNanos, TimeUnit.NANOSECONDS);
+            stats.trackSuccessfulRead(latencyNanos);
             response = ResponseBuilder.buildReadResponse(data, request);
         } else {
             if (data != null) {
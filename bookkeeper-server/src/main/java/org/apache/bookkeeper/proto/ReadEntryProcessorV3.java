@@ -29,6 +29,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.BookieException;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.CompressionType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
@@ -176,7 +177,7 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
             return null;
         } else {
             try {
-                readResponseBuilder.setBody(ByteString.copyFrom(entryBody.nioBuffer()));
+                setBody(readResponseBuilder, entryBody);
                 if (readLACPiggyBack) {
                     readResponseBuilder.setEntryId(entryId);
                 } else {
@@ -184,6 +185,7 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
                     readResponseBuilder.setMaxLAC(knownLAC);
                 }
                 registerSuccessfulEvent(readStats, startTimeSw);
+                requestProcessor.getRequestStats().trackSuccessfulRead(startTimeSw.elapsed(TimeUnit.NANOSECONDS));
                 readResponseBuilder.setStatus(StatusCode.EOK);
                 return readResponseBuilder.build();
             } finally {
@@ -270,6 +272,29 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
         }
     }
 
+    /**
+     * Set the entry as the body of the response, compressing it when the client advertised
+     * that it can decode compressed payloads.
+     */
+    private void setBody(ReadResponse.Builder readResponseBuilder, ByteBuf entryBody) {
+        if (requestProcessor.isWireCompressionEnabled()
+                && request.getHeader().getCompression() == CompressionType.LZ4) {
+            ByteBuf compressed = requestProcessor.getPayloadCompression()
+                    .compress(requestProcessor.getAllocator(), entryBody);
+            if (compressed != null) {
+                try {
+                    // copied like the uncompressed body, the response outlives this call
+                    readResponseBuilder.setBody(ByteString.copyFrom(compressed.nioBuffer()));
+                } finally {
+                    compressed.release();
+                }
+                readResponseBuilder.setUncompressedSize(entryBody.readableBytes());
+                return;
+            }
+        }
+        readResponseBuilder.setBody(ByteString.copyFrom(entryBody.nioBuffer()));
+    }
+
     private void getFenceResponse(ReadResponse.Builder readResponse,
                                   ByteBuf entryBody,
                                   boolean fenceResult) {
@@ -279,7 +304,7 @@ class ReadEntryProcessorV3 extends PacketProcessorBaseV3 {
             registerFailedEvent(requestProcessor.getRequestStats().getFenceReadWaitStats(), lastPhaseStartTime);
         } else {
             status = StatusCode.EOK;
-            readResponse.setBody(ByteString.copyFrom(entryBody.nioBuffer()));
+            setBody(readResponse, entryBody);
             registerSuccessfulEvent(requestProcessor.getRequestStats().getFenceReadWaitStats(), lastPhaseStartTime);
         }
 
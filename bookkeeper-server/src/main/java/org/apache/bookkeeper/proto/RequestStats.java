@@ -33,6 +33,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_BOOKIE_INFO_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.LAC_WATCHES;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.LAC_WATCH_NOTIFICATIONS;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_BLOCKED_WAIT;
@@ -51,11 +53,13 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_LAC;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_LAC_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_LAST_ENTRY_NOENTRY_ERROR;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.SERVER_SCOPE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WATCH_LAC_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WRITE_LAC;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.WRITE_LAC_REQUEST;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.Getter;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
@@ -78,8 +82,13 @@ public class RequestStats {
     final AtomicInteger maxAddsInProgress = new AtomicInteger(0);
     final AtomicInteger addsBlocked = new AtomicInteger(0);
     final AtomicInteger readsInProgress = new AtomicInteger(0);
+    final AtomicInteger lacWatches = new AtomicInteger(0);
     final AtomicInteger readsBlocked = new AtomicInteger(0);
     final AtomicInteger maxReadsInProgress = new AtomicInteger(0);
+    // completed add and read requests, and latency of the successful reads, sampled by BookieLoadSampler
+    final LongAdder completedRequests = new LongAdder();
+    final LongAdder successfulReads = new LongAdder();
+    final LongAdder successfulReadsLatencyNanos = new LongAdder();
 
     @StatsDoc(
         name = ADD_ENTRY_REQUEST,
@@ -237,6 +246,16 @@ public class RequestStats {
             parent = GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST
     )
     final OpStatsLogger getListOfEntriesOfLedgerStats;
+    @StatsDoc(
+        name = WATCH_LAC_REQUEST,
+        help = "request stats of WatchLac on a bookie"
+    )
+    final OpStatsLogger watchLacRequestStats;
+    @StatsDoc(
+        name = LAC_WATCH_NOTIFICATIONS,
+        help = "total last add confirmed updates pushed to clients watching ledgers"
+    )
+    final Counter lacWatchNotificationsCounter;
 
     public RequestStats(StatsLogger statsLogger) {
         this.addEntryStats = statsLogger.getThreadScopedOpStatsLogger(ADD_ENTRY);
@@ -270,6 +289,8 @@ public class RequestStats {
         this.getListOfEntriesOfLedgerStats = statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER);
         this.getListOfEntriesOfLedgerRequestStats =
                 statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER_REQUEST);
+        this.watchLacRequestStats = statsLogger.getOpStatsLogger(WATCH_LAC_REQUEST);
+        this.lacWatchNotificationsCounter = statsLogger.getCounter(LAC_WATCH_NOTIFICATIONS);
 
         statsLogger.registerGauge(ADD_ENTRY_IN_PROGRESS, new Gauge<Number>() {
             @Override
@@ -318,6 +339,18 @@ public class RequestStats {
                 return readsBlocked;
             }
         });
+
+        statsLogger.registerGauge(LAC_WATCHES, new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return lacWatches;
+            }
+        });
     }
 
     //
@@ -340,6 +373,7 @@ public class RequestStats {
 
     void untrackAddRequest() {
         addsInProgress.decrementAndGet();
+        completedRequests.increment();
     }
 
     int maxAddsInProgressCount() {
@@ -366,10 +400,24 @@ public class RequestStats {
 
     void untrackReadRequest() {
         readsInProgress.decrementAndGet();
+        completedRequests.increment();
+    }
+
+    void trackSuccessfulRead(long latencyNanos) {
+        successfulReads.increment();
+        successfulReadsLatencyNanos.add(latencyNanos);
     }
 
     int maxReadsInProgressCount() {
         return maxReadsInProgress.get();
     }
 
+    //
+    // Last add confirmed watches
+    //
+
+    void trackLacWatches(int delta) {
+        lacWatches.addAndGet(delta);
+    }
+
 }
@@ -0,0 +1,67 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.channel.Channel;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processor of v3 requests watching the last add confirmed of ledgers.
+ *
+ * <p>Must run on the executor of the {@link LacWatchSet} of the channel.
+ */
+class WatchLacProcessorV3 extends PacketProcessorBaseV3 {
+    private static final Logger logger = LoggerFactory.getLogger(WatchLacProcessorV3.class);
+
+    private final LacWatchSet watchSet;
+
+    WatchLacProcessorV3(Request request, Channel channel, BookieRequestProcessor requestProcessor,
+                        LacWatchSet watchSet) {
+        super(request, channel, requestProcessor);
+        this.watchSet = watchSet;
+    }
+
+    @Override
+    public void safeRun() {
+        WatchLacResponse.Builder watchLacResponse = WatchLacResponse.newBuilder();
+        StatusCode status;
+        if (!isVersionCompatible()) {
+            status = StatusCode.EBADVERSION;
+        } else {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Received WatchLac request: watch {} ledgers, unwatch {} ledgers",
+                        request.getWatchLacRequest().getWatchCount(), request.getWatchLacRequest().getUnwatchCount());
+            }
+            watchSet.process(request.getWatchLacRequest(), watchLacResponse);
+            status = StatusCode.EOK;
+        }
+        Response.Builder response = Response.newBuilder()
+                .setHeader(getHeader())
+                .setStatus(status)
+                .setWatchLacResponse(watchLacResponse);
+        sendResponse(status, response.build(), requestProcessor.getRequestStats().getWatchLacRequestStats());
+    }
+}
@@ -117,8 +117,14 @@ class WriteEntryProcessorV3 extends PacketProcessorBaseV3 {
         final boolean ackBeforeSync = writeFlags.contains(WriteFlag.DEFERRED_SYNC);
         StatusCode status = null;
         byte[] masterKey = addRequest.getMasterKey().toByteArray();
-        ByteBuf entryToAdd = Unpooled.wrappedBuffer(addRequest.getBody().asReadOnlyByteBuffer());
+        ByteBuf entryToAdd = null;
         try {
+            if (addRequest.hasUncompressedSize()) {
+                entryToAdd = requestProcessor.getPayloadCompression().decompress(
+                        requestProcessor.getAllocator(), addRequest.getBody(), addRequest.getUncompressedSize());
+            } else {
+                entryToAdd = Unpooled.wrappedBuffer(addRequest.getBody().asReadOnlyByteBuffer());
+            }
             if (RequestUtils.hasFlag(addRequest, AddRequest.Flag.RECOVERY_ADD)) {
                 requestProcessor.getBookie().recoveryAddEntry(entryToAdd, wcb, channel, masterKey);
             } else {
@@ -150,6 +156,11 @@ class WriteEntryProcessorV3 extends PacketProcessorBaseV3 {
                     entryId, ledgerId, t);
             // some bad request which cause unexpected exception
             status = StatusCode.EBADREQ;
+        } finally {
+            if (entryToAdd != null) {
+                // the journal holds its own reference until the entry is persisted
+                entryToAdd.release();
+            }
         }
 
         // If everything is okay, we return null so that the calling function
@@ -20,26 +20,54 @@
  */
 package org.apache.bookkeeper.streaming;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.util.Enumeration;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.client.BKException;
-import org.apache.bookkeeper.client.LedgerEntry;
 import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
 
 /**
  * An input stream on reading data from a ledger.
+ *
+ * <p>The stream reads ahead of the application: reads of up to 50 entries are sent
+ * asynchronously as long as the entries read ahead and not consumed yet are under both the entry and
+ * the byte limits of the read-ahead window, so the next entries are usually already read when the
+ * application gets to them. Only the entries up to the last add confirmed of the ledger handle are
+ * read.
  */
 public class LedgerInputStream extends InputStream {
 
+    static final int DEFAULT_READ_AHEAD_ENTRIES = 100;
+    static final long DEFAULT_READ_AHEAD_BYTES = 1024 * 1024; // 1MB default size
+
     private final LedgerHandle lh;
-    private ByteBuffer bytebuff;
-    byte[] bbytes;
-    long lastEntry = 0;
+    private final int readAheadEntries;
+    private final long readAheadBytes;
+    // number of entries of each read
     int increment = 50;
-    int defaultSize = 1024 * 1024; // 1MB default size
-    Enumeration<LedgerEntry> ledgerSeq = null;
+
+    // reads sent and not consumed yet, in entry order
+    private final ArrayDeque<CompletableFuture<LedgerEntries>> reads = new ArrayDeque<>();
+    private long nextEntryToRead = 0;
+    // entries of the read-ahead window, sent and not consumed yet
+    private long entriesInWindow = 0;
+    // bytes of the entries read and not consumed yet, updated when the reads complete
+    private final AtomicLong bytesInWindow = new AtomicLong(0);
+
+    // read being consumed, and the remaining content of its current entry
+    private LedgerEntries currentEntries = null;
+    private Iterator<LedgerEntry> currentIter = null;
+    private ByteBuf current = Unpooled.EMPTY_BUFFER;
+    private boolean closed = false;
 
     /**
      * construct a outputstream from a ledger handle.
@@ -50,12 +78,7 @@ public class LedgerInputStream extends InputStream {
      * @throws InterruptedException when opening a ledger input stream is interrupted.
      */
     public LedgerInputStream(LedgerHandle lh) throws BKException, InterruptedException {
-        this.lh = lh;
-        bbytes = new byte[defaultSize];
-        this.bytebuff = ByteBuffer.wrap(bbytes);
-        this.bytebuff.position(this.bytebuff.limit());
-        lastEntry = Math.min(lh.getLastAddConfirmed(), increment);
-        ledgerSeq = lh.readEntries(0, lastEntry);
+        this(lh, DEFAULT_READ_AHEAD_ENTRIES, DEFAULT_READ_AHEAD_BYTES);
     }
 
     /**
@@ -64,29 +87,81 @@ public class LedgerInputStream extends InputStream {
      * @param lh
      *            the ledger handle
      * @param size
-     *            the size of the buffer
+     *            the maximum number of bytes read ahead
      * @throws BKException when encountered bookkeeper exceptions
      * @throws InterruptedException when opening a ledger input stream is interrupted.
      */
     public LedgerInputStream(LedgerHandle lh, int size) throws BKException, InterruptedException {
+        this(lh, DEFAULT_READ_AHEAD_ENTRIES, size);
+    }
+
+    /**
+     * construct an inputstream from a ledger handle, with a read-ahead window.
+     *
+     * @param lh
+     *            the ledger handle
+     * @param readAheadEntries
+     *            the maximum number of entries read ahead
+     * @param readAheadBytes
+     *            the maximum number of bytes read ahead, no more reads are sent once the entries
+     *            read and not consumed yet reach this size
+     */
+    public LedgerInputStream(LedgerHandle lh, int readAheadEntries, long readAheadBytes) {
         this.lh = lh;
-        bbytes = new byte[size];
-        this.bytebuff = ByteBuffer.wrap(bbytes);
-        this.bytebuff.position(this.bytebuff.limit());
-        lastEntry = Math.min(lh.getLastAddConfirmed(), increment);
-        ledgerSeq = lh.readEntries(0, lastEntry);
+        this.readAheadEntries = Math.max(1, readAheadEntries);
+        this.readAheadBytes = readAheadBytes;
+        fillWindow();
     }
 
     /**
-     * Method close currently doesn't do anything. The application
+     * Release the entries read ahead. The application
      * is supposed to open and close the ledger handle backing up
      * a stream ({@link LedgerHandle}).
      */
     @Override
-    public void close() {
-        // do nothing
-        // let the application
-        // close the ledger
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = Unpooled.EMPTY_BUFFER;
+        if (currentEntries != null) {
+            currentEntries.close();
+            currentEntries = null;
+            currentIter = null;
+        }
+        // the reads still in progress are released once they complete
+        CompletableFuture<LedgerEntries> read;
+        while ((read = reads.poll()) != null) {
+            read.whenComplete((entries, cause) -> {
+                if (entries != null) {
+                    entries.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * Send reads until the read-ahead window is full or the last add confirmed is reached.
+     */
+    private void fillWindow() {
+        long lac = lh.getLastAddConfirmed();
+        while (nextEntryToRead <= lac
+                && entriesInWindow < readAheadEntries
+                && bytesInWindow.get() < readAheadBytes) {
+            long last = Math.min(nextEntryToRead + increment - 1, lac);
+            last = Math.min(last, nextEntryToRead + (readAheadEntries - entriesInWindow) - 1);
+            reads.add(lh.readAsync(nextEntryToRead, last).thenApply(entries -> {
+                long size = 0;
+                for (LedgerEntry entry : entries) {
+                    size += entry.getEntryBuffer().readableBytes();
+                }
+                bytesInWindow.addAndGet(size);
+                return entries;
+            }));
+            entriesInWindow += last - nextEntryToRead + 1;
+            nextEntryToRead = last + 1;
+        }
     }
 
     /**
@@ -95,63 +170,61 @@ public class LedgerInputStream extends InputStream {
      * @return if we can refill or not
      */
     private synchronized boolean refill() throws IOException {
-        bytebuff.clear();
-        if (!ledgerSeq.hasMoreElements() && lastEntry >= lh.getLastAddConfirmed()) {
-            return false;
+        if (closed) {
+            throw new IOException("Stream closed");
         }
-        if (!ledgerSeq.hasMoreElements()) {
-            // do refill
-            long last = Math.min(lastEntry + increment, lh.getLastAddConfirmed());
+        while (!current.isReadable()) {
+            if (currentIter != null && currentIter.hasNext()) {
+                current = currentIter.next().getEntryBuffer();
+                bytesInWindow.addAndGet(-current.readableBytes());
+                entriesInWindow--;
+                fillWindow();
+                continue;
+            }
+            current = Unpooled.EMPTY_BUFFER;
+            if (currentEntries != null) {
+                currentEntries.close();
+                currentEntries = null;
+                currentIter = null;
+            }
+            fillWindow();
+            CompletableFuture<LedgerEntries> read = reads.poll();
+            if (read == null) {
+                return false;
+            }
             try {
-                ledgerSeq = lh.readEntries(lastEntry + 1, last);
-            } catch (BKException bk) {
-                IOException ie = new IOException(bk.getMessage());
-                ie.initCause(bk);
-                throw ie;
+                currentEntries = read.get();
             } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
+                // wait for the same read on the next call
+                reads.addFirst(read);
+                throw new InterruptedIOException("Interrupted while reading entries");
+            } catch (ExecutionException ee) {
+                // the stream cannot skip the entries of the failed read
+                close();
+                throw new IOException(ee.getCause().getMessage(), ee.getCause());
             }
-            lastEntry = last;
+            currentIter = currentEntries.iterator();
         }
-        LedgerEntry le = ledgerSeq.nextElement();
-        bbytes = le.getEntry();
-        bytebuff = ByteBuffer.wrap(bbytes);
         return true;
     }
 
+    @Override
+    public synchronized int available() {
+        return current.readableBytes();
+    }
+
     @Override
     public synchronized int read() throws IOException {
-        boolean toread = true;
-        if (bytebuff.remaining() == 0) {
-            // their are no remaining bytes
-            toread = refill();
-        }
-        if (toread) {
-            int ret = 0xFF & bytebuff.get();
-            return ret;
+        if (current.isReadable() || refill()) {
+            return 0xFF & current.readByte();
         }
         return -1;
     }
 
     @Override
     public synchronized int read(byte[] b) throws IOException {
-        // be smart ... just copy the bytes
-        // once and return the size
-        // user will call it again
-        boolean toread = true;
-        if (bytebuff.remaining() == 0) {
-            toread = refill();
-        }
-        if (toread) {
-            int bcopied = bytebuff.remaining();
-            int tocopy = Math.min(bcopied, b.length);
-            // cannot used gets because of
-            // the underflow/overflow exceptions
-            System.arraycopy(bbytes, bytebuff.position(), b, 0, tocopy);
-            bytebuff.position(bytebuff.position() + tocopy);
-            return tocopy;
-        }
-        return -1;
+        return read(b, 0, b.length);
     }
 
     @Override
@@ -160,17 +233,31 @@ public class LedgerInputStream extends InputStream {
         // fill b, just return
         // what we have and let the application call read
         // again
-        boolean toread = true;
-        if (bytebuff.remaining() == 0) {
-            toread = refill();
+        if (len == 0) {
+            return 0;
         }
-        if (toread) {
-            int bcopied = bytebuff.remaining();
-            int tocopy = Math.min(bcopied, len);
-            System.arraycopy(bbytes, bytebuff.position(), b, off, tocopy);
-            bytebuff.position(bytebuff.position() + tocopy);
+        if (current.isReadable() || refill()) {
+            int tocopy = Math.min(current.readableBytes(), len);
+            current.readBytes(b, off, tocopy);
             return tocopy;
         }
         return -1;
     }
+
+    /**
+     * Read the remaining content of the current entry without copying it.
+     *
+     * <p>The returned buffer is retained for the caller, which must release it.
+     *
+     * @return the remaining content of the current entry, or null at the end of the stream
+     * @throws IOException if the entries could not be read
+     */
+    public synchronized ByteBuf readBuffer() throws IOException {
+        if (current.isReadable() || refill()) {
+            ByteBuf buffer = current.retainedSlice();
+            current.skipBytes(current.readableBytes());
+            return buffer;
+        }
+        return null;
+    }
 }
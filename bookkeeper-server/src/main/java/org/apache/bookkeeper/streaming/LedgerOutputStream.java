@@ -23,6 +23,7 @@ package org.apache.bookkeeper.streaming;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.slf4j.Logger;
@@ -33,6 +34,10 @@ import org.slf4j.LoggerFactory;
  * handle and write to it as a stream of bytes. This is built on top of
  * ledgerhandle api and uses a buffer to cache the data written to it and writes
  * out the entry to the ledger.
+ *
+ * <p>The entries are added asynchronously, so the application keeps writing while the previous
+ * entries are being added. Writes wait once the entries being added reach the maximum number of
+ * outstanding bytes, and {@link #flush()} waits for all the entries to be added.
  */
 public class LedgerOutputStream extends OutputStream {
 
@@ -42,6 +47,14 @@ public class LedgerOutputStream extends OutputStream {
     private ByteBuffer bytebuff;
     byte[] bbytes;
     int defaultSize = 1024 * 1024; // 1MB default size
+    private final long maxOutstandingBytes;
+
+    // bytes being added to the ledger, guarded by addLock which the add callbacks take instead of
+    // the stream, as the adds may block the writing thread until previous adds complete
+    private final Object addLock = new Object();
+    private long outstandingBytes = 0;
+
+    private final AddCallback addCallback = (rc, handle, entryId, ctx) -> addComplete(rc, (Integer) ctx);
 
     /**
      * construct a outputstream from a ledger handle.
@@ -53,6 +66,7 @@ public class LedgerOutputStream extends OutputStream {
         this.lh = lh;
         bbytes = new byte[defaultSize];
         this.bytebuff = ByteBuffer.wrap(bbytes);
+        this.maxOutstandingBytes = 4L * defaultSize;
     }
 
     /**
@@ -64,9 +78,24 @@ public class LedgerOutputStream extends OutputStream {
      *            the size of the buffer
      */
     public LedgerOutputStream(LedgerHandle lh, int size) {
+        this(lh, size, 4L * size);
+    }
+
+    /**
+     * construct a outputstream from a ledger handle.
+     *
+     * @param lh
+     *            the ledger handle
+     * @param size
+     *            the size of the buffer
+     * @param maxOutstandingBytes
+     *            the maximum number of bytes being added to the ledger before writes wait
+     */
+    public LedgerOutputStream(LedgerHandle lh, int size, long maxOutstandingBytes) {
         this.lh = lh;
         bbytes = new byte[size];
         this.bytebuff = ByteBuffer.wrap(bbytes);
+        this.maxOutstandingBytes = maxOutstandingBytes;
     }
 
     @Override
@@ -80,21 +109,68 @@ public class LedgerOutputStream extends OutputStream {
     public synchronized void flush() {
         // lets flush all the data
         // into the ledger entry
+        sendBuffer();
+        synchronized (addLock) {
+            waitForOutstandingBytes(0);
+        }
+    }
+
+    /**
+     * Add the content of the buffer to the ledger, without waiting for the add to complete.
+     */
+    private void sendBuffer() {
         if (bytebuff.position() > 0) {
             // copy the bytes into
             // a new byte buffer and send it out
             byte[] b = new byte[bytebuff.position()];
-            LOG.info("Comment: flushing with params " + " " + bytebuff.position());
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Flushing {} bytes to ledger {}", bytebuff.position(), lh.getId());
+            }
             System.arraycopy(bbytes, 0, b, 0, bytebuff.position());
+            bytebuff.clear();
+            sendEntry(b);
+        }
+    }
+
+    /**
+     * Add an entry to the ledger once the outstanding bytes leave room for it.
+     */
+    private void sendEntry(byte[] b) {
+        synchronized (addLock) {
+            if (!waitForOutstandingBytes(maxOutstandingBytes - b.length)) {
+                return;
+            }
+            outstandingBytes += b.length;
+        }
+        lh.asyncAddEntry(b, addCallback, b.length);
+    }
+
+    /**
+     * Wait until the bytes being added to the ledger are at most {@code maxBytes}, holding addLock.
+     *
+     * @return false if interrupted while waiting
+     */
+    private boolean waitForOutstandingBytes(long maxBytes) {
+        while (outstandingBytes > 0 && outstandingBytes > maxBytes) {
             try {
-                lh.addEntry(b);
+                addLock.wait();
             } catch (InterruptedException ie) {
                 LOG.warn("Interrupted while flusing " + ie);
                 Thread.currentThread().interrupt();
-            } catch (BKException bke) {
-                LOG.warn("BookKeeper exception ", bke);
+                return false;
             }
         }
+        return true;
+    }
+
+    private void addComplete(int rc, int length) {
+        if (rc != BKException.Code.OK) {
+            LOG.warn("BookKeeper exception ", BKException.create(rc));
+        }
+        synchronized (addLock) {
+            outstandingBytes -= length;
+            addLock.notifyAll();
+        }
     }
 
     /**
@@ -105,8 +181,7 @@ public class LedgerOutputStream extends OutputStream {
      */
     private boolean makeSpace(int len) {
         if (bytebuff.remaining() < len) {
-            flush();
-            bytebuff.clear();
+            sendBuffer();
             return bytebuff.capacity() >= len;
         }
         return true;
@@ -117,14 +192,8 @@ public class LedgerOutputStream extends OutputStream {
         if (makeSpace(b.length)) {
             bytebuff.put(b);
         } else {
-            try {
-                lh.addEntry(b);
-            } catch (InterruptedException ie) {
-                LOG.warn("Interrupted while writing", ie);
-                Thread.currentThread().interrupt();
-            } catch (BKException bke) {
-                LOG.warn("BookKeeper exception", bke);
-            }
+            // the application may reuse b once the write returns
+            sendEntry(b.clone());
         }
     }
 
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.apache.bookkeeper.net.BookieId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Speculative requests limited by the budget of the adaptive policy.
+ */
+@RunWith(Parameterized.class)
+public class TestAdaptiveSpeculativeRequestExecutionPolicyBudget {
+
+    private static final BookieId BOOKIE = BookieId.parse("bookie-1:3181");
+    private static final long WAIT_MILLIS = 10000L;
+    private static final long SETTLE_MILLIS = 50L;
+
+    // Test Parameters
+    private final int initialBudget;
+    private final int wantedRequests;
+    private final boolean pending;
+    private final int completedReads;
+    private final int expectedBeforeReads;
+    private final int expectedResult;
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {budget,    wanted, pending,    completed reads,    issued before reads,    issued }
+            {2,             2,      true,       0,                  2,                      2 },
+            // the request over the budget is deferred until reads complete
+            {1,             2,      true,       0,                  1,                      1 },
+            {1,             2,      true,       1,                  1,                      2 },
+            {0,             1,      true,       1,                  0,                      1 },
+            // and dropped once the request completed
+            {0,             1,      false,      1,                  0,                      0 },
+        });
+    }
+
+    public TestAdaptiveSpeculativeRequestExecutionPolicyBudget(int initialBudget, int wantedRequests, boolean pending,
+                                                               int completedReads, int expectedBeforeReads,
+                                                               int expectedResult) {
+        this.initialBudget = initialBudget;
+        this.wantedRequests = wantedRequests;
+        this.pending = pending;
+        this.completedReads = completedReads;
+        this.expectedBeforeReads = expectedBeforeReads;
+        this.expectedResult = expectedResult;
+    }
+
+    @Before
+    public void setUp() {
+        scheduler = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        // one speculative request per completed read, every millisecond
+        AdaptiveSpeculativeRequestExecutionPolicy policy = new AdaptiveSpeculativeRequestExecutionPolicy(1, 1,
+                95.0, 1.0);
+        policy.budget.set(initialBudget * AdaptiveSpeculativeRequestExecutionPolicy.BUDGET_SCALE);
+
+        AtomicInteger issued = new AtomicInteger();
+        SpeculativeRequestExecutor requestExecutor = new SpeculativeRequestExecutor() {
+            @Override
+            public ListenableFuture<Boolean> issueSpeculativeRequest() {
+                return Futures.immediateFuture(issued.incrementAndGet() < wantedRequests);
+            }
+
+            @Override
+            public boolean isRequestPending() {
+                return pending;
+            }
+        };
+        policy.initiateSpeculativeRequest(scheduler, requestExecutor);
+        awaitIssued(issued, expectedBeforeReads);
+
+        for (int i = 0; i < completedReads; i++) {
+            policy.onReadCompleted(BOOKIE, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        awaitIssued(issued, expectedResult);
+
+        // nothing is left scheduled once the request got what it wanted or completed
+        if (!pending || expectedResult == wantedRequests) {
+            waitFor(() -> scheduler.getQueue().isEmpty());
+            Assert.assertTrue(scheduler.getQueue().isEmpty());
+        }
+    }
+
+    private static void awaitIssued(AtomicInteger issued, int expected) throws InterruptedException {
+        waitFor(() -> issued.get() >= expected);
+        Thread.sleep(SETTLE_MILLIS);
+        Assert.assertEquals(expected, issued.get());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
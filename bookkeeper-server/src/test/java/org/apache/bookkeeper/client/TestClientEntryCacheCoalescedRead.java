@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import static org.apache.bookkeeper.client.TestClientEntryCacheRead.assertEntries;
+import static org.apache.bookkeeper.client.TestClientEntryCacheRead.entries;
+import static org.apache.bookkeeper.client.TestClientEntryCacheRead.range;
+import static org.apache.bookkeeper.client.TestClientEntryCacheRead.reads;
+
+import io.netty.buffer.ByteBufAllocator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Reads of a second handle waiting for the entries a first handle is reading, while the read of
+ * the first handle succeeds, returns fewer entries than requested or fails.
+ */
+@RunWith(Parameterized.class)
+public class TestClientEntryCacheCoalescedRead {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long TIMEOUT_SECONDS = 10L;
+
+    // the first handle reads 0-3 while the second one reads 2-5
+    private static final long[] FIRST_READ = range(0, 3);
+    private static final long[] SECOND_READ = range(2, 5);
+
+    // Test Parameters
+    private final LedgerEntries firstReadEntries;
+    private final Class<? extends Throwable> firstReadError;
+    private final Class<? extends Throwable> expectedFirstResult;
+    private final List<List<Long>> expectedSecondReads;
+    private final List<List<Long>> expectedThirdReads;
+
+    private ClientEntryCache cache;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {entries read,  read error,                         first handle result,
+            //                  ranges read by the second handle,               ranges read again afterwards }
+            {entries(0, 3),     null,                               null,
+                                reads(range(4, 5)),                             reads() },
+            // the second handle reads the entries the first handle did not get
+            {entries(0, 1),     null,                               BKException.BKUnexpectedConditionException.class,
+                                reads(range(4, 5), range(2, 2), range(3, 3)),   reads(range(2, 3)) },
+            {null,              BKException.BKReadException.class,  BKException.BKReadException.class,
+                                reads(range(4, 5), range(2, 2), range(3, 3)),   reads(range(0, 3)) },
+        });
+    }
+
+    public TestClientEntryCacheCoalescedRead(LedgerEntries firstReadEntries,
+                                             Class<? extends Throwable> firstReadError,
+                                             Class<? extends Throwable> expectedFirstResult,
+                                             List<List<Long>> expectedSecondReads,
+                                             List<List<Long>> expectedThirdReads) {
+        this.firstReadEntries = firstReadEntries;
+        this.firstReadError = firstReadError;
+        this.expectedFirstResult = expectedFirstResult;
+        this.expectedSecondReads = expectedSecondReads;
+        this.expectedThirdReads = expectedThirdReads;
+    }
+
+    @Before
+    public void setUp() {
+        cache = new ClientEntryCache(1000L, ByteBufAllocator.DEFAULT,
+                BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE));
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void testCoalescedRead() throws Exception {
+        CompletableFuture<LedgerEntries> firstHandleRead = new CompletableFuture<>();
+        CompletableFuture<LedgerEntries> firstResult = cache.read(LEDGER_ID, FIRST_READ[0], FIRST_READ[1],
+                (firstEntry, lastEntry) -> firstHandleRead);
+        TestClientEntryCacheRead.RecordingReader reader = new TestClientEntryCacheRead.RecordingReader();
+        CompletableFuture<LedgerEntries> secondResult = cache.read(LEDGER_ID, SECOND_READ[0], SECOND_READ[1],
+                reader);
+        Assert.assertFalse(secondResult.isDone());
+
+        if (firstReadError != null) {
+            firstHandleRead.completeExceptionally(firstReadError.getDeclaredConstructor().newInstance());
+        } else {
+            firstHandleRead.complete(firstReadEntries);
+        }
+
+        try (LedgerEntries entries = secondResult.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            assertEntries(entries, SECOND_READ[0], SECOND_READ[1]);
+        }
+        Assert.assertEquals(expectedSecondReads, reader.reads);
+        try (LedgerEntries entries = firstResult.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            Assert.assertNull(expectedFirstResult);
+            assertEntries(entries, FIRST_READ[0], FIRST_READ[1]);
+        } catch (ExecutionException ee) {
+            Assert.assertTrue(expectedFirstResult.isInstance(ee.getCause()));
+        }
+
+        // nothing is left waiting on the failed read
+        reader.reads.clear();
+        try (LedgerEntries entries = cache.read(LEDGER_ID, FIRST_READ[0], FIRST_READ[1], reader)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            assertEntries(entries, FIRST_READ[0], FIRST_READ[1]);
+        }
+        Assert.assertEquals(expectedThirdReads, reader.reads);
+    }
+}
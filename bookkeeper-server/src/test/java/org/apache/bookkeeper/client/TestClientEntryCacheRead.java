@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Entries served from the client entry cache, and entries read again once evicted.
+ */
+@RunWith(Parameterized.class)
+public class TestClientEntryCacheRead {
+
+    private static final long LEDGER_ID = 1L;
+    // each entry is ENTRY_SIZE bytes
+    private static final int ENTRY_SIZE = 10;
+
+    // Test Parameters
+    private final long cacheSizeBytes;
+    private final long[] firstRead;
+    private final long[] secondRead;
+    private final List<List<Long>> expectedResult;
+
+    private ClientEntryCache cache;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {cache size,    first read,         second read,        ranges read by the second read }
+            {1000L,             range(0, 4),        range(0, 4),        reads() },
+            {1000L,             range(0, 4),        range(2, 6),        reads(range(5, 6)) },
+            {1000L,             range(0, 4),        range(5, 6),        reads(range(5, 6)) },
+            // cached entries split the read of the missing ones
+            {1000L,             range(2, 3),        range(0, 5),        reads(range(0, 1), range(4, 5)) },
+            // the least recently used entries are evicted
+            {20L,               range(0, 4),        range(0, 1),        reads(range(0, 1)) },
+            {20L,               range(0, 4),        range(3, 4),        reads() },
+            // entries larger than the cache are not cached
+            {5L,                range(0, 1),        range(0, 1),        reads(range(0, 1)) },
+        });
+    }
+
+    static long[] range(long first, long last) {
+        return new long[] {first, last};
+    }
+
+    static List<List<Long>> reads(long[]... ranges) {
+        List<List<Long>> reads = new ArrayList<>();
+        for (long[] range : ranges) {
+            reads.add(Arrays.asList(range[0], range[1]));
+        }
+        return reads;
+    }
+
+    public TestClientEntryCacheRead(long cacheSizeBytes, long[] firstRead, long[] secondRead,
+                                    List<List<Long>> expectedResult) {
+        this.cacheSizeBytes = cacheSizeBytes;
+        this.firstRead = firstRead;
+        this.secondRead = secondRead;
+        this.expectedResult = expectedResult;
+    }
+
+    @Before
+    public void setUp() {
+        cache = new ClientEntryCache(cacheSizeBytes, ByteBufAllocator.DEFAULT,
+                BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE));
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        RecordingReader reader = new RecordingReader();
+        cache.read(LEDGER_ID, firstRead[0], firstRead[1], reader).get().close();
+
+        reader.reads.clear();
+        try (LedgerEntries entries = cache.read(LEDGER_ID, secondRead[0], secondRead[1], reader).get()) {
+            assertEntries(entries, secondRead[0], secondRead[1]);
+        }
+        Assert.assertEquals(expectedResult, reader.reads);
+    }
+
+    static LedgerEntries entries(long firstEntry, long lastEntry) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            byte[] data = String.format("entry-%04d", entryId).getBytes(StandardCharsets.UTF_8);
+            entries.add(LedgerEntryImpl.create(LEDGER_ID, entryId, data.length, Unpooled.wrappedBuffer(data)));
+        }
+        return LedgerEntriesImpl.create(entries);
+    }
+
+    static void assertEntries(LedgerEntries entries, long firstEntry, long lastEntry) {
+        long entryId = firstEntry;
+        for (LedgerEntry entry : entries) {
+            Assert.assertEquals(LEDGER_ID, entry.getLedgerId());
+            Assert.assertEquals(entryId, entry.getEntryId());
+            Assert.assertEquals(ENTRY_SIZE, entry.getLength());
+            Assert.assertEquals(String.format("entry-%04d", entryId),
+                    new String(entry.getEntryBytes(), StandardCharsets.UTF_8));
+            entryId++;
+        }
+        Assert.assertEquals(lastEntry + 1, entryId);
+    }
+
+    /**
+     * Reads the entries right away, recording the ranges read.
+     */
+    static class RecordingReader implements ClientEntryCache.EntryReader {
+        final List<List<Long>> reads = new ArrayList<>();
+
+        @Override
+        public synchronized CompletableFuture<LedgerEntries> read(long firstEntry, long lastEntry) {
+            reads.add(Arrays.asList(firstEntry, lastEntry));
+            return CompletableFuture.completedFuture(entries(firstEntry, lastEntry));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Memory reserved by adds, and adds failing fast instead of waiting for memory.
+ */
+@RunWith(Parameterized.class)
+public class TestClientMemoryLimiterReserveForAdd {
+
+    private static final long LIMIT = 100L;
+    private static final int OK = BKException.Code.OK;
+    private static final int TOO_MANY = BKException.Code.TooManyRequestsException;
+
+    // Test Parameters
+    private final boolean blockAdds;
+    private final boolean mayWait;
+    private final long reserved;
+    private final long size;
+    private final int expectedResult;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {block adds,    may wait,   reserved,   size,   expected rc }
+            {true,              true,       0L,         50L,    OK },
+            // one add may go over the limit
+            {true,              false,      100L,       50L,    OK },
+            {false,             true,       0L,         150L,   OK },
+            {false,             true,       101L,       1L,     TOO_MANY },
+            // the adds issued from the callbacks of the ledger never wait
+            {true,              false,      101L,       1L,     TOO_MANY },
+            {true,              false,      150L,       50L,    TOO_MANY },
+        });
+    }
+
+    public TestClientMemoryLimiterReserveForAdd(boolean blockAdds, boolean mayWait, long reserved, long size,
+                                                int expectedResult) {
+        this.blockAdds = blockAdds;
+        this.mayWait = mayWait;
+        this.reserved = reserved;
+        this.size = size;
+        this.expectedResult = expectedResult;
+    }
+
+    @Test
+    public void testReserveForAdd() {
+        ClientMemoryLimiter memoryLimiter = new ClientMemoryLimiter(LIMIT, blockAdds, false,
+                BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE));
+        if (reserved > 0) {
+            Assert.assertEquals(OK, memoryLimiter.reserveForAdd(reserved, false));
+        }
+        Assert.assertEquals(expectedResult, memoryLimiter.reserveForAdd(size, mayWait));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import static org.apache.bookkeeper.client.TestLacWatchManagerWaitForLacUpdate.ENSEMBLE;
+import static org.apache.bookkeeper.client.TestLacWatchManagerWaitForLacUpdate.LEDGER_ID;
+import static org.apache.bookkeeper.client.TestLacWatchManagerWaitForLacUpdate.inlineScheduler;
+import static org.apache.bookkeeper.client.TestLacWatchManagerWaitForLacUpdate.mockHandle;
+import static org.apache.bookkeeper.client.TestLacWatchManagerWaitForLacUpdate.recordingBookieClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.TestLacWatchManagerWaitForLacUpdate.WatchRequest;
+import org.apache.bookkeeper.net.BookieId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Handles of a tailed ledger closed while other handles still wait on it.
+ */
+@RunWith(Parameterized.class)
+public class TestLacWatchManagerUnwatch {
+
+    private static final long PREVIOUS_LAC = 5L;
+
+    // Test Parameters
+    private final int numHandles;
+    private final int[] closedHandles;
+    private final boolean expectedUnwatched;
+
+    private LacWatchManager lacWatchManager;
+    private final List<WatchRequest> watchRequests = new ArrayList<>();
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {handles,   closed handles,     unwatched on the bookies }
+            {1,             new int[] {0},      true },
+            {2,             new int[] {0},      false },
+            {2,             new int[] {1, 0},   true },
+            {3,             new int[] {1, 2},   false },
+            // closing a handle twice does not release the watch of another one
+            {2,             new int[] {0, 0},   false },
+        });
+    }
+
+    public TestLacWatchManagerUnwatch(int numHandles, int[] closedHandles, boolean expectedUnwatched) {
+        this.numHandles = numHandles;
+        this.closedHandles = closedHandles;
+        this.expectedUnwatched = expectedUnwatched;
+    }
+
+    @Before
+    public void setUp() {
+        lacWatchManager = new LacWatchManager(recordingBookieClient(watchRequests, BKException.Code.OK),
+                inlineScheduler());
+    }
+
+    @Test
+    public void testUnwatch() throws Exception {
+        List<LedgerHandle> handles = new ArrayList<>();
+        List<CompletableFuture<Long>> waits = new ArrayList<>();
+        for (int i = 0; i < numHandles; i++) {
+            LedgerHandle lh = mockHandle(PREVIOUS_LAC);
+            handles.add(lh);
+            waits.add(lacWatchManager.waitForLacUpdate(lh, PREVIOUS_LAC, 1000L));
+        }
+        // the ledger is watched once on each bookie
+        Assert.assertEquals(ENSEMBLE.size(), watchRequests.size());
+        watchRequests.clear();
+
+        Set<Integer> closed = new HashSet<>();
+        for (int idx : closedHandles) {
+            lacWatchManager.unwatch(handles.get(idx));
+            closed.add(idx);
+        }
+        // the waits of the closed handles complete with the last known lac
+        for (int i = 0; i < numHandles; i++) {
+            Assert.assertEquals(closed.contains(i), waits.get(i).isDone());
+            if (closed.contains(i)) {
+                Assert.assertEquals(PREVIOUS_LAC, (long) waits.get(i).get(0, TimeUnit.SECONDS));
+            }
+        }
+        Set<BookieId> unwatchedOn = new HashSet<>();
+        for (WatchRequest request : watchRequests) {
+            Assert.assertTrue(request.watch.isEmpty());
+            Assert.assertEquals(Collections.singleton(LEDGER_ID), request.unwatch);
+            unwatchedOn.add(request.bookie);
+        }
+        Assert.assertEquals(expectedUnwatched ? new HashSet<>(ENSEMBLE) : Collections.emptySet(), unwatchedOn);
+
+        // the other handles are still notified
+        lacWatchManager.onLacUpdate(ENSEMBLE.get(0), LEDGER_ID, BKException.Code.OK, PREVIOUS_LAC + 1);
+        for (int i = 0; i < numHandles; i++) {
+            if (!closed.contains(i)) {
+                Assert.assertEquals(PREVIOUS_LAC + 1, (long) waits.get(i).get(0, TimeUnit.SECONDS));
+            }
+        }
+
+        // a handle opened later watches the ledger again if it was unwatched
+        watchRequests.clear();
+        lacWatchManager.waitForLacUpdate(mockHandle(PREVIOUS_LAC + 1), PREVIOUS_LAC + 1, 1000L);
+        Assert.assertEquals(expectedUnwatched ? ENSEMBLE.size() : 0, watchRequests.size());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.client;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Waits on the last add confirmed of a ledger watched on the bookies of its ensemble.
+ */
+@RunWith(Parameterized.class)
+public class TestLacWatchManagerWaitForLacUpdate {
+
+    static final long LEDGER_ID = 1L;
+    static final List<BookieId> ENSEMBLE = Arrays.asList(
+            BookieId.parse("bookie-1:3181"), BookieId.parse("bookie-2:3181"));
+    private static final long PREVIOUS_LAC = 5L;
+    private static final int OK = BKException.Code.OK;
+    private static final int NO_LEDGER = BKException.Code.NoSuchLedgerExistsException;
+
+    // Test Parameters
+    private final long handleLac;
+    private final int watchRc;
+    private final int[][] updates;
+    private final Object expectedResult;
+    private final int expectedWatchRequests;
+
+    private LacWatchManager lacWatchManager;
+    private final List<WatchRequest> watchRequests = new ArrayList<>();
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {handle lac,    watch rc,   updates {bookie, rc, lac},      result,         watch requests }
+            // nothing is watched when the handle already knows a newer lac
+            {10L,               OK,         new int[][] {},                 10L,            0 },
+            {5L,                OK,         new int[][] {{0, OK, 6}},       6L,             2 },
+            {5L,                OK,         new int[][] {{1, OK, 9}},       9L,             2 },
+            {5L,                OK,         new int[][] {{0, OK, 5}},       null,           2 },
+            // the wait only fails once no bookie watches the ledger anymore
+            {5L,                OK,         new int[][] {{0, NO_LEDGER, -1}}, null,         2 },
+            {5L,                OK,         new int[][] {{0, NO_LEDGER, -1}, {1, NO_LEDGER, -1}},
+                                BKException.BKNoSuchLedgerExistsException.class,    2 },
+            {5L,                OK,         new int[][] {{0, NO_LEDGER, -1}, {1, OK, 7}}, 7L, 2 },
+            // bookies which do not support watches
+            {5L,                BKException.Code.IllegalOpException, new int[][] {},
+                                                                            BKException.BKIllegalOpException.class, 2 },
+        });
+    }
+
+    public TestLacWatchManagerWaitForLacUpdate(long handleLac, int watchRc, int[][] updates, Object expectedResult,
+                                               int expectedWatchRequests) {
+        this.handleLac = handleLac;
+        this.watchRc = watchRc;
+        this.updates = updates;
+        this.expectedResult = expectedResult;
+        this.expectedWatchRequests = expectedWatchRequests;
+    }
+
+    @Before
+    public void setUp() {
+        lacWatchManager = new LacWatchManager(recordingBookieClient(watchRequests, watchRc), inlineScheduler());
+    }
+
+    @Test
+    public void testWaitForLacUpdate() throws Exception {
+        LedgerHandle lh = mockHandle(handleLac);
+        CompletableFuture<Long> result = lacWatchManager.waitForLacUpdate(lh, PREVIOUS_LAC, 1000L);
+        for (int[] update : updates) {
+            lacWatchManager.onLacUpdate(ENSEMBLE.get(update[0]), LEDGER_ID, update[1], update[2]);
+        }
+
+        Assert.assertEquals(expectedWatchRequests, watchRequests.size());
+        for (WatchRequest request : watchRequests) {
+            Assert.assertEquals(PREVIOUS_LAC, (long) request.watch.get(LEDGER_ID));
+        }
+        if (expectedResult == null) {
+            Assert.assertFalse(result.isDone());
+        } else if (expectedResult instanceof Long) {
+            Assert.assertEquals(expectedResult, result.get(0, TimeUnit.SECONDS));
+        } else {
+            try {
+                result.get(0, TimeUnit.SECONDS);
+                Assert.fail("The wait should have failed");
+            } catch (ExecutionException ee) {
+                Assert.assertTrue(((Class<?>) expectedResult).isInstance(ee.getCause()));
+            }
+        }
+    }
+
+    static LedgerHandle mockHandle(long lac) {
+        LedgerHandle lh = mock(LedgerHandle.class);
+        when(lh.getId()).thenReturn(LEDGER_ID);
+        when(lh.getLastAddConfirmed()).thenReturn(lac);
+        when(lh.getCurrentEnsemble()).thenReturn(ENSEMBLE);
+        return lh;
+    }
+
+    /**
+     * A scheduler running the requests right away, and never timing out the waits.
+     */
+    static OrderedScheduler inlineScheduler() {
+        OrderedScheduler scheduler = mock(OrderedScheduler.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(scheduler).execute(any(Runnable.class));
+        return scheduler;
+    }
+
+    @SuppressWarnings("unchecked")
+    static BookieClient recordingBookieClient(List<WatchRequest> watchRequests, int rc) {
+        BookieClient bookieClient = mock(BookieClient.class);
+        doAnswer(invocation -> {
+            watchRequests.add(new WatchRequest(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2)));
+            ((GenericCallback<Void>) invocation.getArgument(3)).operationComplete(rc, null);
+            return null;
+        }).when(bookieClient).watchLac(any(), any(), any(), any());
+        return bookieClient;
+    }
+
+    static class WatchRequest {
+        final BookieId bookie;
+        final Map<Long, Long> watch;
+        final Set<Long> unwatch;
+
+        WatchRequest(BookieId bookie, Map<Long, Long> watch, Collection<Long> unwatch) {
+            this.bookie = bookie;
+            this.watch = new HashMap<>(watch);
+            this.unwatch = new HashSet<>(unwatch);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.bookkeeper.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Ledger metadata cached on a miss and kept up to date by the changes the handles see, without the cache
+ * watching the ledgers itself.
+ */
+@RunWith(Parameterized.class)
+public class TestLedgerMetadataCacheUpdate {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long NO_UPDATE = -1L;
+    private static final long DELETED = -2L;
+
+    // Test Parameters
+    private final boolean closed;
+    private final long updateVersion;
+    private final long expectedVersion;
+    private final int expectedStoreReads;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {closed,    update version, expected version,   expected store reads }
+            {true,          NO_UPDATE,      1L,                 1 },
+            // the metadata of open ledgers changes with every ensemble change, it is read every time
+            {false,         NO_UPDATE,      1L,                 2 },
+            {false,         2L,             1L,                 2 },
+            {true,          2L,             2L,                 1 },
+            // an older version seen late by a handle is ignored
+            {true,          0L,             1L,                 1 },
+            {true,          DELETED,        1L,                 2 },
+        });
+    }
+
+    public TestLedgerMetadataCacheUpdate(boolean closed, long updateVersion, long expectedVersion,
+                                         int expectedStoreReads) {
+        this.closed = closed;
+        this.updateVersion = updateVersion;
+        this.expectedVersion = expectedVersion;
+        this.expectedStoreReads = expectedStoreReads;
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.readLedgerMetadata(LEDGER_ID))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(metadata(1L)));
+        LedgerMetadataCache cache = new LedgerMetadataCache(10, ledgerManager,
+                BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE));
+
+        Assert.assertEquals(new LongVersion(1L), cache.read(LEDGER_ID).get().getVersion());
+        if (updateVersion == DELETED) {
+            cache.update(LEDGER_ID, null);
+        } else if (updateVersion != NO_UPDATE) {
+            cache.update(LEDGER_ID, metadata(updateVersion));
+        }
+
+        Assert.assertEquals(new LongVersion(expectedVersion), cache.read(LEDGER_ID).get().getVersion());
+        verify(ledgerManager, times(expectedStoreReads)).readLedgerMetadata(LEDGER_ID);
+        verify(ledgerManager, never()).registerLedgerMetadataListener(anyLong(), any());
+    }
+
+    private Versioned<LedgerMetadata> metadata(long version) {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withEnsembleSize(1).withWriteQuorumSize(1).withAckQuorumSize(1)
+                .withDigestType(DigestType.CRC32C).withPassword("passwd".getBytes(UTF_8))
+                .newEnsembleEntry(0L, Collections.singletonList(BookieId.parse("bookie0:3181")));
+        if (closed) {
+            builder.withClosedState().withLastEntryId(10L).withLength(100L);
+        }
+        return new Versioned<>(builder.build(), new LongVersion(version));
+    }
+}
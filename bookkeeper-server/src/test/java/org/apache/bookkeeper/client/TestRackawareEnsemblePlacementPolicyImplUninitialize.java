@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.bookkeeper.client;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.apache.bookkeeper.net.CachedDNSToSwitchMapping;
+import org.apache.bookkeeper.net.DNSToSwitchMapping;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * The placement policy listens to the network location changes of a caching resolver until it is uninitialized.
+ */
+@RunWith(Parameterized.class)
+public class TestRackawareEnsemblePlacementPolicyImplUninitialize {
+
+    // Test Parameters
+    private final boolean cachedResolver;
+    private final int numInitializations;
+    private final boolean uninitialize;
+    private final int expectedListeners;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {cached resolver,   initializations,    uninitialize,   expected listeners }
+            {true,                  1,                  false,          1 },
+            {true,                  1,                  true,           0 },
+            // initializing again replaces the listener
+            {true,                  2,                  false,          1 },
+            {true,                  2,                  true,           0 },
+            {false,                 1,                  true,           0 },
+        });
+    }
+
+    public TestRackawareEnsemblePlacementPolicyImplUninitialize(boolean cachedResolver, int numInitializations,
+                                                                boolean uninitialize, int expectedListeners) {
+        this.cachedResolver = cachedResolver;
+        this.numInitializations = numInitializations;
+        this.uninitialize = uninitialize;
+        this.expectedListeners = expectedListeners;
+    }
+
+    @Test
+    public void testUninitialize() {
+        RecordingResolver recordingResolver = new RecordingResolver();
+        DNSToSwitchMapping resolver = cachedResolver ? recordingResolver : mock(DNSToSwitchMapping.class);
+        RackawareEnsemblePlacementPolicyImpl policy = new RackawareEnsemblePlacementPolicyImpl();
+        for (int i = 0; i < numInitializations; i++) {
+            policy.initialize(resolver, null, false, 0, 0, false, 0, 0, false, true,
+                    NullStatsLogger.INSTANCE, null);
+        }
+        if (uninitialize) {
+            policy.uninitalize();
+        }
+        Assert.assertEquals(expectedListeners, recordingResolver.listeners.size());
+    }
+
+    private static class RecordingResolver extends CachedDNSToSwitchMapping {
+        final Set<Consumer<Set<String>>> listeners = new HashSet<>();
+
+        RecordingResolver() {
+            super(mock(DNSToSwitchMapping.class));
+        }
+
+        @Override
+        public void addRackChangeListener(Consumer<Set<String>> listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeRackChangeListener(Consumer<Set<String>> listener) {
+            listeners.remove(listener);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.client.api;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.bookkeeper.client.BKException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Result of a batch appended entry by entry by the default implementation.
+ */
+@RunWith(Parameterized.class)
+public class TestWriteHandleAppendBatchAsync {
+
+    // Test Parameters
+    private final int numEntries;
+    private final int failedEntry;
+    private final Object expectedResult;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {entries,   failed entry,   expected result }
+            {1,             -1,             0L },
+            {3,             -1,             2L },
+            {3,             2,              BKException.BKBookieHandleNotAvailableException.class },
+            // the failure of an entry before the last one is reported too
+            {3,             0,              BKException.BKBookieHandleNotAvailableException.class },
+            {0,             -1,             IllegalArgumentException.class },
+        });
+    }
+
+    public TestWriteHandleAppendBatchAsync(int numEntries, int failedEntry, Object expectedResult) {
+        this.numEntries = numEntries;
+        this.failedEntry = failedEntry;
+        this.expectedResult = expectedResult;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAppendBatchAsync() throws Exception {
+        List<CompletableFuture<Long>> appends = new ArrayList<>();
+        List<ByteBuf> data = new ArrayList<>();
+        for (int i = 0; i < numEntries; i++) {
+            CompletableFuture<Long> append = new CompletableFuture<>();
+            if (i == failedEntry) {
+                append.completeExceptionally(new BKException.BKBookieHandleNotAvailableException());
+            } else {
+                append.complete((long) i);
+            }
+            appends.add(append);
+            data.add(Unpooled.wrappedBuffer(new byte[] {(byte) i}));
+        }
+        WriteHandle handle = mock(WriteHandle.class);
+        when(handle.appendBatchAsync(anyList())).thenCallRealMethod();
+        if (numEntries > 0) {
+            when(handle.appendAsync(any(ByteBuf.class))).thenReturn(appends.get(0),
+                    appends.subList(1, appends.size()).toArray(new CompletableFuture[0]));
+        }
+
+        CompletableFuture<Long> result = handle.appendBatchAsync(data);
+        if (expectedResult instanceof Long) {
+            Assert.assertEquals(expectedResult, result.get());
+        } else {
+            try {
+                result.get();
+                Assert.fail("The batch should have failed");
+            } catch (ExecutionException ee) {
+                Assert.assertTrue(((Class<?>) expectedResult).isInstance(ee.getCause()));
+            }
+        }
+    }
+}
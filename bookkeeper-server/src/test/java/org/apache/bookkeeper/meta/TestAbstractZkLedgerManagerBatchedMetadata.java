@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.meta;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException.BKMetadataVersionException;
+import org.apache.bookkeeper.client.BKException.BKNoSuchLedgerExistsOnMetadataServerException;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+import org.apache.zookeeper.data.Stat;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Ledger metadata read, written and removed by batches of zookeeper multi operations.
+ */
+@RunWith(Parameterized.class)
+public class TestAbstractZkLedgerManagerBatchedMetadata {
+
+    private static final int NUM_LEDGERS = 6;
+    private static final Class<?> NO_SUCH_LEDGER = BKNoSuchLedgerExistsOnMetadataServerException.class;
+
+    private static ZooKeeperTestServer zkServer;
+
+    private enum Operation {
+        READ, WRITE, REMOVE
+    }
+
+    // Test Parameters
+    private final Operation operation;
+    private final int batchSize;
+    private final Set<Integer> missingLedgers;
+    private final Set<Integer> staleLedgers;
+    private final Class<?> expectedResult;
+
+    private ZooKeeperClient zk;
+    private AbstractZkLedgerManager ledgerManager;
+    private final List<Long> ledgerIds = new ArrayList<>();
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {operation,     batch size, missing ledgers,    stale versions,  expectedResult }
+            {Operation.READ,    4,          new int[0],         new int[0],      null },
+            // missing ledgers are left out of the result
+            {Operation.READ,    4,          new int[] { 2 },    new int[0],      null },
+            {Operation.READ,    2,          new int[] { 0, 5 }, new int[0],      null },
+            {Operation.WRITE,   4,          new int[0],         new int[0],      null },
+            // the transaction of the batch fails partway through, none of its ledgers is written
+            {Operation.WRITE,   3,          new int[0],         new int[] { 4 }, BKMetadataVersionException.class },
+            {Operation.WRITE,   6,          new int[] { 2 },    new int[0],      NO_SUCH_LEDGER },
+            {Operation.REMOVE,  4,          new int[0],         new int[0],      null },
+            // batches with missing ledgers are removed ledger by ledger
+            {Operation.REMOVE,  3,          new int[] { 1, 4 }, new int[0],      null },
+            {Operation.REMOVE,  6,          new int[0],         new int[] { 3 }, BKMetadataVersionException.class },
+            {Operation.REMOVE,  3,          new int[] { 0 },    new int[] { 1 }, BKMetadataVersionException.class },
+        });
+    }
+
+    public TestAbstractZkLedgerManagerBatchedMetadata(Operation operation, int batchSize, int[] missingLedgers,
+                                                      int[] staleLedgers,
+                                                      Class<?> expectedResult) {
+        this.operation = operation;
+        this.batchSize = batchSize;
+        this.missingLedgers = toSet(missingLedgers);
+        this.staleLedgers = toSet(staleLedgers);
+        this.expectedResult = expectedResult;
+    }
+
+    @BeforeClass
+    public static void startZooKeeper() throws Exception {
+        zkServer = ZooKeeperTestServer.start();
+    }
+
+    @AfterClass
+    public static void stopZooKeeper() {
+        ZooKeeperTestServer.stop(zkServer);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        zk = zkServer.newClient();
+        ClientConfiguration conf = new ClientConfiguration()
+                .setMetadataServiceUri("zk+hierarchical://" + zkServer.getConnectString()
+                        + ZooKeeperTestServer.newLedgersPath())
+                .setMetadataBatchSize(batchSize)
+                .setMetadataBatchMaxOutstanding(1);
+        ledgerManager = new HierarchicalLedgerManager(conf, zk);
+        for (int i = 0; i < NUM_LEDGERS; i++) {
+            long ledgerId = 1000L + i;
+            ledgerIds.add(ledgerId);
+            if (!missingLedgers.contains(i)) {
+                ledgerManager.createLedgerMetadata(ledgerId, metadata(ledgerId, false)).get();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ledgerManager.close();
+        zk.close();
+    }
+
+    @Test
+    public void testBatchedMetadata() throws Exception {
+        CompletableFuture<?> future;
+        switch (operation) {
+        case READ:
+            future = ledgerManager.readLedgersMetadata(ledgerIds);
+            break;
+        case WRITE:
+            Map<Long, Versioned<LedgerMetadata>> toWrite = new HashMap<>();
+            for (int i = 0; i < NUM_LEDGERS; i++) {
+                toWrite.put(ledgerIds.get(i), new Versioned<>(metadata(ledgerIds.get(i), true), version(i)));
+            }
+            future = ledgerManager.writeLedgersMetadata(toWrite);
+            break;
+        default:
+            Map<Long, Version> toRemove = new HashMap<>();
+            for (int i = 0; i < NUM_LEDGERS; i++) {
+                toRemove.put(ledgerIds.get(i), version(i));
+            }
+            future = ledgerManager.removeLedgersMetadata(toRemove);
+            break;
+        }
+
+        Object result;
+        try {
+            result = future.get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Assert.assertNotNull("Unexpected failure " + e.getCause(), expectedResult);
+            Assert.assertEquals(expectedResult, e.getCause().getClass());
+            assertFailedBatchesUntouched();
+            return;
+        }
+        Assert.assertNull("Expected " + expectedResult, expectedResult);
+
+        for (int i = 0; i < NUM_LEDGERS; i++) {
+            long ledgerId = ledgerIds.get(i);
+            Stat stat = zk.exists(ledgerManager.getLedgerPath(ledgerId), false);
+            if (operation == Operation.READ) {
+                Map<?, ?> read = (Map<?, ?>) result;
+                Assert.assertEquals(!missingLedgers.contains(i), read.containsKey(ledgerId));
+            } else if (operation == Operation.WRITE) {
+                Assert.assertEquals(1, stat.getVersion());
+                Assert.assertEquals(LedgerMetadata.State.CLOSED,
+                        ledgerManager.readLedgerMetadata(ledgerId).get().getValue().getState());
+            } else {
+                Assert.assertNull("Ledger " + ledgerId + " was not removed", stat);
+            }
+        }
+    }
+
+    /**
+     * A batch is applied by a single transaction, unless missing ledgers made it fall back to single
+     * removals, so the failure of one ledger leaves the others of its batch untouched.
+     */
+    private void assertFailedBatchesUntouched() throws Exception {
+        for (int i = 0; i < NUM_LEDGERS; i++) {
+            int batch = i / batchSize;
+            if (missingLedgers.contains(i) || !isFailedBatch(batch)) {
+                continue;
+            }
+            Stat stat = zk.exists(ledgerManager.getLedgerPath(ledgerIds.get(i)), false);
+            Assert.assertNotNull("Ledger " + ledgerIds.get(i) + " of a failed batch was removed", stat);
+            Assert.assertEquals(0, stat.getVersion());
+        }
+    }
+
+    private boolean isFailedBatch(int batch) {
+        boolean failed = false;
+        for (int i = batch * batchSize; i < Math.min(NUM_LEDGERS, (batch + 1) * batchSize); i++) {
+            if (missingLedgers.contains(i) && operation == Operation.REMOVE) {
+                return false;
+            }
+            failed |= missingLedgers.contains(i) || staleLedgers.contains(i);
+        }
+        return failed;
+    }
+
+    private Version version(int index) {
+        return new LongVersion(staleLedgers.contains(index) ? 5L : 0L);
+    }
+
+    private static LedgerMetadata metadata(long ledgerId, boolean closed) {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withEnsembleSize(1).withWriteQuorumSize(1).withAckQuorumSize(1)
+                .withDigestType(DigestType.CRC32C).withPassword("passwd".getBytes(UTF_8))
+                .newEnsembleEntry(0L, Collections.singletonList(BookieId.parse("bookie0:3181")));
+        if (closed) {
+            builder.withClosedState().withLastEntryId(10L).withLength(100L);
+        }
+        return builder.build();
+    }
+
+    private static Set<Integer> toSet(int[] indexes) {
+        Set<Integer> set = new HashSet<>();
+        for (int index : indexes) {
+            set.add(index);
+        }
+        return set;
+    }
+}
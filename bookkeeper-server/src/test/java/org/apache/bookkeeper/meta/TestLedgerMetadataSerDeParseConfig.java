@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.meta;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Parsing of metadata written with format version 4.
+ */
+@RunWith(Parameterized.class)
+public class TestLedgerMetadataSerDeParseConfig {
+
+    private static final long LEDGER_ID = 1234L;
+    private static final String[] BOOKIES = { "bookie0:3181", "bookie1:3181", "bookie2:3181", "bookie3:3181" };
+
+    // Test Parameters
+    private final byte[] bytes;
+    private final Object expectedResult;
+
+    private final LedgerMetadataSerDe serDe = new LedgerMetadataSerDe();
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() throws Exception {
+        byte[] closed = validMetadata(true);
+        byte[] open = validMetadata(false);
+        return Arrays.asList(new Object[][] {
+            //  {serialized metadata,                                                   expectedResult }
+            // the metadata is serialized again without its ensembles being accessed
+            {closed,                                                                    closed },
+            {open,                                                                      open },
+            // segments: delta of the first entry id, ensemble size, bookie indexes
+            {version4(3, 3, varints(0, 3, 0, 1)),                                       IOException.class },
+            {version4(3, 3, new byte[] { 0, 3, 0, 1, (byte) 0x80 }),                    IOException.class },
+            {version4(3, 3, varints(0, 3, 0, 1, 3)),                                    IOException.class },
+            {version4(3, 3, varints(0, 2, 0, 1)),                                       IOException.class },
+            {version4(3, 3, varints(0, 3, 0, 1, 2, 0, 3, 2, 1, 0)),                     IOException.class },
+            {version4(3, 3, varints(-1, 3, 0, 1, 2)),                                   IOException.class },
+            {version4(3, 3, new byte[0]),                                               IOException.class },
+        });
+    }
+
+    public TestLedgerMetadataSerDeParseConfig(byte[] bytes, Object expectedResult) {
+        this.bytes = bytes;
+        this.expectedResult = expectedResult;
+    }
+
+    @Test
+    public void testParseConfig() throws Exception {
+        if (expectedResult instanceof Class) {
+            try {
+                serDe.parseConfig(bytes, LEDGER_ID, Optional.empty());
+                Assert.fail("Corrupted metadata must be rejected when parsed");
+            } catch (Exception e) {
+                Assert.assertTrue(e.toString(), ((Class<?>) expectedResult).isInstance(e));
+            }
+        } else {
+            LedgerMetadata metadata = serDe.parseConfig(bytes, LEDGER_ID, Optional.empty());
+            Assert.assertEquals(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4, metadata.getMetadataFormatVersion());
+            Assert.assertArrayEquals((byte[]) expectedResult, serDe.serialize(metadata));
+        }
+    }
+
+    private static byte[] validMetadata(boolean closed) throws IOException {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withMetadataFormatVersion(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4)
+                .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                .withDigestType(DigestType.CRC32C).withPassword("passwd".getBytes(UTF_8))
+                .withCreationTime(123456L).storingCreationTime(true)
+                .withCustomMetadata(Collections.singletonMap("app", "test".getBytes(UTF_8)))
+                .newEnsembleEntry(0L, Arrays.asList(bookie(0), bookie(1), bookie(2)))
+                .newEnsembleEntry(10L, Arrays.asList(bookie(0), bookie(3), bookie(2)))
+                .newEnsembleEntry(300L, Arrays.asList(bookie(1), bookie(3), bookie(2)));
+        if (closed) {
+            builder.withClosedState().withLastEntryId(400L).withLength(1024L);
+        }
+        return new LedgerMetadataSerDe().serialize(builder.build());
+    }
+
+    private static BookieId bookie(int index) {
+        return BookieId.parse(BOOKIES[index]);
+    }
+
+    private static byte[] varints(long... values) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        CodedOutputStream cos = CodedOutputStream.newInstance(os);
+        for (long value : values) {
+            cos.writeUInt64NoTag(value);
+        }
+        cos.flush();
+        return os.toByteArray();
+    }
+
+    private static byte[] version4(int ensembleSize, int numBookies, byte[] packedSegments) throws IOException {
+        LedgerMetadataFormat.Builder builder = LedgerMetadataFormat.newBuilder()
+                .setQuorumSize(ensembleSize)
+                .setAckQuorumSize(ensembleSize)
+                .setEnsembleSize(ensembleSize)
+                .setLength(0L)
+                .setState(LedgerMetadataFormat.State.OPEN)
+                .setPackedSegments(ByteString.copyFrom(packedSegments));
+        for (int i = 0; i < numBookies; i++) {
+            builder.addBookie(BOOKIES[i]);
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        os.write(("BookieMetadataFormatVersion\t" + LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4 + "\n")
+                .getBytes(UTF_8));
+        builder.build().writeDelimitedTo(os);
+        return os.toByteArray();
+    }
+}
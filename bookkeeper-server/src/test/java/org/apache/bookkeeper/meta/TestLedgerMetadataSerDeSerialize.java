@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.meta;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.net.BookieId;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Conversion of metadata from format version 3 to version 4 and back.
+ */
+@RunWith(Parameterized.class)
+public class TestLedgerMetadataSerDeSerialize {
+
+    private static final long LEDGER_ID = 1234L;
+
+    // Test Parameters
+    private final LedgerMetadata metadata;
+
+    private final LedgerMetadataSerDe serDe = new LedgerMetadataSerDe();
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() throws Exception {
+        return Arrays.asList(new Object[][] {
+            //  {metadata written with format version 3 }
+            {builder(1, 1, 1).build() },
+            {builder(3, 2, 2).withInRecoveryState().build() },
+            {builder(3, 3, 2)
+                .newEnsembleEntry(10L, Arrays.asList(bookie(0), bookie(3), bookie(2)))
+                .newEnsembleEntry(1L << 40, Arrays.asList(bookie(4), bookie(3), bookie(0)))
+                .withClosedState().withLastEntryId((1L << 40) + 5).withLength(1L << 50)
+                .withCustomMetadata(Collections.singletonMap("app", "test".getBytes(UTF_8)))
+                .build() },
+        });
+    }
+
+    public TestLedgerMetadataSerDeSerialize(LedgerMetadata metadata) {
+        this.metadata = metadata;
+    }
+
+    @Test
+    public void testSerializeVersion3ToVersion4AndBack() throws Exception {
+        byte[] version3 = serDe.serialize(metadata);
+
+        LedgerMetadata upgraded = LedgerMetadataBuilder.from(serDe.parseConfig(version3, LEDGER_ID, Optional.empty()))
+                .withMetadataFormatVersion(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4).build();
+        byte[] version4 = serDe.serialize(upgraded);
+        LedgerMetadata parsed = serDe.parseConfig(version4, LEDGER_ID, Optional.empty());
+        Assert.assertEquals(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_4, parsed.getMetadataFormatVersion());
+        Assert.assertEquals(metadata.getAllEnsembles(), parsed.getAllEnsembles());
+        Assert.assertEquals(metadata.getState(), parsed.getState());
+        Assert.assertEquals(metadata.getLastEntryId(), parsed.getLastEntryId());
+
+        LedgerMetadata downgraded = LedgerMetadataBuilder.from(parsed)
+                .withMetadataFormatVersion(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_3).build();
+        Assert.assertArrayEquals(version3, serDe.serialize(downgraded));
+    }
+
+    private static LedgerMetadataBuilder builder(int ensembleSize, int writeQuorumSize, int ackQuorumSize) {
+        return LedgerMetadataBuilder.create()
+                .withId(LEDGER_ID)
+                .withMetadataFormatVersion(LedgerMetadataSerDe.METADATA_FORMAT_VERSION_3)
+                .withEnsembleSize(ensembleSize).withWriteQuorumSize(writeQuorumSize).withAckQuorumSize(ackQuorumSize)
+                .withDigestType(DigestType.CRC32C).withPassword("passwd".getBytes(UTF_8))
+                .withCreationTime(123456L).storingCreationTime(true)
+                .newEnsembleEntry(0L, Arrays.asList(bookie(0), bookie(1), bookie(2)).subList(0, ensembleSize));
+    }
+
+    private static BookieId bookie(int index) {
+        return BookieId.parse("bookie" + index + ":3181");
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.bookkeeper.meta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRange;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
+import org.apache.bookkeeper.util.StringUtils;
+import org.apache.bookkeeper.util.ZkUtils;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.ZKUtil;
+import org.apache.zookeeper.ZooDefs;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Ledger ranges listed by the leaf nodes iterator of the long hierarchical ledger manager.
+ */
+@RunWith(Parameterized.class)
+public class TestLongHierarchicalLedgerManagerGetLedgerRanges {
+
+    private static final long TIMEOUT_MS = 10000L;
+
+    private static ZooKeeperTestServer zkServer;
+
+    // Test Parameters
+    private final long[] ledgerIds;
+    private final long[] emptiedLedgers;
+    private final String[] invalidNodes;
+    private final String[] deletedNodes;
+    private final int concurrency;
+    private final List<Set<Long>> expectedRanges;
+
+    private ZooKeeperClient zk;
+    private String ledgersPath;
+    private LongHierarchicalLedgerManager ledgerManager;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {ledgers,                           emptied ledgers,    invalid nodes,
+            //   deleted after the first range,     concurrency,        expected ranges }
+            // the ranges come in ledger id order whatever the level the ledgers differ at
+            {new long[] { 10000000000000000L, 5, 1000000000000L, 10003, 100000000, 2 },   new long[0], new String[0],
+                new String[0],                      1,                  new long[][] { { 2, 5 }, { 10003 },
+                    { 100000000 }, { 1000000000000L }, { 10000000000000000L } } },
+            {new long[] { 10000000000000000L, 5, 1000000000000L, 10003, 100000000, 2 },   new long[0], new String[0],
+                new String[0],                      4,                  new long[][] { { 2, 5 }, { 10003 },
+                    { 100000000 }, { 1000000000000L }, { 10000000000000000L } } },
+            // the leaf nodes left without ledgers are skipped
+            {new long[] { 1, 10000, 20000, 30000 }, new long[] { 10000, 30000 },   new String[0],
+                new String[0],                      2,                  new long[][] { { 1 }, { 20000 } } },
+            {new long[] { 1 },                      new long[] { 1 },   new String[0],
+                new String[0],                      1,                  new long[0][] },
+            // the top level nodes which are not ledger parents, and the special znodes of a leaf, are filtered out
+            {new long[] { 1, 100000000 },           new long[0],
+                new String[] { "available/0000/0000/0000/L0001", "idgen-long/HOB-0000000001", "12/0000/L0001",
+                    "abc/0000/0000/0000/L0001", "000/0000/0000/0000/INSTANCEID" },
+                new String[0],                      2,                  new long[][] { { 1 }, { 100000000 } } },
+            // a leaf node or a level2 node removed once its parent was listed reads as empty
+            {new long[] { 1, 10000, 20000, 30000 }, new long[0],        new String[0],
+                new String[] { "000/0000/0000/0002" },  1,              new long[][] { { 1 }, { 10000 }, { 30000 } } },
+            {new long[] { 1, 100000000, 200000000 },    new long[0],    new String[0],
+                new String[] { "000/0000/0002" },   1,                  new long[][] { { 1 }, { 100000000 } } },
+        });
+    }
+
+    public TestLongHierarchicalLedgerManagerGetLedgerRanges(long[] ledgerIds, long[] emptiedLedgers,
+                                                            String[] invalidNodes, String[] deletedNodes,
+                                                            int concurrency, long[][] expectedRanges) {
+        this.ledgerIds = ledgerIds;
+        this.emptiedLedgers = emptiedLedgers;
+        this.invalidNodes = invalidNodes;
+        this.deletedNodes = deletedNodes;
+        this.concurrency = concurrency;
+        this.expectedRanges = new ArrayList<>();
+        for (long[] range : expectedRanges) {
+            Set<Long> ledgers = new HashSet<>();
+            for (long ledgerId : range) {
+                ledgers.add(ledgerId);
+            }
+            this.expectedRanges.add(ledgers);
+        }
+    }
+
+    @BeforeClass
+    public static void startZooKeeper() throws Exception {
+        zkServer = ZooKeeperTestServer.start();
+    }
+
+    @AfterClass
+    public static void stopZooKeeper() {
+        ZooKeeperTestServer.stop(zkServer);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        zk = zkServer.newClient();
+        ledgersPath = ZooKeeperTestServer.newLedgersPath();
+        zk.create(ledgersPath, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        for (long ledgerId : ledgerIds) {
+            createNode(ledgersPath + StringUtils.getLongHierarchicalLedgerPath(ledgerId));
+        }
+        for (long ledgerId : emptiedLedgers) {
+            zk.delete(ledgersPath + StringUtils.getLongHierarchicalLedgerPath(ledgerId), -1);
+        }
+        for (String node : invalidNodes) {
+            createNode(ledgersPath + "/" + node);
+        }
+        ClientConfiguration conf = new ClientConfiguration()
+                .setMetadataServiceUri("zk+longhierarchical://" + zkServer.getConnectString() + ledgersPath)
+                .setLedgerIterationConcurrency(concurrency);
+        ledgerManager = new LongHierarchicalLedgerManager(conf, zk);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ledgerManager.close();
+        zk.close();
+    }
+
+    @Test
+    public void testGetLedgerRanges() throws Exception {
+        LedgerRangeIterator iterator = ledgerManager.getLedgerRanges(TIMEOUT_MS);
+        List<Set<Long>> ranges = new ArrayList<>();
+        while (iterator.hasNext()) {
+            LedgerRange range = iterator.next();
+            ranges.add(range.getLedgers());
+            if (ranges.size() == 1) {
+                for (String node : deletedNodes) {
+                    ZKUtil.deleteRecursive(zk, ledgersPath + "/" + node);
+                }
+            }
+        }
+        Assert.assertEquals(expectedRanges, ranges);
+    }
+
+    private void createNode(String path) throws Exception {
+        ZkUtils.createFullPathOptimistic(zk, path, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+    }
+}
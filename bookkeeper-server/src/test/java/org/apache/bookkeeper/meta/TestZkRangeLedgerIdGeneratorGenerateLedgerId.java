@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.meta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.ZooDefs;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Ledger ids handed out by ranges reserved on a ZooKeeper server.
+ */
+@RunWith(Parameterized.class)
+public class TestZkRangeLedgerIdGeneratorGenerateLedgerId {
+
+    private static final String LONG_IDGEN_ZNODE = "idgen-long";
+
+    private static ZooKeeperTestServer zkServer;
+
+    // Test Parameters
+    private final int[] existingHobs;
+    private final int numGenerators;
+    private final int rangeSize;
+    private final int numRequests;
+    private final boolean restart;
+
+    private final List<ZooKeeperClient> zks = new ArrayList<>();
+    private String ledgersPath;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {existing HOB- directories, generators, range size, ids per generator, restart }
+            {new int[0],                    1,          10,         5,                  false },
+            // the first id is past every id of the existing HOB- directories
+            {new int[] { 1, 2, 7 },         1,          10,         5,                  false },
+            // the generators race on the counter and retry on BADVERSION
+            {new int[0],                    4,          10,         25,                 false },
+            {new int[] { 3 },               3,          1,          10,                 false },
+            // more requests are pending than one range holds
+            {new int[0],                    1,          4,          30,                 false },
+            // the ids left in the range of the closed generator are never used
+            {new int[] { 3 },               1,          10,         1,                  true },
+        });
+    }
+
+    public TestZkRangeLedgerIdGeneratorGenerateLedgerId(int[] existingHobs, int numGenerators, int rangeSize,
+                                                        int numRequests, boolean restart) {
+        this.existingHobs = existingHobs;
+        this.numGenerators = numGenerators;
+        this.rangeSize = rangeSize;
+        this.numRequests = numRequests;
+        this.restart = restart;
+    }
+
+    @BeforeClass
+    public static void startZooKeeper() throws Exception {
+        zkServer = ZooKeeperTestServer.start();
+    }
+
+    @AfterClass
+    public static void stopZooKeeper() {
+        ZooKeeperTestServer.stop(zkServer);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ledgersPath = ZooKeeperTestServer.newLedgersPath();
+        ZooKeeperClient zk = newZooKeeperClient();
+        zk.create(ledgersPath, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        if (existingHobs.length > 0) {
+            String longIdGenPath = ledgersPath + "/" + LONG_IDGEN_ZNODE;
+            zk.create(longIdGenPath, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            for (int hob : existingHobs) {
+                zk.create(longIdGenPath + "/HOB-" + String.format("%010d", hob), new byte[0],
+                        ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (ZooKeeperClient zk : zks) {
+            zk.close();
+        }
+    }
+
+    @Test
+    public void testGenerateLedgerId() throws Exception {
+        List<ZkRangeLedgerIdGenerator> generators = new ArrayList<>();
+        for (int i = 0; i < numGenerators; i++) {
+            generators.add(newGenerator());
+        }
+        List<Long> ids = generateIds(generators, numRequests);
+
+        Set<Long> distinctIds = ConcurrentHashMap.newKeySet();
+        distinctIds.addAll(ids);
+        Assert.assertEquals("Ledger ids handed out twice", ids.size(), distinctIds.size());
+
+        int maxHob = 1;
+        for (int hob : existingHobs) {
+            maxHob = Math.max(maxHob, hob);
+        }
+        long firstId = (maxHob + 1L) << 32;
+        Assert.assertEquals(firstId, (long) Collections.min(ids));
+        if (numGenerators == 1) {
+            // a single generator hands out every id of its ranges
+            Assert.assertEquals(firstId + numRequests - 1, (long) Collections.max(ids));
+        }
+
+        if (restart) {
+            for (ZkRangeLedgerIdGenerator generator : generators) {
+                generator.close();
+            }
+            List<Long> idsAfterRestart = generateIds(Collections.singletonList(newGenerator()), 1);
+            long rangesReserved = (numRequests + rangeSize - 1) / rangeSize;
+            Assert.assertEquals(firstId + rangesReserved * rangeSize, (long) idsAfterRestart.get(0));
+        }
+    }
+
+    private List<Long> generateIds(List<ZkRangeLedgerIdGenerator> generators, int idsPerGenerator)
+            throws Exception {
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        // issue every request before any range is reserved
+        for (int i = 0; i < idsPerGenerator; i++) {
+            for (ZkRangeLedgerIdGenerator generator : generators) {
+                CompletableFuture<Long> future = new CompletableFuture<>();
+                generator.generateLedgerId((rc, ledgerId) -> {
+                    if (rc == BKException.Code.OK) {
+                        future.complete(ledgerId);
+                    } else {
+                        future.completeExceptionally(BKException.create(rc));
+                    }
+                });
+                futures.add(future);
+            }
+        }
+        List<Long> ids = new ArrayList<>(futures.size());
+        for (CompletableFuture<Long> future : futures) {
+            ids.add(future.get(30, TimeUnit.SECONDS));
+        }
+        return ids;
+    }
+
+    private ZkRangeLedgerIdGenerator newGenerator() throws Exception {
+        // each generator has its own session, as separate clients would
+        return new ZkRangeLedgerIdGenerator(newZooKeeperClient(), ledgersPath, LONG_IDGEN_ZNODE, rangeSize,
+                ZooDefs.Ids.OPEN_ACL_UNSAFE);
+    }
+
+    private ZooKeeperClient newZooKeeperClient() throws Exception {
+        ZooKeeperClient zk = zkServer.newClient();
+        zks.add(zk);
+        return zk;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.bookkeeper.meta;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShim;
+import org.apache.bookkeeper.util.LocalBookKeeper;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+
+/**
+ * A ZooKeeper server on a free loopback port shared by the tests of a class, started from their
+ * {@code @BeforeClass} method and stopped from their {@code @AfterClass} method.
+ */
+public class ZooKeeperTestServer {
+
+    private static final AtomicInteger LEDGERS_PATH_ID = new AtomicInteger();
+
+    private final ZooKeeperServerShim server;
+    private final String connectString;
+
+    private ZooKeeperTestServer(ZooKeeperServerShim server, int port) {
+        this.server = server;
+        this.connectString = InetAddress.getLoopbackAddress().getHostAddress() + ":" + port;
+    }
+
+    /**
+     * Start a ZooKeeper server on a free port.
+     *
+     * @return the started server
+     */
+    public static ZooKeeperTestServer start() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        return new ZooKeeperTestServer(LocalBookKeeper.runZookeeper(1000, port), port);
+    }
+
+    /**
+     * Stop the server, if it was started.
+     *
+     * @param server the server, null if starting it failed
+     */
+    public static void stop(ZooKeeperTestServer server) {
+        if (server != null) {
+            server.server.stop();
+        }
+    }
+
+    /**
+     * A ledgers root path never used before in this JVM, so the tests sharing the server do not see
+     * each other's znodes.
+     *
+     * @return the path, not created yet
+     */
+    public static String newLedgersPath() {
+        return "/ledgers-" + LEDGERS_PATH_ID.incrementAndGet();
+    }
+
+    public String getConnectString() {
+        return connectString;
+    }
+
+    /**
+     * Connect a new client to the server. The caller closes it.
+     *
+     * @return the connected client
+     */
+    public ZooKeeperClient newClient() throws Exception {
+        return ZooKeeperClient.newBuilder()
+                .connectString(connectString)
+                .sessionTimeoutMs(10000)
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.FlowControlGrant;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Credits granted to a connection out of the flow control budget of the bookie.
+ */
+@RunWith(Parameterized.class)
+public class TestBookieRequestProcessorFlowControlGrant {
+
+    // Test Parameters
+    private final int maxOpCredits;
+    private final long maxByteCredits;
+    private final double free;
+    private final int numChannels;
+    private final int expectedOpCredits;
+    private final long expectedByteCredits;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {max ops, max bytes,    free,   channels,   expected ops,   expected bytes }
+            {1000,      1L << 24,       1.0,    1,          1000,           1L << 24 },
+            // the budget is shared by the connections
+            {1000,      1L << 24,       1.0,    4,          250,            1L << 22 },
+            {1000,      1L << 24,       0.5,    4,          125,            1L << 21 },
+            // the grant shrinks to nothing but one request as the queues fill up
+            {1000,      1L << 24,       0.0,    1,          1,              1L },
+            {1000,      1000L,          1.0,    3000,       1,              1L },
+            // a channel is counted once its first grant is computed
+            {1000,      1L << 24,       1.0,    0,          1000,           1L << 24 },
+        });
+    }
+
+    public TestBookieRequestProcessorFlowControlGrant(int maxOpCredits, long maxByteCredits, double free,
+                                                      int numChannels, int expectedOpCredits,
+                                                      long expectedByteCredits) {
+        this.maxOpCredits = maxOpCredits;
+        this.maxByteCredits = maxByteCredits;
+        this.free = free;
+        this.numChannels = numChannels;
+        this.expectedOpCredits = expectedOpCredits;
+        this.expectedByteCredits = expectedByteCredits;
+    }
+
+    @Test
+    public void testFlowControlGrant() {
+        FlowControlGrant grant = BookieRequestProcessor.flowControlGrant(maxOpCredits, maxByteCredits, free,
+                numChannels);
+        Assert.assertEquals(expectedOpCredits, grant.getOpCredits());
+        Assert.assertEquals(expectedByteCredits, grant.getByteCredits());
+        if (numChannels > 0) {
+            // the connections together never get more than the budget, unless each is down to one request
+            Assert.assertTrue((long) grant.getOpCredits() * numChannels <= Math.max(maxOpCredits, numChannels));
+        }
+    }
+}
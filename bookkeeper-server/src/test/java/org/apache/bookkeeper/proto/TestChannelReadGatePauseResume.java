@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import static org.apache.bookkeeper.proto.ChannelReadGate.ADDS_IN_PROGRESS;
+import static org.apache.bookkeeper.proto.ChannelReadGate.CLIENT_QUOTA;
+import static org.apache.bookkeeper.proto.ChannelReadGate.READS_IN_PROGRESS;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Auto-read of a channel paused and resumed for several reasons.
+ */
+@RunWith(Parameterized.class)
+public class TestChannelReadGatePauseResume {
+
+    // Test Parameters
+    private final int[] pauses;
+    private final int[] resumes;
+    private final boolean expectedAutoRead;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {pauses,                                        resumes,                    expected auto-read }
+            {new int[0],                                        new int[0],                             true },
+            {new int[] {ADDS_IN_PROGRESS},                      new int[0],                             false },
+            {new int[] {ADDS_IN_PROGRESS},                      new int[] {ADDS_IN_PROGRESS},           true },
+            // the channel stays paused while any reason remains
+            {new int[] {ADDS_IN_PROGRESS, CLIENT_QUOTA},        new int[] {ADDS_IN_PROGRESS},           false },
+            {new int[] {ADDS_IN_PROGRESS, CLIENT_QUOTA},        new int[] {CLIENT_QUOTA, ADDS_IN_PROGRESS}, true },
+            // pausing twice for the same reason only needs one resume
+            {new int[] {READS_IN_PROGRESS, READS_IN_PROGRESS},  new int[] {READS_IN_PROGRESS},          true },
+            // resuming for a reason the channel is not paused for does nothing
+            {new int[] {READS_IN_PROGRESS},                     new int[] {CLIENT_QUOTA},               false },
+            {new int[0],                                        new int[] {CLIENT_QUOTA},               true },
+        });
+    }
+
+    public TestChannelReadGatePauseResume(int[] pauses, int[] resumes, boolean expectedAutoRead) {
+        this.pauses = pauses;
+        this.resumes = resumes;
+        this.expectedAutoRead = expectedAutoRead;
+    }
+
+    @Test
+    public void testPauseResume() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelReadGate gate = ChannelReadGate.get(channel);
+        Assert.assertSame(gate, ChannelReadGate.get(channel));
+
+        int pausedFor = 0;
+        for (int reason : pauses) {
+            Assert.assertEquals((pausedFor & reason) == 0, gate.pause(reason));
+            pausedFor |= reason;
+        }
+        for (int reason : resumes) {
+            gate.resume(reason);
+        }
+        Assert.assertEquals(expectedAutoRead, channel.config().isAutoRead());
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.FlowControlGrant;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Window of a connection when the bookie grows or shrinks its grant while requests are outstanding.
+ */
+@RunWith(Parameterized.class)
+public class TestClientFlowControlUpdateGrant {
+
+    // Test Parameters
+    private final int numOutstanding;
+    private final long outstandingSize;
+    private final int opCredits;
+    private final long byteCredits;
+    private final long opSize;
+    private final int expectedReleases;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {outstanding,   size,   op credits, byte credits,   op size,    releases before the op is sent }
+            {4,                 10L,    10,         1000L,          10L,        0 },
+            // the grant is revoked below what is outstanding, the op waits until it fits again
+            {4,                 10L,    2,          1000L,          10L,        3 },
+            {2,                 10L,    10,         25L,            10L,        1 },
+            // a single op is always allowed when nothing is outstanding
+            {1,                 10L,    10,         15L,            100L,       1 },
+            {0,                 0L,     1,          1L,             100L,       0 },
+        });
+    }
+
+    public TestClientFlowControlUpdateGrant(int numOutstanding, long outstandingSize, int opCredits,
+                                            long byteCredits, long opSize, int expectedReleases) {
+        this.numOutstanding = numOutstanding;
+        this.outstandingSize = outstandingSize;
+        this.opCredits = opCredits;
+        this.byteCredits = byteCredits;
+        this.opSize = opSize;
+        this.expectedReleases = expectedReleases;
+    }
+
+    @Test
+    public void testUpdateGrant() {
+        ClientFlowControl flowControl = new ClientFlowControl();
+        // sent before the bookie granted anything, the window is unbounded
+        for (int i = 0; i < numOutstanding; i++) {
+            Assert.assertTrue(flowControl.submit(new TestOp(outstandingSize)));
+        }
+        flowControl.updateGrant(FlowControlGrant.newBuilder()
+                .setOpCredits(opCredits)
+                .setByteCredits(byteCredits)
+                .build());
+
+        TestOp op = new TestOp(opSize);
+        flowControl.submit(op);
+        int releases = 0;
+        while (!op.sent && releases < numOutstanding) {
+            Assert.assertTrue(op.queued);
+            Assert.assertEquals(1, flowControl.getNumQueuedOps());
+            flowControl.release(outstandingSize);
+            releases++;
+        }
+        Assert.assertTrue(op.sent);
+        Assert.assertEquals(expectedReleases, releases);
+        Assert.assertEquals(0, flowControl.getNumQueuedOps());
+        Assert.assertFalse(op.discarded);
+    }
+
+    private static class TestOp implements ClientFlowControl.Op {
+        private final long size;
+        boolean sent = false;
+        boolean queued = false;
+        boolean discarded = false;
+
+        TestOp(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void send() {
+            sent = true;
+        }
+
+        @Override
+        public void onQueued() {
+            queued = true;
+        }
+
+        @Override
+        public void discard() {
+            discarded = true;
+        }
+    }
+}
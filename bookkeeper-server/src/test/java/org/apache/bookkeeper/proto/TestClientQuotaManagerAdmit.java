@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Throttling of a client going over its weighted request rate.
+ */
+@RunWith(Parameterized.class)
+public class TestClientQuotaManagerAdmit {
+
+    // an embedded channel is identified by its remote address
+    private static final String CLIENT_ID = "embedded";
+    private static final int REQUEST_RATE_LIMIT = 2;
+
+    // Test Parameters
+    private final String[] weights;
+    private final int numRequests;
+    private final boolean expectedPaused;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {weights,                               requests,   expected paused }
+            {new String[0],                             2,          false },
+            {new String[0],                             3,          true },
+            {new String[] {CLIENT_ID + ":2.0"},         4,          false },
+            {new String[] {CLIENT_ID + ":2.0"},         5,          true },
+            {new String[] {CLIENT_ID + ":0.5"},         1,          false },
+            {new String[] {CLIENT_ID + ":0.5"},         2,          true },
+            // the weight of another client does not apply
+            {new String[] {"other:2.0"},                3,          true },
+        });
+    }
+
+    public TestClientQuotaManagerAdmit(String[] weights, int numRequests, boolean expectedPaused) {
+        this.weights = weights;
+        this.numRequests = numRequests;
+        this.expectedPaused = expectedPaused;
+    }
+
+    @Test
+    public void testAdmit() throws Exception {
+        ServerConfiguration conf = new ServerConfiguration()
+                .setPerClientRequestRateLimit(REQUEST_RATE_LIMIT)
+                .setPerClientQuotaWeights(weights);
+        CapturingTimer timer = new CapturingTimer();
+        ClientQuotaManager quotaManager = new ClientQuotaManager(conf, timer, NullStatsLogger.INSTANCE);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        Assert.assertEquals(CLIENT_ID, ClientQuotaManager.clientId(channel));
+
+        for (int i = 0; i < numRequests; i++) {
+            quotaManager.admit(channel, 0L);
+        }
+        Assert.assertEquals(expectedPaused, !channel.config().isAutoRead());
+        Assert.assertEquals(expectedPaused ? 1 : 0, timer.tasks.size());
+
+        // the channel is resumed once the bucket refilled
+        for (TimerTask task : timer.tasks) {
+            task.run(null);
+        }
+        Assert.assertTrue(channel.config().isAutoRead());
+        channel.finishAndReleaseAll();
+    }
+
+    private static class CapturingTimer implements Timer {
+        final List<TimerTask> tasks = new ArrayList<>();
+
+        @Override
+        public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+            tasks.add(task);
+            return null;
+        }
+
+        @Override
+        public Set<Timeout> stop() {
+            return Collections.emptySet();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Parsing of the per-client quota weights.
+ */
+@RunWith(Parameterized.class)
+public class TestClientQuotaManagerParseWeights {
+
+    // Test Parameters
+    private final String[] entries;
+    private final Map<String, Double> expectedResult;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            {null,                                              Collections.emptyMap() },
+            {new String[0],                                     Collections.emptyMap() },
+            {new String[] {"client1:2.0", " client2 : 0.5 "},   weights("client1", 2.0, "client2", 0.5) },
+            // principals may contain colons, the weight is after the last one
+            {new String[] {"host:3181:4"},                      weights("host:3181", 4.0) },
+            // malformed and non positive weights are ignored
+            {new String[] {"client1", ":2.0", "client2:abc"},   Collections.emptyMap() },
+            {new String[] {"client1:0", "client2:-1", "client3:Infinity", "client4:NaN", "client5:1.5"},
+                                                                weights("client5", 1.5) },
+        });
+    }
+
+    private static Map<String, Double> weights(Object... keyValues) {
+        Map<String, Double> weights = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            weights.put((String) keyValues[i], (Double) keyValues[i + 1]);
+        }
+        return weights;
+    }
+
+    public TestClientQuotaManagerParseWeights(String[] entries, Map<String, Double> expectedResult) {
+        this.entries = entries;
+        this.expectedResult = expectedResult;
+    }
+
+    @Test
+    public void testParseWeights() {
+        Assert.assertEquals(expectedResult, ClientQuotaManager.parseWeights(entries));
+    }
+}
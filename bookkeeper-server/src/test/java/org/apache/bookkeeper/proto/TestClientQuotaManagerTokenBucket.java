@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Delay a client has to wait for after taking permits out of its token bucket.
+ */
+@RunWith(Parameterized.class)
+public class TestClientQuotaManagerTokenBucket {
+
+    private static final long START_NANOS = TimeUnit.SECONDS.toNanos(1000);
+
+    // Test Parameters
+    private final double rate;
+    private final double firstPermits;
+    private final long elapsedMillis;
+    private final double secondPermits;
+    private final long expectedDelayMillis;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {rate,  first permits,  elapsed ms, second permits, expected delay ms }
+            {100.0,     50.0,           0L,         50.0,           0L },
+            {100.0,     100.0,          0L,         1.0,            10L },
+            // the bucket refills with time
+            {100.0,     100.0,          500L,       50.0,           0L },
+            {100.0,     100.0,          500L,       60.0,           100L },
+            // but never holds more than one second of burst
+            {100.0,     100.0,          10000L,     150.0,          500L },
+            // the debt of a large request is paid by waiting
+            {100.0,     0.0,            0L,         300.0,          2000L },
+        });
+    }
+
+    public TestClientQuotaManagerTokenBucket(double rate, double firstPermits, long elapsedMillis,
+                                             double secondPermits, long expectedDelayMillis) {
+        this.rate = rate;
+        this.firstPermits = firstPermits;
+        this.elapsedMillis = elapsedMillis;
+        this.secondPermits = secondPermits;
+        this.expectedDelayMillis = expectedDelayMillis;
+    }
+
+    @Test
+    public void testTake() {
+        ClientQuotaManager.TokenBucket bucket = new ClientQuotaManager.TokenBucket(rate, START_NANOS);
+        Assert.assertEquals(0L, bucket.take(firstPermits, START_NANOS));
+        long delayNanos = bucket.take(secondPermits, START_NANOS + TimeUnit.MILLISECONDS.toNanos(elapsedMillis));
+        Assert.assertEquals(expectedDelayMillis, TimeUnit.NANOSECONDS.toMillis(delayNanos));
+    }
+}
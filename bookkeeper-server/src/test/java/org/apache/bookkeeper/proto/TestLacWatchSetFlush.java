@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.TimerTask;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.Watcher;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacResponse;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Updates of a watched ledger pushed to the client after the batch delay, and held back while the
+ * channel is not writable.
+ */
+@RunWith(Parameterized.class)
+public class TestLacWatchSetFlush {
+
+    private static final long LEDGER_ID = 1L;
+    private static final long UNWRITABLE_DELAY = LacWatchSet.UNWRITABLE_FLUSH_DELAY_MS;
+
+    // Test Parameters
+    private final int batchDelayMs;
+    private final boolean writable;
+    private final List<Long> expectedDelays;
+
+    private EmbeddedChannel channel;
+    private final AtomicReference<Long> bookieLac = new AtomicReference<>(5L);
+    private final AtomicReference<Watcher<LastAddConfirmedUpdateNotification>> watcher = new AtomicReference<>();
+    private final List<TimerTask> timerTasks = new ArrayList<>();
+    private final List<Long> timerDelays = new ArrayList<>();
+    private BookieRequestProcessor requestProcessor;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {batch delay,   writable,   delays of the flushes scheduled }
+            {0,                 true,       Arrays.asList() },
+            {5,                 true,       Arrays.asList(5L) },
+            // the flush is retried later instead of right away on the long poll thread
+            {0,                 false,      Arrays.asList(UNWRITABLE_DELAY) },
+            {5,                 false,      Arrays.asList(5L, UNWRITABLE_DELAY) },
+            {50,                false,      Arrays.asList(50L, 50L) },
+        });
+    }
+
+    public TestLacWatchSetFlush(int batchDelayMs, boolean writable, List<Long> expectedDelays) {
+        this.batchDelayMs = batchDelayMs;
+        this.writable = writable;
+        this.expectedDelays = expectedDelays;
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        channel = new EmbeddedChannel();
+        Bookie bookie = mock(Bookie.class);
+        when(bookie.readLastAddConfirmed(LEDGER_ID)).thenAnswer(invocation -> bookieLac.get());
+        when(bookie.waitForLastAddConfirmedUpdate(eq(LEDGER_ID), anyLong(), any())).thenAnswer(invocation -> {
+            watcher.set(invocation.getArgument(2));
+            return true;
+        });
+
+        HashedWheelTimer requestTimer = mock(HashedWheelTimer.class);
+        doAnswer(invocation -> {
+            timerTasks.add(invocation.getArgument(0));
+            timerDelays.add(invocation.getArgument(1));
+            return null;
+        }).when(requestTimer).newTimeout(any(), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        OrderedExecutor longPollThreadPool = mock(OrderedExecutor.class);
+        when(longPollThreadPool.chooseThread(any(Object.class))).thenReturn(MoreExecutors.newDirectExecutorService());
+        requestProcessor = mock(BookieRequestProcessor.class);
+        when(requestProcessor.getBookie()).thenReturn(bookie);
+        when(requestProcessor.getLongPollThreadPool()).thenReturn(longPollThreadPool);
+        when(requestProcessor.getServerCfg()).thenReturn(new ServerConfiguration()
+                .setLacWatchBatchDelayMs(batchDelayMs));
+        when(requestProcessor.getRequestStats()).thenReturn(new RequestStats(NullStatsLogger.INSTANCE));
+        when(requestProcessor.getRequestTimer()).thenReturn(requestTimer);
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        LacWatchSet watchSet = LacWatchSet.get(channel, requestProcessor);
+        WatchLacResponse.Builder response = WatchLacResponse.newBuilder();
+        watchSet.process(WatchLacRequest.newBuilder()
+                .addWatch(WatchLacRequest.WatchedLedger.newBuilder()
+                        .setLedgerId(LEDGER_ID)
+                        .setLastSeenLAC(bookieLac.get()))
+                .build(), response);
+        Assert.assertEquals(0, response.getNotificationsCount());
+        Assert.assertNotNull(watcher.get());
+
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable);
+        bookieLac.set(6L);
+        watcher.getAndSet(null).update(LastAddConfirmedUpdateNotification.of(6L));
+        // the first flush runs after the batch delay
+        if (batchDelayMs > 0) {
+            timerTasks.remove(0).run(null);
+        }
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        while (!timerTasks.isEmpty()) {
+            timerTasks.remove(0).run(null);
+        }
+        Assert.assertEquals(expectedDelays, timerDelays);
+
+        Response notification = channel.readOutbound();
+        Assert.assertNotNull(notification);
+        Assert.assertEquals(LacWatchSet.NOTIFICATION_TXN_ID, notification.getHeader().getTxnId());
+        Assert.assertEquals(1, notification.getWatchLacResponse().getNotificationsCount());
+        Assert.assertEquals(StatusCode.EOK, notification.getWatchLacResponse().getNotifications(0).getStatus());
+        Assert.assertEquals(6L, notification.getWatchLacResponse().getNotifications(0).getLac());
+        Assert.assertNull(channel.readOutbound());
+        // the ledger is watched again for the next update
+        Assert.assertNotNull(watcher.get());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.bookkeeper.proto;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.HashedWheelTimer;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.WatchLacResponse;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Notifications returned by the bookie in the response to a watch request.
+ */
+@RunWith(Parameterized.class)
+public class TestLacWatchSetProcess {
+
+    private static final long LEDGER_ID = 1L;
+
+    // Test Parameters
+    private final Object bookieLac;
+    private final long lastSeenLac;
+    private final int maxWatches;
+    private final StatusCode expectedStatus;
+    private final long expectedLac;
+    private final boolean expectedRegistered;
+
+    private EmbeddedChannel channel;
+    private Bookie bookie;
+    private BookieRequestProcessor requestProcessor;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testParameters() {
+        return Arrays.asList(new Object[][] {
+            //  {bookie lac,                    last seen,  max watches,    status,         lac,    registered }
+            {10L,                               5L,         10,             StatusCode.EOK, 10L,    true },
+            // nothing to notify until the lac advances past what the client saw
+            {5L,                                5L,         10,             null,           -1L,    true },
+            {5L,                                10L,        10,             null,           -1L,    true },
+            // the watch is dropped on errors
+            {new Bookie.NoLedgerException(LEDGER_ID), 5L,   10,             StatusCode.ENOLEDGER, -1L, false },
+            {new BookieException.DataUnknownException(), 5L, 10,  StatusCode.EUNKNOWNLEDGERSTATE, -1L, false },
+            {new IOException("test"),           5L,         10,             StatusCode.EIO, -1L,    false },
+            {10L,                               5L,         0,              StatusCode.ETOOMANYREQUESTS, -1L, false },
+        });
+    }
+
+    public TestLacWatchSetProcess(Object bookieLac, long lastSeenLac, int maxWatches, StatusCode expectedStatus,
+                                  long expectedLac, boolean expectedRegistered) {
+        this.bookieLac = bookieLac;
+        this.lastSeenLac = lastSeenLac;
+        this.maxWatches = maxWatches;
+        this.expectedStatus = expectedStatus;
+        this.expectedLac = expectedLac;
+        this.expectedRegistered = expectedRegistered;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        channel = new EmbeddedChannel();
+        bookie = mock(Bookie.class);
+        if (bookieLac instanceof Long) {
+            when(bookie.readLastAddConfirmed(LEDGER_ID)).thenReturn((Long) bookieLac);
+        } else {
+            when(bookie.readLastAddConfirmed(LEDGER_ID)).thenThrow((Throwable) bookieLac);
+        }
+        when(bookie.waitForLastAddConfirmedUpdate(eq(LEDGER_ID), anyLong(), any())).thenReturn(true);
+
+        OrderedExecutor longPollThreadPool = mock(OrderedExecutor.class);
+        when(longPollThreadPool.chooseThread(any(Object.class))).thenReturn(MoreExecutors.newDirectExecutorService());
+        requestProcessor = mock(BookieRequestProcessor.class);
+        when(requestProcessor.getBookie()).thenReturn(bookie);
+        when(requestProcessor.getLongPollThreadPool()).thenReturn(longPollThreadPool);
+        when(requestProcessor.getServerCfg()).thenReturn(new ServerConfiguration()
+                .setLacWatchBatchDelayMs(0)
+                .setMaxLacWatchesPerChannel(maxWatches));
+        when(requestProcessor.getRequestStats()).thenReturn(new RequestStats(NullStatsLogger.INSTANCE));
+        when(requestProcessor.getRequestTimer()).thenReturn(mock(HashedWheelTimer.class));
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        LacWatchSet watchSet = LacWatchSet.get(channel, requestProcessor);
+        Assert.assertSame(watchSet, LacWatchSet.get(channel, requestProcessor));
+
+        WatchLacResponse.Builder response = WatchLacResponse.newBuilder();
+        watchSet.process(WatchLacRequest.newBuilder()
+                .addWatch(WatchLacRequest.WatchedLedger.newBuilder()
+                        .setLedgerId(LEDGER_ID)
+                        .setLastSeenLAC(lastSeenLac))
+                .build(), response);
+
+        if (expectedStatus == null) {
+            Assert.assertEquals(0, response.getNotificationsCount());
+        } else {
+            Assert.assertEquals(1, response.getNotificationsCount());
+            WatchLacResponse.LacNotification notification = response.getNotifications(0);
+            Assert.assertEquals(LEDGER_ID, notification.getLedgerId());
+            Assert.assertEquals(expectedStatus, notification.getStatus());
+            if (expectedLac >= 0) {
+                Assert.assertEquals(expectedLac, notification.getLac());
+            } else {
+                Assert.assertFalse(notification.hasLac());
+            }
+        }
+        verify(bookie, times(expectedRegistered ? 1 : 0))
+                .waitForLastAddConfirmedUpdate(eq(LEDGER_ID), anyLong(), any());
+    }
+}
@@ -35,7 +35,12 @@ import io.etcd.jetcd.options.PutOption;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -48,6 +53,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerMetadataBatches;
 import org.apache.bookkeeper.meta.LedgerMetadataSerDe;
 import org.apache.bookkeeper.metadata.etcd.helpers.KeyIterator;
 import org.apache.bookkeeper.metadata.etcd.helpers.KeyStream;
@@ -77,14 +83,31 @@ class EtcdLedgerManager implements LedgerManager {
     private final ConcurrentMap<LedgerMetadataListener, LedgerMetadataConsumer> listeners =
         new ConcurrentHashMap<>();
 
+    static final int DEFAULT_BATCH_SIZE = 100;
+    // etcd limits the number of operations of a transaction to 128 by default
+    static final int MAX_BATCH_SIZE = 128;
+    static final int DEFAULT_MAX_OUTSTANDING_BATCHES = 4;
+
+    private final int batchSize;
+    private final int maxOutstandingBatches;
+
     private volatile boolean closed = false;
 
     EtcdLedgerManager(Client client,
                       String scope) {
+        this(client, scope, DEFAULT_BATCH_SIZE, DEFAULT_MAX_OUTSTANDING_BATCHES);
+    }
+
+    EtcdLedgerManager(Client client,
+                      String scope,
+                      int batchSize,
+                      int maxOutstandingBatches) {
         this.client = client;
         this.kvClient = client.getKVClient();
         this.scope = scope;
         this.watchClient = new EtcdWatchClient(client);
+        this.batchSize = Math.min(batchSize, MAX_BATCH_SIZE);
+        this.maxOutstandingBatches = maxOutstandingBatches;
     }
 
     private boolean isClosed() {
@@ -297,6 +320,75 @@ class EtcdLedgerManager implements LedgerManager {
         return promise;
     }
 
+    @Override
+    public CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadata(Collection<Long> ledgerIds) {
+        return LedgerMetadataBatches.run(ledgerIds, batchSize, maxOutstandingBatches,
+            this::readLedgersMetadataBatch);
+    }
+
+    private CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> readLedgersMetadataBatch(List<Long> ledgerIds) {
+        CompletableFuture<Map<Long, Versioned<LedgerMetadata>>> promise = new CompletableFuture<>();
+        // the batch is sorted, and the ledger keys sort as the ledger ids
+        long firstLedgerId = ledgerIds.get(0);
+        long lastLedgerId = ledgerIds.get(ledgerIds.size() - 1);
+        CompletableFuture<List<KeyValue>> kvsFuture;
+        if (lastLedgerId < Long.MAX_VALUE && lastLedgerId - firstLedgerId < 2L * ledgerIds.size()) {
+            // the ledgers are dense enough to get the whole range of keys
+            kvsFuture = kvClient.get(
+                getLedgerKeyBs(firstLedgerId),
+                GetOption.newBuilder()
+                    .withRange(getLedgerKeyBs(lastLedgerId + 1))
+                    .build())
+                .thenApply(GetResponse::getKvs);
+        } else {
+            List<io.etcd.jetcd.op.Op> ops = new ArrayList<>(ledgerIds.size());
+            for (long ledgerId : ledgerIds) {
+                ops.add(io.etcd.jetcd.op.Op.get(getLedgerKeyBs(ledgerId), GetOption.DEFAULT));
+            }
+            kvsFuture = kvClient.txn()
+                .Then(ops.toArray(new io.etcd.jetcd.op.Op[0]))
+                .commit()
+                .thenApply(txnResp -> {
+                    List<KeyValue> kvs = new ArrayList<>(ledgerIds.size());
+                    for (GetResponse getResp : txnResp.getGetResponses()) {
+                        kvs.addAll(getResp.getKvs());
+                    }
+                    return kvs;
+                });
+        }
+        Set<Long> batch = new HashSet<>(ledgerIds);
+        kvsFuture
+            .thenAccept(kvs -> {
+                Map<Long, Versioned<LedgerMetadata>> result = new HashMap<>(kvs.size());
+                for (KeyValue kv : kvs) {
+                    long ledgerId = EtcdUtils.parseLedgerKey(kv.getKey().toString(StandardCharsets.UTF_8))
+                        .getLeastSignificantBits();
+                    if (!batch.contains(ledgerId)) {
+                        continue;
+                    }
+                    try {
+                        LedgerMetadata metadata = serDe.parseConfig(kv.getValue().getBytes(), ledgerId,
+                            Optional.empty());
+                        result.put(ledgerId, new Versioned<>(metadata, new LongVersion(kv.getModRevision())));
+                    } catch (IOException ioe) {
+                        log.error("Could not parse ledger metadata for ledger : {}", ledgerId, ioe);
+                        promise.completeExceptionally(new BKException.MetaStoreException());
+                        return;
+                    }
+                }
+                promise.complete(result);
+            })
+            .exceptionally(cause -> {
+                promise.completeExceptionally(new BKException.MetaStoreException());
+                return null;
+            });
+        return promise;
+    }
+
+    private ByteSequence getLedgerKeyBs(long ledgerId) {
+        return ByteSequence.from(EtcdUtils.getLedgerKey(scope, ledgerId), StandardCharsets.UTF_8);
+    }
+
     private LedgerMetadataConsumer listenerToConsumer(long ledgerId,
                                                       LedgerMetadataListener listener,
                                                       Consumer<Long> onDeletedConsumer) {
@@ -43,6 +43,8 @@ class EtcdLedgerManagerFactory implements LedgerManagerFactory {
 
     private String scope;
     private Client client;
+    private int metadataBatchSize;
+    private int metadataBatchMaxOutstanding;
 
     @Override
     public int getCurrentVersion() {
@@ -67,6 +69,8 @@ class EtcdLedgerManagerFactory implements LedgerManagerFactory {
             throw new IOException("Invalid metadata service uri", e);
         }
         this.client = etcdLayoutManager.getClient();
+        this.metadataBatchSize = conf.getMetadataBatchSize();
+        this.metadataBatchMaxOutstanding = conf.getMetadataBatchMaxOutstanding();
         return this;
     }
 
@@ -83,7 +87,7 @@ class EtcdLedgerManagerFactory implements LedgerManagerFactory {
 
     @Override
     public LedgerManager newLedgerManager() {
-        return new EtcdLedgerManager(client, scope);
+        return new EtcdLedgerManager(client, scope, metadataBatchSize, metadataBatchMaxOutstanding);
     }
 
     @Override
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteFlag;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.common.util.SafeRunnable;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Steady state add path of a ledger handle, against an in-process bookie client which acknowledges
+ * every write request.
+ *
+ * <p>The ledger handle runs its operations on the calling thread and the acknowledgements of the
+ * bookies are delivered once the add was sent, so each invocation goes through a full add: digest,
+ * write requests to the write quorum, acknowledgements and completion callback. Run it with
+ * {@code -prof gc} to follow the heap allocations of the add path. The payload and the digest
+ * header are taken from the pooled allocator, so they do not show up in {@code gc.alloc.rate.norm},
+ * which stays at a few bytes per op rather than exactly 0.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class AddEntryBenchmark {
+
+    /**
+     * Runs the tasks of the ledger handle on the thread submitting them.
+     */
+    static class InlineExecutor extends OrderedExecutor {
+        InlineExecutor() {
+            super("add-benchmark", 1, Executors.defaultThreadFactory(), NullStatsLogger.INSTANCE,
+                    false, false, -1, -1, false, false);
+        }
+
+        @Override
+        public void executeOrdered(long orderingKey, SafeRunnable r) {
+            r.run();
+        }
+    }
+
+    /**
+     * Bookie client which queues the write requests and acknowledges them on {@link #ackAll()}.
+     *
+     * <p>The acknowledgements are not delivered from {@code addEntry}, as the bookie client never
+     * calls back before the request is sent.
+     */
+    static class AckingBookieClient implements BookieClient {
+        private static final int MAX_PENDING = 64;
+
+        private final BookieId[] addresses = new BookieId[MAX_PENDING];
+        private final long[] ledgerIds = new long[MAX_PENDING];
+        private final long[] entryIds = new long[MAX_PENDING];
+        private final WriteCallback[] callbacks = new WriteCallback[MAX_PENDING];
+        private final Object[] contexts = new Object[MAX_PENDING];
+        private int numPending = 0;
+
+        void ackAll() {
+            for (int i = 0; i < numPending; i++) {
+                WriteCallback cb = callbacks[i];
+                Object ctx = contexts[i];
+                callbacks[i] = null;
+                contexts[i] = null;
+                cb.writeComplete(BKException.Code.OK, ledgerIds[i], entryIds[i], addresses[i], ctx);
+            }
+            numPending = 0;
+        }
+
+        @Override
+        public void addEntry(BookieId address, long ledgerId, byte[] masterKey,
+                             long entryId, ByteBufList toSend, WriteCallback cb, Object ctx,
+                             int options, boolean allowFastFail, EnumSet<WriteFlag> writeFlags) {
+            addresses[numPending] = address;
+            ledgerIds[numPending] = ledgerId;
+            entryIds[numPending] = entryId;
+            callbacks[numPending] = cb;
+            contexts[numPending] = ctx;
+            numPending++;
+        }
+
+        @Override
+        public List<BookieId> getFaultyBookies() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isWritable(BookieId address, long ledgerId) {
+            return true;
+        }
+
+        @Override
+        public long getNumPendingRequests(BookieId address, long ledgerId) {
+            return 0;
+        }
+
+        @Override
+        public void forceLedger(BookieId address, long ledgerId, ForceLedgerCallback cb, Object ctx) {
+            cb.forceLedgerComplete(BKException.Code.IllegalOpException, ledgerId, address, ctx);
+        }
+
+        @Override
+        public void readLac(BookieId address, long ledgerId, ReadLacCallback cb, Object ctx) {
+            cb.readLacComplete(BKException.Code.IllegalOpException, ledgerId, null, null, ctx);
+        }
+
+        @Override
+        public void writeLac(BookieId address, long ledgerId, byte[] masterKey,
+                             long lac, ByteBufList toSend, WriteLacCallback cb, Object ctx) {
+            cb.writeLacComplete(BKException.Code.IllegalOpException, ledgerId, address, ctx);
+        }
+
+        @Override
+        public void readEntry(BookieId address, long ledgerId, long entryId,
+                              ReadEntryCallback cb, Object ctx, int flags, byte[] masterKey,
+                              boolean allowFastFail) {
+            cb.readEntryComplete(BKException.Code.IllegalOpException, ledgerId, entryId, null, ctx);
+        }
+
+        @Override
+        public void readEntryWaitForLACUpdate(BookieId address, long ledgerId, long entryId, long previousLAC,
+                                              long timeOutInMillis, boolean piggyBackEntry,
+                                              ReadEntryCallback cb, Object ctx) {
+            cb.readEntryComplete(BKException.Code.IllegalOpException, ledgerId, entryId, null, ctx);
+        }
+
+        @Override
+        public void getBookieInfo(BookieId address, long requested, GetBookieInfoCallback cb, Object ctx) {
+            cb.getBookieInfoComplete(BKException.Code.IllegalOpException, null, ctx);
+        }
+
+        @Override
+        public CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
+                                                                                         long ledgerId) {
+            CompletableFuture<AvailabilityOfEntriesOfLedger> future = new CompletableFuture<>();
+            future.completeExceptionally(new BKException.BKIllegalOpException());
+            return future;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Ledger handle under test and the client context it runs in.
+     */
+    @State(Scope.Thread)
+    public static class TestState {
+        @Param({"3"})
+        int ensembleSize;
+
+        @Param({"2"})
+        int ackQuorumSize;
+
+        @Param({"1024"})
+        int entrySize;
+
+        ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+        byte[] data;
+        AckingBookieClient bookieClient;
+        OrderedExecutor mainWorkerPool;
+        OrderedScheduler scheduler;
+        LedgerHandle lh;
+        int lastRc = BKException.Code.OK;
+        final AddCallback callback = (rc, handle, entryId, ctx) -> lastRc = rc;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            data = new byte[entrySize];
+
+            ClientConfiguration conf = new ClientConfiguration();
+            conf.setUseV2WireProtocol(true);
+            ClientInternalConf internalConf = ClientInternalConf.fromConfig(conf);
+            BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE);
+            bookieClient = new AckingBookieClient();
+            mainWorkerPool = new InlineExecutor();
+            scheduler = OrderedScheduler.newSchedulerBuilder().name("add-benchmark-scheduler").numThreads(1).build();
+
+            ClientContext clientCtx = new ClientContext() {
+                @Override
+                public ClientInternalConf getConf() {
+                    return internalConf;
+                }
+
+                @Override
+                public LedgerManager getLedgerManager() {
+                    return null;
+                }
+
+                @Override
+                public BookieWatcher getBookieWatcher() {
+                    return null;
+                }
+
+                @Override
+                public EnsemblePlacementPolicy getPlacementPolicy() {
+                    return null;
+                }
+
+                @Override
+                public BookieClient getBookieClient() {
+                    return bookieClient;
+                }
+
+                @Override
+                public ByteBufAllocator getByteBufAllocator() {
+                    return allocator;
+                }
+
+                @Override
+                public OrderedExecutor getMainWorkerPool() {
+                    return mainWorkerPool;
+                }
+
+                @Override
+                public OrderedScheduler getScheduler() {
+                    return scheduler;
+                }
+
+                @Override
+                public BookKeeperClientStats getClientStats() {
+                    return clientStats;
+                }
+
+                @Override
+                public boolean isClientClosed() {
+                    return false;
+                }
+
+                @Override
+                public ClientEntryCache getEntryCache() {
+                    return null;
+                }
+
+                @Override
+                public LedgerMetadataCache getLedgerMetadataCache() {
+                    return null;
+                }
+
+                @Override
+                public LacWatchManager getLacWatchManager() {
+                    return null;
+                }
+
+                @Override
+                public ClientMemoryLimiter getMemoryLimiter() {
+                    return null;
+                }
+
+                @Override
+                public LedgerRecoveryLimiter getRecoveryLimiter() {
+                    return null;
+                }
+            };
+
+            List<BookieId> ensemble = new ArrayList<>(ensembleSize);
+            for (int i = 0; i < ensembleSize; i++) {
+                ensemble.add(new BookieSocketAddress("127.0.0." + (i + 1), 3181).toBookieId());
+            }
+            byte[] password = new byte[0];
+            LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                    .withId(1L)
+                    .withPassword(password)
+                    .withDigestType(BookKeeper.DigestType.CRC32C.toApiDigestType())
+                    .withEnsembleSize(ensembleSize)
+                    .withWriteQuorumSize(ensembleSize)
+                    .withAckQuorumSize(ackQuorumSize)
+                    .newEnsembleEntry(0L, ensemble)
+                    .build();
+            lh = new LedgerHandle(clientCtx, 1L, new Versioned<>(metadata, new LongVersion(0L)),
+                    BookKeeper.DigestType.CRC32C, password, WriteFlag.NONE);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            scheduler.shutdown();
+            mainWorkerPool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int addEntry(TestState s) {
+        ByteBuf payload = s.allocator.directBuffer(s.entrySize, s.entrySize);
+        payload.writeBytes(s.data);
+        s.lh.asyncAddEntry(payload, s.callback, null);
+        s.bookieClient.ackAll();
+        if (s.lastRc != BKException.Code.OK) {
+            throw new IllegalStateException("Add failed : " + BKException.getMessage(s.lastRc));
+        }
+        return s.lastRc;
+    }
+}
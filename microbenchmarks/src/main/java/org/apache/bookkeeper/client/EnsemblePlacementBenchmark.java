@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.util.HashedWheelTimer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.net.DNSToSwitchMapping;
+import org.apache.bookkeeper.net.NetworkTopology;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ensemble placement of the rack aware placement policy over a large cluster.
+ *
+ * <p>The bookies are spread evenly across the racks, and the policy is shared by all the benchmark
+ * threads, so the contended variants show how placement scales with the number of clients creating
+ * ledgers concurrently.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class EnsemblePlacementBenchmark {
+
+    /**
+     * Resolves the bookies to the racks they were assigned to.
+     */
+    static class RackResolver implements DNSToSwitchMapping {
+        final Map<String, String> racks = new HashMap<>();
+
+        @Override
+        public List<String> resolve(List<String> names) {
+            List<String> resolved = new ArrayList<>(names.size());
+            for (String name : names) {
+                resolved.add(racks.getOrDefault(name, NetworkTopology.DEFAULT_REGION_AND_RACK));
+            }
+            return resolved;
+        }
+
+        @Override
+        public void reloadCachedMappings() {
+            // nop
+        }
+
+        @Override
+        public boolean useHostName() {
+            return false;
+        }
+    }
+
+    /**
+     * The cluster and the placement policy under test.
+     */
+    @State(Scope.Benchmark)
+    public static class TestState {
+        @Param({"5000"})
+        int numBookies;
+
+        @Param({"200"})
+        int numRacks;
+
+        @Param({"3"})
+        int ensembleSize;
+
+        List<BookieId> bookies;
+        RackawareEnsemblePlacementPolicy policy;
+        HashedWheelTimer timer;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            RackResolver resolver = new RackResolver();
+            bookies = new ArrayList<>(numBookies);
+            Set<BookieId> writable = new HashSet<>();
+            for (int i = 0; i < numBookies; i++) {
+                String ip = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+                resolver.racks.put(ip, "/default-region/rack-" + (i % numRacks));
+                BookieId bookie = new BookieSocketAddress(ip, 3181).toBookieId();
+                bookies.add(bookie);
+                writable.add(bookie);
+            }
+
+            ClientConfiguration conf = new ClientConfiguration();
+            timer = new HashedWheelTimer();
+            policy = new RackawareEnsemblePlacementPolicy();
+            policy.initialize(conf, Optional.of(resolver), timer, new SettableFeatureProvider("", 0),
+                    NullStatsLogger.INSTANCE, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+            policy.onClusterChanged(writable, Collections.emptySet());
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            policy.uninitalize();
+            timer.stop();
+        }
+    }
+
+    @Benchmark
+    public List<BookieId> newEnsemble(TestState s) throws Exception {
+        return s.policy.newEnsemble(s.ensembleSize, s.ensembleSize, s.ensembleSize, Collections.emptyMap(),
+                Collections.emptySet()).getResult();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<BookieId> newEnsembleContended(TestState s) throws Exception {
+        return newEnsemble(s);
+    }
+
+    @Benchmark
+    public BookieId replaceBookie(TestState s) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<BookieId> ensemble = new ArrayList<>(s.ensembleSize);
+        for (int i = 0; i < s.ensembleSize; i++) {
+            ensemble.add(s.bookies.get(random.nextInt(s.bookies.size())));
+        }
+        return s.policy.replaceBookie(s.ensembleSize, s.ensembleSize, s.ensembleSize, Collections.emptyMap(),
+                ensemble, ensemble.get(0), Collections.emptySet()).getResult();
+    }
+}
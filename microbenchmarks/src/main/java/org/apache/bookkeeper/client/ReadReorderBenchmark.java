@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.util.HashedWheelTimer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.client.TopologyAwareEnsemblePlacementPolicy.DefaultResolver;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.net.NetworkTopology;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read ordering of the rack aware placement policy against simulated bookies.
+ *
+ * <p>Each bookie of the ensemble serves reads with an exponentially distributed latency around its
+ * own mean, and the bookie a read is sent to is the first one of the reordered write set. Besides
+ * the cost of the reordering itself, the benchmark reports the simulated latency of the reads in
+ * the {@code simulatedLatencyMicros} counter, to be divided by the {@code reads} counter.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class ReadReorderBenchmark {
+
+    /**
+     * Simulated bookies and the placement policy under test.
+     */
+    @State(Scope.Thread)
+    public static class TestState {
+        @Param({"false", "true"})
+        boolean latencyAware;
+
+        // mean read latency of each bookie of the ensemble
+        @Param({"1000,2000,10000"})
+        String meanLatencyMicros;
+
+        List<BookieId> ensemble;
+        long[] means;
+        long[] ewmaNanos;
+        RoundRobinDistributionSchedule schedule;
+        RackawareEnsemblePlacementPolicy policy;
+        HashedWheelTimer timer;
+        BookiesHealthInfo healthInfo;
+        long entryId = 0;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            String[] latencies = meanLatencyMicros.split(",");
+            means = new long[latencies.length];
+            ewmaNanos = new long[latencies.length];
+            ensemble = new ArrayList<>(latencies.length);
+            Set<BookieId> writable = new HashSet<>();
+            for (int i = 0; i < latencies.length; i++) {
+                means[i] = Long.parseLong(latencies[i].trim());
+                ewmaNanos[i] = -1L;
+                BookieId bookie = new BookieSocketAddress("127.0.0." + (i + 1), 3181).toBookieId();
+                ensemble.add(bookie);
+                writable.add(bookie);
+            }
+            schedule = new RoundRobinDistributionSchedule(ensemble.size(), ensemble.size(), ensemble.size());
+
+            ClientConfiguration conf = new ClientConfiguration();
+            conf.setProperty(RackawareEnsemblePlacementPolicyImpl.REPP_LATENCY_AWARE_READ_REORDERING, latencyAware);
+            timer = new HashedWheelTimer();
+            policy = new RackawareEnsemblePlacementPolicy();
+            policy.initialize(conf, Optional.of(new DefaultResolver(() -> NetworkTopology.DEFAULT_RACK)), timer,
+                    new SettableFeatureProvider("", 0), NullStatsLogger.INSTANCE,
+                    BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+            policy.onClusterChanged(writable, Collections.emptySet());
+
+            healthInfo = new BookiesHealthInfo() {
+                @Override
+                public long getBookieFailureHistory(BookieId bookieSocketAddress) {
+                    return -1L;
+                }
+
+                @Override
+                public long getBookiePendingRequests(BookieId bookieSocketAddress) {
+                    return 0L;
+                }
+
+                @Override
+                public long getBookieReadLatencyEwmaNanos(BookieId bookieSocketAddress) {
+                    return ewmaNanos[ensemble.indexOf(bookieSocketAddress)];
+                }
+            };
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            policy.uninitalize();
+            timer.stop();
+        }
+
+        long simulateRead(int bookieIdx) {
+            double u = ThreadLocalRandom.current().nextDouble();
+            long latencyMicros = (long) (-means[bookieIdx] * Math.log(1.0 - u));
+            long latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+            // same moving average as the per channel bookie client
+            long current = ewmaNanos[bookieIdx];
+            ewmaNanos[bookieIdx] = current < 0 ? latencyNanos : current + (long) (0.2 * (latencyNanos - current));
+            return latencyMicros;
+        }
+    }
+
+    /**
+     * Counters of the simulated reads.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SimulatedReads {
+        public long reads;
+        public long simulatedLatencyMicros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            reads = 0;
+            simulatedLatencyMicros = 0;
+        }
+    }
+
+    @Benchmark
+    public int reorderRead(TestState s, SimulatedReads counters) {
+        DistributionSchedule.WriteSet writeSet = s.schedule.getWriteSet(s.entryId++);
+        try {
+            DistributionSchedule.WriteSet ordered = s.policy.reorderReadSequence(s.ensemble, s.healthInfo, writeSet);
+            int first = ordered.get(0);
+            counters.reads++;
+            counters.simulatedLatencyMicros += s.simulateRead(first);
+            return first;
+        } finally {
+            writeSet.recycle();
+        }
+    }
+}
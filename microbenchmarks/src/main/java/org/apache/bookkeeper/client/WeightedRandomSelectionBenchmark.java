@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.WeightedRandomSelection.WeightedObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Weighted random selection of bookies by free disk space.
+ *
+ * <p>{@code getNextRandom} measures picking a bookie, {@code updateFewWeights} measures updating
+ * the weights of the selection when the free disk space of a few bookies changed, which is what
+ * happens every time the bookie info is read.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+public class WeightedRandomSelectionBenchmark {
+
+    /**
+     * The selection under test.
+     */
+    @State(Scope.Thread)
+    public static class TestState {
+        @Param({"cumulative", "dynamic", "alias"})
+        String impl;
+
+        @Param({"100", "1000", "10000"})
+        int numBookies;
+
+        // bookies whose weight changes between two updates
+        @Param({"4"})
+        int numChanged;
+
+        WeightedRandomSelection<Integer> selection;
+        Map<Integer, WeightedObject> weights;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            switch (impl) {
+            case "cumulative":
+                selection = new WeightedRandomSelectionImpl<>(3);
+                break;
+            case "dynamic":
+                selection = new DynamicWeightedRandomSelectionImpl<>(3);
+                break;
+            case "alias":
+                selection = new AliasWeightedRandomSelectionImpl<>(3);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + impl);
+            }
+            weights = new HashMap<>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < numBookies; i++) {
+                weights.put(i, randomBookieInfo(random));
+            }
+            selection.updateMap(weights);
+        }
+
+        static BookieInfo randomBookieInfo(ThreadLocalRandom random) {
+            long total = 1L << 40;
+            return new BookieInfo(total, random.nextLong(total));
+        }
+    }
+
+    @Benchmark
+    public Integer getNextRandom(TestState s) {
+        return s.selection.getNextRandom();
+    }
+
+    @Benchmark
+    public void updateFewWeights(TestState s) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Integer, WeightedObject> weights = new HashMap<>(s.weights);
+        for (int i = 0; i < s.numChanged; i++) {
+            weights.put(random.nextInt(s.numBookies), TestState.randomBookieInfo(random));
+        }
+        s.weights = weights;
+        s.selection.updateMap(weights);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.meta;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bookkeeper.client.LedgerMetadataBuilder;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.shims.zk.ZooKeeperServerShim;
+import org.apache.bookkeeper.util.IOUtils;
+import org.apache.bookkeeper.util.LocalBookKeeper;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.apache.bookkeeper.zookeeper.ZooKeeperClient;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading and writing the metadata of many ledgers from a local zookeeper server, one ledger at a time
+ * against the batched operations of the ledger manager.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class LedgerMetadataBatchBenchmark {
+
+    /**
+     * The zookeeper server and the ledgers under test.
+     */
+    @State(Scope.Benchmark)
+    public static class TestState {
+        @Param({"1000"})
+        int numLedgers;
+
+        @Param({"100"})
+        int batchSize;
+
+        @Param({"4"})
+        int maxOutstandingBatches;
+
+        File zkDir;
+        ZooKeeperServerShim zks;
+        ZooKeeperClient zkc;
+        LedgerManager ledgerManager;
+        List<Long> ledgerIds;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            int zkPort;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                zkPort = socket.getLocalPort();
+            }
+            zkDir = IOUtils.createTempDir("zookeeper", "benchmark");
+            zks = LocalBookKeeper.runZookeeper(1000, zkPort, zkDir);
+            zkc = ZooKeeperClient.newBuilder()
+                    .connectString("127.0.0.1:" + zkPort)
+                    .sessionTimeoutMs(30000)
+                    .build();
+
+            ClientConfiguration conf = new ClientConfiguration()
+                    .setMetadataServiceUri("zk+hierarchical://127.0.0.1:" + zkPort + "/ledgers")
+                    .setMetadataBatchSize(batchSize)
+                    .setMetadataBatchMaxOutstanding(maxOutstandingBatches);
+            ledgerManager = new HierarchicalLedgerManager(conf, zkc);
+
+            List<BookieId> ensemble = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ensemble.add(new BookieSocketAddress("127.0.0." + (i + 1), 3181).toBookieId());
+            }
+            ledgerIds = new ArrayList<>(numLedgers);
+            List<CompletableFuture<Versioned<LedgerMetadata>>> creates = new ArrayList<>(numLedgers);
+            for (long ledgerId = 0; ledgerId < numLedgers; ledgerId++) {
+                LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                        .withId(ledgerId)
+                        .withEnsembleSize(3).withWriteQuorumSize(3).withAckQuorumSize(2)
+                        .withPassword(new byte[0]).withDigestType(DigestType.CRC32C)
+                        .newEnsembleEntry(0L, ensemble)
+                        .build();
+                ledgerIds.add(ledgerId);
+                creates.add(ledgerManager.createLedgerMetadata(ledgerId, metadata));
+            }
+            FutureUtils.result(FutureUtils.collect(creates));
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws Exception {
+            ledgerManager.close();
+            zkc.close();
+            zks.stop();
+            FileUtils.deleteDirectory(zkDir);
+        }
+    }
+
+    @Benchmark
+    public List<Versioned<LedgerMetadata>> readOneByOne(TestState s) throws Exception {
+        List<CompletableFuture<Versioned<LedgerMetadata>>> reads = new ArrayList<>(s.numLedgers);
+        for (long ledgerId : s.ledgerIds) {
+            reads.add(s.ledgerManager.readLedgerMetadata(ledgerId));
+        }
+        return FutureUtils.result(FutureUtils.collect(reads));
+    }
+
+    @Benchmark
+    public Map<Long, Versioned<LedgerMetadata>> readBatched(TestState s) throws Exception {
+        return FutureUtils.result(s.ledgerManager.readLedgersMetadata(s.ledgerIds));
+    }
+
+    @Benchmark
+    public List<Versioned<LedgerMetadata>> writeOneByOne(TestState s) throws Exception {
+        Map<Long, Versioned<LedgerMetadata>> ledgers = FutureUtils.result(
+                s.ledgerManager.readLedgersMetadata(s.ledgerIds));
+        List<CompletableFuture<Versioned<LedgerMetadata>>> writes = new ArrayList<>(s.numLedgers);
+        for (Map.Entry<Long, Versioned<LedgerMetadata>> e : ledgers.entrySet()) {
+            writes.add(s.ledgerManager.writeLedgerMetadata(e.getKey(), e.getValue().getValue(),
+                    e.getValue().getVersion()));
+        }
+        return FutureUtils.result(FutureUtils.collect(writes));
+    }
+
+    @Benchmark
+    public Map<Long, Versioned<LedgerMetadata>> writeBatched(TestState s) throws Exception {
+        Map<Long, Versioned<LedgerMetadata>> ledgers = new HashMap<>(FutureUtils.result(
+                s.ledgerManager.readLedgersMetadata(s.ledgerIds)));
+        return FutureUtils.result(s.ledgerManager.writeLedgersMetadata(ledgers));
+    }
+}
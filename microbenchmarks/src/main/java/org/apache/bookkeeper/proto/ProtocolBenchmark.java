@@ -20,8 +20,11 @@ package org.apache.bookkeeper.proto;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.ExtensionRegistry;
+import com.google.protobuf.UnsafeByteOperations;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 
@@ -65,6 +68,7 @@ public class ProtocolBenchmark {
     short flags;
     EnDecoder reqEnDeV2;
     EnDecoder reqEnDeV3;
+    ByteBuf encodedAddEntryV3;
 
     @Setup
     public void prepare() {
@@ -78,7 +82,31 @@ public class ProtocolBenchmark {
 
         // prepare the encoder
         this.reqEnDeV2 = new RequestEnDeCoderPreV3(null);
-        this.reqEnDeV3 = new RequestEnDecoderV3(null);
+        this.reqEnDeV3 = new RequestEnDecoderV3(ExtensionRegistry.newInstance());
+
+        // a serialized v3 add request, as the bookie receives it
+        try {
+            this.encodedAddEntryV3 = (ByteBuf) this.reqEnDeV3.encode(newAddRequestV3(), ByteBufAllocator.DEFAULT);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Request newAddRequestV3() {
+        BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.ADD_ENTRY)
+                .setTxnId(0L);
+        AddRequest.Builder addBuilder = AddRequest.newBuilder()
+                .setLedgerId(ledgerId)
+                .setEntryId(entryId)
+                .setMasterKey(UnsafeByteOperations.unsafeWrap(masterKey))
+                .setBody(UnsafeByteOperations.unsafeWrap(entry.nioBuffer()))
+                .setFlag(AddRequest.Flag.RECOVERY_ADD);
+        return Request.newBuilder()
+                .setHeader(headerBuilder)
+                .setAddRequest(addBuilder)
+                .build();
     }
 
 
@@ -196,4 +224,22 @@ public class ProtocolBenchmark {
         Object res = this.reqEnDeV3.encode(request, ByteBufAllocator.DEFAULT);
         ReferenceCountUtil.release(res);
     }
+
+    @Benchmark
+    public void testAddEntryV3NoCopy() throws Exception {
+        // mirrors PerChannelBookieClient, which wraps the payload instead of copying it
+        Object res = this.reqEnDeV3.encode(newAddRequestV3(), ByteBufAllocator.DEFAULT);
+        ReferenceCountUtil.release(res);
+    }
+
+    @Benchmark
+    public Object testDecodeAddEntryV3() throws Exception {
+        return this.reqEnDeV3.decode(encodedAddEntryV3.duplicate());
+    }
+
+    @Benchmark
+    public Object testDecodeAddEntryV3FromStream() throws Exception {
+        // the previous decode path, kept as a baseline
+        return Request.parseFrom(new ByteBufInputStream(encodedAddEntryV3.duplicate()));
+    }
 }